@@ -1,8 +1,92 @@
+import java.util.HashMap;
+import java.util.Map;
+
+import model.ConcurrentParkingLot;
+import model.LockFreeParkingLot;
+import model.ParkingLot;
+import simulation.GateSimulator;
+import simulation.LoadProfile;
+import simulation.SimulationReport;
+
+/*
+Runs a load run of a lot with the GateSimulator and prints its report. Every setting can be given
+as name=value, e.g. java Launcher spots=20000 clients=5000 lot=lockfree; the defaults are below. The
+spots are split by type in the same shares as the vehicles. With the same settings (and seed), the
+run plays back the same traffic.
+*/
 public class Launcher {
-    public static void main(String[] args) {
-        System.out.println(0);
-        System.out.println(1);
-        
 
+    // Settings of a run and their defaults
+    private static final String[][] DEFAULTS = {
+        {"lot", "concurrent"},   // concurrent, lockfree or single (ParkingLot, only with clients=1)
+        {"spots", "10000"},
+        {"clients", "1000"},  // Gate clients, each on a thread of its own
+        {"arrivalsPerHour", "6000"},
+        {"meanStayMinutes", "90"},
+        {"staySpread", "0.8"},
+        {"motorcycleShare", "0.1"},
+        {"commercialShare", "0.05"},
+        {"hours", "2"},
+        {"speedup", "1800"},     // Simulated seconds per second, 0 = as fast as possible
+        {"seed", "1"}
+    };
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> settings = parseSettings(args);
+        LoadProfile profile = new LoadProfile(
+            Double.parseDouble(settings.get("arrivalsPerHour")),
+            Double.parseDouble(settings.get("meanStayMinutes")),
+            Double.parseDouble(settings.get("staySpread")),
+            Double.parseDouble(settings.get("motorcycleShare")),
+            Double.parseDouble(settings.get("commercialShare")));
+        int clients = Integer.parseInt(settings.get("clients"));
+        if (settings.get("lot").equals("single") && clients > 1) {
+            // ParkingLot is not thread safe, so clients of their own threads would corrupt it
+            throw new IllegalArgumentException("lot=single takes clients=1");
+        }
+        ParkingLot lot = buildLot(settings.get("lot"), Integer.parseInt(settings.get("spots")), profile);
+
+        GateSimulator simulator = new GateSimulator(lot, profile, clients,
+            Double.parseDouble(settings.get("speedup")), Long.parseLong(settings.get("seed")));
+        SimulationReport report = simulator.run(Double.parseDouble(settings.get("hours")));
+        for (String[] setting: DEFAULTS) {
+            System.out.println("# " + setting[0] + "=" + settings.get(setting[0]));
+        }
+        System.out.print(report.export());
+    }
+
+    ///// HELPER METHODS /////
+
+    // Returns the settings: the defaults, replaced by the name=value arguments
+    private static Map<String, String> parseSettings(String[] args) {
+        Map<String, String> settings = new HashMap<>();
+        for (String[] setting: DEFAULTS) {
+            settings.put(setting[0], setting[1]);
+        }
+        for (String arg: args) {
+            int split = arg.indexOf('=');
+            if (split < 0 || !settings.containsKey(arg.substring(0, split))) {
+                throw new IllegalArgumentException("Unknown setting: " + arg);
+            }
+            settings.put(arg.substring(0, split), arg.substring(split + 1));
+        }
+        return settings;
+    }
+
+    // Builds an empty lot of the given kind with the spots split by type like the vehicles
+    private static ParkingLot buildLot(String kind, int spots, LoadProfile profile) {
+        ParkingLot lot = switch (kind) {
+            case "concurrent" -> new ConcurrentParkingLot("Load run");
+            case "lockfree" -> new LockFreeParkingLot("Load run");
+            case "single" -> new ParkingLot("Load run");
+            default -> throw new IllegalArgumentException("Unknown lot: " + kind);
+        };
+        int motorcycleSpots = (int) (spots * profile.getMotorcycleShare());
+        int commercialSpots = (int) (spots * profile.getCommercialShare());
+        for (int id = 0; id < spots; id++) {
+            int flag = id < motorcycleSpots ? 1 : id < motorcycleSpots + commercialSpots ? 2 : 0;
+            lot.addParkingSpot(id, id % 1000, flag);
+        }
+        return lot;
     }
 }
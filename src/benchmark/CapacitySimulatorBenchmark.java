@@ -0,0 +1,74 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.Intersection;
+import model.ParkingLot;
+import simulation.CapacityReport;
+import simulation.CapacitySimulator;
+import simulation.LoadProfile;
+
+/*
+JMH benchmark of the capacity simulator (time per simulated month): a garage of 10,000 spots (85%
+car, 10% motorcycle, 5% commercial) in aisles of 100, every spot connected to the intersection of
+its aisle, the intersections chained, an entrance at both ends of the chain and the lobby in the
+middle. Vehicles arrive at 2,800 an hour and stay 3 hours on average (about 85% full), for 30 days.
+    java -jar target/benchmarks.jar CapacitySimulatorBenchmark
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class CapacitySimulatorBenchmark {
+
+    private static final int LOT_SIZE = 10_000;
+    private static final int AISLE_SIZE = 100;
+
+    @Param({"FURTHEST", "SHORTEST_ROUTE"})
+    public CapacitySimulator.Allocation allocation;
+
+    public CapacitySimulator simulator;
+
+    @Setup
+    public void setUp() {
+        ParkingLot lot = new ParkingLot("Garage");
+        Intersection[] aisles = new Intersection[LOT_SIZE / AISLE_SIZE];
+        for (int aisle = 0; aisle < aisles.length; aisle++) {
+            aisles[aisle] = new Intersection(aisle, "Aisle " + aisle);
+            if (aisle > 0) {
+                lot.getGraph().connectVertices(aisles[aisle - 1], aisles[aisle], 10);
+            }
+        }
+        for (int id = 0; id < LOT_SIZE; id++) {
+            int flag = id % 20 < 17 ? 0 : id % 20 < 19 ? 1 : 2;
+            lot.addParkingSpot(id, id, flag);
+            lot.connectSpot(id, aisles[id / AISLE_SIZE], 1 + id % AISLE_SIZE);
+        }
+        lot.addEntrance(0, aisles[0]);
+        lot.addEntrance(1, aisles[aisles.length - 1]);
+
+        LoadProfile profile = new LoadProfile(2800, 180, 0.8, 0.1, 0.05);
+        simulator = new CapacitySimulator(lot, profile, allocation, 1);
+        simulator.walkTo(aisles[aisles.length / 2]);
+    }
+
+    // Simulates a month (the lot is empty again after every run)
+    @Benchmark
+    public CapacityReport simulateMonth() {
+        return simulator.run(30);
+    }
+}
@@ -0,0 +1,124 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.ConcurrentParkingLot;
+import model.EventLog;
+import model.ParkingLot;
+import model.ParkingSpot;
+
+/*
+JMH benchmarks of the event log of a lot (occupySpot + unoccupySpot, so 2 events per operation),
+for fsync batches of the given size:
+ - occupySpotLogged: the gate does not wait for the disk (the events are forced in groups behind it)
+ - occupySpotDurable: the gate waits until its events are on the disk, from 8 gates at once, so the
+   gates share every fsync (group commit): the events that arrive during one fsync go together
+   into the next one, even with batchSize 1
+    java -jar target/benchmarks.jar EventLogBenchmark
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventLogBenchmark {
+
+    // Number of events forced to the disk together
+    @Param({"1", "64", "1024"})
+    public int batchSize;
+
+    // Number of spots in the lot
+    @Param({"10000"})
+    public int lotSize;
+
+    public Path directory;
+    public ParkingLot lot;
+    public EventLog log;
+
+    // Builds the lot (half occupied), logged to a temporary directory
+    @Setup(Level.Trial)
+    public void buildLot() throws IOException {
+        directory = Files.createTempDirectory("events");
+        log = EventLog.open(directory, batchSize, 1);
+        ParkingLot built = ParkingLotBenchmark.buildLot(lotSize, 0.5, new ArrayList<>(), new ArrayList<>());
+        lot = new ConcurrentParkingLot("Benchmark lot");
+        for (ParkingSpot spot: built.getParkingSpots().values()) {
+            lot.addParkingSpot(spot.getParkingSpotId(), spot.getDistance(), 0);
+            if (spot.getOccupiedStatus()) {
+                lot.manuallyOccupy(spot.getParkingSpotId(), spot.getLicensePlate(), false);
+            }
+        }
+        lot.logTo(log);
+        log.sync();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteLog() throws IOException {
+        log.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path: files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    // Plates of the vehicles of one gate, and the cursor through them
+    @State(Scope.Thread)
+    public static class Gate {
+        private static int gates = 0;
+        public String[] plates;
+        public int next;
+
+        @Setup(Level.Trial)
+        public void createPlates() {
+            int gate;
+            synchronized (Gate.class) {
+                gate = gates++;
+            }
+            plates = new String[1000];
+            for (int i = 0; i < plates.length; i++) {
+                plates[i] = "G" + (char) ('A' + gate % 26) + (1000 + i);
+            }
+        }
+    }
+
+    // Occupies the furthest car spot, then lets the vehicle leave, without waiting for the disk
+    @Benchmark
+    public ParkingSpot occupySpotLogged(Gate gate) {
+        String plate = gate.plates[gate.next++ % gate.plates.length];
+        ParkingSpot spot = lot.occupySpot(plate, 0);
+        lot.unoccupySpot(plate);
+        return spot;
+    }
+
+    // Same as above, then waits until both events are on the disk
+    @Benchmark
+    @Threads(8)
+    public ParkingSpot occupySpotDurable(Gate gate) throws IOException, InterruptedException {
+        ParkingSpot spot = occupySpotLogged(gate);
+        log.awaitDurable(log.getLastSequence());
+        return spot;
+    }
+}
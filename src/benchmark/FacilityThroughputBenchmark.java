@@ -0,0 +1,97 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.ConcurrentParkingLot;
+import model.ParkingFacility;
+
+/*
+JMH benchmark of the throughput of a facility (ParkingFacility) with the same number of spots split
+into more and more levels, with several gates (JMH threads, 4 unless given with -t). Every gate has
+its own level it comes in on, and repeatedly parks a car and lets it leave again (one operation),
+on a half full facility. Run with a growing number of gates to see the scaling:
+    java -jar target/benchmarks.jar FacilityThroughputBenchmark -t 1
+    java -jar target/benchmarks.jar FacilityThroughputBenchmark -t 8
+The scaling with the number of gates has only been measured on a single core so far, where the
+gates take turns; it is unverified until run on a machine with at least as many cores as gates.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class FacilityThroughputBenchmark {
+
+    // Number of spots of the facility, over all levels
+    @Param({"100000"})
+    public int facilitySize;
+
+    // Number of levels the spots are split into
+    @Param({"1", "4", "16"})
+    public int levels;
+
+    public ParkingFacility facility;
+
+    // Number of gates that took a level so far
+    public AtomicInteger gates;
+
+    // Builds a half full facility of car spots, split evenly over the levels
+    @Setup(Level.Trial)
+    public void buildFacility() {
+        facility = new ParkingFacility("Garage");
+        for (int level = 0; level < levels; level++) {
+            ConcurrentParkingLot lot = new ConcurrentParkingLot("Level " + level);
+            for (int i = 0; i < facilitySize / levels; i++) {
+                lot.addParkingSpot(i, i, 0);
+            }
+            facility.addLevel(lot);
+        }
+        for (int i = 0; i < facilitySize / 2; i++) {
+            facility.occupySpot(String.format("H%06d", i), 0);
+        }
+        gates = new AtomicInteger();
+    }
+
+    // One gate: the level it comes in on, and its own plates, parked one at a time in turn
+    @State(Scope.Thread)
+    public static class Gate {
+        public int level;
+        public String[] plates;
+        public int next;
+
+        @Setup(Level.Trial)
+        public void takeLevel(FacilityThroughputBenchmark benchmark) {
+            int gate = benchmark.gates.getAndIncrement();
+            level = gate % benchmark.levels;
+            plates = new String[1000];
+            for (int i = 0; i < plates.length; i++) {
+                plates[i] = String.format("G%02d%04d", gate, i);
+            }
+        }
+    }
+
+    @Benchmark
+    public Object occupyAndUnoccupy(Gate gate) {
+        String plate = gate.plates[gate.next];
+        gate.next = (gate.next + 1) % gate.plates.length;
+        facility.occupySpot(plate, 0, gate.level);
+        return facility.unoccupySpot(plate);
+    }
+}
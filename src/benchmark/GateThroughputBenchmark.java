@@ -0,0 +1,89 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.ConcurrentParkingLot;
+import model.LockFreeParkingLot;
+
+/*
+JMH benchmark comparing the throughput of the striped lock lot (ConcurrentParkingLot) and the lock
+free lot (LockFreeParkingLot) with several gates (JMH threads, 4 unless given with -t). Every gate
+repeatedly parks a car and lets it leave again (one operation), on a half full lot. Run with a
+growing number of gates to see the scaling:
+    java -jar target/benchmarks.jar GateThroughputBenchmark -t 1
+    java -jar target/benchmarks.jar GateThroughputBenchmark -t 16
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class GateThroughputBenchmark {
+
+    // Number of car spots in the lot
+    @Param({"100000"})
+    public int lotSize;
+
+    // Kind of lot: concurrent (striped locks) or lockfree
+    @Param({"concurrent", "lockfree"})
+    public String lotKind;
+
+    public ConcurrentParkingLot lot;
+
+    // Number of gates that took their plates so far
+    public AtomicInteger gates;
+
+    // Builds a half full lot of car spots
+    @Setup(Level.Trial)
+    public void buildLot() {
+        lot = lotKind.equals("lockfree") ? new LockFreeParkingLot("Lot") : new ConcurrentParkingLot("Lot");
+        for (int i = 0; i < lotSize; i++) {
+            lot.addParkingSpot(i, i, 0);
+        }
+        for (int i = 0; i < lotSize / 2; i++) {
+            lot.occupySpot(String.format("H%06d", i), 0);
+        }
+        gates = new AtomicInteger();
+    }
+
+    // One gate: its own plates, parked one at a time in turn
+    @State(Scope.Thread)
+    public static class Gate {
+        public String[] plates;
+        public int next;
+
+        @Setup(Level.Trial)
+        public void takePlates(GateThroughputBenchmark benchmark) {
+            int gate = benchmark.gates.getAndIncrement();
+            plates = new String[1000];
+            for (int i = 0; i < plates.length; i++) {
+                plates[i] = String.format("G%02d%04d", gate, i);
+            }
+        }
+    }
+
+    @Benchmark
+    public Object occupyAndUnoccupy(Gate gate) {
+        String plate = gate.plates[gate.next];
+        gate.next = (gate.next + 1) % gate.plates.length;
+        lot.occupySpot(plate, 0);
+        return lot.unoccupySpot(plate);
+    }
+}
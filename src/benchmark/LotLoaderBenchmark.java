@@ -0,0 +1,105 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.Intersection;
+import model.LotLoader;
+import model.ParkingLot;
+
+/*
+JMH benchmarks of provisioning a whole lot (time per lot): lotSize spots (80% car, 15% motorcycle,
+5% commercial). With withGraph, the spots are in aisles of 100, every spot connected to the
+intersection of its aisle, the intersections chained, and one entrance at the first intersection.
+ - addParkingSpotLoop: one addParkingSpot (and connectSpot) call per spot, as without the loader
+ - loadCsv / loadBinary: LotLoader from the CSV or binary file of the same lot
+    java -jar target/benchmarks.jar LotLoaderBenchmark
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class LotLoaderBenchmark {
+
+    // Number of spots in the lot
+    @Param({"100000", "1000000"})
+    public int lotSize;
+
+    // True if the lot has a graph and an entrance, false for only the spots
+    @Param({"false", "true"})
+    public boolean withGraph;
+
+    public Path csv;
+    public Path binary;
+
+    // Writes the files of the lot
+    @Setup(Level.Trial)
+    public void writeFiles() throws IOException {
+        ParkingLot lot = addParkingSpotLoop();
+        csv = Files.createTempFile("lot", ".csv");
+        binary = Files.createTempFile("lot", ".bin");
+        LotLoader.writeCsv(csv, lot);
+        LotLoader.writeBinary(binary, lot);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        Files.deleteIfExists(csv);
+        Files.deleteIfExists(binary);
+    }
+
+    // Builds the lot with one call per spot
+    @Benchmark
+    public ParkingLot addParkingSpotLoop() {
+        ParkingLot lot = new ParkingLot("Benchmark lot");
+        for (int id = 0; id < lotSize; id++) {
+            lot.addParkingSpot(id, (id * 7919L) % lotSize, id % 20 < 16 ? 0 : id % 20 < 19 ? 1 : 2);
+        }
+        if (withGraph) {
+            Intersection[] aisles = new Intersection[(lotSize + 99) / 100];
+            for (int i = 0; i < aisles.length; i++) {
+                aisles[i] = new Intersection(i, "Aisle " + i);
+                if (i > 0) {
+                    lot.getGraph().connectVertices(aisles[i - 1], aisles[i], 20);
+                }
+            }
+            for (int id = 0; id < lotSize; id++) {
+                lot.connectSpot(id, aisles[id / 100], 1 + id % 100);
+            }
+            lot.addEntrance(1, aisles[0]);
+        }
+        return lot;
+    }
+
+    @Benchmark
+    public ParkingLot loadCsv() throws IOException {
+        ParkingLot lot = new ParkingLot("Benchmark lot");
+        LotLoader.loadCsv(csv, lot);
+        return lot;
+    }
+
+    @Benchmark
+    public ParkingLot loadBinary() throws IOException {
+        ParkingLot lot = new ParkingLot("Benchmark lot");
+        LotLoader.loadBinary(binary, lot);
+        return lot;
+    }
+}
@@ -0,0 +1,112 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.CarSpot;
+import model.MappedSpotFile;
+import model.MotorcycleSpot;
+import model.ParkingLot;
+import model.ParkingSpot;
+
+/*
+JMH benchmarks of the memory mapped persistence of a lot (MappedSpotFile), with the same lots as
+ParkingLotBenchmark (80% car, 15% motorcycle, 5% commercial spots, the given fraction occupied):
+ - restoreFrom: time to rebuild the whole lot from its file, as a restarted process does
+ - occupySpotPersistent: occupySpot + unoccupySpot on a persistent lot, to compare with
+   ParkingLotBenchmark.occupySpot (the cost of writing every change into the mapped file)
+    java -jar target/benchmarks.jar MappedSpotFileBenchmark
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class MappedSpotFileBenchmark {
+
+    // Number of spots in the lot
+    @Param({"10000", "100000", "1000000"})
+    public int lotSize;
+
+    // Fraction of the spots (of every type) that is occupied
+    @Param({"0.5"})
+    public double occupancy;
+
+    public Path path;
+    public ParkingLot lot;
+    public MappedSpotFile spotFile;
+
+    // Plates of the vehicles that enter during the measurement, and the cursor through them
+    public String[] enteringPlates;
+    public int next;
+
+    // Builds the lot, persisted to a temporary file
+    @Setup(Level.Trial)
+    public void buildLot() throws IOException {
+        path = Files.createTempFile("lot", ".dat");
+        Files.delete(path);
+        spotFile = MappedSpotFile.open(path);
+        lot = new ParkingLot("Benchmark lot");
+        lot.persistTo(spotFile);
+        ParkingLot built = ParkingLotBenchmark.buildLot(lotSize, occupancy, new ArrayList<>(), new ArrayList<>());
+        for (ParkingSpot spot: built.getParkingSpots().values()) {
+            int flag = spot instanceof CarSpot ? 0 : spot instanceof MotorcycleSpot ? 1 : 2;
+            lot.addParkingSpot(spot.getParkingSpotId(), spot.getDistance(), flag);
+            if (spot.getOccupiedStatus()) {
+                lot.manuallyOccupy(spot.getParkingSpotId(), spot.getLicensePlate(), false);
+            }
+        }
+        spotFile.force();
+        enteringPlates = new String[1000];
+        for (int i = 0; i < enteringPlates.length; i++) {
+            enteringPlates[i] = "B" + (100000 + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        spotFile.close();
+        Files.deleteIfExists(path);
+    }
+
+    // Rebuilds the lot from its file (time per restore)
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public ParkingLot restoreFrom() throws IOException {
+        ParkingLot restored = new ParkingLot("Restored lot");
+        try (MappedSpotFile reopened = MappedSpotFile.open(path)) {
+            restored.restoreFrom(reopened);
+        }
+        return restored;
+    }
+
+    // Occupies the furthest car spot of the persistent lot, then lets the vehicle leave again
+    @Benchmark
+    public ParkingSpot occupySpotPersistent() {
+        String plate = enteringPlates[next++ % enteringPlates.length];
+        ParkingSpot spot = lot.occupySpot(plate, 0);
+        lot.unoccupySpot(plate);
+        return spot;
+    }
+}
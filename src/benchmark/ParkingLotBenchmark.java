@@ -0,0 +1,390 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.Arrival;
+import model.BatchResult;
+import model.CarSpot;
+import model.CompactParkingLot;
+import model.Intersection;
+import model.LotMetrics;
+import model.MotorcycleSpot;
+import model.OccupancySummary;
+import model.ParkingLot;
+import model.ParkingSpot;
+import model.SpotChange;
+import model.SpotChangePublisher;
+import model.SpotView;
+
+/*
+JMH benchmarks of the ParkingLot hot paths, for lots of 100 to 1M spots at different occupancy
+levels. The lot is 80% car spots, 15% motorcycle spots and 5% commercial spots, with distances
+spread over the ids, and the given fraction of every spot type is occupied before measuring.
+
+The occupy and unoccupy benchmarks always pair the operation with its inverse (occupy then
+unoccupy, or unoccupy then re-occupy), so the occupancy of the lot stays the same for the whole
+measurement. addParkingSpot cannot be undone, so it is measured in batches of spots added to a
+freshly built lot. occupySpotAtEntrance uses a second lot of the same size, whose spots are
+connected to a row of aisles with ENTRANCES gates spread along it. occupySpotsBatch and
+occupySpotsLoop park and unpark BATCH vehicles (time per vehicle), with the batch methods and with a
+loop of single calls. occupySpotCompact does the same as occupySpot on a CompactParkingLot (the
+struct of arrays lot) with the same spots and occupancy. occupySpotMeasured does the same as occupySpot
+on a lot that reports to LotMetrics (timing every call, or one in 16), to show what the metrics cost.
+occupancySummary reads the spot counts of the lot, as a sign would. occupySpotPublished does the same as
+occupySpot on a lot that pushes its changes to a subscriber (SpotChangePublisher).
+unoccupySpotAndReenter lets parked vehicles leave in random order and park again through occupySpot,
+to compare the time of an exit (and re-entry) across lot sizes. The exit finds the spot through the
+plate index, but random spots of a big lot are rarely in the cache, so it still grows with the lot.
+Build and run with:
+    mvn -P benchmark package -DskipTests
+    java -jar target/benchmarks.jar ParkingLotBenchmark -rf json -rff before.json
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParkingLotBenchmark {
+
+    // Number of spots in the lot
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    public int lotSize;
+
+    // Number of spots added per measured batch of addParkingSpot
+    public static final int ADD_BATCH = 1000;
+
+    // Fraction of the spots (of every type) that is occupied before measuring
+    @Param({"0.0", "0.5", "0.9"})
+    public double occupancy;
+
+    public ParkingLot lot;
+
+    // Plates parked during setup, and the ids of spots left vacant during setup
+    public List<String> parkedPlates;
+    public List<Integer> vacantIds;
+
+    // Plates of the vehicles that enter during the measurement (created up front, not measured)
+    public String[] enteringPlates;
+
+    // Cursors used to cycle through the plates / ids above
+    public int next;
+
+    // Random indexes into parkedPlates, in the order the vehicles leave (drawn up front, not measured)
+    public int[] exitOrder;
+
+    // Arrivals and plates of one batch of mixed vehicles (for the batch benchmarks)
+    public List<Arrival> batchArrivals;
+    public List<String> batchPlates;
+
+    @Setup(Level.Trial)
+    public void buildLot() {
+        parkedPlates = new ArrayList<>();
+        vacantIds = new ArrayList<>();
+        lot = buildLot(lotSize, occupancy, parkedPlates, vacantIds);
+        enteringPlates = new String[1000];
+        for (int i = 0; i < enteringPlates.length; i++) {
+            enteringPlates[i] = plate("B", i);
+        }
+        batchArrivals = new ArrayList<>();
+        batchPlates = new ArrayList<>();
+        for (int i = 0; i < BATCH; i++) {
+            batchArrivals.add(new Arrival(enteringPlates[i], i % 20 < 16 ? 0 : i % 20 < 19 ? 1 : 2));
+            batchPlates.add(enteringPlates[i]);
+        }
+        exitOrder = new int[4096];
+        Random random = new Random(lotSize);
+        for (int i = 0; i < exitOrder.length && !parkedPlates.isEmpty(); i++) {
+            exitOrder[i] = random.nextInt(parkedPlates.size());
+        }
+    }
+
+    // The vehicle type, only a parameter of the benchmarks that depend on it
+    @State(Scope.Thread)
+    public static class Vehicle {
+        // 0 = car, 1 = motorcycle, 2 = commercial (same as the flag of occupySpot)
+        @Param({"0", "1", "2"})
+        public int flag;
+    }
+
+    // A lot that is built again before every iteration, since addParkingSpot keeps growing it
+    @State(Scope.Thread)
+    public static class GrowingLot {
+        public ParkingLot lot;
+        public int nextSpotId;
+
+        @Setup(Level.Iteration)
+        public void buildLot(ParkingLotBenchmark benchmark) {
+            lot = ParkingLotBenchmark.buildLot(benchmark.lotSize, benchmark.occupancy,
+                new ArrayList<>(), new ArrayList<>());
+            nextSpotId = benchmark.lotSize;
+        }
+    }
+
+    // A lot of the same size and occupancy that records its calls to metrics
+    @State(Scope.Thread)
+    public static class MeasuredLot {
+        // Calls per timed call (see LotMetrics)
+        @Param({"1", "16"})
+        public int sampleInterval;
+
+        public ParkingLot lot;
+        public LotMetrics metrics;
+
+        @Setup(Level.Trial)
+        public void buildLot(ParkingLotBenchmark benchmark) {
+            lot = ParkingLotBenchmark.buildLot(benchmark.lotSize, benchmark.occupancy,
+                new ArrayList<>(), new ArrayList<>());
+            metrics = new LotMetrics(sampleInterval);
+            lot.reportTo(metrics);
+        }
+    }
+
+    // A lot of the same size and occupancy that pushes its changes to one subscriber (a sign)
+    @State(Scope.Thread)
+    public static class PublishedLot {
+        public ParkingLot lot;
+        public SpotChangePublisher publisher;
+
+        @Setup(Level.Trial)
+        public void buildLot(ParkingLotBenchmark benchmark) {
+            lot = ParkingLotBenchmark.buildLot(benchmark.lotSize, benchmark.occupancy,
+                new ArrayList<>(), new ArrayList<>());
+            publisher = new SpotChangePublisher();
+            lot.publishTo(publisher);
+            publisher.subscribe(new Flow.Subscriber<SpotChange>() {
+                public void onSubscribe(Flow.Subscription subscription) { subscription.request(Long.MAX_VALUE); }
+                public void onNext(SpotChange change) {}
+                public void onError(Throwable error) {}
+                public void onComplete() {}
+            });
+        }
+
+        @TearDown(Level.Trial)
+        public void closePublisher() {
+            publisher.close();
+        }
+    }
+
+    // A lot of the same size with a road network and ENTRANCES entrances
+    @State(Scope.Thread)
+    public static class MultiEntranceLot {
+        public ParkingLot lot;
+
+        @Setup(Level.Trial)
+        public void buildLot(ParkingLotBenchmark benchmark) {
+            lot = ParkingLotBenchmark.buildLot(benchmark.lotSize, benchmark.occupancy,
+                new ArrayList<>(), new ArrayList<>());
+            // One aisle per SPOTS_PER_AISLE spots, 10 apart, spots 1 to 5 away from their aisle
+            int aisleCount = (benchmark.lotSize + SPOTS_PER_AISLE - 1) / SPOTS_PER_AISLE;
+            Intersection[] aisles = new Intersection[aisleCount];
+            for (int i = 0; i < aisleCount; i++) {
+                aisles[i] = new Intersection(i, "Aisle " + i);
+                if (i > 0) {
+                    lot.getGraph().connectVertices(aisles[i - 1], aisles[i], 10);
+                }
+            }
+            for (int id = 0; id < benchmark.lotSize; id++) {
+                lot.connectSpot(id, aisles[id / SPOTS_PER_AISLE], 1 + id % 5);
+            }
+            for (int e = 0; e < ENTRANCES; e++) {
+                lot.addEntrance(e, aisles[e * (aisleCount - 1) / Math.max(1, ENTRANCES - 1)]);
+            }
+        }
+    }
+
+    // A CompactParkingLot with the same spots and occupancy as the lot
+    @State(Scope.Thread)
+    public static class CompactLot {
+        public CompactParkingLot lot;
+
+        @Setup(Level.Trial)
+        public void buildLot(ParkingLotBenchmark benchmark) {
+            lot = new CompactParkingLot("Benchmark lot", benchmark.lotSize);
+            for (int id = 0; id < benchmark.lotSize; id++) {
+                int type = id % 20 < 16 ? 0 : id % 20 < 19 ? 1 : 2;
+                lot.addParkingSpot(id, (id * 7919L) % benchmark.lotSize, type);
+                if (id % 100 < benchmark.occupancy * 100) {
+                    lot.manuallyOccupy(id, plate("P", id), false);
+                }
+            }
+        }
+    }
+
+    // Number of vehicles per batch of occupySpotsBatch / occupySpotsLoop
+    public static final int BATCH = 100;
+
+    // Number of spots along one aisle, and number of entrances of the MultiEntranceLot
+    public static final int SPOTS_PER_AISLE = 50;
+    public static final int ENTRANCES = 4;
+
+    // Adds a new spot of the benchmarked type (time per batch of ADD_BATCH spots)
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 5, batchSize = ADD_BATCH)
+    @Measurement(iterations = 10, batchSize = ADD_BATCH)
+    public ParkingSpot addParkingSpot(GrowingLot growingLot, Vehicle vehicle) {
+        int id = growingLot.nextSpotId++;
+        return growingLot.lot.addParkingSpot(id, id % lotSize, vehicle.flag);
+    }
+
+    // Occupies the furthest spot for the vehicle type, then lets the vehicle leave again
+    @Benchmark
+    public ParkingSpot occupySpot(Vehicle vehicle) {
+        String plate = enteringPlates[next++ % enteringPlates.length];
+        ParkingSpot spot = lot.occupySpot(plate, vehicle.flag);
+        lot.unoccupySpot(plate);
+        return spot;
+    }
+
+    // Same as occupySpot, on the CompactParkingLot
+    @Benchmark
+    public SpotView occupySpotCompact(CompactLot compactLot, Vehicle vehicle) {
+        String plate = enteringPlates[next++ % enteringPlates.length];
+        SpotView spot = compactLot.lot.occupySpot(plate, vehicle.flag);
+        compactLot.lot.unoccupySpot(plate);
+        return spot;
+    }
+
+    // Same as occupySpot, on the lot that records both calls to its metrics
+    @Benchmark
+    public ParkingSpot occupySpotMeasured(MeasuredLot measuredLot, Vehicle vehicle) {
+        String plate = enteringPlates[next++ % enteringPlates.length];
+        ParkingSpot spot = measuredLot.lot.occupySpot(plate, vehicle.flag);
+        measuredLot.lot.unoccupySpot(plate);
+        return spot;
+    }
+
+    // Same as occupySpot, on the lot that publishes both changes to a subscriber
+    @Benchmark
+    public ParkingSpot occupySpotPublished(PublishedLot publishedLot, Vehicle vehicle) {
+        String plate = enteringPlates[next++ % enteringPlates.length];
+        ParkingSpot spot = publishedLot.lot.occupySpot(plate, vehicle.flag);
+        publishedLot.lot.unoccupySpot(plate);
+        return spot;
+    }
+
+    // Occupies the nearest spot to the next entrance (in turn), then lets the vehicle leave again
+    @Benchmark
+    public ParkingSpot occupySpotAtEntrance(MultiEntranceLot multiEntranceLot, Vehicle vehicle) {
+        int i = next++;
+        String plate = enteringPlates[i % enteringPlates.length];
+        ParkingSpot spot = multiEntranceLot.lot.occupySpot(plate, vehicle.flag, i % ENTRANCES);
+        multiEntranceLot.lot.unoccupySpot(plate);
+        return spot;
+    }
+
+    // Parks a batch of mixed vehicles with one call, then lets the batch leave with one call
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public List<BatchResult> occupySpotsBatch() {
+        List<BatchResult> results = lot.occupySpots(batchArrivals);
+        lot.unoccupySpots(batchPlates);
+        return results;
+    }
+
+    // Parks and unparks the same batch with a loop of single calls (the baseline of the above)
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public ParkingSpot occupySpotsLoop() {
+        ParkingSpot last = null;
+        for (Arrival arrival: batchArrivals) {
+            last = lot.occupySpot(arrival.getPlate(), arrival.getFlag());
+        }
+        for (String plate: batchPlates) {
+            lot.unoccupySpot(plate);
+        }
+        return last;
+    }
+
+    // Manually occupies a vacant spot, then lets the vehicle leave again
+    @Benchmark
+    public ParkingSpot manuallyOccupy() {
+        if (vacantIds.isEmpty()) {
+            return null;
+        }
+        int id = vacantIds.get(next++ % vacantIds.size());
+        ParkingSpot spot = lot.manuallyOccupy(id, "M00000", false);
+        lot.unoccupySpot("M00000");
+        return spot;
+    }
+
+    // Reads the counts of vacant, half full and occupied spots of every type (a poll of a sign)
+    @Benchmark
+    public OccupancySummary occupancySummary() {
+        return lot.getOccupancySummary();
+    }
+
+    // Lets a parked vehicle leave, then parks it in the same spot again
+    @Benchmark
+    public ParkingSpot unoccupySpot() {
+        if (parkedPlates.isEmpty()) {
+            return null;
+        }
+        String plate = parkedPlates.get(next++ % parkedPlates.size());
+        ParkingSpot spot = lot.unoccupySpot(plate);
+        lot.manuallyOccupy(spot.getParkingSpotId(), plate, false);
+        return spot;
+    }
+
+    // Lets a randomly chosen parked vehicle leave, then parks it again through occupySpot
+    @Benchmark
+    public ParkingSpot unoccupySpotAndReenter() {
+        if (parkedPlates.isEmpty()) {
+            return null;
+        }
+        String plate = parkedPlates.get(exitOrder[next++ % exitOrder.length]);
+        ParkingSpot spot = lot.unoccupySpot(plate);
+        lot.occupySpot(plate, spot instanceof CarSpot ? 0 : spot instanceof MotorcycleSpot ? 1 : 2);
+        return spot;
+    }
+
+    ///// HELPER METHODS /////
+
+    /*
+     * Builds a lot with the given number of spots, and occupies the given fraction of them.
+     * Fills the lists with the plates that were parked, and the ids of the spots left vacant
+     */
+    static ParkingLot buildLot(int lotSize, double occupancy, List<String> parkedPlates,
+                               List<Integer> vacantIds) {
+        ParkingLot lot = new ParkingLot("Benchmark lot");
+        for (int id = 0; id < lotSize; id++) {
+            int type = id % 20 < 16 ? 0 : id % 20 < 19 ? 1 : 2;
+            lot.addParkingSpot(id, (id * 7919L) % lotSize, type);
+            // Occupy the first "occupancy" fraction of every 100 spots, so each type gets its share
+            if (id % 100 < occupancy * 100) {
+                String plate = plate("P", id);
+                lot.manuallyOccupy(id, plate, false);
+                parkedPlates.add(plate);
+            } else {
+                vacantIds.add(id);
+            }
+        }
+        return lot;
+    }
+
+    // Unique 7 character plate with the given prefix (supports i up to 999999)
+    private static String plate(String prefix, int i) {
+        return prefix + String.format("%06d", i);
+    }
+}
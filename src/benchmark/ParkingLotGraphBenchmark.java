@@ -0,0 +1,125 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import exception.GraphDisconnectedException;
+import model.Intersection;
+import model.ParkingLotGraph;
+import model.ShortestPath;
+
+/*
+JMH benchmark of ParkingLotGraph.findShortestPath on a square grid of intersections with 100 to 1M
+vertices (a parking deck of aisles). Edge lengths vary, so the shortest path is not trivial. The
+route goes from the entrance in one corner to a vertex in the middle or in the opposite corner.
+Intersections are 1 apart and edges are 1 to 5 long, so the A* estimate is a lower bound.
+The graph is shared by all benchmark threads; findShortestPathParallel routes from 4 threads at once.
+    java -jar target/benchmarks.jar ParkingLotGraphBenchmark
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParkingLotGraphBenchmark {
+
+    // Number of vertices in the graph (rounded down to a square)
+    @Param({"100", "10000", "1000000"})
+    public int graphSize;
+
+    // Where the route ends: "middle" of the grid or the "far" corner
+    @Param({"middle", "far"})
+    public String target;
+
+    public ParkingLotGraph graph;
+    public Intersection entrance;
+    public Intersection end;
+
+    @Setup(Level.Trial)
+    public void buildGraph() {
+        int side = (int) Math.sqrt(graphSize);
+        Intersection[][] grid = buildGrid(side);
+        graph = new ParkingLotGraph("Benchmark lot");
+        for (Intersection[] row: grid) {
+            for (Intersection vertex: row) {
+                graph.addVertex(vertex);
+            }
+        }
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                if (c + 1 < side) {
+                    graph.connectVertices(grid[r][c], grid[r][c + 1], 1 + (r * 31 + c * 17) % 5);
+                }
+                if (r + 1 < side) {
+                    graph.connectVertices(grid[r][c], grid[r + 1][c], 1 + (r * 13 + c * 29) % 5);
+                }
+            }
+        }
+        entrance = grid[0][0];
+        end = target.equals("far") ? grid[side - 1][side - 1] : grid[side / 2][side / 2];
+    }
+
+    // Finds the shortest path from the entrance to the target vertex
+    @Benchmark
+    public ShortestPath findShortestPath() throws GraphDisconnectedException {
+        return graph.findShortestPath(entrance, end);
+    }
+
+    // Finds the same path with dijkstra's algorithm on the compact (CSR) snapshot of the graph
+    @Benchmark
+    public ShortestPath findShortestPathCompact() throws GraphDisconnectedException {
+        return graph.getCompactGraph().findShortestPath(entrance, end);
+    }
+
+    // Finds the same path by searching from the entrance and the target at once
+    @Benchmark
+    public ShortestPath findShortestPathBidirectional() throws GraphDisconnectedException {
+        return graph.findShortestPathBidirectional(entrance, end);
+    }
+
+    // Finds the same path with A*, heading towards the target by the coordinates of the grid
+    @Benchmark
+    public ShortestPath findShortestPathAStar() throws GraphDisconnectedException {
+        return graph.findShortestPathAStar(entrance, end);
+    }
+
+    // Finds the same path from 4 threads at once on the shared graph (each with a pooled search context)
+    @Benchmark
+    @Threads(4)
+    public ShortestPath findShortestPathParallel() throws GraphDisconnectedException {
+        return graph.findShortestPath(entrance, end);
+    }
+
+    // Looks up the same path in the cached shortest path tree of the entrance
+    @Benchmark
+    public ShortestPath findCachedShortestPath() throws GraphDisconnectedException {
+        return graph.findCachedShortestPath(entrance, end);
+    }
+
+    ///// HELPER METHODS /////
+
+    // Creates a side x side grid of intersections, with ids in row major order
+    static Intersection[][] buildGrid(int side) {
+        Intersection[][] grid = new Intersection[side][side];
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                grid[r][c] = new Intersection(r * side + c, "Aisle " + r + "/" + c, c, r, 0);
+            }
+        }
+        return grid;
+    }
+}
@@ -0,0 +1,128 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.CarSpot;
+import model.EventLog;
+import model.MotorcycleSpot;
+import model.ParkingLot;
+import model.ParkingSpot;
+import model.Snapshotter;
+
+/*
+JMH benchmarks of the startup of a logged lot after a day of gate events (dayEvents occupySpot and
+unoccupySpot calls on a lot of lotSize spots, 80% car, 15% motorcycle, 5% commercial):
+ - replayWholeLog: rebuilds the lot by replaying every event of the day
+ - recoverFromSnapshot: loads the last snapshot (taken 99% into the day) and replays the rest
+    java -jar target/benchmarks.jar SnapshotBenchmark
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SnapshotBenchmark {
+
+    // Number of spots in the lot
+    @Param({"100000"})
+    public int lotSize;
+
+    // Number of gate events of the day
+    @Param({"1000000"})
+    public int dayEvents;
+
+    // Log of the whole day, and log of the day with a snapshot (its older segments are deleted)
+    public Path wholeLog;
+    public Path snapshotLog;
+
+    // Plays the same day on 2 lots: one only logged, one also snapshotted
+    @Setup(Level.Trial)
+    public void playDay() throws IOException {
+        wholeLog = Files.createTempDirectory("events");
+        snapshotLog = Files.createTempDirectory("snapshot");
+        ParkingLot built = ParkingLotBenchmark.buildLot(lotSize, 0.5, new ArrayList<>(), new ArrayList<>());
+        try (EventLog log = EventLog.open(wholeLog, 4096, 10);
+             EventLog otherLog = EventLog.open(snapshotLog, 4096, 10)) {
+            ParkingLot lot = new ParkingLot("Whole log");
+            ParkingLot otherLot = new ParkingLot("Snapshot");
+            lot.logTo(log);
+            otherLot.logTo(otherLog);
+            for (ParkingSpot spot: built.getParkingSpots().values()) {
+                int flag = spot instanceof CarSpot ? 0 : spot instanceof MotorcycleSpot ? 1 : 2;
+                lot.addParkingSpot(spot.getParkingSpotId(), spot.getDistance(), flag);
+                otherLot.addParkingSpot(spot.getParkingSpotId(), spot.getDistance(), flag);
+            }
+            Snapshotter snapshotter = Snapshotter.start(otherLog, Long.MAX_VALUE / 2);
+            List<String> parked = new ArrayList<>();
+            for (int event = 0; event < dayEvents; event++) {
+                if (event == dayEvents - dayEvents / 100) {
+                    otherLog.sync();
+                    snapshotter.snapshot();
+                }
+                // Arrivals and departures take turns, so the lot stays about as full as it started
+                if (event % 2 == 1 && !parked.isEmpty()) {
+                    String plate = parked.remove(parked.size() - 1 - (event * 31 % parked.size()));
+                    lot.unoccupySpot(plate);
+                    otherLot.unoccupySpot(plate);
+                } else {
+                    String plate = "V" + (100000 + event % 900000);
+                    int flag = event % 20 < 16 ? 0 : event % 20 < 19 ? 1 : 2;
+                    if (!lot.getPlateToSpot().containsKey(plate) && lot.occupySpot(plate, flag) != null) {
+                        otherLot.occupySpot(plate, flag);
+                        parked.add(plate);
+                    }
+                }
+            }
+            snapshotter.close();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteLogs() throws IOException {
+        for (Path directory: new Path[] {wholeLog, snapshotLog}) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path path: files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    // Rebuilds the lot from every event of the day (time per startup)
+    @Benchmark
+    public ParkingLot replayWholeLog() throws IOException {
+        ParkingLot lot = new ParkingLot("Recovered lot");
+        EventLog.replay(wholeLog, lot);
+        return lot;
+    }
+
+    // Rebuilds the lot from the snapshot and the events after it (time per startup)
+    @Benchmark
+    public ParkingLot recoverFromSnapshot() throws IOException {
+        ParkingLot lot = new ParkingLot("Recovered lot");
+        Snapshotter.recover(snapshotLog, lot);
+        return lot;
+    }
+}
@@ -0,0 +1,27 @@
+package model;
+
+/*
+A vehicle arriving at the lot: its license plate and type. Used to park many vehicles with one call
+to ParkingLot.occupySpots. The flag is the same as in occupySpot:
+ 0 = car
+ 1 = motorcycle
+ 2 = commercial vehicle
+*/
+public class Arrival {
+
+    // License plate (as entered, it is formatted by the lot) and vehicle type of the vehicle
+    private String plate;
+    private int flag;
+
+    // Constructs an arrival of the vehicle with the given plate and type
+    // REQUIRES: the integer flag must be 0, 1 or 2
+    public Arrival(String plate, int flag) {
+        this.plate = plate;
+        this.flag = flag;
+    }
+
+    ///// GETTER METHODS /////
+
+    public String getPlate() { return plate; }
+    public int getFlag() { return flag; }
+}
@@ -0,0 +1,40 @@
+package model;
+
+/*
+The result for one vehicle of a batch call (ParkingLot.occupySpots or unoccupySpots). A batch never
+throws partway through; instead every vehicle gets a result:
+ - spot is not null: the vehicle was parked in (or has left) the spot
+ - error is not null: the plate was rejected, with the same message the single vehicle method
+   would have thrown
+ - both are null: the lot had no spot for the vehicle (occupySpots), or the plate was not parked
+   (unoccupySpots), the same cases where the single vehicle method returns null
+*/
+public class BatchResult {
+
+    // The plate (formatted, or as entered if it could not be formatted)
+    private String plate;
+
+    // The spot occupied or freed, null if none
+    private ParkingSpot spot;
+
+    // Reason the plate was rejected, null if it was not
+    private String error;
+
+    // Constructs the result of one vehicle
+    public BatchResult(String plate, ParkingSpot spot, String error) {
+        this.plate = plate;
+        this.spot = spot;
+        this.error = error;
+    }
+
+    // Returns true if a spot was occupied or freed for the vehicle
+    public boolean isSuccess() {
+        return spot != null;
+    }
+
+    ///// GETTER METHODS /////
+
+    public String getPlate() { return plate; }
+    public ParkingSpot getSpot() { return spot; }
+    public String getError() { return error; }
+}
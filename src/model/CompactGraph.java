@@ -0,0 +1,458 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import exception.GraphDisconnectedException;
+
+/*
+An immutable, compressed sparse row (CSR) snapshot of a ParkingLotGraph. Every vertex gets a number
+from 0 to n - 1, and the edges are stored in 3 primitive arrays:
+ - offsets: the edges of vertex v are at indexes offsets[v] to offsets[v + 1] - 1
+ - targets: the vertex number at the other end of each edge
+ - weights: the distance of each edge
+Since the graph is non-directional, every edge is stored once in each direction.
+
+Running Dijkstra's algorithm on these arrays needs no hashing, no boxing and no per vertex objects,
+which makes it much faster than on the adjacency hash maps of the vertices. The snapshot does not
+change when the ParkingLotGraph changes; ParkingLotGraph builds a new one when needed.
+
+If every vertex has coordinates, the snapshot also keeps them in primitive arrays, for the A* search.
+
+Queries never write to the snapshot or the vertices: the state of each query is kept in a
+SearchContext taken from a pool, so any number of threads can find paths on one snapshot at once.
+ */
+public class CompactGraph {
+
+    // Vertex of every vertex number, and vertex number of every vertex
+    private Vertex[] vertices;
+    private HashMap<Vertex, Integer> vertexNumbers;
+
+    // CSR arrays, see class comment
+    private int[] offsets;
+    private int[] targets;
+    private double[] weights;
+
+    // Position of every vertex number, and whether every vertex has one (see Vertex)
+    private double[] xs;
+    private double[] ys;
+    private int[] levels;
+    private boolean hasAllCoordinates;
+
+    // Search contexts that are not in use, reused by the queries on this snapshot
+    private ConcurrentLinkedQueue<SearchContext> contextPool;
+
+    // Metrics the searches with pooled contexts are recorded to, null if none
+    private volatile LotMetrics metrics;
+
+    /*
+     * Builds a snapshot of the given vertices and their edges. Vertices that are only reachable
+     * through edges (never added to the graph) are numbered too, after the given ones.
+     */
+    public CompactGraph(Collection<Vertex> allVertices) {
+        ArrayList<Vertex> numbered = new ArrayList<>(allVertices);
+        vertexNumbers = new HashMap<>();
+        for (int i = 0; i < numbered.size(); i++) {
+            vertexNumbers.put(numbered.get(i), i);
+        }
+
+        // Count the edges (and number any vertex that was not added to the graph)
+        int edgeCount = 0;
+        for (int i = 0; i < numbered.size(); i++) {
+            for (Vertex neighbour: numbered.get(i).getAdjacentVertices().keySet()) {
+                if (vertexNumbers.putIfAbsent(neighbour, numbered.size()) == null) {
+                    numbered.add(neighbour);
+                }
+                edgeCount++;
+            }
+        }
+
+        vertices = numbered.toArray(new Vertex[0]);
+        offsets = new int[vertices.length + 1];
+        targets = new int[edgeCount];
+        weights = new double[edgeCount];
+        int edge = 0;
+        for (int v = 0; v < vertices.length; v++) {
+            offsets[v] = edge;
+            for (Map.Entry<Vertex, Double> entry: vertices[v].getAdjacentVertices().entrySet()) {
+                targets[edge] = vertexNumbers.get(entry.getKey());
+                weights[edge] = entry.getValue();
+                edge++;
+            }
+        }
+        offsets[vertices.length] = edge;
+        readCoordinates();
+    }
+
+    /*
+     * Builds a snapshot from arrays that are already in CSR form (see class comment), without
+     * going through the adjacency maps of the vertices. Used to load a whole graph at once.
+     * REQUIRES: vertexNumbers maps every vertex to its index in vertices, and every edge is stored
+     * once in each direction
+     */
+    CompactGraph(Vertex[] vertices, HashMap<Vertex, Integer> vertexNumbers, int[] offsets, int[] targets,
+                 double[] weights) {
+        this.vertices = vertices;
+        this.vertexNumbers = vertexNumbers;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        readCoordinates();
+    }
+
+    /*
+     * Runs dijkstra's algorithm from the source to every vertex, on the primitive arrays.
+     * Returns the shortest path tree, or a tree where only the source is reachable if the source
+     * is not in this graph
+     */
+    public ShortestPathTree computeShortestPathTree(Vertex source) {
+        int sourceNumber = getVertexNumber(source);
+        if (sourceNumber < 0) {
+            double[] distances = new double[vertices.length];
+            int[] predecessors = new int[vertices.length];
+            Arrays.fill(distances, Double.POSITIVE_INFINITY);
+            Arrays.fill(predecessors, -1);
+            return new ShortestPathTree(this, source, distances, predecessors);
+        }
+        SearchContext context = acquireContext();
+        try {
+            dijkstra(sourceNumber, context);
+            // The tree keeps its own copy, the context goes back to the pool
+            return new ShortestPathTree(this, source, Arrays.copyOf(context.distances, vertices.length),
+                Arrays.copyOf(context.predecessors, vertices.length));
+        } finally {
+            releaseContext(context);
+        }
+    }
+
+    /*
+     * Returns the shortest path from start to end, using dijkstra's algorithm on the primitive arrays.
+     * The search stops as soon as end is settled, so only vertices closer to start than end are explored.
+     * Throws exception if end cannot be reached from start
+     */
+    public ShortestPath findShortestPath(Vertex start, Vertex end) throws GraphDisconnectedException {
+        SearchContext context = acquireContext();
+        try {
+            return findShortestPath(start, end, context);
+        } finally {
+            releaseContext(context);
+        }
+    }
+
+    /*
+     * Same as findShortestPath(start, end), but searches with the given context, and leaves the search
+     * state in it (e.g. to read getExpansions()). The caller resets or releases the context afterwards.
+     * REQUIRES: the context is clear and belongs to this snapshot
+     */
+    public ShortestPath findShortestPath(Vertex start, Vertex end, SearchContext context)
+            throws GraphDisconnectedException {
+        if (start == end) {
+            return singleVertexPath(start);
+        }
+        int startNumber = checkedVertexNumber(start);
+        int endNumber = checkedVertexNumber(end);
+        dijkstra(startNumber, endNumber, context);
+        double distance = context.distances[endNumber];
+        if (distance == Double.POSITIVE_INFINITY) {
+            throw new GraphDisconnectedException("Graph is disconnected");
+        }
+        return buildPath(startNumber, endNumber, distance, context.predecessors);
+    }
+
+    /*
+     * Returns the shortest path from start to end, using bidirectional dijkstra's algorithm: one search
+     * from start and one from end (the graph is non-directional), expanding the smaller frontier each
+     * step, until no path through the unsettled vertices can be shorter than the best one found.
+     * On big graphs this explores far fewer vertices than a search from one side.
+     * Throws exception if end cannot be reached from start
+     */
+    public ShortestPath findShortestPathBidirectional(Vertex start, Vertex end) throws GraphDisconnectedException {
+        SearchContext forward = acquireContext();
+        SearchContext backward = acquireContext();
+        try {
+            return findShortestPathBidirectional(start, end, forward, backward);
+        } finally {
+            releaseContext(forward);
+            releaseContext(backward);
+        }
+    }
+
+    /*
+     * Same as findShortestPathBidirectional(start, end), but searches with the given contexts, and leaves
+     * the search state in them. The caller resets or releases the contexts afterwards.
+     * REQUIRES: the contexts are clear, different and belong to this snapshot
+     */
+    public ShortestPath findShortestPathBidirectional(Vertex start, Vertex end, SearchContext forward,
+            SearchContext backward) throws GraphDisconnectedException {
+        if (start == end) {
+            return singleVertexPath(start);
+        }
+        int startNumber = checkedVertexNumber(start);
+        int endNumber = checkedVertexNumber(end);
+        int meeting = bidirectionalDijkstra(startNumber, endNumber, forward, backward);
+        if (meeting < 0) {
+            throw new GraphDisconnectedException("Graph is disconnected");
+        }
+
+        // Path from start to the meeting vertex, then follow the backward predecessors to end
+        double distance = forward.distances[meeting] + backward.distances[meeting];
+        ShortestPath path = buildPath(startNumber, meeting, distance, forward.predecessors);
+        for (int curr = backward.predecessors[meeting]; curr >= 0; curr = backward.predecessors[curr]) {
+            path.getPath().addLast(vertices[curr]);
+        }
+        return path;
+    }
+
+    /*
+     * Returns the shortest path from start to end, using A*: dijkstra's algorithm where the heap is
+     * ordered by the distance so far plus an estimate of the distance left, so the search heads
+     * towards end instead of spreading out in every direction. The estimate is the straight line
+     * distance on the level plus rampCost for every level between the vertex and end, which is never
+     * more than the real distance (see Vertex.setCoordinates), so the path is still the shortest.
+     * Falls back to dijkstra's algorithm if some vertex has no coordinates.
+     * Throws exception if end cannot be reached from start
+     */
+    public ShortestPath findShortestPathAStar(Vertex start, Vertex end, double rampCost)
+            throws GraphDisconnectedException {
+        SearchContext context = acquireContext();
+        try {
+            return findShortestPathAStar(start, end, rampCost, context);
+        } finally {
+            releaseContext(context);
+        }
+    }
+
+    /*
+     * Same as findShortestPathAStar(start, end, rampCost), but searches with the given context, and
+     * leaves the search state in it. The caller resets or releases the context afterwards.
+     * REQUIRES: the context is clear and belongs to this snapshot
+     */
+    public ShortestPath findShortestPathAStar(Vertex start, Vertex end, double rampCost, SearchContext context)
+            throws GraphDisconnectedException {
+        if (start == end) {
+            return singleVertexPath(start);
+        }
+        int startNumber = checkedVertexNumber(start);
+        int endNumber = checkedVertexNumber(end);
+        if (hasAllCoordinates) {
+            aStar(startNumber, endNumber, rampCost, context);
+        } else {
+            dijkstra(startNumber, endNumber, context);
+        }
+        double distance = context.distances[endNumber];
+        if (distance == Double.POSITIVE_INFINITY) {
+            throw new GraphDisconnectedException("Graph is disconnected");
+        }
+        return buildPath(startNumber, endNumber, distance, context.predecessors);
+    }
+
+    /*
+     * Takes a clear search context for this snapshot from the pool, or creates one if all are in use.
+     * Give it back with releaseContext when the query is done.
+     */
+    public SearchContext acquireContext() {
+        SearchContext context = contextPool.poll();
+        return context != null ? context : new SearchContext(vertices.length);
+    }
+
+    // Records the search of the context (if measured), clears it and puts it back in the pool
+    // REQUIRES: the context was acquired from this snapshot, and is no longer used
+    public void releaseContext(SearchContext context) {
+        LotMetrics current = metrics;
+        if (current != null && context.expansions > 0) {
+            current.recordSearch(context.expansions);
+        }
+        context.reset();
+        contextPool.offer(context);
+    }
+
+    /*
+     * Dijkstra's algorithm from the source, filling the distances (infinity if unreachable) and
+     * predecessors (-1 for the source and unreachable vertices) of every vertex number in the context.
+     * REQUIRES: the context is clear and belongs to this snapshot
+     */
+    void dijkstra(int source, SearchContext context) {
+        dijkstra(source, -1, context);
+    }
+
+    /*
+     * Dijkstra's algorithm from the source, that stops as soon as the target is settled (its distance
+     * is final). Vertices that were not settled may have distances that are too long. A target of -1
+     * settles every reachable vertex.
+     * REQUIRES: the context is clear and belongs to this snapshot
+     */
+    void dijkstra(int source, int target, SearchContext context) {
+        double[] distances = context.distances;
+        boolean[] settled = context.settled;
+        IndexMinHeap heap = context.heap;
+        context.setDistance(source, 0, -1);
+        heap.insertOrDecrease(source, 0);
+        while (!heap.isEmpty()) {
+            int curr = heap.poll();
+            context.settle(curr);
+            if (curr == target) {
+                return;
+            }
+            double currDistance = distances[curr];
+            for (int edge = offsets[curr]; edge < offsets[curr + 1]; edge++) {
+                int neighbour = targets[edge];
+                double newDistance = currDistance + weights[edge];
+                if (!settled[neighbour] && newDistance < distances[neighbour]) {
+                    context.setDistance(neighbour, newDistance, curr);
+                    heap.insertOrDecrease(neighbour, newDistance);
+                }
+            }
+        }
+    }
+
+    /*
+     * A* search from the source, that stops when the target is settled. The heap key of a vertex is its
+     * distance plus the estimate (heuristic) of its distance to the target. Since the estimate never
+     * decreases by more than the length of an edge (it is consistent), a settled vertex is final.
+     * REQUIRES: hasAllCoordinates, the context is clear and belongs to this snapshot
+     */
+    void aStar(int source, int target, double rampCost, SearchContext context) {
+        double[] distances = context.distances;
+        boolean[] settled = context.settled;
+        IndexMinHeap heap = context.heap;
+        context.setDistance(source, 0, -1);
+        heap.insertOrDecrease(source, heuristic(source, target, rampCost));
+        while (!heap.isEmpty()) {
+            int curr = heap.poll();
+            context.settle(curr);
+            if (curr == target) {
+                return;
+            }
+            double currDistance = distances[curr];
+            for (int edge = offsets[curr]; edge < offsets[curr + 1]; edge++) {
+                int neighbour = targets[edge];
+                double newDistance = currDistance + weights[edge];
+                if (!settled[neighbour] && newDistance < distances[neighbour]) {
+                    context.setDistance(neighbour, newDistance, curr);
+                    heap.insertOrDecrease(neighbour, newDistance + heuristic(neighbour, target, rampCost));
+                }
+            }
+        }
+    }
+
+    /*
+     * Bidirectional dijkstra's algorithm between source and target. Every time a vertex gets a shorter
+     * distance on one side, the path through it (its distance on both sides) is a candidate. The search
+     * stops when the smallest keys of both heaps add up to at least the best candidate, since no path
+     * through unsettled vertices can be shorter. Returns the vertex where the best path meets, -1 if
+     * the target cannot be reached.
+     * REQUIRES: source != target, the contexts are clear, different and belong to this snapshot
+     */
+    int bidirectionalDijkstra(int source, int target, SearchContext forward, SearchContext backward) {
+        forward.setDistance(source, 0, -1);
+        forward.heap.insertOrDecrease(source, 0);
+        backward.setDistance(target, 0, -1);
+        backward.heap.insertOrDecrease(target, 0);
+        double best = Double.POSITIVE_INFINITY;
+        int meeting = -1;
+        while (!forward.heap.isEmpty() && !backward.heap.isEmpty()
+                && forward.heap.peekKey() + backward.heap.peekKey() < best) {
+            // Expand the side with the smaller frontier
+            boolean forwardSide = forward.heap.size() <= backward.heap.size();
+            SearchContext side = forwardSide ? forward : backward;
+            SearchContext other = forwardSide ? backward : forward;
+            int curr = side.heap.poll();
+            side.settle(curr);
+            double currDistance = side.distances[curr];
+            for (int edge = offsets[curr]; edge < offsets[curr + 1]; edge++) {
+                int neighbour = targets[edge];
+                double newDistance = currDistance + weights[edge];
+                if (!side.settled[neighbour] && newDistance < side.distances[neighbour]) {
+                    side.setDistance(neighbour, newDistance, curr);
+                    side.heap.insertOrDecrease(neighbour, newDistance);
+                    double through = newDistance + other.distances[neighbour];
+                    if (through < best) {
+                        best = through;
+                        meeting = neighbour;
+                    }
+                }
+            }
+        }
+        return meeting;
+    }
+
+    /*
+     * Builds the path from the predecessors, going back from end to start.
+     * REQUIRES: end is reachable from start in the predecessors
+     */
+    ShortestPath buildPath(int start, int end, double distance, int[] predecessors) {
+        LinkedList<Vertex> path = new LinkedList<>();
+        for (int curr = end; curr != start; curr = predecessors[curr]) {
+            path.addFirst(vertices[curr]);
+        }
+        path.addFirst(vertices[start]);
+        return new ShortestPath(path, distance);
+    }
+
+    // Returns the number of the vertex, -1 if the vertex is not in this graph
+    public int getVertexNumber(Vertex vertex) {
+        Integer number = vertexNumbers.get(vertex);
+        return number == null ? -1 : number;
+    }
+
+    /*
+     * Records every search that uses a context from the pool to the metrics (when the context is
+     * released), null to stop recording
+     */
+    public void reportTo(LotMetrics metrics) { this.metrics = metrics; }
+
+    ///// HELPER METHODS /////
+
+    // Copies the positions of the numbered vertices into the primitive arrays, and starts the pool
+    private void readCoordinates() {
+        xs = new double[vertices.length];
+        ys = new double[vertices.length];
+        levels = new int[vertices.length];
+        hasAllCoordinates = true;
+        for (int v = 0; v < vertices.length; v++) {
+            xs[v] = vertices[v].getX();
+            ys[v] = vertices[v].getY();
+            levels[v] = vertices[v].getLevel();
+            hasAllCoordinates &= vertices[v].hasCoordinates();
+        }
+        contextPool = new ConcurrentLinkedQueue<>();
+    }
+
+    // Lower bound of the distance between the 2 vertices: straight line distance plus ramps between levels
+    private double heuristic(int vertex, int target, double rampCost) {
+        double dx = xs[vertex] - xs[target];
+        double dy = ys[vertex] - ys[target];
+        return Math.sqrt(dx * dx + dy * dy) + rampCost * Math.abs(levels[vertex] - levels[target]);
+    }
+
+    // Returns the path with only the given vertex, and distance 0
+    private ShortestPath singleVertexPath(Vertex vertex) {
+        LinkedList<Vertex> path = new LinkedList<>();
+        path.add(vertex);
+        return new ShortestPath(path, 0);
+    }
+
+    // Returns the number of the vertex, throws GraphDisconnectedException if it is not in this graph
+    private int checkedVertexNumber(Vertex vertex) throws GraphDisconnectedException {
+        int number = getVertexNumber(vertex);
+        if (number < 0) {
+            throw new GraphDisconnectedException("Graph is disconnected");
+        }
+        return number;
+    }
+
+    ///// GETTER METHODS /////
+
+    public Vertex getVertex(int number) { return vertices[number]; }
+    public int getVertexCount() { return vertices.length; }
+    public int getEdgeCount() { return targets.length; }
+    public int[] getOffsets() { return offsets; }
+    public int[] getTargets() { return targets; }
+    public double[] getWeights() { return weights; }
+    public boolean hasAllCoordinates() { return hasAllCoordinates; }
+}
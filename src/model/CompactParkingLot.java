@@ -0,0 +1,210 @@
+package model;
+
+/*
+A parking lot for very large lots (e.g. simulations with millions of spots), that keeps no object
+per spot or per parked vehicle. It has the same rules as ParkingLot: vehicles get the FURTHEST
+vacant spot of their type, motorcycles go to motorcycle spots first, then to half full car spots,
+then to vacant car spots, and the plates have the same format. The state is held in:
+ - a SpotStore: the spots in primitive arrays (id, distance, type, motorcycle count, plates)
+ - SlotQueues: the vacant car, half full car, vacant motorcycle and vacant commercial spots, as heaps
+   of slots
+ - a PlateIndex: packed plate -> slot, instead of a HashMap<String, ParkingSpot>
+Spots are returned as SpotViews, which are only created for the caller.
+
+The lot has no road network, since the spots are not graph vertices here: use ParkingLot for
+routing from entrances. Not thread safe.
+*/
+public class CompactParkingLot {
+
+    // Queues of the SlotQueues
+    private static final int VACANT_CAR = 0;
+    private static final int HALF_FULL_CAR = 1;
+    private static final int VACANT_MOTORCYCLE = 2;
+    private static final int VACANT_COMMERCIAL = 3;
+
+    // Name of the parking lot (can be changed if needed)
+    private String name;
+
+    private SpotStore store;
+    private SlotQueues queues;
+    private PlateIndex plateToSlot;
+
+    // Constructs an empty lot with the given name
+    public CompactParkingLot(String name) {
+        this(name, 16);
+    }
+
+    // Constructs an empty lot with room for the given number of spots (it grows when needed)
+    public CompactParkingLot(String name, int capacity) {
+        this.name = name;
+        this.store = new SpotStore(capacity);
+        this.queues = new SlotQueues(store, 4);
+        this.plateToSlot = new PlateIndex();
+    }
+
+    /*
+     * Adds a new vacant spot with the given id, distance and type (flag same as ParkingLot).
+     * Returns the new spot, null if a spot with the id already exists
+     * REQUIRES: the integer flag must be 0, 1 or 2
+     */
+    public SpotView addParkingSpot(int id, double distance, int flag) {
+        int slot = store.add(id, distance, flag);
+        if (slot < 0) {
+            return null;
+        }
+        queues.add(vacantQueue(flag), slot);
+        return new SpotView(store, slot);
+    }
+
+    /*
+     * Occupies the furthest vacant spot for the vehicle (flag same as ParkingLot.occupySpot).
+     * Throws exception if license plate doesn't meet reqs, or if plate already exists
+     * Returns the spot that was occupied if success, null if the lot is full
+     */
+    public SpotView occupySpot(String plate, int flag) throws IllegalArgumentException {
+        long code = PlateCodec.encode(plate); // Potentially throws IllegalArgumentException
+        checkDuplicatePlate(code);
+
+        int slot = allocateSlot(code, flag);
+        if (slot < 0) {
+            return null;
+        }
+        plateToSlot.put(code, slot);
+        return new SpotView(store, slot);
+    }
+
+    /*
+     * Manually occupies the spot with the given id (flag true for a motorcycle, as in
+     * ParkingLot.manuallyOccupy). Returns the spot, null if there is no spot with the id or the
+     * vehicle does not fit. Throws exception if plate doesn't meet reqs, or is already parked
+     */
+    public SpotView manuallyOccupy(int id, String plate, boolean flag) throws IllegalArgumentException {
+        long code = PlateCodec.encode(plate); // Potentially throws IllegalArgumentException
+        int slot = store.slotOf(id);
+        if (slot < 0) { // Id not found
+            return null;
+        }
+        checkDuplicatePlate(code);
+
+        if (store.isOccupied(slot)) {
+            if (store.getType(slot) != 0 || store.getMotorcycleCount(slot) != 1 || !flag) {
+                return null; // Only a motorcycle fits, in a half full car spot
+            }
+            store.occupyWithMotorcycle(slot, code);
+            queues.remove(HALF_FULL_CAR, slot);
+        } else if (store.getType(slot) == 0 && flag) {
+            store.occupyWithMotorcycle(slot, code);
+            queues.remove(VACANT_CAR, slot);
+            queues.add(HALF_FULL_CAR, slot);
+        } else {
+            store.occupy(slot, code);
+            queues.remove(vacantQueue(store.getType(slot)), slot);
+        }
+        plateToSlot.put(code, slot);
+        return new SpotView(store, slot);
+    }
+
+    /*
+     * Lets the vehicle with the plate leave, and puts its spot back into the queues.
+     * Returns the spot it was parked in, null if it is not parked in the lot
+     */
+    public SpotView unoccupySpot(String plate) throws IllegalArgumentException {
+        long code = PlateCodec.encode(plate);
+        int slot = plateToSlot.remove(code);
+        if (slot < 0) {
+            return null; // No vehicle with this plate is parked in the lot
+        }
+        if (store.getType(slot) == 0 && store.getMotorcycleCount(slot) > 0) {
+            // Case where you unoccupy motorcycle from car
+            store.unoccupyMotorcycle(slot, code);
+            if (store.getMotorcycleCount(slot) == 1) {
+                if (!queues.contains(HALF_FULL_CAR, slot)) {
+                    queues.add(HALF_FULL_CAR, slot);
+                }
+            } else {
+                queues.remove(HALF_FULL_CAR, slot);
+                queues.add(VACANT_CAR, slot);
+            }
+        } else {
+            store.unoccupy(slot);
+            queues.add(vacantQueue(store.getType(slot)), slot);
+        }
+        return new SpotView(store, slot);
+    }
+
+    // Returns the spot with the given id, null if there is none
+    public SpotView findParkingSpot(int id) {
+        int slot = store.slotOf(id);
+        return slot < 0 ? null : new SpotView(store, slot);
+    }
+
+    // Returns the spot the plate is parked in, null if it is not parked in the lot
+    public SpotView findSpotOfPlate(String plate) throws IllegalArgumentException {
+        int slot = plateToSlot.get(PlateCodec.encode(plate));
+        return slot < 0 ? null : new SpotView(store, slot);
+    }
+
+    ///// HELPER METHODS /////
+
+    // Takes the spot for the vehicle from the queues and occupies it. Returns its slot, -1 if none
+    private int allocateSlot(long code, int flag) {
+        switch (flag) {
+            case 0:
+                return occupyFromQueue(VACANT_CAR, code);
+            case 1:
+                int slot = occupyFromQueue(VACANT_MOTORCYCLE, code);
+                if (slot >= 0) {
+                    return slot;
+                }
+                // Furthest half full car spot first, then the furthest vacant car spot
+                slot = queues.poll(HALF_FULL_CAR);
+                if (slot < 0) {
+                    slot = queues.poll(VACANT_CAR);
+                    if (slot < 0) {
+                        return -1;
+                    }
+                    queues.add(HALF_FULL_CAR, slot);
+                }
+                store.occupyWithMotorcycle(slot, code);
+                return slot;
+            default:
+                return occupyFromQueue(VACANT_COMMERCIAL, code);
+        }
+    }
+
+    // Polls the furthest spot of the queue and occupies it. Returns its slot, -1 if the queue is empty
+    private int occupyFromQueue(int queue, long code) {
+        int slot = queues.poll(queue);
+        if (slot >= 0) {
+            store.occupy(slot, code);
+        }
+        return slot;
+    }
+
+    // Throws exception if the plate is already parked in the lot
+    private void checkDuplicatePlate(long code) throws IllegalArgumentException {
+        if (plateToSlot.get(code) >= 0) {
+            throw new IllegalArgumentException("Plate already exists");
+        }
+    }
+
+    // Returns the queue of the vacant spots of the type
+    private static int vacantQueue(int flag) {
+        return flag == 0 ? VACANT_CAR : flag == 1 ? VACANT_MOTORCYCLE : VACANT_COMMERCIAL;
+    }
+
+    ///// SETTER METHODS /////
+
+    public void setName(String name) { this.name = name; }
+
+    ///// GETTER METHODS /////
+
+    public String getName() { return name; }
+    public SpotStore getStore() { return store; }
+    public int getSpotCount() { return store.size(); }
+    public int getParkedCount() { return plateToSlot.size(); }
+    public int getVacantCarSpotCount() { return queues.size(VACANT_CAR); }
+    public int getHalfFullCarSpotCount() { return queues.size(HALF_FULL_CAR); }
+    public int getVacantMotorcycleSpotCount() { return queues.size(VACANT_MOTORCYCLE); }
+    public int getVacantCommercialSpotCount() { return queues.size(VACANT_COMMERCIAL); }
+}
@@ -0,0 +1,304 @@
+package model;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+Thread safe version of the parking lot, for lots with several entry and exit gates that occupy and
+unoccupy spots at the same time. Instead of one lock around the whole lot, it uses one lock
+(stripe) per spot type:
+ - The car lock guards the vacant car spots and the half full car spots (a car spot moves between
+   those 2 queues, so they share a lock)
+ - The motorcycle lock guards the vacant motorcycle spots
+ - The commercial lock guards the vacant commercial spots
+A spot is only ever occupied or unoccupied while holding the lock of its type, so no spot can be
+handed to 2 vehicles. When a motorcycle overflows into a car spot, the motorcycle lock is released
+before the car lock is taken, so there is no lock ordering to get wrong. Only adding an entrance
+takes all 3 locks, always in the order car, motorcycle, commercial (and a batch of motorcycles takes
+the car lock, then the motorcycle lock).
+
+The spot map and the plate index are concurrent hash maps. A plate is reserved (atomically, in a
+concurrent set of reserved plates) before a spot is taken for it, and only put into the plate index
+once it is parked, so 2 gates can never park the same plate twice, and the plate index (and
+getLicensePlates) only ever holds parked plates.
+
+Every lock counts how often a thread found it held by another thread and had to wait for it (see
+getLockContentions), so load runs can tell how much the gates get in each other's way.
+*/
+public class ConcurrentParkingLot extends ParkingLot {
+
+    // Plates that are being parked: reserved, but not yet in the plate index
+    private final Set<String> reservedPlates;
+
+    // One lock per spot type
+    private final CountingLock carLock;
+    private final CountingLock motorcycleLock;
+    private final CountingLock commercialLock;
+
+    // Constructs a new empty, thread safe parking lot
+    public ConcurrentParkingLot(String name) {
+        super(name, new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        this.carLock = new CountingLock();
+        this.motorcycleLock = new CountingLock();
+        this.commercialLock = new CountingLock();
+        this.reservedPlates = ConcurrentHashMap.newKeySet();
+    }
+
+    /*
+     * Same as ParkingLot.addParkingSpot, while holding the lock of the spot type.
+     * Returns null if the id already exists
+     */
+    @Override
+    public ParkingSpot addParkingSpot(int id, double distance, int flag) {
+        CountingLock lock = lockFor(flag);
+        lock.lock();
+        try {
+            return super.addParkingSpot(id, distance, flag);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Same as ParkingLot.occupySpot (also used by occupySpot(plate, flag)). The duplicate plate check
+     * and the reservation of the plate are one atomic step, so the same plate entering at 2 gates at
+     * once is always caught.
+     */
+    @Override
+    public ParkingSpot occupySpot(String plate, int flag, Vertex entrance) throws IllegalArgumentException {
+        long start = startTimer();
+        plate = formatPlate(plate); // Potentially throws IllegalArgumentException
+        reservePlate(plate); // Potentially throws IllegalArgumentException
+
+        ParkingSpot spotToOccupy = null;
+        try {
+            spotToOccupy = allocateSpot(plate, flag, routesFrom(entrance));
+        } finally {
+            completeReservation(plate, spotToOccupy);
+        }
+        recordOccupy(flag, start, spotToOccupy);
+        return spotToOccupy;
+    }
+
+    /*
+     * Same as ParkingLot.manuallyOccupy. The spot is checked and occupied while holding the lock of
+     * its type, so it cannot be taken by an automatic assignment at the same time.
+     */
+    @Override
+    public ParkingSpot manuallyOccupy(int id, String plate, boolean flag) throws IllegalArgumentException {
+        long start = startTimer();
+        plate = formatPlate(plate); // Potentially throws IllegalArgumentException
+        ParkingSpot spotToOccupy = findParkingSpot(id);
+        if (spotToOccupy == null) { // Id not found
+            return null;
+        }
+        reservePlate(plate); // Potentially throws IllegalArgumentException
+
+        boolean occupied = false;
+        try {
+            occupied = occupyChosenSpot(spotToOccupy, plate, flag);
+        } finally {
+            completeReservation(plate, occupied ? spotToOccupy : null);
+        }
+        recordManualOccupy(flag ? 1 : flagOf(spotToOccupy), start);
+        return occupied ? spotToOccupy : null;
+    }
+
+    // Returns how many times so far a thread had to wait for a lock of the lot (all 3 locks)
+    public long getLockContentions() {
+        return carLock.contentions.sum() + motorcycleLock.contentions.sum() + commercialLock.contentions.sum();
+    }
+
+    ///// HELPER METHODS /////
+
+    // Also registers how many times a thread had to wait for each lock
+    @Override
+    protected void registerGauges(LotMetrics metrics) {
+        super.registerGauges(metrics);
+        metrics.registerGauge("lock.car.contended", carLock.contentions::sum);
+        metrics.registerGauge("lock.motorcycle.contended", motorcycleLock.contentions::sum);
+        metrics.registerGauge("lock.commercial.contended", commercialLock.contentions::sum);
+    }
+
+    /*
+     * Takes a spot out of the priority queues while holding the right lock. A motorcycle first
+     * tries the motorcycle spots, then (after releasing the motorcycle lock) the car spots.
+     * The shortest path tree of routes is computed before any lock is taken.
+     */
+    @Override
+    protected ParkingSpot allocateSpot(String plate, int flag, ShortestPathTree routes) {
+        switch (flag) {
+            case 0:
+                carLock.lock();
+                try {
+                    return occupyFromQueue(getVacantCarSpots(), plate, routes);
+                } finally {
+                    carLock.unlock();
+                }
+            case 1:
+                MotorcycleSpot motorcycleSpotToOccupy;
+                motorcycleLock.lock();
+                try {
+                    motorcycleSpotToOccupy = occupyFromQueue(getVacantMotorcycleSpots(), plate, routes);
+                } finally {
+                    motorcycleLock.unlock();
+                }
+                if (motorcycleSpotToOccupy != null) {
+                    return motorcycleSpotToOccupy;
+                }
+                carLock.lock();
+                try {
+                    return occupyCarSpotWithMotorcycle(plate, routes);
+                } finally {
+                    carLock.unlock();
+                }
+            default:
+                commercialLock.lock();
+                try {
+                    return occupyFromQueue(getVacantCommericalSpots(), plate, routes);
+                } finally {
+                    commercialLock.unlock();
+                }
+        }
+    }
+
+    // Occupies the chosen spot while holding the lock of its type
+    @Override
+    protected boolean occupyChosenSpot(ParkingSpot spotToOccupy, String plate, boolean flag) {
+        CountingLock lock = lockFor(spotToOccupy);
+        lock.lock();
+        try {
+            return super.occupyChosenSpot(spotToOccupy, plate, flag);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Unoccupies the spot while holding the lock of its type
+    @Override
+    protected void releaseSpot(ParkingSpot spot, String plate) {
+        CountingLock lock = lockFor(spot);
+        lock.lock();
+        try {
+            super.releaseSpot(spot, plate);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Reserves the plate of a batch in the plate index (this also catches duplicates in the batch)
+    @Override
+    protected void claimBatchPlate(String plate, Set<String> batchPlates) throws IllegalArgumentException {
+        reservePlate(plate);
+    }
+
+    // Replaces the reservation of a batch plate with its spot, or drops it
+    @Override
+    protected void recordPlate(String plate, ParkingSpot spot) {
+        completeReservation(plate, spot);
+    }
+
+    /*
+     * Allocates the whole type of the batch while holding its lock, so the lock is taken once per
+     * batch instead of once per vehicle. Motorcycles may overflow into car spots, so they hold the
+     * car lock as well (taken first, the same order as registerEntrance).
+     */
+    @Override
+    protected void allocateSpotsOfType(String[] plates, int[] flags, ParkingSpot[] spots, int flag) {
+        if (flag == 1) {
+            carLock.lock();
+        }
+        CountingLock lock = lockFor(flag);
+        lock.lock();
+        try {
+            allocateDrained(plates, flags, spots, flag);
+        } finally {
+            lock.unlock();
+            if (flag == 1) {
+                carLock.unlock();
+            }
+        }
+    }
+
+    // Releases the whole spot type of the batch while holding its lock once
+    @Override
+    protected void releaseSpotsOfType(ParkingSpot[] spots, String[] plates, int flag) {
+        CountingLock lock = lockFor(flag);
+        lock.lock();
+        try {
+            releaseEach(spots, plates, flag);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Registers the entrance while holding all 3 locks, since it adds to the route queues of every type
+    @Override
+    protected void registerEntrance(Vertex entrance) {
+        carLock.lock();
+        motorcycleLock.lock();
+        commercialLock.lock();
+        try {
+            super.registerEntrance(entrance);
+        } finally {
+            commercialLock.unlock();
+            motorcycleLock.unlock();
+            carLock.unlock();
+        }
+    }
+
+    /*
+     * Atomically reserves the plate. A parked plate is put into the plate index before its
+     * reservation is dropped, so a plate that is reserved or parked is always caught.
+     * Throws exception if plate already exists
+     */
+    private void reservePlate(String plate) throws IllegalArgumentException {
+        if (!reservedPlates.add(plate)) {
+            throw new IllegalArgumentException("Plate already exists");
+        }
+        if (getPlateToSpot().containsKey(plate)) {
+            reservedPlates.remove(plate);
+            throw new IllegalArgumentException("Plate already exists");
+        }
+    }
+
+    // Records the plate as parked in the spot (unless null), then drops the reservation of the plate
+    private void completeReservation(String plate, ParkingSpot spot) {
+        if (spot != null) {
+            getPlateToSpot().put(plate, spot);
+        }
+        reservedPlates.remove(plate);
+    }
+
+    // Returns the lock that guards the priority queue of the spot's type
+    private CountingLock lockFor(ParkingSpot spot) {
+        return lockFor(flagOf(spot));
+    }
+
+    // Returns the lock that guards the priority queues of the type with the given flag
+    private CountingLock lockFor(int flag) {
+        return flag == 0 ? carLock : flag == 1 ? motorcycleLock : commercialLock;
+    }
+
+    /*
+     * Reentrant lock that counts the times it was held by another thread when lock() was called.
+     * An uncontended lock() costs the same as before: one compare-and-set in tryLock
+     */
+    private static class CountingLock {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LongAdder contentions = new LongAdder();
+
+        void lock() {
+            if (!lock.tryLock()) {
+                contentions.increment();
+                lock.lock();
+            }
+        }
+
+        void unlock() {
+            lock.unlock();
+        }
+    }
+}
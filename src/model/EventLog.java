@@ -0,0 +1,588 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/*
+An append only log of every change to the spots of a parking lot (see ParkingLot.logTo), for an
+audit trail and for crash recovery: replay() rebuilds the lot from the log.
+
+Every event is a compact binary record (the plate is packed with PlateCodec):
+    ADD_SPOT: kind (byte), spot id (int), distance (double), type (byte), CRC (int)     = 18 bytes
+    OCCUPY:   kind (byte), spot id (int), plate (long), motorcycle (byte), CRC (int)    = 18 bytes
+    VACATE:   kind (byte), spot id (int), plate (long), CRC (int)                       = 17 bytes
+The CRC (CRC32C of the rest of the record) finds a record that was only partly written when the
+process died; the log ends before it.
+
+GROUP COMMIT: appending an event only copies it into a buffer in memory. A background thread writes
+the buffer to the file and forces it to the disk (fsync) once per group: as soon as batchSize
+events are waiting, or maxDelayMillis after the oldest waiting event, whichever comes first. So
+at most one fsync is paid per batch of gate events, and a crash loses at most the last group. A
+caller that must know its event is on the disk waits with awaitDurable (or sync).
+
+Appending never throws, since it runs in the middle of a change to a spot, after the spot has been
+changed. Once the log has failed (the file could not be written) or has been closed, new events
+are dropped instead, and the failure is thrown by sync and awaitDurable (see getDroppedEvents).
+
+The log is a directory of segment files "events-<first sequence>.log". Events are numbered 1, 2,
+3... (sequence); a new segment is started once the current one is larger than segmentBytes, so old
+segments can be deleted once a snapshot covers them (see truncateBefore).
+*/
+public class EventLog implements Closeable {
+
+    // Kinds of events
+    static final byte ADD_SPOT = 1;
+    static final byte OCCUPY = 2;
+    static final byte VACATE = 3;
+
+    // Segments start a new file once they are larger than this
+    public static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+
+    // Appends wait for the background thread while more than this many bytes are waiting
+    private static final int MAX_PENDING_BYTES = 8 << 20;
+
+    private final Path directory;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final long segmentBytes;
+
+    // Guards everything below, and is waited on for new events and for durability
+    private final Object lock = new Object();
+
+    // Events appended but not yet written, the number of them, and when the oldest was appended
+    private ByteBuffer pending;
+    private int pendingCount;
+    private long oldestPendingNanos;
+
+    // Sequence of the last appended event, and of the last event that is durable on the disk
+    private long lastSequence;
+    private long durableSequence;
+
+    // Set when a flush is requested before the batch is full (sync, close)
+    private boolean flushRequested;
+    private boolean closed;
+
+    // Error of the background thread (or "closed" once an event came after close), thrown by sync
+    private IOException failure;
+
+    // Number of events that were not logged because the log had failed or was closed
+    private long droppedEvents;
+
+    // Current segment, its first sequence, and the thread that writes the groups
+    private FileChannel segment;
+    private long segmentFirstSequence;
+    private final Thread flusher;
+
+    /*
+     * Opens the log in the directory (created if needed), after its last complete event, and starts
+     * its background thread. An event that was only partly written is cut off.
+     * Throws exception if the directory or the last segment cannot be opened
+     * REQUIRES: batchSize >= 1, maxDelayMillis >= 0
+     */
+    public static EventLog open(Path directory, int batchSize, long maxDelayMillis) throws IOException {
+        return new EventLog(directory, batchSize, maxDelayMillis, DEFAULT_SEGMENT_BYTES);
+    }
+
+    // Same as above, with the given segment size
+    public static EventLog open(Path directory, int batchSize, long maxDelayMillis, long segmentBytes)
+            throws IOException {
+        return new EventLog(directory, batchSize, maxDelayMillis, segmentBytes);
+    }
+
+    private EventLog(Path directory, int batchSize, long maxDelayMillis, long segmentBytes) throws IOException {
+        this.directory = directory;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = maxDelayMillis * 1_000_000L;
+        this.segmentBytes = segmentBytes;
+        this.pending = ByteBuffer.allocate(64 * 1024);
+        Files.createDirectories(directory);
+
+        List<Path> segments = segments(directory);
+        if (segments.isEmpty()) {
+            this.lastSequence = 0;
+        } else {
+            // Continue the last segment after its last complete event
+            Path last = segments.get(segments.size() - 1);
+            this.segmentFirstSequence = firstSequence(last);
+            this.segment = FileChannel.open(last, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            SegmentReader reader = new SegmentReader(segment);
+            long count = 0;
+            while (reader.next()) {
+                count++;
+            }
+            segment.truncate(reader.validBytes);
+            segment.position(reader.validBytes);
+            this.lastSequence = segmentFirstSequence - 1 + count;
+        }
+        this.durableSequence = lastSequence;
+
+        this.flusher = new Thread(this::flushLoop, "event-log-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /*
+     * Rebuilds the lot from all events in the log in the directory, in order, and returns the
+     * sequence of the last event. See replay(directory, lot, afterSequence)
+     */
+    public static long replay(Path directory, ParkingLot lot) throws IOException {
+        return replay(directory, lot, 0);
+    }
+
+    /*
+     * Applies the events after the given sequence to the lot, in order, and returns the sequence
+     * of the last event (afterSequence if there are none). The log ends at the first event that
+     * was not completely written.
+     *
+     * Events of one spot are in the order they happened, but a vehicle that leaves a spot and
+     * parks again at once can have its OCCUPY event before the VACATE event of its old spot
+     * (different spots are logged under different locks). So an OCCUPY first moves the plate
+     * out of the spot it is still parked in, and a VACATE is skipped if the plate is no longer
+     * parked in that spot.
+     * Throws exception if the log cannot be read
+     * REQUIRES: the lot is not logged to an event log, and no other thread uses it
+     */
+    public static long replay(Path directory, ParkingLot lot, long afterSequence) throws IOException {
+        return replay(directory, lot, afterSequence, Long.MAX_VALUE);
+    }
+
+    /*
+     * Same as above, but stops after the event with sequence upToSequence (e.g. the last durable
+     * event of a log that is still being written)
+     */
+    public static long replay(Path directory, ParkingLot lot, long afterSequence, long upToSequence)
+            throws IOException {
+        long sequence = afterSequence;
+        List<Path> segments = segments(directory);
+        for (int i = 0; i < segments.size(); i++) {
+            Path path = segments.get(i);
+            long first = firstSequence(path);
+            if (first > upToSequence) {
+                break;
+            }
+            if (i + 1 < segments.size() && firstSequence(segments.get(i + 1)) - 1 <= afterSequence) {
+                continue; // Only events that are already applied
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                SegmentReader reader = new SegmentReader(channel);
+                for (long next = first; next <= upToSequence && reader.next(); next++) {
+                    if (next > afterSequence) {
+                        apply(lot, reader);
+                        sequence = next;
+                    }
+                }
+            }
+        }
+        return sequence;
+    }
+
+    /*
+     * Writes and forces every event appended so far, and returns the sequence of the last one.
+     * Throws exception if the log cannot be written
+     */
+    public long sync() throws IOException {
+        long sequence;
+        synchronized (lock) {
+            if (failure != null) {
+                throw failure; // Some events may have been dropped
+            }
+            sequence = lastSequence;
+            flushRequested = true;
+            lock.notifyAll();
+        }
+        try {
+            awaitDurable(sequence);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the event log", e);
+        }
+        return sequence;
+    }
+
+    /*
+     * Waits until the event with the given sequence (and every event before it) is on the disk.
+     * Throws exception if the log cannot be written, or if events were dropped after it was closed
+     */
+    public void awaitDurable(long sequence) throws IOException, InterruptedException {
+        synchronized (lock) {
+            while (true) {
+                if (failure != null && (durableSequence < sequence || droppedEvents > 0)) {
+                    throw failure;
+                }
+                if (durableSequence >= sequence) {
+                    return;
+                }
+                lock.wait();
+            }
+        }
+    }
+
+    /*
+     * Deletes the segments that only hold events up to the given sequence (e.g. the sequence of a
+     * durable snapshot). The current segment is never deleted. Returns the number of segments deleted
+     */
+    public int truncateBefore(long sequence) throws IOException {
+        long current;
+        synchronized (lock) {
+            current = segmentFirstSequence;
+        }
+        List<Path> segments = segments(directory);
+        int deleted = 0;
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            long nextFirst = firstSequence(segments.get(i + 1));
+            if (nextFirst - 1 > sequence || firstSequence(segments.get(i)) >= current) {
+                break;
+            }
+            Files.delete(segments.get(i));
+            deleted++;
+        }
+        return deleted;
+    }
+
+    // Writes and forces all events, stops the background thread and closes the segment
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            flushRequested = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (segment != null) {
+            segment.close();
+        }
+        synchronized (lock) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    // The following 3 methods are called by the lot while it holds the guard of the spot
+
+    // Appends the event of a new spot
+    void spotAdded(ParkingSpot spot) {
+        synchronized (lock) {
+            ByteBuffer buffer = reserve(18);
+            if (buffer == null) {
+                return;
+            }
+            int start = buffer.position();
+            buffer.put(ADD_SPOT).putInt(spot.getParkingSpotId()).putDouble(spot.getDistance())
+                  .put((byte) ParkingLot.flagOf(spot));
+            commit(buffer, start);
+        }
+    }
+
+    // Appends the event of a vehicle parking in the spot (motorcycle: a motorcycle in a car spot)
+    void spotOccupied(ParkingSpot spot, String plate, boolean motorcycle) {
+        long code = PlateCodec.encode(plate);
+        synchronized (lock) {
+            ByteBuffer buffer = reserve(18);
+            if (buffer == null) {
+                return;
+            }
+            int start = buffer.position();
+            buffer.put(OCCUPY).putInt(spot.getParkingSpotId()).putLong(code).put((byte) (motorcycle ? 1 : 0));
+            commit(buffer, start);
+        }
+    }
+
+    // Appends the event of a vehicle leaving the spot
+    void spotVacated(ParkingSpot spot, String plate) {
+        long code = PlateCodec.encode(plate);
+        synchronized (lock) {
+            ByteBuffer buffer = reserve(17);
+            if (buffer == null) {
+                return;
+            }
+            int start = buffer.position();
+            buffer.put(VACATE).putInt(spot.getParkingSpotId()).putLong(code);
+            commit(buffer, start);
+        }
+    }
+
+    ///// HELPER METHODS /////
+
+    /*
+     * Returns the pending buffer with room for a record of the given size. Waits while too many
+     * bytes are waiting for the background thread. Returns null (and counts the event as dropped)
+     * if the log has failed or is closed
+     * REQUIRES: holds lock
+     */
+    private ByteBuffer reserve(int bytes) {
+        if (closed && failure == null) {
+            failure = new IOException("Event log is closed");
+        }
+        if (failure != null) {
+            droppedEvents++;
+            return null;
+        }
+        while (pending.position() > MAX_PENDING_BYTES && failure == null) {
+            flushRequested = true;
+            lock.notifyAll();
+            try {
+                lock.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (failure != null) {
+            droppedEvents++; // Failed while waiting
+            return null;
+        }
+        if (pending.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(pending.capacity() * 2);
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+        return pending;
+    }
+
+    // Adds the CRC of the record that starts at start, and counts the event. REQUIRES: holds lock
+    private void commit(ByteBuffer buffer, int start) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), start, buffer.position() - start);
+        buffer.putInt((int) crc.getValue());
+        lastSequence++;
+        if (pendingCount++ == 0) {
+            // Starts the timer of the background thread
+            oldestPendingNanos = System.nanoTime();
+            lock.notifyAll();
+        } else if (pendingCount >= batchSize) {
+            lock.notifyAll();
+        }
+    }
+
+    // Body of the background thread: writes and forces one group of events at a time
+    private void flushLoop() {
+        ByteBuffer spare = ByteBuffer.allocate(pending.capacity());
+        while (true) {
+            ByteBuffer group;
+            long groupLast;
+            synchronized (lock) {
+                try {
+                    while (!readyToFlush()) {
+                        if (closed && pendingCount == 0) {
+                            return;
+                        }
+                        long wait = pendingCount == 0 ? 0
+                                  : maxDelayNanos - (System.nanoTime() - oldestPendingNanos);
+                        if (pendingCount > 0 && wait <= 0) {
+                            break;
+                        }
+                        lock.wait(pendingCount == 0 ? 0 : Math.max(1, wait / 1_000_000L));
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                group = pending;
+                pending = spare.capacity() >= group.capacity() ? spare : ByteBuffer.allocate(group.capacity());
+                pending.clear();
+                groupLast = lastSequence;
+                pendingCount = 0;
+                flushRequested = false;
+            }
+
+            try {
+                group.flip();
+                writeGroup(group, groupLast);
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+            spare = group;
+            synchronized (lock) {
+                durableSequence = groupLast;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    // True if the waiting events should be written now. REQUIRES: holds lock
+    private boolean readyToFlush() {
+        return pendingCount > 0 && (pendingCount >= batchSize || flushRequested || maxDelayNanos == 0);
+    }
+
+    // Writes the group of events (ending with the given sequence) to the segment and forces it
+    private void writeGroup(ByteBuffer group, long groupLast) throws IOException {
+        if (group.hasRemaining()) {
+            if (segment == null || segment.size() >= segmentBytes) {
+                startSegment(durableSequence + 1);
+            }
+            while (group.hasRemaining()) {
+                segment.write(group);
+            }
+            segment.force(false);
+        }
+    }
+
+    // Closes the current segment and starts a new one, whose first event has the given sequence
+    private void startSegment(long firstSequence) throws IOException {
+        if (segment != null) {
+            segment.close();
+        }
+        Path path = directory.resolve(String.format("events-%020d.log", firstSequence));
+        segment = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                   StandardOpenOption.READ);
+        forceDirectory(directory); // Else a crash can lose the new file along with its forced events
+        synchronized (lock) {
+            segmentFirstSequence = firstSequence;
+        }
+    }
+
+    // Applies the event that the reader is on to the lot (see replay)
+    private static void apply(ParkingLot lot, SegmentReader reader) {
+        switch (reader.kind) {
+            case ADD_SPOT:
+                lot.addParkingSpot(reader.spotId, reader.distance, reader.flag);
+                break;
+            case OCCUPY: {
+                String plate = PlateCodec.decode(reader.plate);
+                if (lot.getPlateToSpot().get(plate) != null) {
+                    lot.unoccupySpot(plate); // Its VACATE event comes later
+                }
+                lot.manuallyOccupy(reader.spotId, plate, reader.flag == 1);
+                break;
+            }
+            default: {
+                String plate = PlateCodec.decode(reader.plate);
+                ParkingSpot spot = lot.getPlateToSpot().get(plate);
+                if (spot != null && spot.getParkingSpotId() == reader.spotId) {
+                    lot.unoccupySpot(plate);
+                }
+            }
+        }
+    }
+
+    /*
+     * Forces the entries of the directory (new, renamed and deleted files) to the disk. Forcing a
+     * file only writes its content, not the entry that names it
+     */
+    static void forceDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    // Returns the segments of the log in the directory, in order
+    private static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "events-*.log")) {
+            stream.forEach(segments::add);
+        }
+        segments.sort(null); // Zero padded, so the names sort by sequence
+        return segments;
+    }
+
+    // Returns the sequence of the first event of the segment, from its name
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring("events-".length(), name.length() - ".log".length()));
+    }
+
+    ///// GETTER METHODS /////
+
+    // Sequence of the last appended event, and of the last event that is on the disk (0 if none)
+    public long getLastSequence() { synchronized (lock) { return lastSequence; } }
+    public long getDurableSequence() { synchronized (lock) { return durableSequence; } }
+    public long getDroppedEvents() { synchronized (lock) { return droppedEvents; } }
+    public Path getDirectory() { return directory; }
+
+    /*
+     * Reads the events of a segment one at a time, through a buffer. Stops at the end, or at the
+     * first event that is incomplete or fails its CRC; validBytes is then the length of the
+     * complete events.
+     */
+    private static class SegmentReader {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private long validBytes;
+
+        // Fields of the current event (flag: type of an ADD_SPOT, motorcycle of an OCCUPY)
+        private byte kind;
+        private int spotId;
+        private double distance;
+        private long plate;
+        private int flag;
+
+        private SegmentReader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(64 * 1024);
+            this.buffer.flip();
+            this.validBytes = 0;
+            channel.position(0);
+        }
+
+        // Moves to the next event. Returns false at the end of the complete events
+        private boolean next() throws IOException {
+            if (!fill(1)) {
+                return false;
+            }
+            int start = buffer.position();
+            byte nextKind = buffer.get(start);
+            int size = nextKind == VACATE ? 17 : 18;
+            if ((nextKind != ADD_SPOT && nextKind != OCCUPY && nextKind != VACATE) || !fill(size)) {
+                return false;
+            }
+            start = buffer.position();
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.array(), start, size - 4);
+            if ((int) crc.getValue() != buffer.getInt(start + size - 4)) {
+                return false;
+            }
+            kind = buffer.get();
+            spotId = buffer.getInt();
+            if (kind == ADD_SPOT) {
+                distance = buffer.getDouble();
+                flag = buffer.get();
+            } else {
+                plate = buffer.getLong();
+                flag = kind == OCCUPY ? buffer.get() : 0;
+            }
+            buffer.getInt(); // CRC
+            validBytes += size;
+            return true;
+        }
+
+        // Makes sure the buffer holds at least the given number of bytes. False if the file ends first
+        private boolean fill(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return true;
+            }
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    buffer.flip();
+                    return false;
+                }
+            }
+            buffer.flip();
+            return true;
+        }
+    }
+}
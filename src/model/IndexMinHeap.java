@@ -0,0 +1,124 @@
+package model;
+
+import java.util.Arrays;
+
+/*
+A binary MIN heap of vertex numbers (0 to capacity - 1) with a double key each, stored in primitive
+arrays. It is used by the array based shortest path algorithms instead of a PriorityQueue<Vertex>:
+ - no boxing and no objects per entry
+ - every vertex is in the heap at most once; a shorter distance found later decreases the key of
+   the existing entry (decrease-key) instead of adding a duplicate entry
+ - clear() only resets the vertices that are in the heap, so one heap can be reused for many
+   queries on a big graph
+*/
+public class IndexMinHeap {
+
+    // Vertex numbers in heap order. Children of index i are at 2i + 1 and 2i + 2.
+    private int[] heap;
+
+    // Position of every vertex in heap, -1 if the vertex is not in the heap
+    private int[] position;
+
+    // Key of every vertex that is in the heap
+    private double[] keys;
+
+    private int size;
+
+    // Constructs an empty heap for vertex numbers 0 to capacity - 1
+    public IndexMinHeap(int capacity) {
+        this.heap = new int[capacity];
+        this.position = new int[capacity];
+        this.keys = new double[capacity];
+        Arrays.fill(position, -1);
+        this.size = 0;
+    }
+
+    /*
+     * Adds the vertex with the given key, or lowers its key if it is already in the heap with a
+     * larger key. Does nothing if the vertex is in the heap with a smaller or equal key.
+     */
+    public void insertOrDecrease(int vertex, double key) {
+        int i = position[vertex];
+        if (i < 0) {
+            i = size++;
+        } else if (keys[vertex] <= key) {
+            return;
+        }
+        keys[vertex] = key;
+        siftUp(vertex, i);
+    }
+
+    // Removes and returns the vertex with the smallest key
+    // REQUIRES: the heap is not empty
+    public int poll() {
+        int root = heap[0];
+        position[root] = -1;
+        size--;
+        if (size > 0) {
+            siftDown(heap[size], 0);
+        }
+        return root;
+    }
+
+    // Returns the vertex with the smallest key without removing it
+    // REQUIRES: the heap is not empty
+    public int peek() { return heap[0]; }
+
+    // Returns the smallest key in the heap, infinity if the heap is empty
+    public double peekKey() {
+        return size == 0 ? Double.POSITIVE_INFINITY : keys[heap[0]];
+    }
+
+    // Removes all vertices from the heap, in O(number of vertices in the heap)
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    public boolean contains(int vertex) { return position[vertex] >= 0; }
+    public boolean isEmpty() { return size == 0; }
+    public int size() { return size; }
+    public int capacity() { return position.length; }
+
+    ///// HELPER METHODS /////
+
+    // Moves the vertex up from index i until its parent has a smaller or equal key
+    private void siftUp(int vertex, int i) {
+        double key = keys[vertex];
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (keys[heap[parent]] <= key) {
+                break;
+            }
+            place(heap[parent], i);
+            i = parent;
+        }
+        place(vertex, i);
+    }
+
+    // Moves the vertex down from index i until none of its children have a smaller key
+    private void siftDown(int vertex, int i) {
+        double key = keys[vertex];
+        int half = size / 2;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && keys[heap[child + 1]] < keys[heap[child]]) {
+                child++;
+            }
+            if (key <= keys[heap[child]]) {
+                break;
+            }
+            place(heap[child], i);
+            i = child;
+        }
+        place(vertex, i);
+    }
+
+    // Places the vertex at index i of the heap, and records its position
+    private void place(int vertex, int i) {
+        heap[i] = vertex;
+        position[vertex] = i;
+    }
+}
@@ -19,6 +19,12 @@ public class Intersection extends Vertex {
         this.name = name;
     }
 
+    // Constructs a new intersection at position (x, y) on the given level
+    public Intersection(int intersectionId, String name, double x, double y, int level) {
+        this(intersectionId, name);
+        setCoordinates(x, y, level);
+    }
+
     ///// GETTER METHODS /////
     
     public String getName() { return name; }
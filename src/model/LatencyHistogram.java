@@ -0,0 +1,133 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+Histogram of non negative values (e.g. latencies in nanoseconds), laid out like an HDR histogram:
+values below 64 have a bucket each, and every power of 2 above that is split into 32 buckets, so a
+value is counted in a bucket at most 1/32 (about 3%) wider than itself. Values above MAX_VALUE
+(about 68 seconds in nanoseconds) are counted as MAX_VALUE.
+
+Recording never allocates and never locks: the buckets are kept in several stripes (arrays of
+atomic counts), and every thread counts into the stripe of its thread id, so gates on different
+threads rarely increment the same count. The stripes are only added up by snapshot(), which is the
+slow part and is meant for exporting, not for the hot path.
+*/
+public class LatencyHistogram {
+
+    // Largest value counted exactly, see class comment
+    public static final long MAX_VALUE = (1L << 36) - 1;
+
+    // Buckets per power of 2 above 64, and the number of buckets up to MAX_VALUE
+    private static final int SUB_BUCKETS = 32;
+    private static final int BUCKETS = bucketOf(MAX_VALUE) + 1;
+
+    // Counts of every bucket, one array per stripe
+    private final AtomicLongArray[] stripes;
+    private final int stripeMask;
+
+    // Constructs an empty histogram with a stripe for every processor (rounded up to a power of 2)
+    public LatencyHistogram() {
+        int stripeCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1));
+        this.stripes = new AtomicLongArray[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new AtomicLongArray(BUCKETS);
+        }
+        this.stripeMask = stripeCount - 1;
+    }
+
+    // Counts the value once. Negative values count as 0
+    public void record(long value) {
+        int stripe = (int) Thread.currentThread().getId() & stripeMask;
+        stripes[stripe].getAndIncrement(bucketOf(Math.min(Math.max(value, 0), MAX_VALUE)));
+    }
+
+    // Returns the counts of all stripes added up. Values recorded at the same time may be missed
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (AtomicLongArray stripe: stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += stripe.get(i);
+            }
+        }
+        return new Snapshot(counts);
+    }
+
+    ///// HELPER METHODS /////
+
+    // Returns the bucket of the value (see class comment)
+    // REQUIRES: 0 <= value <= MAX_VALUE
+    static int bucketOf(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - 5; // value >>> shift is in [32, 64)
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    // Returns the largest value that is counted in the bucket
+    static long highestValueOf(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /*
+     * Counts of a histogram at one point in time. Values are reported as the highest value of their
+     * bucket, so they are never under the recorded value, and at most about 3% over it.
+     */
+    public static class Snapshot {
+
+        private final long[] counts;
+        private final long totalCount;
+
+        private Snapshot(long[] counts) {
+            this.counts = counts;
+            long total = 0;
+            for (long count: counts) {
+                total += count;
+            }
+            this.totalCount = total;
+        }
+
+        /*
+         * Returns the value that the given percentage (0 to 100) of the recorded values are at or
+         * under, 0 if nothing was recorded
+         */
+        public long getValueAtPercentile(double percentile) {
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return highestValueOf(i);
+                }
+            }
+            return 0;
+        }
+
+        // Returns the (approximate) largest recorded value, 0 if nothing was recorded
+        public long getMax() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] > 0) {
+                    return highestValueOf(i);
+                }
+            }
+            return 0;
+        }
+
+        // Returns the (approximate) sum of the recorded values
+        public long getSum() {
+            long sum = 0;
+            for (int i = 0; i < counts.length; i++) {
+                sum += counts[i] * highestValueOf(i);
+            }
+            return sum;
+        }
+
+        public long getCount() { return totalCount; }
+    }
+}
@@ -0,0 +1,341 @@
+package model;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+Thread safe parking lot that assigns spots without any lock. Instead of the striped locks and the
+exact max heaps of ConcurrentParkingLot, the vacant spots are kept in lock free RelaxedSpotQueues,
+and a gate claims a spot with a compare-and-set (CAS) on the spot's claim word (see Claims).
+Throughput therefore grows with the number of gates.
+
+ - A car, commercial vehicle, or motorcycle in a motorcycle spot claims a spot from 0 to 2 halves
+ - A motorcycle in a car spot claims it from 0 to 1 (empty spot) or from 1 to 2 (half full spot)
+Only one gate can win a CAS, so no spot is ever handed to 2 vehicles. The plate index and the
+duplicate plate check work the same as in ConcurrentParkingLot.
+
+The trade off is the "furthest first" ordering: a spot is assigned from the about k furthest
+vacant spots (k = number of shards) instead of always the furthest one. See RelaxedSpotQueue.
+The priority queues of ParkingLot (getVacantCarSpots etc.) are not used, and stay empty.
+For the same reason, the entrance given to occupySpot(plate, flag, entrance) is ignored: spots are
+always taken approximately furthest first.
+*/
+public class LockFreeParkingLot extends ConcurrentParkingLot {
+
+    /*
+     * Relaxed queues of vacant spots, the same 4 as the priority queues in ParkingLot. The half
+     * full queue may hold car spots that have been filled since (manually); those are skipped when
+     * polled, because the CAS from 1 to 2 halves fails.
+     */
+    private RelaxedSpotQueue<CarSpot> vacantCarSpotQueue;
+    private RelaxedSpotQueue<MotorcycleSpot> vacantMotorcycleSpotQueue;
+    private RelaxedSpotQueue<CommericalSpot> vacantCommericalSpotQueue;
+    private RelaxedSpotQueue<CarSpot> halfFullCarSpotQueue;
+
+    // Claimed halves of every spot
+    private final Claims claims;
+
+    // Constructs a new empty lot, with 2 shards per available processor in every queue
+    public LockFreeParkingLot(String name) {
+        this(name, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    // Constructs a new empty lot with the given number of shards in every queue
+    // REQUIRES: shardCount > 0
+    public LockFreeParkingLot(String name, int shardCount) {
+        super(name);
+        this.vacantCarSpotQueue = new RelaxedSpotQueue<>(shardCount);
+        this.vacantMotorcycleSpotQueue = new RelaxedSpotQueue<>(shardCount);
+        this.vacantCommericalSpotQueue = new RelaxedSpotQueue<>(shardCount);
+        this.halfFullCarSpotQueue = new RelaxedSpotQueue<>(shardCount);
+        this.claims = new Claims();
+    }
+
+    /*
+     * Same as ParkingLot.addParkingSpot, but puts the spot in the relaxed queue of its type.
+     * Returns null if the id already exists
+     */
+    @Override
+    public ParkingSpot addParkingSpot(int id, double distance, int flag) {
+        switch (flag) {
+            case 0:
+                CarSpot newCarSpot = numbered(new CarSpot(id, distance));
+                if (!addNewSpot(newCarSpot)) {
+                    return null;
+                }
+                vacantCarSpotQueue.add(newCarSpot);
+                return newCarSpot;
+            case 1:
+                MotorcycleSpot newMotorcycleSpot = numbered(new MotorcycleSpot(id, distance));
+                if (!addNewSpot(newMotorcycleSpot)) {
+                    return null;
+                }
+                vacantMotorcycleSpotQueue.add(newMotorcycleSpot);
+                return newMotorcycleSpot;
+            default: // Case 2
+                CommericalSpot newCommercialSpot = numbered(new CommericalSpot(id, distance));
+                if (!addNewSpot(newCommercialSpot)) {
+                    return null;
+                }
+                vacantCommericalSpotQueue.add(newCommercialSpot);
+                return newCommercialSpot;
+        }
+    }
+
+    ///// HELPER METHODS /////
+
+    // The vacant spots are in the relaxed queues, so those are the queue sizes (not exact under load)
+    @Override
+    protected void registerGauges(LotMetrics metrics) {
+        super.registerGauges(metrics);
+        metrics.registerGauge("queue.vacantCar", vacantCarSpotQueue::size);
+        metrics.registerGauge("queue.halfFullCar", halfFullCarSpotQueue::size);
+        metrics.registerGauge("queue.vacantMotorcycle", vacantMotorcycleSpotQueue::size);
+        metrics.registerGauge("queue.vacantCommercial", vacantCommericalSpotQueue::size);
+    }
+
+    // Claims the halves of every restored spot that are in use, and puts it into its relaxed queue
+    @Override
+    protected void restoreQueues(List<ParkingSpot> restoredSpots) {
+        for (ParkingSpot spot: restoredSpots) {
+            if (!spot.getOccupiedStatus()) {
+                queueFor(spot).add(spot);
+            } else if (spot instanceof CarSpot carSpot && carSpot.getMotorcycleCount() == 1) {
+                claims.tryClaim(carSpot, 0, 1);
+                halfFullCarSpotQueue.add(carSpot);
+            } else {
+                claims.tryClaim(spot, 0, 2);
+            }
+        }
+    }
+
+    // Puts the new spots into the relaxed queues of their types
+    @Override
+    protected void addVacantSpots(CarSpot[] cars, int carCount, MotorcycleSpot[] motorcycles,
+                                  int motorcycleCount, CommericalSpot[] commercials, int commercialCount) {
+        for (int i = 0; i < carCount; i++) {
+            vacantCarSpotQueue.add(cars[i]);
+        }
+        for (int i = 0; i < motorcycleCount; i++) {
+            vacantMotorcycleSpotQueue.add(motorcycles[i]);
+        }
+        for (int i = 0; i < commercialCount; i++) {
+            vacantCommericalSpotQueue.add(commercials[i]);
+        }
+    }
+
+    /*
+     * Claims an approximately furthest spot for the vehicle type given by flag, and occupies it.
+     * Motorcycles overflow into half full car spots first, then empty car spots.
+     */
+    @Override
+    protected ParkingSpot allocateSpot(String plate, int flag) {
+        switch (flag) {
+            case 0:
+                CarSpot carSpotToOccupy = claimFromQueue(vacantCarSpotQueue, 0, 2);
+                if (carSpotToOccupy != null) {
+                    occupyClaimedSpot(carSpotToOccupy, plate, false);
+                }
+                return carSpotToOccupy;
+            case 1:
+                MotorcycleSpot motorcycleSpotToOccupy = claimFromQueue(vacantMotorcycleSpotQueue, 0, 2);
+                if (motorcycleSpotToOccupy != null) {
+                    occupyClaimedSpot(motorcycleSpotToOccupy, plate, false);
+                    return motorcycleSpotToOccupy;
+                }
+                CarSpot carSpotHalfOccupied = claimFromQueue(halfFullCarSpotQueue, 1, 2);
+                if (carSpotHalfOccupied != null) {
+                    occupyClaimedSpot(carSpotHalfOccupied, plate, true);
+                    return carSpotHalfOccupied;
+                }
+                CarSpot emptyCarSpot = claimFromQueue(vacantCarSpotQueue, 0, 1);
+                if (emptyCarSpot != null) {
+                    occupyClaimedSpot(emptyCarSpot, plate, true);
+                    halfFullCarSpotQueue.add(emptyCarSpot);
+                }
+                return emptyCarSpot;
+            default:
+                CommericalSpot commericalSpotToOccupy = claimFromQueue(vacantCommericalSpotQueue, 0, 2);
+                if (commericalSpotToOccupy != null) {
+                    occupyClaimedSpot(commericalSpotToOccupy, plate, false);
+                }
+                return commericalSpotToOccupy;
+        }
+    }
+
+    // The relaxed queues have no route order, so the spot is claimed the same way as without routes
+    @Override
+    protected ParkingSpot allocateSpot(String plate, int flag, ShortestPathTree routes) {
+        return allocateSpot(plate, flag);
+    }
+
+    // Every spot is claimed by CAS, so batches need no lock either
+    @Override
+    protected void allocateSpotsOfType(String[] plates, int[] flags, ParkingSpot[] spots, int flag) {
+        allocateEach(plates, flags, spots, flag);
+    }
+
+    @Override
+    protected void releaseSpotsOfType(ParkingSpot[] spots, String[] plates, int flag) {
+        releaseEach(spots, plates, flag);
+    }
+
+    /*
+     * Claims the chosen spot with a CAS and occupies it (flag same as manuallyOccupy).
+     * Returns false if the spot cannot be occupied by the vehicle.
+     * A spot claimed from empty is removed from its vacant queue right away (no other vehicle is in
+     * it, so nobody can put it back in the meantime). A half full spot that is filled stays in the
+     * half full queue, and is skipped when polled.
+     */
+    @Override
+    protected boolean occupyChosenSpot(ParkingSpot spotToOccupy, String plate, boolean flag) {
+        if (spotToOccupy instanceof CarSpot carSpot && flag) {
+            if (claims.tryClaim(carSpot, 0, 1)) {
+                // Occupy empty car spot with motorcycle
+                vacantCarSpotQueue.remove(carSpot);
+                occupyClaimedSpot(carSpot, plate, true);
+                halfFullCarSpotQueue.add(carSpot);
+                return true;
+            } else if (claims.tryClaim(carSpot, 1, 2)) {
+                // Occupy half full car spot with motorcycle
+                occupyClaimedSpot(carSpot, plate, true);
+                return true;
+            }
+            return false;
+        }
+
+        if (!claims.tryClaim(spotToOccupy, 0, 2)) {
+            return false;
+        }
+        queueFor(spotToOccupy).remove(spotToOccupy);
+        occupyClaimedSpot(spotToOccupy, plate, false);
+        return true;
+    }
+
+    /*
+     * Unoccupies the spot, gives back its claimed halves, and puts it into the queue that matches
+     * how many halves are still claimed (0 = vacant queue, 1 = half full queue).
+     */
+    @Override
+    protected void releaseSpot(ParkingSpot spot, String plate) {
+        int halves;
+        synchronized (spot) {
+            if (spot instanceof CarSpot carSpot && carSpot.getMotorcycleCount() > 0) {
+                vacate(carSpot, plate, true);
+                halves = 1;
+            } else {
+                vacate(spot, plate, false);
+                halves = 2;
+            }
+        }
+
+        int remaining = claims.release(spot, halves);
+        if (remaining == 1) {
+            halfFullCarSpotQueue.add((CarSpot) spot);
+        } else if (remaining == 0) {
+            queueFor(spot).add(spot);
+        }
+    }
+
+    /*
+     * Puts the new spot into the spot map and persists it (see persistNewSpot). The spot stays
+     * claimed in full until then, so a gate that finds it in the map (manuallyOccupy) cannot park in
+     * it before it is counted, appended and logged. Returns false if the id already exists
+     */
+    private boolean addNewSpot(ParkingSpot spot) {
+        claims.set(spot, 2);
+        if (getParkingSpots().putIfAbsent(spot.getParkingSpotId(), spot) != null) {
+            return false;
+        }
+        persistNewSpot(spot);
+        claims.set(spot, 0);
+        return true;
+    }
+
+    /*
+     * Polls spots from the queue until one is successfully claimed from expect to update halves.
+     * Spots that fail the CAS were claimed by another gate (or manually) and are dropped.
+     * Returns null if the queue runs empty
+     */
+    private <T extends ParkingSpot> T claimFromQueue(RelaxedSpotQueue<T> queue, int expect, int update) {
+        T spot = queue.poll();
+        while (spot != null && !claims.tryClaim(spot, expect, update)) {
+            spot = queue.poll();
+        }
+        return spot;
+    }
+
+    /*
+     * Writes the plate into a spot that this thread has claimed. The plate fields are written under
+     * the spot's own monitor, because 2 motorcycles may enter and leave the same car spot at once.
+     */
+    private void occupyClaimedSpot(ParkingSpot spot, String plate, boolean motorcycleInCarSpot) {
+        synchronized (spot) {
+            occupy(spot, plate, motorcycleInCarSpot);
+        }
+    }
+
+    // Returns the vacant queue of the spot's type
+    @SuppressWarnings("unchecked")
+    private <T extends ParkingSpot> RelaxedSpotQueue<T> queueFor(T spot) {
+        if (spot instanceof CarSpot) {
+            return (RelaxedSpotQueue<T>) vacantCarSpotQueue;
+        } else if (spot instanceof MotorcycleSpot) {
+            return (RelaxedSpotQueue<T>) vacantMotorcycleSpotQueue;
+        }
+        return (RelaxedSpotQueue<T>) vacantCommericalSpotQueue;
+    }
+
+    /*
+     * Number of claimed halves of every spot, by spot number: 0 = vacant, 1 = one motorcycle in a
+     * car spot, 2 = full. Gates claim a spot by compare-and-set on its word instead of holding a
+     * lock. The words are in chunks that are made once and never moved, so a gate can claim a spot
+     * while another thread adds spots (up to 2^28 of them) without any lock.
+     */
+    private static class Claims {
+        private static final int CHUNK_BITS = 14;
+        private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+        private final AtomicReferenceArray<AtomicIntegerArray> chunks = new AtomicReferenceArray<>(1 << 14);
+
+        // Atomically claims the spot if exactly expect halves are claimed. Returns true if successful
+        boolean tryClaim(ParkingSpot spot, int expect, int update) {
+            return chunkOf(spot.number).compareAndSet(spot.number & CHUNK_MASK, expect, update);
+        }
+
+        // Atomically gives back the given number of halves. Returns the number of halves still claimed
+        int release(ParkingSpot spot, int halves) {
+            return chunkOf(spot.number).addAndGet(spot.number & CHUNK_MASK, -halves);
+        }
+
+        void set(ParkingSpot spot, int halves) {
+            chunkOf(spot.number).set(spot.number & CHUNK_MASK, halves);
+        }
+
+        int get(ParkingSpot spot) {
+            return chunkOf(spot.number).get(spot.number & CHUNK_MASK);
+        }
+
+        // Returns the chunk of the spot number, made by the first thread that needs it
+        private AtomicIntegerArray chunkOf(int number) {
+            int index = number >>> CHUNK_BITS;
+            AtomicIntegerArray chunk = chunks.get(index);
+            if (chunk == null) {
+                chunks.compareAndSet(index, null, new AtomicIntegerArray(1 << CHUNK_BITS));
+                chunk = chunks.get(index);
+            }
+            return chunk;
+        }
+    }
+
+    ///// GETTER METHODS /////
+
+    // Number of claimed halves of the spot of this lot (see Claims)
+    public int getClaimedHalves(ParkingSpot spot) { return claims.get(spot); }
+
+    public RelaxedSpotQueue<CarSpot> getVacantCarSpotQueue() { return vacantCarSpotQueue; }
+    public RelaxedSpotQueue<MotorcycleSpot> getVacantMotorcycleSpotQueue() { return vacantMotorcycleSpotQueue; }
+    public RelaxedSpotQueue<CommericalSpot> getVacantCommericalSpotQueue() { return vacantCommericalSpotQueue; }
+    public RelaxedSpotQueue<CarSpot> getHalfFullCarSpotQueue() { return halfFullCarSpotQueue; }
+}
@@ -0,0 +1,652 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+Loads a whole lot (its spots, and the intersections, edges and entrances of its graph) from a lot
+definition file into an empty ParkingLot, instead of one addParkingSpot call per spot.
+
+The file is read through one buffer with NIO and parsed in place (no String per line), into
+primitive arrays. The spots are then added at once (ParkingLot.addParkingSpots): they are created
+from the arrays, and every vacancy queue is built once in O(n) with SpotHeap.heapify instead of one
+insert per spot. The graph is built straight into the CSR arrays of its
+CompactGraph from the edges read, instead of with one connectVertices call per edge and a
+snapshot built again from the adjacency maps. The lines/records can be in any order.
+
+CSV layout, one item per line (blank lines and lines starting with # are skipped):
+    S,<spot id>,<distance>,<flag>                   spot (flag 0 = car, 1 = motorcycle, 2 = commercial)
+    I,<intersection id>,<name>[,<x>,<y>,<level>]    intersection, optionally with coordinates
+    E,<vertex>,<vertex>,<distance>                  edge, the vertices as P_<spot id> or I_<intersection id>
+    G,<entrance id>,<vertex>                        entrance
+Binary layout (big endian), a 24 byte header and then the records of each kind:
+    header:       magic "PLAY" (int), version (int), number of spots, intersections, edges, entrances (ints)
+    spot:         id (int), distance (double), flag (byte)
+    intersection: id (int), name length (short), name (UTF-8), has coordinates (byte), x, y (doubles),
+                  level (int)
+    edge:         vertex, vertex, distance (double)
+    entrance:     entrance id (int), vertex
+where a vertex is its kind (byte, 0 = spot, 1 = intersection) and its id (int).
+*/
+public final class LotLoader {
+
+    // Layout of the binary file
+    private static final int MAGIC = 0x504C4159; // "PLAY"
+    private static final int VERSION = 1;
+
+    // Kinds of vertices (in a vertex reference)
+    private static final int SPOT = 0;
+    private static final int INTERSECTION = 1;
+
+    // Longest line of a CSV file
+    private static final int MAX_LINE = 1024;
+
+    private LotLoader() {}
+
+    /*
+     * Loads the lot defined in the CSV file into the (empty) lot. Duplicate spot ids are skipped.
+     * Throws exception if the file cannot be read or is malformed, or if the lot is not empty
+     * REQUIRES: no other thread uses the lot during the call
+     */
+    public static void loadCsv(Path path, ParkingLot lot) throws IOException, IllegalArgumentException {
+        Definition definition = new Definition();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Input input = new Input(channel);
+            while (input.nextLine()) {
+                byte kind = input.kind();
+                switch (kind) {
+                    case 'S':
+                        definition.addSpot(input.nextInt(), input.nextDouble(), input.nextInt());
+                        break;
+                    case 'I': {
+                        int id = input.nextInt();
+                        String name = input.nextString();
+                        if (input.hasField()) {
+                            definition.addIntersection(id, name, true, input.nextDouble(), input.nextDouble(),
+                                                       input.nextInt());
+                        } else {
+                            definition.addIntersection(id, name, false, 0, 0, 0);
+                        }
+                        break;
+                    }
+                    case 'E':
+                        definition.addEdge(input.nextVertex(), input.nextVertex(), input.nextDouble());
+                        break;
+                    case 'G':
+                        definition.addEntrance(input.nextInt(), input.nextVertex());
+                        break;
+                    default:
+                        throw input.malformed();
+                }
+                input.endLine();
+            }
+        }
+        definition.loadInto(lot);
+    }
+
+    /*
+     * Loads the lot defined in the binary file into the (empty) lot. Duplicate spot ids are skipped.
+     * Throws exception if the file cannot be read or is not a lot file, or if the lot is not empty
+     * REQUIRES: no other thread uses the lot during the call
+     */
+    public static void loadBinary(Path path, ParkingLot lot) throws IOException, IllegalArgumentException {
+        Definition definition = new Definition();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Input input = new Input(channel);
+            if (!input.fill(24) || input.buffer.getInt() != MAGIC || input.buffer.getInt() != VERSION) {
+                throw new IOException("Not a lot file");
+            }
+            int spots = input.buffer.getInt();
+            int intersections = input.buffer.getInt();
+            int edges = input.buffer.getInt();
+            int entrances = input.buffer.getInt();
+            for (int i = 0; i < spots; i++) {
+                input.require(13);
+                definition.addSpot(input.buffer.getInt(), input.buffer.getDouble(), input.buffer.get());
+            }
+            for (int i = 0; i < intersections; i++) {
+                input.require(6);
+                int id = input.buffer.getInt();
+                int length = input.buffer.getShort() & 0xFFFF;
+                input.require(length + 21);
+                byte[] name = new byte[length];
+                input.buffer.get(name);
+                boolean coordinates = input.buffer.get() != 0;
+                definition.addIntersection(id, new String(name, StandardCharsets.UTF_8), coordinates,
+                                           input.buffer.getDouble(), input.buffer.getDouble(), input.buffer.getInt());
+            }
+            for (int i = 0; i < edges; i++) {
+                input.require(18);
+                definition.addEdge(input.readVertex(), input.readVertex(), input.buffer.getDouble());
+            }
+            for (int i = 0; i < entrances; i++) {
+                input.require(9);
+                definition.addEntrance(input.buffer.getInt(), input.readVertex());
+            }
+        }
+        definition.loadInto(lot);
+    }
+
+    /*
+     * Writes the definition of the lot (its spots, and the intersections, edges and entrances of its
+     * graph) to a CSV file. The spots are written vacant. Throws exception if it cannot be written
+     */
+    public static void writeCsv(Path path, ParkingLot lot) throws IOException {
+        try (Output output = new Output(path)) {
+            output.text("# Lot " + lot.getName() + "\n");
+            for (ParkingSpot spot: lot.getParkingSpots().values()) {
+                output.text("S," + spot.getParkingSpotId() + "," + spot.getDistance() + ","
+                            + ParkingLot.flagOf(spot) + "\n");
+            }
+            for (Vertex vertex: lot.getGraph().getAllVertices()) {
+                if (vertex instanceof Intersection intersection) {
+                    output.text("I," + intersection.getIntersectionId() + "," + intersection.getName()
+                                + (intersection.hasCoordinates() ? "," + intersection.getX() + ","
+                                   + intersection.getY() + "," + intersection.getLevel() : "") + "\n");
+                }
+            }
+            forEachEdge(lot, (vertex1, vertex2, distance) ->
+                output.text("E," + vertex1.getId() + "," + vertex2.getId() + "," + distance + "\n"));
+            for (Map.Entry<Integer, Vertex> entrance: lot.getEntrances().entrySet()) {
+                if (isSpotOrIntersection(entrance.getValue())) {
+                    output.text("G," + entrance.getKey() + "," + entrance.getValue().getId() + "\n");
+                }
+            }
+        }
+    }
+
+    /*
+     * Writes the definition of the lot to a binary file (see writeCsv). Throws exception if it cannot
+     * be written
+     */
+    public static void writeBinary(Path path, ParkingLot lot) throws IOException {
+        int intersections = 0;
+        for (Vertex vertex: lot.getGraph().getAllVertices()) {
+            intersections += vertex instanceof Intersection ? 1 : 0;
+        }
+        int[] edges = new int[1];
+        forEachEdge(lot, (vertex1, vertex2, distance) -> edges[0]++);
+        int entrances = 0;
+        for (Vertex vertex: lot.getEntrances().values()) {
+            entrances += isSpotOrIntersection(vertex) ? 1 : 0;
+        }
+
+        try (Output output = new Output(path)) {
+            output.room(24).putInt(MAGIC).putInt(VERSION).putInt(lot.getParkingSpots().size())
+                  .putInt(intersections).putInt(edges[0]).putInt(entrances);
+            for (ParkingSpot spot: lot.getParkingSpots().values()) {
+                output.room(13).putInt(spot.getParkingSpotId()).putDouble(spot.getDistance())
+                      .put((byte) ParkingLot.flagOf(spot));
+            }
+            for (Vertex vertex: lot.getGraph().getAllVertices()) {
+                if (vertex instanceof Intersection intersection) {
+                    byte[] name = intersection.getName().getBytes(StandardCharsets.UTF_8);
+                    output.room(name.length + 27).putInt(intersection.getIntersectionId())
+                          .putShort((short) name.length).put(name)
+                          .put((byte) (intersection.hasCoordinates() ? 1 : 0)).putDouble(intersection.getX())
+                          .putDouble(intersection.getY()).putInt(intersection.getLevel());
+                }
+            }
+            forEachEdge(lot, (vertex1, vertex2, distance) -> {
+                ByteBuffer buffer = output.room(18);
+                writeVertex(buffer, vertex1);
+                writeVertex(buffer, vertex2);
+                buffer.putDouble(distance);
+            });
+            for (Map.Entry<Integer, Vertex> entrance: lot.getEntrances().entrySet()) {
+                if (isSpotOrIntersection(entrance.getValue())) {
+                    writeVertex(output.room(9).putInt(entrance.getKey()), entrance.getValue());
+                }
+            }
+        }
+    }
+
+    ///// HELPER METHODS /////
+
+    // Receives the edges of a lot (see forEachEdge)
+    private interface EdgeVisitor {
+        void visit(Vertex vertex1, Vertex vertex2, double distance) throws IOException;
+    }
+
+    // Calls the visitor once for every edge between spots and intersections of the lot's graph
+    private static void forEachEdge(ParkingLot lot, EdgeVisitor visitor) throws IOException {
+        Set<Vertex> visited = new HashSet<>();
+        for (Vertex vertex: lot.getGraph().getAllVertices()) {
+            if (!isSpotOrIntersection(vertex)) {
+                continue;
+            }
+            visited.add(vertex);
+            for (Map.Entry<Vertex, Double> edge: vertex.getAdjacentVertices().entrySet()) {
+                if (isSpotOrIntersection(edge.getKey()) && !visited.contains(edge.getKey())) {
+                    visitor.visit(vertex, edge.getKey(), edge.getValue());
+                }
+            }
+        }
+    }
+
+    private static boolean isSpotOrIntersection(Vertex vertex) {
+        return vertex instanceof ParkingSpot || vertex instanceof Intersection;
+    }
+
+    // Writes the reference (kind and id) of the spot or intersection
+    private static void writeVertex(ByteBuffer buffer, Vertex vertex) {
+        if (vertex instanceof ParkingSpot spot) {
+            buffer.put((byte) SPOT).putInt(spot.getParkingSpotId());
+        } else {
+            buffer.put((byte) INTERSECTION).putInt(((Intersection) vertex).getIntersectionId());
+        }
+    }
+
+    // Packs a vertex reference into a long: kind in the high half, id in the low half
+    private static long vertexReference(int kind, int id) {
+        return ((long) kind << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    // Everything read from a lot file, in primitive arrays, until it is loaded into a lot at once
+    private static class Definition {
+        private int[] spotIds = new int[1024];
+        private double[] spotDistances = new double[1024];
+        private byte[] spotFlags = new byte[1024];
+        private int spotCount;
+
+        private final Map<Integer, Intersection> intersections = new HashMap<>();
+
+        private long[] edgeVertices = new long[2048];
+        private double[] edgeDistances = new double[1024];
+        private int edgeCount;
+
+        private final Map<Integer, Long> entrances = new HashMap<>();
+
+        // Spots of the lot by id once they are added, if the ids are small enough for an array
+        private ParkingSpot[] spotsById;
+
+        private void addSpot(int id, double distance, int flag) throws IOException {
+            if (flag < 0 || flag > 2) {
+                throw new IOException("Lot file has a spot of unknown type");
+            }
+            if (spotCount == spotIds.length) {
+                spotIds = Arrays.copyOf(spotIds, spotCount * 2);
+                spotDistances = Arrays.copyOf(spotDistances, spotCount * 2);
+                spotFlags = Arrays.copyOf(spotFlags, spotCount * 2);
+            }
+            spotIds[spotCount] = id;
+            spotDistances[spotCount] = distance;
+            spotFlags[spotCount] = (byte) flag;
+            spotCount++;
+        }
+
+        private void addIntersection(int id, String name, boolean coordinates, double x, double y, int level) {
+            Intersection intersection = new Intersection(id, name);
+            if (coordinates) {
+                intersection.setCoordinates(x, y, level);
+            }
+            intersections.put(id, intersection);
+        }
+
+        private void addEdge(long vertex1, long vertex2, double distance) {
+            if (edgeCount == edgeDistances.length) {
+                edgeVertices = Arrays.copyOf(edgeVertices, edgeCount * 4);
+                edgeDistances = Arrays.copyOf(edgeDistances, edgeCount * 2);
+            }
+            edgeVertices[2 * edgeCount] = vertex1;
+            edgeVertices[2 * edgeCount + 1] = vertex2;
+            edgeDistances[edgeCount] = distance;
+            edgeCount++;
+        }
+
+        private void addEntrance(int id, long vertex) {
+            entrances.put(id, vertex);
+        }
+
+        // Adds the spots, then the graph, then the entrances. Throws exception if the lot is not empty
+        private void loadInto(ParkingLot lot) throws IOException {
+            int maxId = -1;
+            for (int i = 0; i < spotCount; i++) {
+                maxId = spotIds[i] < 0 ? Integer.MAX_VALUE : Math.max(maxId, spotIds[i]);
+            }
+            // Ids from 0 to about the number of spots (the usual case) are looked up in an array
+            spotsById = maxId < 2L * spotCount + 1024 ? new ParkingSpot[maxId + 1] : null;
+            ParkingSpot[] added = lot.addParkingSpots(spotIds, spotDistances, spotFlags, spotCount);
+            if (spotsById != null) {
+                for (int i = 0; i < spotCount; i++) {
+                    if (added[i] != null) {
+                        spotsById[spotIds[i]] = added[i];
+                    }
+                }
+            }
+            if (!intersections.isEmpty() || edgeCount > 0) {
+                lot.getGraph().addAll(buildGraph(lot));
+            }
+            for (Map.Entry<Integer, Long> entrance: entrances.entrySet()) {
+                lot.addEntrance(entrance.getKey(), resolve(lot, entrance.getValue()));
+            }
+        }
+
+        /*
+         * Builds the CSR arrays of the graph (see CompactGraph) from the edges read: every
+         * intersection and every spot with an edge gets a number, then the edges of each vertex are
+         * counted and filled in, every edge once in each direction
+         */
+        private CompactGraph buildGraph(ParkingLot lot) throws IOException {
+            int expected = intersections.size() + Math.min(spotCount, 2 * edgeCount);
+            HashMap<Vertex, Integer> numbers = new HashMap<>((int) (expected / 0.75f) + 1);
+            List<Vertex> vertices = new ArrayList<>(expected);
+            for (Intersection intersection: intersections.values()) {
+                number(intersection, numbers, vertices);
+            }
+            int[] ends = new int[2 * edgeCount];
+            for (int i = 0; i < ends.length; i++) {
+                ends[i] = number(resolve(lot, edgeVertices[i]), numbers, vertices);
+            }
+
+            int[] offsets = new int[vertices.size() + 1];
+            for (int end: ends) {
+                offsets[end + 1]++;
+            }
+            for (int v = 0; v < vertices.size(); v++) {
+                offsets[v + 1] += offsets[v];
+            }
+            int[] next = Arrays.copyOf(offsets, vertices.size());
+            int[] targets = new int[ends.length];
+            double[] weights = new double[ends.length];
+            for (int i = 0; i < edgeCount; i++) {
+                int vertex1 = ends[2 * i];
+                int vertex2 = ends[2 * i + 1];
+                targets[next[vertex1]] = vertex2;
+                weights[next[vertex1]++] = edgeDistances[i];
+                targets[next[vertex2]] = vertex1;
+                weights[next[vertex2]++] = edgeDistances[i];
+            }
+            return new CompactGraph(vertices.toArray(new Vertex[0]), numbers, offsets, targets, weights);
+        }
+
+        // Returns the number of the vertex, numbering it next if it has none yet
+        private static int number(Vertex vertex, HashMap<Vertex, Integer> numbers, List<Vertex> vertices) {
+            Integer number = numbers.putIfAbsent(vertex, vertices.size());
+            if (number != null) {
+                return number;
+            }
+            vertices.add(vertex);
+            return vertices.size() - 1;
+        }
+
+        // Returns the spot or intersection of the reference. Throws exception if it does not exist
+        private Vertex resolve(ParkingLot lot, long reference) throws IOException {
+            int id = (int) reference;
+            Vertex vertex;
+            if ((reference >>> 32) != SPOT) {
+                vertex = intersections.get(id);
+            } else if (spotsById != null) {
+                vertex = id >= 0 && id < spotsById.length ? spotsById[id] : null;
+            } else {
+                vertex = lot.findParkingSpot(id);
+            }
+            if (vertex == null) {
+                throw new IOException("Lot file refers to a vertex that does not exist");
+            }
+            return vertex;
+        }
+    }
+
+    /*
+     * Reads a file through one buffer. For CSV files it parses the fields of the current line in
+     * place; the whole line is always in the buffer (lines are at most MAX_LINE bytes).
+     */
+    private static class Input {
+        private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+            1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+        };
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private boolean ended;
+        private int line;
+
+        private Input(FileChannel channel) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(256 * 1024);
+            this.buffer.flip();
+        }
+
+        // Makes sure the buffer holds at least the given number of bytes. False if the file ends first
+        private boolean fill(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return true;
+            }
+            buffer.compact();
+            while (buffer.position() < bytes && !ended) {
+                ended = channel.read(buffer) < 0;
+            }
+            buffer.flip();
+            return buffer.remaining() >= bytes;
+        }
+
+        // Same as fill, but throws exception if the file ends first
+        private void require(int bytes) throws IOException {
+            if (!fill(bytes)) {
+                throw new IOException("Lot file is corrupted");
+            }
+        }
+
+        // Reads a vertex reference of the binary layout
+        private long readVertex() {
+            int kind = buffer.get();
+            return vertexReference(kind, buffer.getInt());
+        }
+
+        ///// CSV /////
+
+        // Moves to the next line with an item. Returns false at the end of the file
+        private boolean nextLine() throws IOException {
+            while (true) {
+                fill(MAX_LINE);
+                if (!buffer.hasRemaining()) {
+                    return false;
+                }
+                line++;
+                byte first = buffer.get(buffer.position());
+                if (first == '#' || first == '\n' || first == '\r') {
+                    skipLine();
+                } else {
+                    return true;
+                }
+            }
+        }
+
+        // Returns the kind of item of the line, and moves to its first field
+        private byte kind() throws IOException {
+            byte kind = buffer.get();
+            if (!buffer.hasRemaining() || buffer.get() != ',') {
+                throw malformed();
+            }
+            return kind;
+        }
+
+        /*
+         * A field ends at a comma, which is skipped, or at the end of the line, which is not. So the
+         * line has another field exactly if the byte before the position is a comma.
+         */
+        private boolean hasField() {
+            return buffer.get(buffer.position() - 1) == ',';
+        }
+
+        // Checks that all fields of the line were read, and moves to the next line
+        private void endLine() throws IOException {
+            if (hasField()) {
+                throw malformed(); // More fields than the item has
+            }
+            skipLine();
+        }
+
+        private void skipLine() {
+            while (buffer.hasRemaining() && buffer.get() != '\n') {
+                // Skips the rest of the line
+            }
+        }
+
+        // Skips the comma after a field. Throws exception if the field has more characters
+        private void endField() throws IOException {
+            if (buffer.hasRemaining()) {
+                byte next = buffer.get(buffer.position());
+                if (next == ',') {
+                    buffer.get();
+                } else if (next != '\n' && next != '\r') {
+                    throw malformed();
+                }
+            }
+        }
+
+        private int nextInt() throws IOException {
+            long value = 0;
+            int digits = 0;
+            boolean negative = buffer.hasRemaining() && buffer.get(buffer.position()) == '-';
+            if (negative) {
+                buffer.get();
+            }
+            while (buffer.hasRemaining() && digits <= 10) {
+                byte next = buffer.get(buffer.position());
+                if (next < '0' || next > '9') {
+                    break;
+                }
+                value = value * 10 + (next - '0');
+                digits++;
+                buffer.get();
+            }
+            value = negative ? -value : value;
+            if (digits == 0 || value != (int) value) {
+                throw malformed();
+            }
+            endField();
+            return (int) value;
+        }
+
+        /*
+         * Parses plain decimals (e.g. 12.5) directly: the digits as a long, divided by an exact power
+         * of ten, which is correctly rounded. Anything else (exponents, too many digits) goes through
+         * Double.parseDouble.
+         */
+        private double nextDouble() throws IOException {
+            int start = buffer.position();
+            long mantissa = 0;
+            int digits = 0;
+            int fractionDigits = -1;
+            boolean simple = true;
+            boolean negative = buffer.hasRemaining() && buffer.get(buffer.position()) == '-';
+            if (negative) {
+                buffer.get();
+            }
+            while (buffer.hasRemaining() && !isEndOfField(buffer.get(buffer.position()))) {
+                byte next = buffer.get();
+                if (next >= '0' && next <= '9') {
+                    mantissa = mantissa * 10 + (next - '0');
+                    digits++;
+                    fractionDigits += fractionDigits >= 0 ? 1 : 0;
+                } else if (next == '.' && fractionDigits < 0) {
+                    fractionDigits = 0;
+                } else {
+                    simple = false;
+                }
+            }
+            int end = buffer.position();
+            endField();
+            if (simple && digits > 0 && digits <= 15) {
+                double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+                return negative ? -value : value;
+            }
+            try {
+                return Double.parseDouble(new String(buffer.array(), start, end - start, StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                throw malformed();
+            }
+        }
+
+        private String nextString() throws IOException {
+            int start = buffer.position();
+            while (buffer.hasRemaining() && !isEndOfField(buffer.get(buffer.position()))) {
+                buffer.get();
+            }
+            String value = new String(buffer.array(), start, buffer.position() - start, StandardCharsets.UTF_8);
+            endField();
+            return value;
+        }
+
+        // Parses a vertex P_<spot id> or I_<intersection id>
+        private long nextVertex() throws IOException {
+            if (buffer.remaining() < 3 || buffer.get(buffer.position() + 1) != '_') {
+                throw malformed();
+            }
+            byte kind = buffer.get();
+            buffer.get();
+            if (kind == 'P') {
+                return vertexReference(SPOT, nextInt());
+            } else if (kind == 'I') {
+                return vertexReference(INTERSECTION, nextInt());
+            }
+            throw malformed();
+        }
+
+        private static boolean isEndOfField(byte next) {
+            return next == ',' || next == '\n' || next == '\r';
+        }
+
+        private IOException malformed() {
+            return new IOException("Lot file is malformed at line " + line);
+        }
+    }
+
+    /*
+     * Writes a file through one buffer, which is written out whenever the next record does not fit
+     */
+    private static class Output implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+
+        private Output(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                            StandardOpenOption.TRUNCATE_EXISTING);
+            this.buffer = ByteBuffer.allocate(256 * 1024);
+        }
+
+        // Returns the buffer with room for the given number of bytes
+        private ByteBuffer room(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+            return buffer;
+        }
+
+        private void text(String text) throws IOException {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            room(bytes.length).put(bytes);
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
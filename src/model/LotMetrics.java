@@ -0,0 +1,207 @@
+package model;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/*
+Metrics of a parking lot (see ParkingLot.reportTo), cheap enough to stay on in production:
+ - Latency histograms (nanoseconds) of occupySpot, unoccupySpot and manuallyOccupy, one per vehicle
+   type (0 = car, 1 = motorcycle, 2 = commercial, as in occupySpot)
+ - Counters of occupySpot calls that found the lot full (null), per vehicle type, and of
+   motorcycles that overflowed into a car spot
+ - Gauges, read when a snapshot is taken: the sizes of the priority queues of the lot
+ - Searches on the lot's graph, and a histogram of the vertices every search expanded (each half
+   of a bidirectional search counts as a search)
+
+Recording is allocation free: the counters are striped (LongAdder) and the histograms are striped
+LatencyHistograms, so gates on different threads do not fight over one count. Reading the clock
+costs more than the rest of the recording (2 System.nanoTime calls per call of the lot), so with a
+sample interval above 1 only about one call in sampleInterval is timed; every call is still counted.
+Batch calls (occupySpots, unoccupySpots) count every vehicle of the batch as one call of its type,
+which is never timed, since a batch has no latency per vehicle. snapshot() and export() add the
+stripes up, and are meant to be called now and then by a monitoring thread.
+*/
+public class LotMetrics {
+
+    // Names of the vehicle types in the exported metrics, by flag
+    private static final String[] TYPE_NAMES = {"car", "motorcycle", "commercial"};
+
+    // One call in sampleInterval (on average) is timed
+    private final int sampleInterval;
+
+    // Calls by vehicle flag
+    private final LongAdder[] occupyCalls;
+    private final LongAdder[] unoccupyCalls;
+    private final LongAdder[] manualCalls;
+
+    // Latency histograms of the timed calls by vehicle flag
+    private final LatencyHistogram[] occupyLatencies;
+    private final LatencyHistogram[] unoccupyLatencies;
+    private final LatencyHistogram[] manualLatencies;
+
+    // occupySpot calls that returned null (no spot left) by vehicle flag, and motorcycles in car spots
+    private final LongAdder[] fullResults;
+    private final LongAdder motorcycleOverflows;
+
+    // Graph searches, and vertices expanded per search
+    private final LongAdder searches;
+    private final LatencyHistogram expansions;
+
+    // Values read at snapshot time, by name
+    private final Map<String, LongSupplier> gauges;
+
+    // Constructs a registry that times every call, with every count at 0 and no gauges
+    public LotMetrics() {
+        this(1);
+    }
+
+    /*
+     * Constructs a registry that times one call in sampleInterval (picked at random), with every
+     * count at 0 and no gauges
+     * REQUIRES: sampleInterval >= 1
+     */
+    public LotMetrics(int sampleInterval) {
+        this.sampleInterval = sampleInterval;
+        this.occupyCalls = new LongAdder[TYPE_NAMES.length];
+        this.unoccupyCalls = new LongAdder[TYPE_NAMES.length];
+        this.manualCalls = new LongAdder[TYPE_NAMES.length];
+        this.occupyLatencies = new LatencyHistogram[TYPE_NAMES.length];
+        this.unoccupyLatencies = new LatencyHistogram[TYPE_NAMES.length];
+        this.manualLatencies = new LatencyHistogram[TYPE_NAMES.length];
+        this.fullResults = new LongAdder[TYPE_NAMES.length];
+        for (int flag = 0; flag < TYPE_NAMES.length; flag++) {
+            occupyCalls[flag] = new LongAdder();
+            unoccupyCalls[flag] = new LongAdder();
+            manualCalls[flag] = new LongAdder();
+            occupyLatencies[flag] = new LatencyHistogram();
+            unoccupyLatencies[flag] = new LatencyHistogram();
+            manualLatencies[flag] = new LatencyHistogram();
+            fullResults[flag] = new LongAdder();
+        }
+        this.motorcycleOverflows = new LongAdder();
+        this.searches = new LongAdder();
+        this.expansions = new LatencyHistogram();
+        this.gauges = new ConcurrentHashMap<>();
+    }
+
+    // Returns true if the call that is starting should be timed (see sampleInterval)
+    public boolean sampleCall() {
+        return sampleInterval == 1 || ThreadLocalRandom.current().nextInt(sampleInterval) == 0;
+    }
+
+    /*
+     * Records an occupySpot call of the vehicle type (flag) that took the given nanoseconds (negative
+     * if it was not timed) and returned spot (null if the lot was full)
+     */
+    public void recordOccupy(int flag, long nanos, ParkingSpot spot) {
+        flag = typeOf(flag);
+        occupyCalls[flag].increment();
+        if (nanos >= 0) {
+            occupyLatencies[flag].record(nanos);
+        }
+        if (spot == null) {
+            fullResults[flag].increment();
+        } else if (flag == 1 && spot instanceof CarSpot) {
+            motorcycleOverflows.increment();
+        }
+    }
+
+    // Records an unoccupySpot call of a vehicle of the given type, same as recordOccupy
+    public void recordUnoccupy(int flag, long nanos) {
+        record(unoccupyCalls, unoccupyLatencies, typeOf(flag), nanos);
+    }
+
+    // Records a manuallyOccupy call of a vehicle of the given type, same as recordOccupy
+    public void recordManualOccupy(int flag, long nanos) {
+        record(manualCalls, manualLatencies, typeOf(flag), nanos);
+    }
+
+    // Records a search on the graph that expanded (settled) the given number of vertices
+    public void recordSearch(int expandedVertices) {
+        searches.increment();
+        expansions.record(expandedVertices);
+    }
+
+    /*
+     * Adds a value that is read every time a snapshot is taken, e.g. the size of a queue. A gauge
+     * with the same name is replaced
+     */
+    public void registerGauge(String name, LongSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /*
+     * Returns every metric by name (sorted), as it is now:
+     * - <operation>.<type>.count (calls), and .p50 / .p90 / .p99 / .p999 / .max of the timed calls
+     *   (nanoseconds), e.g. occupySpot.car.p99
+     * - occupySpot.<type>.full, occupySpot.motorcycle.overflow
+     * - graph.searches, graph.expansions (total), graph.expansions.p50 / .p99 / .max
+     * - every gauge by its name
+     * Counts recorded while the snapshot is taken may or may not be included.
+     */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> metrics = new TreeMap<>();
+        for (int flag = 0; flag < TYPE_NAMES.length; flag++) {
+            String type = TYPE_NAMES[flag];
+            putCalls(metrics, "occupySpot." + type, occupyCalls[flag], occupyLatencies[flag]);
+            putCalls(metrics, "unoccupySpot." + type, unoccupyCalls[flag], unoccupyLatencies[flag]);
+            putCalls(metrics, "manuallyOccupy." + type, manualCalls[flag], manualLatencies[flag]);
+            metrics.put("occupySpot." + type + ".full", fullResults[flag].sum());
+        }
+        metrics.put("occupySpot.motorcycle.overflow", motorcycleOverflows.sum());
+
+        LatencyHistogram.Snapshot expanded = expansions.snapshot();
+        metrics.put("graph.searches", searches.sum());
+        metrics.put("graph.expansions", expanded.getSum());
+        metrics.put("graph.expansions.p50", expanded.getValueAtPercentile(50));
+        metrics.put("graph.expansions.p99", expanded.getValueAtPercentile(99));
+        metrics.put("graph.expansions.max", expanded.getMax());
+
+        for (Map.Entry<String, LongSupplier> gauge: gauges.entrySet()) {
+            metrics.put(gauge.getKey(), gauge.getValue().getAsLong());
+        }
+        return metrics;
+    }
+
+    // Returns the snapshot as text, one "name value" line per metric
+    public String export() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Long> metric: snapshot().entrySet()) {
+            text.append(metric.getKey()).append(' ').append(metric.getValue()).append('\n');
+        }
+        return text.toString();
+    }
+
+    public int getSampleInterval() { return sampleInterval; }
+
+    ///// HELPER METHODS /////
+
+    // Returns the vehicle type of the flag: any flag other than 0 and 1 is commercial, as in occupySpot
+    private static int typeOf(int flag) {
+        return flag == 0 || flag == 1 ? flag : 2;
+    }
+
+    // Counts the call of the vehicle type, and its latency if it was timed (nanos >= 0)
+    private static void record(LongAdder[] calls, LatencyHistogram[] latencies, int flag, long nanos) {
+        calls[flag].increment();
+        if (nanos >= 0) {
+            latencies[flag].record(nanos);
+        }
+    }
+
+    // Puts the number of calls and the percentiles of their latencies under the prefix
+    private static void putCalls(Map<String, Long> metrics, String prefix, LongAdder calls,
+                                 LatencyHistogram histogram) {
+        LatencyHistogram.Snapshot latencies = histogram.snapshot();
+        metrics.put(prefix + ".count", calls.sum());
+        metrics.put(prefix + ".p50", latencies.getValueAtPercentile(50));
+        metrics.put(prefix + ".p90", latencies.getValueAtPercentile(90));
+        metrics.put(prefix + ".p99", latencies.getValueAtPercentile(99));
+        metrics.put(prefix + ".p999", latencies.getValueAtPercentile(99.9));
+        metrics.put(prefix + ".max", latencies.getMax());
+    }
+}
@@ -0,0 +1,138 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/*
+A point in time snapshot of the spots of a parking lot: the state of the lot after the event with a
+given sequence of its EventLog. A lot is rebuilt from it with ParkingLot.restoreFrom, and only the
+events after that sequence have to be replayed (see Snapshotter).
+
+The file has records like those of MappedSpotFile (with one copy of the plates, in no particular
+order), after a 64 byte header:
+    header: magic "PSNP" (int), version (int), number of records (int), 4 unused bytes, sequence (long)
+    record: id (int), type (byte), motorcycle count (byte), 2 unused bytes, distance (double),
+            plate (long), second plate (long)
+The plate index and the priority queues are not saved: they follow from the plates and the
+occupancy of the spots. A snapshot is written to a temporary file, forced to the disk, and then
+renamed (and the directory forced), so a snapshot file is always complete, and is still on the
+disk after a crash once write returns.
+*/
+public class LotSnapshot implements SpotTable {
+
+    // Layout of the header and of a record (offsets in bytes)
+    private static final int MAGIC = 0x50534E50; // "PSNP"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int RECORD_BYTES = 32;
+    private static final int COUNT = 8;
+    private static final int SEQUENCE = 16;
+    private static final int ID = 0;
+    private static final int TYPE = 4;
+    private static final int MOTORCYCLES = 5;
+    private static final int DISTANCE = 8;
+    private static final int PLATE = 16;
+    private static final int PLATE2 = 24;
+
+    // Whole content of the file, the number of records and the sequence of the snapshot
+    private final ByteBuffer buffer;
+    private final int size;
+    private final long sequence;
+
+    private LotSnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a parking lot snapshot");
+        }
+        this.size = buffer.getInt(COUNT);
+        this.sequence = buffer.getLong(SEQUENCE);
+        if (size < 0 || HEADER_BYTES + (long) size * RECORD_BYTES > buffer.capacity()) {
+            throw new IOException("Parking lot snapshot is corrupted");
+        }
+    }
+
+    /*
+     * Reads the snapshot at the path into memory. Throws exception if it cannot be read, or is not a
+     * parking lot snapshot
+     */
+    public static LotSnapshot read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Reads the whole file
+            }
+            return new LotSnapshot(buffer);
+        }
+    }
+
+    /*
+     * Writes a snapshot of the spots of the lot, as the state after the event with the given
+     * sequence, to the path: through a buffer into a temporary file, which is forced to the disk
+     * and then renamed to the path; the directory is forced after the rename. Throws exception if
+     * the file cannot be written
+     * REQUIRES: no other thread changes the lot during the call
+     */
+    public static void write(Path path, ParkingLot lot, long sequence) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(lot.getParkingSpots().size()).putInt(0).putLong(sequence);
+            buffer.position(HEADER_BYTES);
+            for (ParkingSpot spot: lot.getParkingSpots().values()) {
+                if (buffer.remaining() < RECORD_BYTES) {
+                    writeFully(channel, buffer);
+                }
+                int motorcycles = spot instanceof CarSpot carSpot ? carSpot.getMotorcycleCount() : 0;
+                String plate2 = spot instanceof CarSpot carSpot ? carSpot.getLicensePlate2() : "";
+                buffer.putInt(spot.getParkingSpotId()).put((byte) ParkingLot.flagOf(spot)).put((byte) motorcycles)
+                      .putShort((short) 0).putDouble(spot.getDistance())
+                      .putLong(encode(spot.getLicensePlate())).putLong(encode(plate2));
+            }
+            writeFully(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        EventLog.forceDirectory(path.toAbsolutePath().getParent()); // The rename is durable too
+    }
+
+    ///// HELPER METHODS /////
+
+    // Writes the content of the buffer to the channel and clears the buffer
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static int offset(int slot) {
+        return HEADER_BYTES + slot * RECORD_BYTES;
+    }
+
+    // Packs the plate of a spot, 0 if there is none ("")
+    private static long encode(String plate) {
+        return plate.isEmpty() ? 0 : PlateCodec.encode(plate);
+    }
+
+    ///// GETTER METHODS /////
+
+    // Sequence of the last event the snapshot includes
+    public long getSequence() { return sequence; }
+
+    // The fields of the record of the given slot (0 to size() - 1)
+    public int size() { return size; }
+    public boolean isCommitted(int slot) { return true; } // The file is only renamed once complete
+    public int getId(int slot) { return buffer.getInt(offset(slot) + ID); }
+    public int getType(int slot) { return buffer.get(offset(slot) + TYPE); }
+    public int getMotorcycleCount(int slot) { return buffer.get(offset(slot) + MOTORCYCLES); }
+    public double getDistance(int slot) { return buffer.getDouble(offset(slot) + DISTANCE); }
+    public long getPlate(int slot) { return buffer.getLong(offset(slot) + PLATE); }
+    public long getPlate2(int slot) { return buffer.getLong(offset(slot) + PLATE2); }
+}
@@ -0,0 +1,200 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+A memory mapped file that holds the state of every spot of a parking lot, so the occupancy of the
+lot survives a restart of the process (see ParkingLot.persistTo and ParkingLot.restoreFrom).
+
+The file has a fixed layout: a 64 byte header, then one 64 byte record per spot, at the slot of the
+spot's number in its lot (so a record is found without any index):
+    header: magic "PLOT" (int), version (int), number of slots (int)
+    record: id (int), type (byte, same as the flags), state (byte), motorcycle count of copy 0 and
+            of copy 1 (2 bytes), distance (double), copy 0 and copy 1 of the plates: plate (long),
+            second plate (long)
+The plates are packed with PlateCodec, 0 if there is none. Every change of a spot is a few stores
+into its record in the mapped pages, so there is no serialization and no system call: the OS writes
+the pages back to the file, also if the process dies. force() flushes them to the disk, for the
+case the whole machine goes down.
+
+A change is written into the copy that is not current, and then committed by setting the state to
+that copy (state: 0 = no record yet, 1 = copy 0 is current, 2 = copy 1 is current). The state is a
+single byte, so a crash in the middle of a change leaves the record with either its old or its new
+occupancy, never a mix of both (a torn record). A record that was never committed (a crash while it
+was appended, or a slot no spot was appended to) is skipped by restoreFrom. Records are 64 bytes
+and aligned to 64 bytes, so a record never spans 2 disk sectors or pages.
+
+The file grows (by remapping it twice as large) when a spot's slot does not fit. Records are
+appended under the lock of the file; a record is only written by the thread that holds the spot's
+own guard (the lock of its type, or the spot itself), so writes to a record never interleave. A
+change of a spot that is not appended yet is not written: the append writes the current state.
+*/
+public class MappedSpotFile implements Closeable, SpotTable {
+
+    // Layout of the header and of a record (offsets in bytes)
+    private static final int MAGIC = 0x504C4F54; // "PLOT"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 64;
+    private static final int RECORD_BYTES = 64;
+    private static final int COUNT = 8;
+    private static final int ID = 0;
+    private static final int TYPE = 4;
+    private static final int STATE = 5;
+    private static final int MOTORCYCLES = 6; // + copy
+    private static final int DISTANCE = 8;
+    private static final int PLATE = 16; // + 16 * copy
+    private static final int PLATE2 = 24; // + 16 * copy
+
+    private final FileChannel channel;
+
+    // Current mapping of the whole file (replaced when the file grows)
+    private volatile MappedByteBuffer buffer;
+
+    // Number of slots (highest appended slot + 1), and number of slots that fit in the current mapping
+    private int size;
+    private int capacity;
+
+    /*
+     * Opens the file at the path, or creates an empty one if there is none. Throws exception if the
+     * file cannot be opened, or is not a parking lot file
+     */
+    public static MappedSpotFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                               StandardOpenOption.WRITE);
+        try {
+            return new MappedSpotFile(channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private MappedSpotFile(FileChannel channel) throws IOException {
+        this.channel = channel;
+        if (channel.size() == 0) {
+            map(16);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(COUNT, 0);
+            this.size = 0;
+        } else {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Not a parking lot file");
+            }
+            map((int) ((channel.size() - HEADER_BYTES) / RECORD_BYTES));
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not a parking lot file");
+            }
+            this.size = buffer.getInt(COUNT);
+            if (size < 0 || size > capacity) {
+                throw new IOException("Parking lot file is corrupted");
+            }
+        }
+    }
+
+    /*
+     * Adds the record of the spot, with its current state, at the slot of the spot's number, and
+     * commits it: from now on the lot writes every change of the spot into the record (see write).
+     * Throws exception if the file cannot be grown
+     * REQUIRES: the spot is in a lot, and no record was appended for its number
+     */
+    synchronized void append(ParkingSpot spot) throws IOException {
+        int slot = spot.number;
+        if (slot >= capacity) {
+            map(Math.max(capacity * 2, slot + 1));
+        }
+        int offset = offset(slot);
+        buffer.putInt(offset + ID, spot.getParkingSpotId());
+        buffer.put(offset + TYPE, (byte) ParkingLot.flagOf(spot));
+        buffer.putDouble(offset + DISTANCE, spot.getDistance());
+        synchronized (spot) {
+            writeCopy(buffer, offset, 0, spot);
+            buffer.put(offset + STATE, (byte) 1);
+        }
+        // The count is written last, so a half written record is never read back
+        if (slot >= size) {
+            size = slot + 1;
+            buffer.putInt(COUNT, size);
+        }
+    }
+
+    /*
+     * Writes the occupancy of the spot (motorcycle count and plates) into the copy of its record that
+     * is not current, then commits that copy. Does nothing if the spot has no record yet
+     * REQUIRES: the caller holds the guard of the spot
+     */
+    void write(ParkingSpot spot) {
+        MappedByteBuffer buffer = this.buffer;
+        int offset = offset(spot.number);
+        if (offset + RECORD_BYTES > buffer.capacity()) {
+            return; // Not appended yet
+        }
+        int state = buffer.get(offset + STATE);
+        if (state == 0) {
+            return; // Not appended yet
+        }
+        int copy = 2 - state; // The copy that is not current
+        writeCopy(buffer, offset, copy, spot);
+        buffer.put(offset + STATE, (byte) (copy + 1));
+    }
+
+    // Flushes all changes of the mapped pages to the disk
+    public void force() {
+        buffer.force();
+    }
+
+    // Flushes all changes to the disk and closes the file
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    ///// HELPER METHODS /////
+
+    // Maps the whole file, grown to hold the given number of records
+    private void map(int records) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) records * RECORD_BYTES);
+        capacity = records;
+    }
+
+    private static int offset(int slot) {
+        return HEADER_BYTES + slot * RECORD_BYTES;
+    }
+
+    // Writes the occupancy of the spot into the given copy (0 or 1) of the record at the offset
+    private static void writeCopy(MappedByteBuffer buffer, int offset, int copy, ParkingSpot spot) {
+        if (spot instanceof CarSpot carSpot) {
+            buffer.put(offset + MOTORCYCLES + copy, (byte) carSpot.getMotorcycleCount());
+            buffer.putLong(offset + PLATE2 + 16 * copy, encode(carSpot.getLicensePlate2()));
+        }
+        buffer.putLong(offset + PLATE + 16 * copy, encode(spot.getLicensePlate()));
+    }
+
+    // Returns the current copy (0 or 1) of the record of the slot
+    private int copyOf(int slot) {
+        return buffer.get(offset(slot) + STATE) - 1;
+    }
+
+    // Packs the plate of a spot, 0 if there is none ("")
+    private static long encode(String plate) {
+        return plate.isEmpty() ? 0 : PlateCodec.encode(plate);
+    }
+
+    ///// GETTER METHODS /////
+
+    // The fields of the record of the given slot (0 to size() - 1), the occupancy from its current copy
+    public synchronized int size() { return size; }
+    public boolean isCommitted(int slot) { return buffer.get(offset(slot) + STATE) != 0; }
+    public int getId(int slot) { return buffer.getInt(offset(slot) + ID); }
+    public int getType(int slot) { return buffer.get(offset(slot) + TYPE); }
+    public int getMotorcycleCount(int slot) { return buffer.get(offset(slot) + MOTORCYCLES + copyOf(slot)); }
+    public double getDistance(int slot) { return buffer.getDouble(offset(slot) + DISTANCE); }
+    public long getPlate(int slot) { return buffer.getLong(offset(slot) + PLATE + 16 * copyOf(slot)); }
+    public long getPlate2(int slot) { return buffer.getLong(offset(slot) + PLATE2 + 16 * copyOf(slot)); }
+}
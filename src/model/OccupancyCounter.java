@@ -0,0 +1,98 @@
+package model;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+Live counts of the spots of one type of a lot by state: vacant, half full (a car spot with one
+motorcycle) and full. The lot moves a spot from one state to another in the counter of its type
+whenever the spot is occupied or unoccupied (see ParkingLot.occupy and vacate), so the counts are
+always up to date without asking the priority queues.
+
+The counts are guarded by a sequence lock: a change makes the sequence odd, updates the counts and
+makes it even again; read() copies the counts and tries again if the sequence changed meanwhile.
+Reading never blocks a gate and never allocates. Writers take the sequence with a compare-and-set,
+so changes from several threads (lock free lot) are still applied one at a time; in the other lots
+the spots of a type only change under one lock, so the compare-and-set never has to retry.
+*/
+class OccupancyCounter {
+
+    // States of a spot, and the index of their counts (for a car spot, its number of motorcycles)
+    static final int VACANT = 0;
+    static final int HALF_FULL = 1;
+    static final int FULL = 2;
+
+    // Even when no change is in progress, odd while the counts are being changed
+    private final AtomicInteger sequence;
+
+    // Number of spots in every state
+    private final int[] counts;
+
+    // Constructs a counter with no spots
+    OccupancyCounter() {
+        this.sequence = new AtomicInteger();
+        this.counts = new int[3];
+    }
+
+    // Counts the given number of new spots in the given state
+    void added(int state, int spots) {
+        int start = beginChange();
+        counts[state] += spots;
+        sequence.lazySet(start + 2);
+    }
+
+    // Moves a spot from one state to another
+    void moved(int from, int to) {
+        int start = beginChange();
+        counts[from]--;
+        counts[to]++;
+        sequence.lazySet(start + 2);
+    }
+
+    /*
+     * Copies the counts of every state into the array from offset on (indexed by state), all from
+     * the same point in time. Spins while a change is in progress (a few instructions)
+     * REQUIRES: into has at least offset + 3 elements
+     */
+    void read(int[] into, int offset) {
+        while (true) {
+            int start = sequence.get();
+            if ((start & 1) == 0) {
+                into[offset + VACANT] = counts[VACANT];
+                into[offset + HALF_FULL] = counts[HALF_FULL];
+                into[offset + FULL] = counts[FULL];
+                VarHandle.acquireFence(); // The counts are read before the sequence is read again
+                if (sequence.get() == start) {
+                    return;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    // Returns the sequence, which changes with every change of the counts (see ParkingLot.readOccupancy)
+    int version() {
+        return sequence.get();
+    }
+
+    ///// HELPER METHODS /////
+
+    // Makes the sequence odd (waits for a change of another thread to end). Returns the even sequence
+    private int beginChange() {
+        while (true) {
+            int start = sequence.get();
+            if ((start & 1) == 0 && sequence.compareAndSet(start, start + 1)) {
+                return start;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    // Returns the state of the spot, see the constants above
+    static int stateOf(ParkingSpot spot) {
+        if (spot instanceof CarSpot carSpot && carSpot.getMotorcycleCount() == 1) {
+            return HALF_FULL;
+        }
+        return spot.getOccupiedStatus() ? FULL : VACANT;
+    }
+}
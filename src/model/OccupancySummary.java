@@ -0,0 +1,61 @@
+package model;
+
+/*
+Numbers of vacant, half full and occupied spots of every type of a lot at one point in time, for
+dashboards and signs (see ParkingLot.getOccupancySummary). Unlike the priority queue getters of the
+lot, a summary is a copy: it can be read and kept without holding any lock of the lot, and cannot
+change the lot.
+
+The counts of each spot type are from the same point in time. The 3 types are read one after the
+other, so a vehicle that parks while the summary is taken may show up in one type and not another
+(e.g. a motorcycle that overflowed into a car spot).
+*/
+public class OccupancySummary {
+
+    // Counts of every spot type (0 = car, 1 = motorcycle, 2 = commercial), 3 per type by state
+    private final int[] counts;
+
+    // Reads the counters of the 3 spot types (car, motorcycle, commercial)
+    OccupancySummary(OccupancyCounter[] counters) {
+        this.counts = new int[3 * counters.length];
+        for (int flag = 0; flag < counters.length; flag++) {
+            counters[flag].read(counts, 3 * flag);
+        }
+    }
+
+    // Copies counts already read from the counters (3 per type by state, see ParkingLot.readOccupancy)
+    OccupancySummary(int[] counts) {
+        this.counts = counts.clone();
+    }
+
+    // Returns the number of vacant spots of the type (flag same as addParkingSpot)
+    public int getVacant(int flag) {
+        return counts[3 * flag + OccupancyCounter.VACANT];
+    }
+
+    // Returns the number of spots of the type that are fully occupied
+    public int getOccupied(int flag) {
+        return counts[3 * flag + OccupancyCounter.FULL];
+    }
+
+    // Returns the number of spots of the type, in any state
+    public int getTotal(int flag) {
+        return counts[3 * flag] + counts[3 * flag + 1] + counts[3 * flag + 2];
+    }
+
+    // Returns the number of spots of all types that are fully occupied or half full
+    public int getTotalInUse() {
+        int inUse = 0;
+        for (int flag = 0; flag < counts.length / 3; flag++) {
+            inUse += counts[3 * flag + OccupancyCounter.HALF_FULL] + counts[3 * flag + OccupancyCounter.FULL];
+        }
+        return inUse;
+    }
+
+    ///// GETTER METHODS /////
+
+    public int getHalfFullCarSpots() { return counts[OccupancyCounter.HALF_FULL]; }
+    public int getVacantCarSpots() { return getVacant(0); }
+    public int getVacantMotorcycleSpots() { return getVacant(1); }
+    public int getVacantCommercialSpots() { return getVacant(2); }
+}
@@ -0,0 +1,272 @@
+package model;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+A facility of several levels (or lots), each its own ParkingLot with its own locks, that parks a
+vehicle on any level with room for it. Levels are numbered in the order they are added, and the
+nearest levels of level n are n - 1 and n + 1, then n - 2 and n + 2, and so on.
+
+Every level keeps the room for every vehicle type as last read from the occupancy counters of its
+lot, so choosing a level reads no lock and no queue of any level. The thread that parks or frees a
+vehicle on a level reads the counters again, only if they changed since they were last read, and
+without allocating:
+ - A vehicle with no preferred level goes to the level with the most room for its type
+ - A vehicle that came in on a level (e.g. through its ramp) parks there, or overflows to the
+   nearest level with room for its type
+The cached room may be a little behind the level. If the chosen level turns out to be full, its
+counters are read again and the next level is tried, and a level whose cached room shows it full
+is only tried after its counters show it has room, so a vehicle is only turned away if no level had
+a spot for it. A facility has at most 64 levels.
+
+The levels are locked separately, so gates parking on different levels never wait for each other.
+Vehicles must be parked and freed through the facility, not the levels: the facility keeps its own
+index of which level every plate is on, so the same plate can never be parked on 2 levels.
+*/
+public class ParkingFacility {
+
+    // Placeholder in the plate index for plates that are being parked or freed
+    private static final Level PENDING = new Level(-1, null);
+
+    // Most levels of a facility (the levels tried by a vehicle are the bits of a long)
+    private static final int MAX_LEVELS = 64;
+
+    private String name;
+
+    // Levels by number, replaced as a whole when one is added
+    private volatile Level[] levels;
+
+    // Level of every parked plate (formatted), or PENDING while it is being parked or freed
+    private final ConcurrentHashMap<String, Level> plateToLevel;
+
+    // Constructs a new facility with no levels
+    public ParkingFacility(String name) {
+        this.name = name;
+        this.levels = new Level[0];
+        this.plateToLevel = new ConcurrentHashMap<>();
+    }
+
+    /*
+     * Adds the lot as the next level of the facility, and returns its level number. The lot should
+     * be thread safe (e.g. a ConcurrentParkingLot) if the facility is used by several gates.
+     * Vehicles already parked in the lot are added to the plate index of the facility.
+     * Throws exception if one of them is already parked on another level, or if the facility
+     * already has 64 levels (the lot is not added)
+     */
+    public synchronized int addLevel(ParkingLot lot) throws IllegalArgumentException {
+        Level[] current = levels;
+        if (current.length == MAX_LEVELS) {
+            throw new IllegalArgumentException("Facility has too many levels");
+        }
+        Level level = new Level(current.length, lot);
+        for (String plate: lot.getLicensePlates()) {
+            if (plateToLevel.containsKey(plate)) {
+                throw new IllegalArgumentException("Plate already exists");
+            }
+        }
+        for (String plate: lot.getLicensePlates()) {
+            plateToLevel.put(plate, level);
+        }
+        Level[] added = new Level[current.length + 1];
+        System.arraycopy(current, 0, added, 0, current.length);
+        added[current.length] = level;
+        levels = added;
+        return current.length;
+    }
+
+    /*
+     * Parks the vehicle on the level with the most room for its type (flag same as
+     * ParkingLot.occupySpot). Throws exception if license plate doesn't meet reqs, or if plate
+     * already exists on any level
+     *
+     * REQUIRES: the integer flag must be 0, 1 or 2
+     * Returns the spot that was occupied (see getLevelOf for its level), null if every level is full
+     */
+    public ParkingSpot occupySpot(String plate, int flag) throws IllegalArgumentException {
+        return occupySpot(plate, flag, -1);
+    }
+
+    /*
+     * Same as occupySpot(plate, flag), but for a vehicle that came in on the given level: parks it
+     * there, or on the nearest level with room for its type. A negative level is the same as
+     * occupySpot(plate, flag)
+     * Throws exception if the level does not exist
+     */
+    public ParkingSpot occupySpot(String plate, int flag, int preferredLevel) throws IllegalArgumentException {
+        Level[] current = levels;
+        if (preferredLevel >= current.length) {
+            throw new IllegalArgumentException("Level does not exist");
+        }
+        plate = PlateCodec.normalize(plate); // Potentially throws IllegalArgumentException
+        if (plateToLevel.putIfAbsent(plate, PENDING) != null) {
+            throw new IllegalArgumentException("Plate already exists");
+        }
+
+        Level parkedOn = null;
+        ParkingSpot spot = null;
+        try {
+            long tried = 0; // Bit n is set once level n was tried
+            // First the levels with room in their cached counts, then the ones they show full
+            for (int pass = 0; pass < 2 && spot == null; pass++) {
+                Level level;
+                while (spot == null && (level = nextLevel(current, tried, flag, preferredLevel, pass == 1)) != null) {
+                    tried |= 1L << level.number;
+                    if (pass == 1) {
+                        level.refresh();
+                        if (level.roomFor(flag) == 0) {
+                            continue; // Really full
+                        }
+                    }
+                    spot = level.lot.occupySpot(plate, flag);
+                    level.refresh(); // Parked, or the cached counts were behind
+                    parkedOn = level;
+                }
+            }
+        } finally {
+            if (spot != null) {
+                plateToLevel.put(plate, parkedOn);
+            } else {
+                plateToLevel.remove(plate, PENDING);
+            }
+        }
+        return spot;
+    }
+
+    /*
+     * Frees the spot of the plate, on whichever level it is parked. The plate stays reserved until
+     * its level has freed it, so it cannot be parked again while the level still holds it.
+     * Returns the spot that was unoccupied, null if the plate is not parked in the facility
+     */
+    public ParkingSpot unoccupySpot(String plate) throws IllegalArgumentException {
+        plate = PlateCodec.normalize(plate); // Potentially throws IllegalArgumentException
+        Level level = plateToLevel.get(plate);
+        if (level == null || level == PENDING || !plateToLevel.replace(plate, level, PENDING)) {
+            return null; // Not parked (or being parked or freed by another gate)
+        }
+        try {
+            ParkingSpot spot = level.lot.unoccupySpot(plate);
+            level.refresh();
+            return spot;
+        } finally {
+            plateToLevel.remove(plate, PENDING);
+        }
+    }
+
+    // Returns the level the plate is parked on, -1 if it is not parked in the facility
+    public int getLevelOf(String plate) throws IllegalArgumentException {
+        Level level = plateToLevel.get(PlateCodec.normalize(plate));
+        return level == null ? -1 : level.number;
+    }
+
+    // Returns a summary of the cached counts of the level, used to choose levels (may be a little behind)
+    public OccupancySummary getCachedSummary(int level) {
+        return levels[level].summary();
+    }
+
+    // Changes the name of the facility
+    public void changeFacilityName(String newName) {
+        name = newName;
+    }
+
+    ///// HELPER METHODS /////
+
+    /*
+     * Returns the untried level to try next: the nearest one to the preferred level (the one with
+     * the most room if there is none), among the levels whose cached counts show room for the
+     * vehicle type, or among the ones that show none. Returns null if there is no such level left
+     */
+    private static Level nextLevel(Level[] levels, long tried, int flag, int preferredLevel, boolean full) {
+        Level best = null;
+        int bestRank = Integer.MAX_VALUE;
+        for (Level level: levels) {
+            int room = level.roomFor(flag);
+            if ((tried & 1L << level.number) != 0 || (room == 0) != full) {
+                continue;
+            }
+            // Nearest level first (the lower one on a tie), or most room first
+            int rank = preferredLevel >= 0
+                ? 2 * Math.abs(level.number - preferredLevel) + (level.number < preferredLevel ? 0 : 1)
+                : -room;
+            if (rank < bestRank) {
+                best = level;
+                bestRank = rank;
+            }
+        }
+        return best;
+    }
+
+    ///// GETTER METHODS /////
+
+    public String getName() { return name; }
+    public int getLevelCount() { return levels.length; }
+    public ParkingLot getLevel(int level) { return levels[level].lot; }
+
+    // One level: its lot, and the room for every vehicle type as last read from it
+    private static class Level {
+        private final int number;
+        private final ParkingLot lot;
+
+        /*
+         * Counts of the lot as last read (3 per type by state, as in OccupancySummary), the version
+         * they were read at (see ParkingLot.readOccupancy), and a summary of them made when asked
+         * for; guarded by the level
+         */
+        private final int[] counts;
+        private int version;
+        private OccupancySummary summary;
+
+        // Number of spots a car, a motorcycle and a commercial vehicle could park in, as last read
+        private volatile int carRoom;
+        private volatile int motorcycleRoom;
+        private volatile int commercialRoom;
+
+        Level(int number, ParkingLot lot) {
+            this.number = number;
+            this.lot = lot;
+            this.counts = new int[9];
+            if (lot != null) {
+                read();
+            }
+        }
+
+        // Reads the counts of the lot again, if they changed since they were last read
+        synchronized void refresh() {
+            if (lot.getOccupancyVersion() != version) {
+                read();
+            }
+        }
+
+        /*
+         * Returns the number of spots a vehicle of the type could park in, as last read (flag same
+         * as ParkingLot.occupySpot). A motorcycle can also park in a vacant or half full car spot
+         */
+        int roomFor(int flag) {
+            if (flag == 0) {
+                return carRoom;
+            } else if (flag == 1) {
+                return motorcycleRoom;
+            }
+            return commercialRoom;
+        }
+
+        // Returns a summary of the counts as last read
+        synchronized OccupancySummary summary() {
+            if (summary == null) {
+                summary = new OccupancySummary(counts);
+            }
+            return summary;
+        }
+
+        ///// HELPER METHODS /////
+
+        // Reads the counts of the lot, and the room they leave for every vehicle type
+        private void read() {
+            version = lot.readOccupancy(counts);
+            summary = null;
+            carRoom = counts[OccupancyCounter.VACANT];
+            motorcycleRoom = counts[3 + OccupancyCounter.VACANT] + counts[OccupancyCounter.HALF_FULL]
+                             + carRoom;
+            commercialRoom = counts[6 + OccupancyCounter.VACANT];
+        }
+    }
+}
@@ -1,19 +1,39 @@
 package model;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.PriorityQueue;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /*
  * @ Mu Ye Liu, Jan 2025
  * 
-The parking lot uses uses a MAX HEAP PRIORITY QUEUE implementation that stores the parking spots 
-based on the distance to the entrance. Once a vehicle is assigned a spot, the parking spot is 
-removed from the priority queue (still in the cumulative list of parking spots). Once the spot is 
+The parking lot uses uses a MAX HEAP PRIORITY QUEUE implementation (indexed SpotHeap) that stores 
+the parking spots based on the distance to the entrance. Once a vehicle is assigned a spot, the 
+parking spot is removed from the priority queue (still in the cumulative list of parking spots). Once the spot is 
 no longer occupied, the spot goes back into the priority queue.
+
+The lot also has a road network (ParkingLotGraph), where the spots are vertices connected to the
+intersections of their aisles. A vehicle that comes in through a known entrance is given the vacant
+spot with the SHORTEST ROUTE from that entrance instead (see occupySpot(plate, flag, entrance)).
+The route distances come from the cached shortest path tree of the entrance, so they are computed
+once for all spots rather than once per spot. Every entrance (registered with addEntrance, or the
+first time a vehicle comes in through it) has its own order of the vacant spots of each type
+(RouteQueues), which is updated on every occupy and unoccupy, so the nearest spot is found in
+O(log n) at every gate.
 */
 public class ParkingLot {
 
+    // Start time (see startTimer) of calls that are not timed
+    protected static final long NOT_TIMED = Long.MIN_VALUE;
+
     // Name of the parking lot (can be changed if needed)
     private String name;
 
@@ -23,9 +43,17 @@ public class ParkingLot {
      * looking up the parking spots, with the amortized runtime per lookup being O(1)
      * as opposed to O(n) for arrayList.
      */
-    private HashMap<Integer, ParkingSpot> parkingSpots;
+    private Map<Integer, ParkingSpot> parkingSpots;
+
+    // Number the next new spot gets (see ParkingSpot.number)
+    private final AtomicInteger nextSpotNumber;
 
-    private HashSet<String> licensePlates;
+    /*
+     * Index from the (formatted) license plate of every parked vehicle to the spot it is parked in.
+     * Doubles as the duplicate plate check, and lets a vehicle leave in O(1) instead of scanning
+     * every spot in the lot for its plate.
+     */
+    private Map<String, ParkingSpot> plateToSpot;
 
     /*
      * 4 separate Max Heap priority queues to store vacant parking spots: They are the following: 
@@ -33,28 +61,79 @@ public class ParkingLot {
      * - One that stores the vacant motorcycle spots
      * - One that stores the vacant commercial spots
      * - One that stores half full car spots that have one motorcycle parked in it
+     * The heaps are indexed, so a spot can be removed from the middle of a heap in O(log n) when
+     * it is occupied manually, instead of searching the whole queue for it.
      */
-    private PriorityQueue<CarSpot> vacantCarSpots; 
-    private PriorityQueue<MotorcycleSpot> vacantMotorcycleSpots;
-    private PriorityQueue<CommericalSpot> vacantCommericalSpots;
-    private PriorityQueue<CarSpot> halfFullCarSpots;
+    private SpotHeap<CarSpot> vacantCarSpots; 
+    private SpotHeap<MotorcycleSpot> vacantMotorcycleSpots;
+    private SpotHeap<CommericalSpot> vacantCommericalSpots;
+    private SpotHeap<CarSpot> halfFullCarSpots;
+
+    // Road network of the lot, with the spots that have been connected to it
+    private ParkingLotGraph graph;
+
+    /*
+     * Vacant spots of every type ordered by route distance from every entrance. They mirror the
+     * priority queues above (car: 0 = vacant, 1 = half full).
+     */
+    private RouteQueues<CarSpot> carRoutes;
+    private RouteQueues<MotorcycleSpot> motorcycleRoutes;
+    private RouteQueues<CommericalSpot> commercialRoutes;
+
+    // Entrance vertex by entrance id, and entrance number (in the route queues) by entrance vertex
+    private Map<Integer, Vertex> entrances;
+    private Map<Vertex, Integer> entranceNumbers;
+
+    /*
+     * Live counts of the spots of every type (0 = car, 1 = motorcycle, 2 = commercial) by state,
+     * moved on every change of a spot, so getOccupancySummary needs no lock and no queue
+     */
+    private OccupancyCounter[] occupancy;
+
+    // Publisher the changes of the spots are pushed to, null if none
+    private volatile SpotChangePublisher changePublisher;
+
+    // File the state of the spots is persisted to, null if the lot is not persistent
+    private volatile MappedSpotFile spotFile;
+
+    // Event log the changes of the spots are appended to, null if the lot is not logged
+    private volatile EventLog eventLog;
+
+    // Metrics the calls of the lot are recorded to, null if the lot is not measured
+    private volatile LotMetrics metrics;
 
-    
     /* Constructs a new empty parking lot with no parking spots.
      * Initializes hashmap and priority queue. 
     */
     public ParkingLot(String name) {
+        this(name, new HashMap<>(), new HashMap<>());
+    }
+
+    /*
+     * Constructs a new empty parking lot that stores its spots and plate index in the given (empty)
+     * maps. Used by subclasses that need different map implementations, e.g. concurrent maps.
+     */
+    protected ParkingLot(String name, Map<Integer, ParkingSpot> parkingSpots, 
+                         Map<String, ParkingSpot> plateToSpot) {
         this.name = name;
-        this.parkingSpots = new HashMap<>();
-        this.licensePlates = new HashSet<>();
-        this.vacantCarSpots = new PriorityQueue<>((a, b) 
-            -> Double.compare(b.getDistance(), a.getDistance()));
-        this.vacantMotorcycleSpots = new PriorityQueue<>((a, b) 
-            -> Double.compare(b.getDistance(), a.getDistance()));
-        this.vacantCommericalSpots = new PriorityQueue<>((a, b) 
-            -> Double.compare(b.getDistance(), a.getDistance()));
-        this.halfFullCarSpots = new PriorityQueue<>((a, b) 
-            -> Double.compare(b.getDistance(), a.getDistance()));
+        this.parkingSpots = parkingSpots;
+        this.nextSpotNumber = new AtomicInteger();
+        this.plateToSpot = plateToSpot;
+        this.vacantCarSpots = SpotHeap.furthestFirst();
+        this.vacantMotorcycleSpots = SpotHeap.furthestFirst();
+        this.vacantCommericalSpots = SpotHeap.furthestFirst();
+        this.halfFullCarSpots = SpotHeap.furthestFirst();
+        this.graph = new ParkingLotGraph(name);
+        this.carRoutes = new RouteQueues<>(2);
+        this.carRoutes.attach(0, vacantCarSpots);
+        this.carRoutes.attach(1, halfFullCarSpots);
+        this.motorcycleRoutes = new RouteQueues<>(1);
+        this.motorcycleRoutes.attach(0, vacantMotorcycleSpots);
+        this.commercialRoutes = new RouteQueues<>(1);
+        this.commercialRoutes.attach(0, vacantCommericalSpots);
+        this.entrances = new ConcurrentHashMap<>();
+        this.entranceNumbers = new ConcurrentHashMap<>();
+        this.occupancy = new OccupancyCounter[] {new OccupancyCounter(), new OccupancyCounter(), new OccupancyCounter()};
     }
 
     /*
@@ -76,23 +155,89 @@ public class ParkingLot {
             return null;
         }
 
+        ParkingSpot newSpot;
         switch(flag) {
             case 0:
-                CarSpot newCarSpot = new CarSpot(id, distance);
-                parkingSpots.put(id, newCarSpot);
+                CarSpot newCarSpot = numbered(new CarSpot(id, distance));
+                if (parkingSpots.putIfAbsent(id, newCarSpot) != null) {
+                    return null;
+                }
                 vacantCarSpots.add(newCarSpot);
-                return newCarSpot;
+                newSpot = newCarSpot;
+                break;
             case 1:
-                MotorcycleSpot newMotorcycleSpot = new MotorcycleSpot(id, distance);
-                parkingSpots.put(id, newMotorcycleSpot);
+                MotorcycleSpot newMotorcycleSpot = numbered(new MotorcycleSpot(id, distance));
+                if (parkingSpots.putIfAbsent(id, newMotorcycleSpot) != null) {
+                    return null;
+                }
                 vacantMotorcycleSpots.add(newMotorcycleSpot);
-                return newMotorcycleSpot;
+                newSpot = newMotorcycleSpot;
+                break;
             default: // Case 2 
-                CommericalSpot newCommercialSpot = new CommericalSpot(id, distance);
-                parkingSpots.put(id, newCommercialSpot);
+                CommericalSpot newCommercialSpot = numbered(new CommericalSpot(id, distance));
+                if (parkingSpots.putIfAbsent(id, newCommercialSpot) != null) {
+                    return null;
+                }
                 vacantCommericalSpots.add(newCommercialSpot);
-                return newCommercialSpot;
+                newSpot = newCommercialSpot;
+                break;
+        }
+        persistNewSpot(newSpot);
+        return newSpot;
+    }
+
+    /*
+     * Adds the first count spots of the arrays (all vacant) to this (empty) lot at once, for
+     * LotLoader: the spots are created straight into one array per priority queue, and every queue
+     * is then built once from its array in O(n) (addVacantSpots, SpotHeap.heapify) instead of one
+     * insert per spot. Ids already added are skipped, as addParkingSpot would.
+     * Returns the spots in the order of the arrays, null for a skipped id
+     * Throws exception if the lot is not empty
+     * REQUIRES: every flag is 0, 1 or 2, and no other thread uses the lot during the call
+     */
+    ParkingSpot[] addParkingSpots(int[] ids, double[] distances, byte[] flags, int count)
+            throws IllegalArgumentException {
+        if (!parkingSpots.isEmpty()) {
+            throw new IllegalArgumentException("Lot is not empty");
         }
+        int[] vacant = new int[3]; // Spots by type: first at most, then as added
+        for (int i = 0; i < count; i++) {
+            vacant[flags[i]]++;
+        }
+        CarSpot[] cars = new CarSpot[vacant[0]];
+        MotorcycleSpot[] motorcycles = new MotorcycleSpot[vacant[1]];
+        CommericalSpot[] commercials = new CommericalSpot[vacant[2]];
+        Arrays.fill(vacant, 0);
+        ParkingSpot[] added = new ParkingSpot[count];
+        boolean persisted = spotFile != null || eventLog != null;
+        for (int i = 0; i < count; i++) {
+            int flag = flags[i];
+            ParkingSpot spot = flag == 0 ? new CarSpot(ids[i], distances[i])
+                             : flag == 1 ? new MotorcycleSpot(ids[i], distances[i])
+                             : new CommericalSpot(ids[i], distances[i]);
+            if (parkingSpots.putIfAbsent(ids[i], spot) != null) {
+                continue;
+            }
+            numbered(spot);
+            if (flag == 0) {
+                cars[vacant[0]++] = (CarSpot) spot;
+            } else if (flag == 1) {
+                motorcycles[vacant[1]++] = (MotorcycleSpot) spot;
+            } else {
+                commercials[vacant[2]++] = (CommericalSpot) spot;
+            }
+            if (persisted) {
+                persistNewSpot(spot);
+            }
+            added[i] = spot;
+        }
+        if (!persisted) { // Counted once per type instead of once per spot
+            for (int flag = 0; flag < 3; flag++) {
+                occupancy[flag].added(OccupancyCounter.VACANT, vacant[flag]);
+            }
+        }
+        addVacantSpots(cars, vacant[0], motorcycles, vacant[1], commercials, vacant[2]);
+        return added;
     }
 
     /*
@@ -110,66 +255,311 @@ public class ParkingLot {
      * Returns the spot that was occupied if success, null if spot is full
      */
     public ParkingSpot occupySpot(String plate, int flag) throws IllegalArgumentException {
+        return occupySpot(plate, flag, null);
+    }
+
+    /*
+     * Same as occupySpot(plate, flag), but for a vehicle that came in through the given entrance
+     * (a vertex of the lot's graph): takes the vacant spot with the shortest route from the entrance,
+     * in the same order of spot types. Spots that cannot be reached from the entrance come last.
+     * A null entrance takes the furthest spot, like occupySpot(plate, flag).
+     *
+     * Throws exception if license plate doesn't meet reqs, or if plate already exists
+     * Returns the spot that was occupied if success, null if spot is full
+     */
+    public ParkingSpot occupySpot(String plate, int flag, Vertex entrance) throws IllegalArgumentException {
+        long start = startTimer();
         plate = formatPlate(plate); // Potentially throws IllegalArgumentException
         checkDuplicatePlate(plate); // Potentially throws IllegalArgumentException
 
-        switch (flag) {
-            case 0:
-                CarSpot carSpotToOccupy = vacantCarSpots.poll();
-                if (carSpotToOccupy == null) {
-                    return null;
-                }
-                carSpotToOccupy.occupy(plate);
-                licensePlates.add(plate);
-                return carSpotToOccupy;
-            case 1:
-                MotorcycleSpot motorcycleSpotToOccupy = vacantMotorcycleSpots.poll();
-                if (motorcycleSpotToOccupy == null) {
-                    CarSpot carSpotUsedForMotorcycle = occupyCarSpotWithMotorcycle(plate);
-                    if (carSpotUsedForMotorcycle == null) {
-                        return null;
-                    }
-                    licensePlates.add(plate);
-                    return carSpotUsedForMotorcycle;
-                }
-                motorcycleSpotToOccupy.occupy(plate); 
-                licensePlates.add(plate);
-                return motorcycleSpotToOccupy;
-            default:
-                CommericalSpot commericalSpotToOccupy = vacantCommericalSpots.poll();
-                if (commericalSpotToOccupy == null) {
-                    return null;
-                }
-                commericalSpotToOccupy.occupy(plate);
-                licensePlates.add(plate);
-                return commericalSpotToOccupy;
+        ParkingSpot spotToOccupy = allocateSpot(plate, flag, routesFrom(entrance));
+        if (spotToOccupy != null) {
+            plateToSpot.put(plate, spotToOccupy);
         }
+        recordOccupy(flag, start, spotToOccupy);
+        return spotToOccupy;
+    }
+
+    /*
+     * Same as occupySpot(plate, flag, entrance), for the entrance added with the given id.
+     * Throws exception if the entrance does not exist, the license plate doesn't meet reqs, or if
+     * the plate already exists
+     */
+    public ParkingSpot occupySpot(String plate, int flag, int entranceId) throws IllegalArgumentException {
+        Vertex entrance = entrances.get(entranceId);
+        if (entrance == null) {
+            throw new IllegalArgumentException("Entrance does not exist");
+        }
+        return occupySpot(plate, flag, entrance);
     }
 
     /*
      * Manually occupies a spot based on given spot id and license plate by searching hashmap
      * Returns the parking spot that is just occupied, for null if no spot if found and occupied
-     * Like the previous function, throws exception if plate does not meet requirements
+     * Like the previous function, throws exception if plate does not meet requirements, or if the
+     * plate is already parked (checked after the id lookup, so an unknown id still returns null)
      * Also, manually remove spot from associated priority queue
      * 
      * Boolean flag: true if you want to occupy car spot with motorcycle, false otherwise
      */
     public ParkingSpot manuallyOccupy(int id, String plate, boolean flag) throws IllegalArgumentException {
+        long start = startTimer();
         plate = formatPlate(plate); // Potentially throws IllegalArgumentException
         ParkingSpot spotToOccupy = findParkingSpot(id);
         if (spotToOccupy == null) { // Id not found
             return null;
         }
+        checkDuplicatePlate(plate); // Potentially throws IllegalArgumentException
 
+        boolean occupied = occupyChosenSpot(spotToOccupy, plate, flag);
+        if (occupied) {
+            plateToSpot.put(plate, spotToOccupy);
+        }
+        recordManualOccupy(flag ? 1 : flagOf(spotToOccupy), start);
+        return occupied ? spotToOccupy : null;
+    }
+
+    /*
+     * Unoccupies spot based on given license plate. Then, puts it back into the priority queue
+     * Returns unoccupied spot if successful, null if not.
+     * 
+     * The spot is looked up through the plate index, so the runtime does not depend on lot size.
+     */
+    public ParkingSpot unoccupySpot(String plate) throws IllegalArgumentException {
+        long start = startTimer();
+        plate = formatPlate(plate);
+        ParkingSpot spot = removePlate(plate);
+        if (spot == null) {
+            return null; // No vehicle with this plate is parked in the lot
+        }
+        // A car spot with a motorcycle in it was left by a motorcycle
+        int vehicleFlag = spot instanceof CarSpot carSpot && carSpot.getMotorcycleCount() > 0 ? 1 : flagOf(spot);
+        releaseSpot(spot, plate);
+        recordUnoccupy(vehicleFlag, start);
+        return spot;
+    }
+
+    /*
+     * Parks a batch of vehicles at once (e.g. a burst of arrivals at the gates), in one call.
+     * Every plate of the batch is formatted and checked first; then the spots are taken with one
+     * pass over the batch per vehicle type: cars, then commercial vehicles, then motorcycles (so
+     * motorcycles only overflow into car spots that no car of the batch needed).
+     *
+     * Never throws partway through: returns one result per arrival, in the same order, with the
+     * occupied spot, or the reason the plate was rejected, or neither if the lot had no spot left.
+     * A plate that appears twice in the batch is rejected the second time.
+     */
+    public List<BatchResult> occupySpots(List<Arrival> arrivals) {
+        int size = arrivals.size();
+        String[] formatted = new String[size];
+        String[] plates = new String[size]; // Formatted plates, null if rejected
+        int[] flags = new int[size];
+        String[] errors = new String[size];
+        ParkingSpot[] spots = new ParkingSpot[size];
+
+        Set<String> batchPlates = new HashSet<>(2 * size);
+        for (int i = 0; i < size; i++) {
+            int flag = arrivals.get(i).getFlag();
+            flags[i] = flag == 0 || flag == 1 ? flag : 2; // Any other flag parks as commercial, as in occupySpot
+            try {
+                formatted[i] = formatPlate(arrivals.get(i).getPlate());
+                claimBatchPlate(formatted[i], batchPlates);
+                plates[i] = formatted[i];
+            } catch (IllegalArgumentException e) {
+                errors[i] = e.getMessage();
+            }
+        }
+
+        try {
+            allocateSpotsOfType(plates, flags, spots, 0);
+            allocateSpotsOfType(plates, flags, spots, 2);
+            allocateSpotsOfType(plates, flags, spots, 1);
+        } finally {
+            // Even if an allocation failed, every claimed plate must be recorded or dropped
+            for (int i = 0; i < size; i++) {
+                if (plates[i] != null) {
+                    recordPlate(plates[i], spots[i]);
+                }
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            if (plates[i] != null) {
+                recordOccupy(flags[i], NOT_TIMED, spots[i]); // Counted like occupySpot, not timed
+            }
+        }
+
+        List<BatchResult> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String plate = formatted[i] != null ? formatted[i] : arrivals.get(i).getPlate();
+            results.add(new BatchResult(plate, spots[i], errors[i]));
+        }
+        return results;
+    }
+
+    /*
+     * Lets a batch of vehicles leave at once, in one call. The plates are looked up first, then the
+     * spots are put back into the priority queues with one pass over the batch per spot type.
+     *
+     * Never throws partway through: returns one result per plate, in the same order, with the freed
+     * spot, or the reason the plate was rejected, or neither if the plate was not parked.
+     */
+    public List<BatchResult> unoccupySpots(List<String> plates) {
+        int size = plates.size();
+        String[] formatted = new String[size];
+        String[] errors = new String[size];
+        ParkingSpot[] spots = new ParkingSpot[size];
+        int[] vehicleFlags = new int[size];
+        for (int i = 0; i < size; i++) {
+            try {
+                formatted[i] = formatPlate(plates.get(i));
+                spots[i] = removePlate(formatted[i]);
+                if (spots[i] != null) {
+                    // A car spot with a motorcycle in it was left by a motorcycle
+                    vehicleFlags[i] = spots[i] instanceof CarSpot carSpot && carSpot.getMotorcycleCount() > 0
+                                    ? 1 : flagOf(spots[i]);
+                }
+            } catch (IllegalArgumentException e) {
+                errors[i] = e.getMessage();
+            }
+        }
+
+        releaseSpotsOfType(spots, formatted, 0);
+        releaseSpotsOfType(spots, formatted, 1);
+        releaseSpotsOfType(spots, formatted, 2);
+        for (int i = 0; i < size; i++) {
+            if (spots[i] != null) {
+                recordUnoccupy(vehicleFlags[i], NOT_TIMED); // Counted like unoccupySpot, not timed
+            }
+        }
+
+        List<BatchResult> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String plate = formatted[i] != null ? formatted[i] : plates.get(i);
+            results.add(new BatchResult(plate, spots[i], errors[i]));
+        }
+        return results;
+    }
+
+    /*
+     * Connects the spot with the given id to a vertex (usually an intersection) of the lot's graph,
+     * with the given driving distance. Returns the spot, null if the id doesn't exist
+     *
+     * REQUIRES: Distance must be positive
+     */
+    public ParkingSpot connectSpot(int id, Vertex vertex, double distance) {
+        ParkingSpot spot = findParkingSpot(id);
+        if (spot != null) {
+            graph.connectVertices(spot, vertex, distance);
+        }
+        return spot;
+    }
+
+    /*
+     * Adds an entrance (gate) of the lot with the given id, at the given vertex of the lot's graph,
+     * and orders the vacant spots by their route from it. Returns false (and does nothing) if the
+     * id already exists
+     */
+    public boolean addEntrance(int entranceId, Vertex vertex) {
+        if (entrances.putIfAbsent(entranceId, vertex) != null) {
+            return false;
+        }
+        registerEntrance(vertex);
+        return true;
+    }
+
+    // Changes the name of the parking lot (if the owner wishes to change it)
+    public void changeLotName(String newName) {
+        name = newName;
+    }
+
+    /*
+     * Pushes every change of the state of a spot (occupied, freed, half full) to the subscribers of
+     * the publisher from now on (see SpotChangePublisher). A null publisher stops publishing
+     */
+    public void publishTo(SpotChangePublisher publisher) {
+        changePublisher = publisher;
+    }
+
+    /*
+     * Returns the number of vacant, half full and occupied spots of every type, in O(1) and without
+     * taking any lock of the lot (see OccupancySummary). Use this instead of the sizes of the
+     * priority queues, which are live and may only be read while no other thread uses the lot.
+     */
+    public OccupancySummary getOccupancySummary() {
+        return new OccupancySummary(occupancy);
+    }
+
+    /*
+     * Copies the counts of getOccupancySummary into the array (3 per type by state, as in
+     * OccupancySummary) without allocating. Returns the version of the counts, which changes
+     * whenever a spot of the lot changes state. It is taken before the counts, so counts read at a
+     * version are never older than it, and need not be read again while getOccupancyVersion
+     * still returns it
+     * REQUIRES: into has at least 9 elements
+     */
+    int readOccupancy(int[] into) {
+        int version = getOccupancyVersion();
+        for (int flag = 0; flag < occupancy.length; flag++) {
+            occupancy[flag].read(into, 3 * flag);
+        }
+        return version;
+    }
+
+    // Returns the current version of the counts (see readOccupancy)
+    int getOccupancyVersion() {
+        return occupancy[0].version() + occupancy[1].version() + occupancy[2].version();
+    }
+
+    ///// HELPER METHODS /////
+
+    /*
+     * The following 3 methods only update the spots and the priority queues, not the plate index. 
+     * They are the steps of occupySpot, manuallyOccupy and unoccupySpot that touch the priority 
+     * queues, so subclasses can wrap them (e.g. in locks) separately from the plate checks.
+     */
+
+    /*
+     * Takes the furthest vacant spot for the vehicle type given by flag (same as occupySpot) out of
+     * its priority queue and occupies it with the plate. Motorcycles overflow into car spots.
+     * Returns the occupied spot, null if no spot is available
+     */
+    protected ParkingSpot allocateSpot(String plate, int flag) {
+        return allocateSpot(plate, flag, null);
+    }
+
+    /*
+     * Same as allocateSpot(plate, flag), but takes the spot with the shortest route in the given
+     * shortest path tree instead, if the tree is not null
+     */
+    protected ParkingSpot allocateSpot(String plate, int flag, ShortestPathTree routes) {
+        switch (flag) {
+            case 0:
+                return occupyFromQueue(vacantCarSpots, plate, routes);
+            case 1:
+                MotorcycleSpot motorcycleSpotToOccupy = occupyFromQueue(vacantMotorcycleSpots, plate, routes);
+                if (motorcycleSpotToOccupy == null) {
+                    return occupyCarSpotWithMotorcycle(plate, routes);
+                }
+                return motorcycleSpotToOccupy;
+            default:
+                return occupyFromQueue(vacantCommericalSpots, plate, routes);
+        }
+    }
+
+    /*
+     * Occupies the given spot with the plate (flag same as manuallyOccupy) and removes it from its
+     * priority queue. Returns false if the spot cannot be occupied by the vehicle
+     */
+    protected boolean occupyChosenSpot(ParkingSpot spotToOccupy, String plate, boolean flag) {
         if (spotToOccupy.getOccupiedStatus()) {
             // Spot is marked as occupied
             if (spotToOccupy instanceof CarSpot carSpot && carSpot.getMotorcycleCount() == 1 && flag) {
                 // Wants to occupy half full car spot with motorcycle
-                carSpot.occupyWithMotorcycle(plate);
+                occupy(carSpot, plate, true);
                 halfFullCarSpots.remove(carSpot);
             } else {
                 // Other, inoperable case
-                return null;
+                return false;
             }
         } else {
             // Spot is not marked as occupied
@@ -177,77 +567,488 @@ public class ParkingLot {
                 // The spot to occupy is a car spot
                 if (flag) {
                     // Occupy empty car spot with motorcycle
-                    carSpot.occupyWithMotorcycle(plate);
+                    occupy(carSpot, plate, true);
                     vacantCarSpots.remove(carSpot);
                     halfFullCarSpots.add(carSpot);
                 } else {
                     // Occupy with car
-                    carSpot.occupy(plate);
+                    occupy(carSpot, plate, false);
                     vacantCarSpots.remove(carSpot);
                 }
             } else if (spotToOccupy instanceof MotorcycleSpot) {
                 // The spot to occupy is a motorcycle spot
-                spotToOccupy.occupy(plate);
+                occupy(spotToOccupy, plate, false);
                 vacantMotorcycleSpots.remove(spotToOccupy);
             } else { 
                 // The spot to occupy is commerical spot
-                spotToOccupy.occupy(plate);
+                occupy(spotToOccupy, plate, false);
                 vacantCommericalSpots.remove(spotToOccupy);
             }
         }
 
-        licensePlates.add(plate);
-        return spotToOccupy;
+        return true;
     }
 
     /*
-     * Unoccupies spot based on given license plate. Then, puts it back into the priority queue
-     * Returns unoccupied spot if successful, null if not.
-     * 
+     * Unoccupies the spot that the plate is parked in, and puts the spot back into priority queue
+     * REQUIRES: plate is parked in spot
      */
-    public ParkingSpot unoccupySpot(String plate) throws IllegalArgumentException {
-        plate = formatPlate(plate);
-        // Iterate through set of all parking spot to see if the spot can be found
-        for (ParkingSpot spot : parkingSpots.values()) {
-            if (spot instanceof CarSpot carSpot) {
-                // Case where you unoccupy motorcycle from car
-                if (carSpot.getMotorcycleCount() > 0 && (carSpot.getLicensePlate().equals(plate) || 
-                    carSpot.getLicensePlate2().equals(plate))) {
-                    carSpot.unoccupyMotorcycle(plate);
-                    addSpotBackToPriorityQueue(carSpot, true);
-                    licensePlates.remove(plate);
-                    return carSpot;
-                }
-            } 
+    protected void releaseSpot(ParkingSpot spot, String plate) {
+        if (spot instanceof CarSpot carSpot && carSpot.getMotorcycleCount() > 0) {
+            // Case where you unoccupy motorcycle from car
+            vacate(carSpot, plate, true);
+            addSpotBackToPriorityQueue(carSpot, true);
+        } else {
             // Regular case
-            if (spot.getLicensePlate().equals(plate)) {
-                spot.unoccupy();
-                addSpotBackToPriorityQueue(spot, false);
-                licensePlates.remove(plate);
-                return spot;
+            vacate(spot, plate, false);
+            addSpotBackToPriorityQueue(spot, false);
+        }
+    }
+
+    /*
+     * The following 2 methods are the only place a spot of the lot changes its state: they change
+     * the spot, then move it to its new state in the occupancy counter of its type, write the change
+     * into the file of the lot (if it is persistent) and append it to the event log of the lot (if
+     * it is logged). The spot itself only holds its state.
+     * REQUIRES: the caller holds the guard of the spot (the lock of its type, or the spot itself)
+     */
+
+    // Occupies the spot with the plate, as a motorcycle in a car spot if motorcycle is true
+    protected final void occupy(ParkingSpot spot, String plate, boolean motorcycle) {
+        int from = OccupancyCounter.stateOf(spot);
+        if (motorcycle) {
+            ((CarSpot) spot).occupyWithMotorcycle(plate);
+        } else {
+            spot.occupy(plate);
+        }
+        changed(spot, from);
+        EventLog log = eventLog;
+        if (log != null) {
+            log.spotOccupied(spot, plate, motorcycle);
+        }
+    }
+
+    // Frees the spot the plate is parked in, or its half if motorcycle is true (car spot only)
+    protected final void vacate(ParkingSpot spot, String plate, boolean motorcycle) {
+        int from = OccupancyCounter.stateOf(spot);
+        if (motorcycle) {
+            ((CarSpot) spot).unoccupyMotorcycle(plate);
+        } else {
+            spot.unoccupy();
+        }
+        changed(spot, from);
+        EventLog log = eventLog;
+        if (log != null) {
+            log.spotVacated(spot, plate);
+        }
+    }
+
+    /*
+     * Counts the spot in its new state instead of from, publishes the change and writes the state
+     * into the file (if any)
+     */
+    private void changed(ParkingSpot spot, int from) {
+        int to = OccupancyCounter.stateOf(spot);
+        occupancy[flagOf(spot)].moved(from, to);
+        SpotChangePublisher publisher = changePublisher;
+        if (publisher != null) {
+            publisher.spotChanged(spot, from, to);
+        }
+        MappedSpotFile file = spotFile;
+        if (file != null) {
+            file.write(spot);
+        }
+    }
+
+    /*
+     * Makes the lot persistent: writes every spot into the (empty) file, and from then on every
+     * change of a spot (and every new spot) is written into the file as it happens. A restarted
+     * process gets the same spots and occupancy back with restoreFrom.
+     * Throws exception if the file is not empty
+     * REQUIRES: no other thread uses the lot during the call
+     */
+    public void persistTo(MappedSpotFile file) throws IllegalArgumentException {
+        if (file.size() != 0) {
+            throw new IllegalArgumentException("File is not empty");
+        }
+        for (ParkingSpot spot: parkingSpots.values()) {
+            appendToFile(file, spot);
+        }
+        spotFile = file;
+    }
+
+    /*
+     * Rebuilds the spots, the occupancy, the plate index and the priority queues of this (empty) lot
+     * from the file, then keeps the lot persistent to the file (see persistTo). No history is
+     * replayed: every record is read once from the mapped pages, the spots are created in their
+     * saved state, and every priority queue is built once at the end in O(n) (restoreQueues).
+     * Throws exception if the lot is not empty
+     * REQUIRES: no other thread uses the lot during the call
+     */
+    public void restoreFrom(MappedSpotFile file) throws IllegalArgumentException {
+        restoreQueues(restoreSpots(file));
+        spotFile = file;
+    }
+
+    /*
+     * Rebuilds the spots, the occupancy, the plate index and the priority queues of this (empty) lot
+     * from the snapshot, in the same way as above. The lot is not attached to anything; replaying
+     * the event log after the snapshot's sequence brings it up to date (see Snapshotter.recover).
+     * Throws exception if the lot is not empty
+     * REQUIRES: no other thread uses the lot during the call
+     */
+    public void restoreFrom(LotSnapshot snapshot) throws IllegalArgumentException {
+        restoreQueues(restoreSpots(snapshot));
+    }
+
+    /*
+     * Puts the restored spots into the priority queues that match their state: vacant spots into
+     * the vacant queue of their type, car spots with one motorcycle into the half full queue.
+     * Subclasses with other queues override this.
+     */
+    protected void restoreQueues(List<ParkingSpot> restoredSpots) {
+        int[] counts = new int[4];
+        for (ParkingSpot spot: restoredSpots) {
+            int queue = restoredQueueOf(spot);
+            if (queue >= 0) {
+                counts[queue]++;
             }
         }
-        // If no spot found, return null
-        return null;
+        // Every queue is filled straight into its own array, then built once (SpotHeap.heapify)
+        CarSpot[] vacantCars = new CarSpot[counts[0]];
+        CarSpot[] halfFullCars = new CarSpot[counts[1]];
+        MotorcycleSpot[] vacantMotorcycles = new MotorcycleSpot[counts[2]];
+        CommericalSpot[] vacantCommercials = new CommericalSpot[counts[3]];
+        int[] filled = new int[4];
+        for (ParkingSpot spot: restoredSpots) {
+            int queue = restoredQueueOf(spot);
+            if (queue == 0) {
+                vacantCars[filled[0]++] = (CarSpot) spot;
+            } else if (queue == 1) {
+                halfFullCars[filled[1]++] = (CarSpot) spot;
+            } else if (queue == 2) {
+                vacantMotorcycles[filled[2]++] = (MotorcycleSpot) spot;
+            } else if (queue == 3) {
+                vacantCommercials[filled[3]++] = (CommericalSpot) spot;
+            }
+        }
+        vacantCarSpots.heapify(vacantCars, counts[0]);
+        halfFullCarSpots.heapify(halfFullCars, counts[1]);
+        vacantMotorcycleSpots.heapify(vacantMotorcycles, counts[2]);
+        vacantCommericalSpots.heapify(vacantCommercials, counts[3]);
     }
 
-    // Changes the name of the parking lot (if the owner wishes to change it)
-    public void changeLotName(String newName) {
-        name = newName;
+    /*
+     * Puts the first spots of each array (new, vacant spots of this lot) into the vacant queue of
+     * their type, each queue built once from its array (SpotHeap.heapify), which it takes over.
+     * Subclasses with other queues override this.
+     * REQUIRES: the vacant queues are empty
+     */
+    protected void addVacantSpots(CarSpot[] cars, int carCount, MotorcycleSpot[] motorcycles,
+                                  int motorcycleCount, CommericalSpot[] commercials, int commercialCount) {
+        vacantCarSpots.heapify(cars, carCount);
+        vacantMotorcycleSpots.heapify(motorcycles, motorcycleCount);
+        vacantCommericalSpots.heapify(commercials, commercialCount);
+    }
+
+    /*
+     * Returns the priority queue the restored spot belongs in: 0 = vacant car spots, 1 = half full
+     * car spots, 2 = vacant motorcycle spots, 3 = vacant commercial spots, -1 = none (full)
+     */
+    private static int restoredQueueOf(ParkingSpot spot) {
+        if (spot instanceof CarSpot carSpot) {
+            return !carSpot.getOccupiedStatus() ? 0 : carSpot.getMotorcycleCount() == 1 ? 1 : -1;
+        }
+        if (spot.getOccupiedStatus()) {
+            return -1;
+        }
+        return spot instanceof MotorcycleSpot ? 2 : 3;
+    }
+
+    /*
+     * Logs every change of a spot (and every new spot) to the event log from now on. If the log is
+     * empty, the spots the lot already has are logged first, as if they were added and occupied
+     * now, so the log alone can rebuild the lot. Otherwise the lot must already hold what the log
+     * holds (it was rebuilt with EventLog.replay).
+     * REQUIRES: no other thread uses the lot during the call
+     */
+    public void logTo(EventLog log) {
+        if (log.getLastSequence() == 0) {
+            for (ParkingSpot spot: parkingSpots.values()) {
+                logSpot(log, spot);
+            }
+        }
+        eventLog = log;
+    }
+
+    /*
+     * Records the latency and the results of occupySpot, unoccupySpot and manuallyOccupy, the
+     * searches on the lot's graph, and the sizes of the spot queues to the metrics from now on
+     * (see LotMetrics). A null metrics turns the recording off again.
+     */
+    public void reportTo(LotMetrics metrics) {
+        if (metrics != null) {
+            registerGauges(metrics);
+        }
+        graph.reportTo(metrics);
+        this.metrics = metrics;
+    }
+
+    // Registers the sizes of the priority queues of the lot as gauges of the metrics
+    protected void registerGauges(LotMetrics metrics) {
+        metrics.registerGauge("queue.vacantCar", vacantCarSpots::size);
+        metrics.registerGauge("queue.halfFullCar", halfFullCarSpots::size);
+        metrics.registerGauge("queue.vacantMotorcycle", vacantMotorcycleSpots::size);
+        metrics.registerGauge("queue.vacantCommercial", vacantCommericalSpots::size);
+        metrics.registerGauge("spots", parkingSpots::size);
+        metrics.registerGauge("parked", plateToSpot::size);
+    }
+
+    // Returns the time to measure a call from, NOT_TIMED if the call is not timed (see LotMetrics)
+    protected long startTimer() {
+        LotMetrics current = metrics;
+        return current != null && current.sampleCall() ? System.nanoTime() : NOT_TIMED;
+    }
+
+    // Records an occupySpot call that started at start (see startTimer), if the lot is measured
+    protected void recordOccupy(int flag, long start, ParkingSpot spot) {
+        LotMetrics current = metrics;
+        if (current != null) {
+            current.recordOccupy(flag, elapsedSince(start), spot);
+        }
+    }
+
+    // Records a manuallyOccupy call of a vehicle of the given type, if the lot is measured
+    protected void recordManualOccupy(int flag, long start) {
+        LotMetrics current = metrics;
+        if (current != null) {
+            current.recordManualOccupy(flag, elapsedSince(start));
+        }
+    }
+
+    // Records an unoccupySpot call of a vehicle of the given type, if the lot is measured
+    protected void recordUnoccupy(int flag, long start) {
+        LotMetrics current = metrics;
+        if (current != null) {
+            current.recordUnoccupy(flag, elapsedSince(start));
+        }
+    }
+
+    // Returns the nanoseconds since start, -1 if the call is not timed
+    private static long elapsedSince(long start) {
+        return start == NOT_TIMED ? -1 : System.nanoTime() - start;
+    }
+
+    /*
+     * Counts the new spot in the occupancy of its type, and appends it to the file and to the event
+     * log of the lot, if it has them
+     * REQUIRES: no vehicle parks in the spot during the call, so it is logged as added before any
+     *           change of it is logged
+     */
+    protected void persistNewSpot(ParkingSpot spot) {
+        occupancy[flagOf(spot)].added(OccupancyCounter.stateOf(spot), 1);
+        MappedSpotFile file = spotFile;
+        if (file != null) {
+            appendToFile(file, spot);
+        }
+        EventLog log = eventLog;
+        if (log != null) {
+            logSpot(log, spot);
+        }
+    }
+
+    // Logs the spot as added, and then its current occupancy as if the vehicles parked now
+    private static void logSpot(EventLog log, ParkingSpot spot) {
+        log.spotAdded(spot);
+        if (spot instanceof CarSpot carSpot && carSpot.getMotorcycleCount() > 0) {
+            for (String plate: new String[] {carSpot.getLicensePlate(), carSpot.getLicensePlate2()}) {
+                if (!plate.isEmpty()) {
+                    log.spotOccupied(spot, plate, true);
+                }
+            }
+        } else if (spot.getOccupiedStatus()) {
+            log.spotOccupied(spot, spot.getLicensePlate(), false);
+        }
+    }
+
+    /*
+     * The following methods are the steps of the batch methods, which subclasses can wrap (e.g. to
+     * take a lock once per batch instead of once per vehicle).
+     */
+
+    /*
+     * Checks that the plate is neither parked nor already in the batch, and claims it for the
+     * batch. Throws exception if the plate already exists
+     */
+    protected void claimBatchPlate(String plate, Set<String> batchPlates) throws IllegalArgumentException {
+        checkDuplicatePlate(plate);
+        if (!batchPlates.add(plate)) {
+            throw new IllegalArgumentException("Plate already exists");
+        }
+    }
+
+    // Records the plate as parked in the spot, if a spot was occupied for it (spot is not null)
+    protected void recordPlate(String plate, ParkingSpot spot) {
+        if (spot != null) {
+            plateToSpot.put(plate, spot);
+        }
+    }
+
+    // Removes the plate from the plate index. Returns the spot it was parked in, null if not parked
+    protected ParkingSpot removePlate(String plate) {
+        return plateToSpot.remove(plate);
+    }
+
+    // Occupies spots for the claimed plates (not null) of the batch with the given vehicle type
+    protected void allocateSpotsOfType(String[] plates, int[] flags, ParkingSpot[] spots, int flag) {
+        allocateDrained(plates, flags, spots, flag);
+    }
+
+    // Frees the spots (not null) of the batch with the given spot type (same as the vehicle flag)
+    protected void releaseSpotsOfType(ParkingSpot[] spots, String[] plates, int flag) {
+        releaseEach(spots, plates, flag);
+    }
+
+    /*
+     * One pass over the batch: allocates a spot for every claimed plate with the given vehicle type.
+     * Once the lot has no spot for the type, the rest of the type gets none either.
+     */
+    protected final void allocateEach(String[] plates, int[] flags, ParkingSpot[] spots, int flag) {
+        for (int i = 0; i < plates.length; i++) {
+            if (plates[i] != null && flags[i] == flag) {
+                spots[i] = allocateSpot(plates[i], flag);
+                if (spots[i] == null) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /*
+     * Same as allocateEach, but takes the spots of the type's own queue in one drain of its heap
+     * (SpotHeap.drain) as many as the batch has plates of the type, and hands them out in order.
+     * Motorcycles left without a motorcycle spot then overflow into car spots one at a time.
+     */
+    protected final void allocateDrained(String[] plates, int[] flags, ParkingSpot[] spots, int flag) {
+        int count = 0;
+        for (int i = 0; i < plates.length; i++) {
+            if (plates[i] != null && flags[i] == flag) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        ParkingSpot[] drained = new ParkingSpot[count];
+        int taken = (flag == 0 ? vacantCarSpots : flag == 1 ? vacantMotorcycleSpots : vacantCommericalSpots)
+            .drain(drained, count);
+        int next = 0;
+        for (int i = 0; i < plates.length; i++) {
+            if (plates[i] != null && flags[i] == flag) {
+                if (next < taken) {
+                    spots[i] = drained[next++];
+                    occupy(spots[i], plates[i], false);
+                } else if (flag == 1) {
+                    spots[i] = occupyCarSpotWithMotorcycle(plates[i]);
+                    if (spots[i] == null) {
+                        return;
+                    }
+                } else {
+                    return;
+                }
+            }
+        }
+    }
+
+    // One pass over the batch: releases every spot with the given spot type
+    protected final void releaseEach(ParkingSpot[] spots, String[] plates, int flag) {
+        for (int i = 0; i < spots.length; i++) {
+            if (spots[i] != null && flagOf(spots[i]) == flag) {
+                releaseSpot(spots[i], plates[i]);
+            }
+        }
+    }
+
+    /*
+     * Creates the spots of the table in their saved state, with their plates in the plate index.
+     * Every spot gets the number of its slot, so it keeps its record in the file. Slots without a
+     * committed record are skipped. Returns the spots, for restoreQueues.
+     * Throws exception if the lot is not empty
+     */
+    private List<ParkingSpot> restoreSpots(SpotTable table) throws IllegalArgumentException {
+        if (!parkingSpots.isEmpty()) {
+            throw new IllegalArgumentException("Lot is not empty");
+        }
+        int size = table.size();
+        List<ParkingSpot> restoredSpots = new ArrayList<>(size);
+        int[] counts = new int[9]; // Restored spots by type and state, counted once at the end
+        for (int slot = 0; slot < size; slot++) {
+            if (!table.isCommitted(slot)) {
+                continue; // A crash cut off the record before it was complete
+            }
+            int id = table.getId(slot);
+            double distance = table.getDistance(slot);
+            int type = table.getType(slot);
+            ParkingSpot spot = type == 0 ? new CarSpot(id, distance)
+                             : type == 1 ? new MotorcycleSpot(id, distance) : new CommericalSpot(id, distance);
+            spot.number = slot;
+            if (parkingSpots.putIfAbsent(id, spot) != null) {
+                continue; // Never written twice by a lot
+            }
+            boolean motorcycles = type == 0 && table.getMotorcycleCount(slot) > 0;
+            restoreOccupancy(spot, table.getPlate(slot), motorcycles);
+            restoreOccupancy(spot, table.getPlate2(slot), motorcycles);
+            counts[3 * flagOf(spot) + OccupancyCounter.stateOf(spot)]++;
+            restoredSpots.add(spot);
+        }
+        for (int i = 0; i < counts.length; i++) {
+            occupancy[i / 3].added(i % 3, counts[i]);
+        }
+        nextSpotNumber.set(size);
+        return restoredSpots;
+    }
+
+    // Occupies the restored spot with a saved plate (0 = none), and adds it to the plate index
+    private void restoreOccupancy(ParkingSpot spot, long code, boolean motorcycle) {
+        if (code == 0) {
+            return;
+        }
+        String plate = PlateCodec.decode(code);
+        if (motorcycle) {
+            ((CarSpot) spot).occupyWithMotorcycle(plate);
+        } else {
+            spot.occupy(plate);
+        }
+        plateToSpot.put(plate, spot);
+    }
+
+    // Gives the new spot the next number of the lot. Returns the spot
+    protected <T extends ParkingSpot> T numbered(T spot) {
+        spot.number = nextSpotNumber.getAndIncrement();
+        return spot;
+    }
+
+    // Appends the spot to the file, which cannot be done if the file cannot be grown
+    private static void appendToFile(MappedSpotFile file, ParkingSpot spot) {
+        try {
+            file.append(spot);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Returns the flag of the spot's type: 0 = car spot, 1 = motorcycle spot, 2 = commercial spot
+    protected static int flagOf(ParkingSpot spot) {
+        return spot instanceof CarSpot ? 0 : spot instanceof MotorcycleSpot ? 1 : 2;
     }
 
-    ///// HELPER METHODS /////
-    
     /*
      * Formats the inputted license plate string to get rid of all spaces, special chars, 
-     * as well as capitalize all inputted letters. Throws exception if plate is too long or short
+     * as well as capitalize all inputted letters (see PlateCodec). Throws exception if plate is too
+     * long or short
     */
-    private String formatPlate(String input) throws IllegalArgumentException {
-        input = input.replaceAll("[^a-zA-Z0-9]", "").toUpperCase();
-        if (input.length() < 5 || input.length() > 7) {
-            throw new IllegalArgumentException("Plate is too long or short");
-        }
-        return input;
+    protected String formatPlate(String input) throws IllegalArgumentException {
+        return PlateCodec.normalize(input);
     }
 
     /* 
@@ -255,11 +1056,66 @@ public class ParkingLot {
      * Throws exception if yes
     */
     private void checkDuplicatePlate(String plate) throws IllegalArgumentException {
-        if (licensePlates.contains(plate)) {
+        if (plateToSpot.containsKey(plate)) {
             throw new IllegalArgumentException("Plate already exists");
         }
     }
 
+    // Polls the furthest spot from the queue and occupies it with plate. Returns null if empty
+    protected <T extends ParkingSpot> T occupyFromQueue(SpotHeap<T> queue, String plate) {
+        return occupyFromQueue(queue, plate, null);
+    }
+
+    // Same as above, but takes the spot with the shortest route in routes if routes is not null
+    protected <T extends ParkingSpot> T occupyFromQueue(SpotHeap<T> queue, String plate, ShortestPathTree routes) {
+        T spotToOccupy = pollFromQueue(queue, routes);
+        if (spotToOccupy != null) {
+            occupy(spotToOccupy, plate, false);
+        }
+        return spotToOccupy;
+    }
+
+    /*
+     * Removes and returns the furthest spot of the queue if routes is null, otherwise the spot with
+     * the shortest route from the source (entrance) of routes. Returns null if the queue is empty.
+     * REQUIRES: the source of routes is a registered entrance
+     */
+    protected <T extends ParkingSpot> T pollFromQueue(SpotHeap<T> queue, ShortestPathTree routes) {
+        if (routes == null) {
+            return queue.poll();
+        }
+        return queue.pollNearest(entranceNumbers.get(routes.getSource()), routes);
+    }
+
+    /*
+     * Returns the shortest path tree of the entrance in the lot's graph, null if entrance is null.
+     * Registers the entrance first if no vehicle has come in through it yet
+     */
+    protected ShortestPathTree routesFrom(Vertex entrance) {
+        if (entrance == null) {
+            return null;
+        }
+        if (!entranceNumbers.containsKey(entrance)) {
+            registerEntrance(entrance);
+        }
+        return graph.getShortestPathTree(entrance);
+    }
+
+    /*
+     * Gives the entrance vertex the next entrance number, and adds it to the route queues of every
+     * spot type (one shortest path tree for all of them). Does nothing if it already has a number
+     */
+    protected void registerEntrance(Vertex entrance) {
+        if (entranceNumbers.containsKey(entrance)) {
+            return;
+        }
+        ShortestPathTree routes = graph.getShortestPathTree(entrance);
+        carRoutes.addEntrance(routes);
+        motorcycleRoutes.addEntrance(routes);
+        commercialRoutes.addEntrance(routes);
+        entranceNumbers.put(entrance, entranceNumbers.size());
+    }
+
     /*
      * Finds and returns the parking spot based on id. Returns null if id doesn't exist.
      * Should have O(1) runtime
@@ -303,30 +1159,42 @@ public class ParkingLot {
      * 
      * Returns the spot that was occupied
      */
-    private CarSpot occupyCarSpotWithMotorcycle(String plate) {
-        CarSpot carSpotHalfOccupied = halfFullCarSpots.poll();
+    protected CarSpot occupyCarSpotWithMotorcycle(String plate) {
+        return occupyCarSpotWithMotorcycle(plate, null);
+    }
+
+    // Same as above, but takes the spots with the shortest route in routes if routes is not null
+    protected CarSpot occupyCarSpotWithMotorcycle(String plate, ShortestPathTree routes) {
+        CarSpot carSpotHalfOccupied = pollFromQueue(halfFullCarSpots, routes);
         if (carSpotHalfOccupied == null) {
-            CarSpot emptyCarSpot = vacantCarSpots.poll();
+            CarSpot emptyCarSpot = pollFromQueue(vacantCarSpots, routes);
             if (emptyCarSpot == null) {
                 return null; // Exceptional case where there are no half full or full spots left
             }
             
-            emptyCarSpot.occupyWithMotorcycle(plate);
+            occupy(emptyCarSpot, plate, true);
             halfFullCarSpots.add(emptyCarSpot);
             return emptyCarSpot; // Case where there are no half full spots, but there are empty spots
         }
 
-        carSpotHalfOccupied.occupyWithMotorcycle(plate);
+        occupy(carSpotHalfOccupied, plate, true);
         return carSpotHalfOccupied; // Case where there are half full spots
     }
 
     ///// GETTER METHODS /////
     
     public String getName() { return name;}
-    public HashMap<Integer, ParkingSpot> getParkingSpots() { return parkingSpots; }
-    public HashSet<String> getLicensePlates() { return licensePlates; }
-    public PriorityQueue<CarSpot> getVacantCarSpots() { return vacantCarSpots; }
-    public PriorityQueue<CommericalSpot> getVacantCommericalSpots() { return vacantCommericalSpots; }
-    public PriorityQueue<MotorcycleSpot> getVacantMotorcycleSpots() { return vacantMotorcycleSpots; }
-    public PriorityQueue<CarSpot> getHalfFullCarSpots() { return halfFullCarSpots; }
+    public ParkingLotGraph getGraph() { return graph; }
+    public Map<Integer, Vertex> getEntrances() { return entrances; }
+    public Map<Integer, ParkingSpot> getParkingSpots() { return parkingSpots; }
+    public Set<String> getLicensePlates() { return plateToSpot.keySet(); }
+    public Map<String, ParkingSpot> getPlateToSpot() { return plateToSpot; }
+    public MappedSpotFile getSpotFile() { return spotFile; }
+    public EventLog getEventLog() { return eventLog; }
+    public LotMetrics getMetrics() { return metrics; }
+    public SpotChangePublisher getChangePublisher() { return changePublisher; }
+    public SpotHeap<CarSpot> getVacantCarSpots() { return vacantCarSpots; }
+    public SpotHeap<CommericalSpot> getVacantCommericalSpots() { return vacantCommericalSpots; }
+    public SpotHeap<MotorcycleSpot> getVacantMotorcycleSpots() { return vacantMotorcycleSpots; }
+    public SpotHeap<CarSpot> getHalfFullCarSpots() { return halfFullCarSpots; }
 }
@@ -1,9 +1,7 @@
 package model;
 
 import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.Map;
-import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
 
 import exception.GraphDisconnectedException;
 
@@ -12,9 +10,21 @@ import exception.GraphDisconnectedException;
 
 Represents a non-directional graph for the parking lot, which is used to pre-compute the shortest 
 path from entrance to the desired parking spot, using (Dijkstra's shortes path algorithm), so the 
-shortest path can be instantly retrieved when the spot is requested
+shortest path can be instantly retrieved when the spot is requested to be occupied. 
+Uses an adjacency list implementations
 
-requested to be occupied. Uses an adjacency list implementations
+The pre-computed shortest paths are stored as one shortest path tree per entrance 
+(getShortestPathTree), which is only computed again after the graph has changed. The trees are
+computed on a compact, primitive array snapshot of the graph (CompactGraph); this class stays the
+mutable "builder" of the graph.
+
+If the vertices have coordinates (x, y, level), findShortestPathAStar routes with A*, which explores
+far fewer vertices than dijkstra's algorithm on big lots. rampCost is the least extra distance of
+driving one level up or down.
+
+Queries (findShortestPath, getShortestPathTree, findCachedShortestPath) keep no state in the graph
+or the vertices, so many threads can compute routes on the same graph in parallel. Changing the
+graph (adding vertices, connecting or disconnecting) must not run at the same time as other calls.
  */
 public class ParkingLotGraph {
 
@@ -27,10 +37,27 @@ public class ParkingLotGraph {
      */
     HashSet<Vertex> allVertices;
 
+    /*
+     * Shortest path trees that have been computed, by source vertex (entrance). Cleared whenever an
+     * edge is connected or disconnected, since the shortest paths may have changed.
+     */
+    private ConcurrentHashMap<Vertex, ShortestPathTree> shortestPathTrees;
+
+    // Compact snapshot of the current graph, null until requested or after the graph has changed
+    private volatile CompactGraph compactGraph;
+
+    // Least extra distance for moving one level up or down, used by the A* estimate
+    private double rampCost;
+
+    // Metrics the searches are recorded to, null if the graph is not measured
+    private volatile LotMetrics metrics;
+
     // Creates a new graph with no vertices, and an set id
     public ParkingLotGraph(String id) {
         this.id = id + " GRAPH";
         allVertices = new HashSet<>();
+        shortestPathTrees = new ConcurrentHashMap<>();
+        rampCost = 0;
     }
 
     /*
@@ -38,7 +65,9 @@ public class ParkingLotGraph {
      * does nothing.
      */
     public void addVertex(Vertex vertex) {
-        allVertices.add(vertex);
+        if (allVertices.add(vertex)) {
+            compactGraph = null;
+        }
     }
 
     /*
@@ -46,11 +75,46 @@ public class ParkingLotGraph {
      * If the 2 vertices are already connected, simply change the distance, because there cannot be 
      * duplicate edges. The hashmap ensures it. 
      * 
+     * Both vertices are added to the graph if they are not in it yet.
+     * 
      * REQUIRES: Distance must be positive (no negative weight edges allowed)
      */
     public void connectVertices(Vertex vertex1, Vertex vertex2, double distance) {
-        vertex1.getAdjacentVertices().put(vertex2, distance);
+        addVertex(vertex1);
+        addVertex(vertex2);
+        Double oldDistance = vertex1.getAdjacentVertices().put(vertex2, distance);
         vertex2.getAdjacentVertices().put(vertex1, distance);
+        if (oldDistance == null || oldDistance != distance) {
+            graphChanged();
+        }
+    }
+
+    /*
+     * Adds every vertex and edge of the snapshot to this graph at once, and keeps the snapshot as
+     * the compact graph instead of building it again from the adjacency maps. Used by LotLoader to
+     * load a whole graph. If the graph was not empty, or the snapshot has an edge twice (or from a
+     * vertex to itself), the adjacency maps keep one edge as connectVertices would, and the snapshot
+     * is built again when needed.
+     */
+    void addAll(CompactGraph graph) {
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        double[] weights = graph.getWeights();
+        boolean simple = allVertices.isEmpty();
+        for (int v = 0; v < graph.getVertexCount(); v++) {
+            Vertex vertex = graph.getVertex(v);
+            allVertices.add(vertex);
+            vertex.reserveEdges(offsets[v + 1] - offsets[v]);
+            for (int edge = offsets[v]; edge < offsets[v + 1]; edge++) {
+                Vertex target = graph.getVertex(targets[edge]);
+                simple &= vertex.getAdjacentVertices().put(target, weights[edge]) == null && target != vertex;
+            }
+        }
+        graphChanged();
+        if (simple) {
+            graph.reportTo(metrics);
+            compactGraph = graph;
+        }
     }
 
     /*
@@ -61,6 +125,7 @@ public class ParkingLotGraph {
         if (isConnected(vertex1, vertex2)) {
             vertex1.getAdjacentVertices().remove(vertex2);
             vertex2.getAdjacentVertices().remove(vertex1);
+            graphChanged();
         }
     }
 
@@ -68,78 +133,97 @@ public class ParkingLotGraph {
      * MOST IMPORTANT METHOD: COMPUTES THE SHORTEST PATH FROM START VERTEX TO END VERTEX
      * 
      * Returns the Shortest path int the form of a wrapper class that contains the path as well as
-     * shortest distance
+     * shortest distance. The search stops as soon as the end vertex is settled.
      * Also throws exception if graph is disconnected
      */
     public ShortestPath findShortestPath(Vertex start, Vertex end) throws GraphDisconnectedException {
-        // Before finding shortest path, set all vertex distances to infinity,
-        // all unvisited, predecessors to null.
-        initialize();
-        start.setDistance(0);
-
-        // Initialize priority queue, and only add the start vertex
-        PriorityQueue<Vertex> shPriorityQueue = new PriorityQueue<>((v1, v2) ->
-            Double.compare(v1.getDistance(), v2.getDistance()));
-        shPriorityQueue.add(start);
-
-        // Set the predecessors for the shortest path, then obtain it when the algorithm is done
-        setPredecessors(shPriorityQueue);
-    
-        return getShortestPath(start, end); // Stub
+        // Runs on the compact snapshot, with a search context from its pool
+        return getCompactGraph().findShortestPath(start, end);
     }
 
-    ///// HELPER METHODS /////
-    
-    // Iteratively run dijkstra's algorithm to compute the shortest path
-    private void setPredecessors(PriorityQueue<Vertex> pq) {
-        // Set the current node to visited.
-        while (!pq.isEmpty()) {
-            Vertex curr = pq.poll();
-            curr.setVisited(true);
-            for (Map.Entry<Vertex, Double> entry: curr.getAdjacentVertices().entrySet()) {
-                Vertex neighbour = entry.getKey();
-                double newDistance = curr.getDistance() + entry.getValue();
-                if (!neighbour.getVisited() && newDistance < neighbour.getDistance()) {
-                    // If current vertex is not visited and the current shortest path distance is shorter
-                    // than the vertex's distance, update distance, and set predecessor to curr.
-                    neighbour.setDistance(newDistance);
-                    neighbour.setPredecessor(curr);
-                    pq.add(neighbour);
+    /*
+     * Same as findShortestPath, but searches from both ends at once (bidirectional dijkstra's), which
+     * explores fewer vertices on big graphs when the end is far from the start.
+     * Throws exception if graph is disconnected
+     */
+    public ShortestPath findShortestPathBidirectional(Vertex start, Vertex end) throws GraphDisconnectedException {
+        return getCompactGraph().findShortestPathBidirectional(start, end);
+    }
+
+    /*
+     * Same as findShortestPath, but uses A* with the coordinates of the vertices, which only explores
+     * vertices roughly in the direction of end. Uses dijkstra's algorithm if a vertex has no coordinates.
+     * Throws exception if graph is disconnected
+     */
+    public ShortestPath findShortestPathAStar(Vertex start, Vertex end) throws GraphDisconnectedException {
+        return getCompactGraph().findShortestPathAStar(start, end, rampCost);
+    }
+
+    /*
+     * Sets the position of a vertex of the graph. The shortest paths do not change (only edges
+     * change them), so only the compact snapshot is rebuilt.
+     * REQUIRES: see Vertex.setCoordinates
+     */
+    public void setCoordinates(Vertex vertex, double x, double y, int level) {
+        vertex.setCoordinates(x, y, level);
+        compactGraph = null;
+    }
+
+    /*
+     * Returns the shortest path tree from the entrance to every vertex of the graph. The tree is 
+     * computed (one run of Dijkstra's algorithm) the first time it is requested, then reused until 
+     * the graph changes. Use the tree to look up the shortest path to any spot in O(path length).
+     */
+    public ShortestPathTree getShortestPathTree(Vertex entrance) {
+        // Threads asking for the same entrance at once wait for one computation
+        return shortestPathTrees.computeIfAbsent(entrance, e -> getCompactGraph().computeShortestPathTree(e));
+    }
+
+    /*
+     * Returns the shortest path from entrance to end, using the cached shortest path tree of the
+     * entrance. Throws exception if end cannot be reached from the entrance
+     */
+    public ShortestPath findCachedShortestPath(Vertex entrance, Vertex end) throws GraphDisconnectedException {
+        return getShortestPathTree(entrance).getShortestPath(end);
+    }
+
+    /*
+     * Returns the compact (CSR) snapshot of the graph as it is now. The snapshot is built once,
+     * and reused until a vertex is added or an edge is connected or disconnected.
+     */
+    public CompactGraph getCompactGraph() {
+        CompactGraph graph = compactGraph;
+        if (graph == null) {
+            synchronized (this) {
+                graph = compactGraph;
+                if (graph == null) {
+                    graph = new CompactGraph(allVertices);
+                    graph.reportTo(metrics);
+                    compactGraph = graph;
                 }
             }
         }
+        return graph;
     }
 
     /*
-     * Gets the shortest path by tracking the predecessors from end to start
-     * Throws GraphDisconnectedException if there is no path from end to start (graph disconnected)
+     * Records every search on the graph (the vertices it expanded) to the metrics from now on, null
+     * to stop recording. Searches with a context given by the caller are not recorded.
      */
-    private ShortestPath getShortestPath(Vertex start, Vertex end) throws GraphDisconnectedException {
-        ShortestPath sp = new ShortestPath(new LinkedList<>(), end.getDistance());
-        Vertex curr = end;
-
-        // Iteratively add the vertices starting from the back
-        LinkedList<Vertex> path = sp.getPath();
-        while (curr != start) {
-            if (curr == null) {
-                throw new GraphDisconnectedException("Graph is disconnected");
-            }
-            path.addFirst(curr);
-            curr = curr.getPredecessor();
+    public void reportTo(LotMetrics metrics) {
+        this.metrics = metrics;
+        CompactGraph graph = compactGraph;
+        if (graph != null) {
+            graph.reportTo(metrics);
         }
-        // Manually handle the last iteration
-        path.addFirst(curr);
-
-        return sp;
     }
 
-    // Initializes the dijkstra's algorithm by setting all distances to 0, and all unvisited
-    private void initialize() {
-        for (Vertex vertex: allVertices) {
-            vertex.setDistance(Double.POSITIVE_INFINITY);
-            vertex.setVisited(false);
-            vertex.setPredecessor(null);
-        }
+    ///// HELPER METHODS /////
+
+    // Throws away the compact snapshot and the shortest path trees computed on the old graph
+    private void graphChanged() {
+        compactGraph = null;
+        shortestPathTrees.clear();
     }
 
     // Return true if the 2 vertices are connected, false if not
@@ -147,9 +231,19 @@ public class ParkingLotGraph {
         return vertex1.getAdjacentVertices().containsKey(vertex2);
     }
 
+    ///// SETTER METHODS /////
+
+    /*
+     * Sets the least extra distance of moving one level up or down.
+     * REQUIRES: rampCost >= 0, and every edge between levels is at least that much longer than the
+     * straight line distance, per level
+     */
+    public void setRampCost(double rampCost) { this.rampCost = rampCost; }
+
     ///// GETTER METHODS /////
     
     public String getId() { return id; }
+    public double getRampCost() { return rampCost; }
     public HashSet<Vertex> getAllVertices() { return allVertices; }
 
 }
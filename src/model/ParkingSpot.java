@@ -5,8 +5,11 @@ package model;
 
  The parking spot class, which represents an individual parking spot. It has a distinct id, distance 
  from entrance, and occupied status. Also, it records the license plate of the vehicle parked in it.
+
+ A parking spot is also a vertex ("P_id") of the parking lot graph, so it can be connected to the
+ intersections of its aisle, and ranked by its route distance from the entrance a vehicle came in.
  */
-public abstract class ParkingSpot {
+public abstract class ParkingSpot extends Vertex {
 
     /*
      * License plate number of parked vehicle
@@ -28,15 +31,25 @@ public abstract class ParkingSpot {
     // True of parking spot is occupied, false otherwise.
     protected boolean occupied;
 
+    /*
+     * Number of the spot in its lot (0, 1, 2... in the order the lot added the spots), -1 if it is
+     * in no lot. The lot and its queues keep what they need per spot (heap positions, route slots,
+     * claims) in their own arrays indexed by this number, not in the spot; the file of a persistent
+     * lot keeps the spot's record at this slot.
+     */
+    int number;
+
     /*
      * Constructs a new empty parking spot with given id, distance from entrance,
      * and unoccupied status
      */
     public ParkingSpot(int parkingSpotId, double distance) {
+        super(null); // The id "P_id" is made by getId
         this.parkingSpotId = parkingSpotId;
         this.distance = distance;
         this.licensePlate = "";
         this.occupied = false;
+        this.number = -1;
     }
 
     // Occupies the spot and sets the license plate
@@ -55,6 +68,13 @@ public abstract class ParkingSpot {
 
     ///// GETTER METHODS /////
 
+    // Id of the spot as a vertex of the lot's graph: "P_id" (made when asked for, not kept per spot)
+    @Override
+    public String getId() {
+        String id = super.getId();
+        return id != null ? id : "P_" + parkingSpotId;
+    }
+
     public double getDistance() { return distance; }
     public int getParkingSpotId() { return parkingSpotId; }
     public boolean getOccupiedStatus() { return occupied; }
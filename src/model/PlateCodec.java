@@ -0,0 +1,121 @@
+package model;
+
+/*
+Formats and validates license plates without regular expressions, and packs plates into a long.
+
+A plate is formatted by dropping every character that is not a letter or digit (ASCII) and
+uppercasing the letters; the formatted plate must be 5 to 7 characters long. normalize() does this
+in a single pass over the characters, and returns the input itself (no allocation) if it is already
+formatted, which is the common case for plates read back from the lot.
+
+A formatted plate fits in a long: every character is a 6 bit code (1 to 10 for the digits, 11 to 36
+for the letters, 0 for no character), and the 7 codes are packed from the high bits down, so a
+shorter plate ends with zero codes. Two plates are equal iff their codes are equal, so the code can
+be used as a primitive key (e.g. in fixed size records) instead of the String.
+*/
+public final class PlateCodec {
+
+    // Shortest and longest formatted plates
+    public static final int MIN_LENGTH = 5;
+    public static final int MAX_LENGTH = 7;
+
+    // Bits per character code
+    private static final int BITS = 6;
+
+    private PlateCodec() {}
+
+    /*
+     * Formats the plate: drops all characters that are not letters or digits and uppercases the
+     * letters. Throws exception if the formatted plate is not 5 to 7 characters long
+     */
+    public static String normalize(String input) throws IllegalArgumentException {
+        int length = 0;
+        boolean formatted = true; // True while the input has only uppercase letters and digits
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (isDigitOrUpper(c)) {
+                length++;
+            } else if (c >= 'a' && c <= 'z') {
+                length++;
+                formatted = false;
+            } else {
+                formatted = false;
+            }
+        }
+        checkLength(length);
+        if (formatted) {
+            return input;
+        }
+        char[] plate = new char[length];
+        int next = 0;
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (isDigitOrUpper(c)) {
+                plate[next++] = c;
+            } else if (c >= 'a' && c <= 'z') {
+                plate[next++] = (char) (c - 'a' + 'A');
+            }
+        }
+        return new String(plate);
+    }
+
+    /*
+     * Formats the plate (as in normalize) and packs it into a long, without creating the formatted
+     * String. Throws exception if the formatted plate is not 5 to 7 characters long
+     */
+    public static long encode(String input) throws IllegalArgumentException {
+        long code = 0;
+        int length = 0;
+        for (int i = 0; i < input.length(); i++) {
+            int c = charCode(input.charAt(i));
+            if (c != 0) {
+                if (++length > MAX_LENGTH) {
+                    break;
+                }
+                code |= (long) c << (BITS * (MAX_LENGTH - length));
+            }
+        }
+        checkLength(length);
+        return code;
+    }
+
+    // Returns the formatted plate packed in the code
+    // REQUIRES: code was returned by encode
+    public static String decode(long code) {
+        char[] plate = new char[MAX_LENGTH];
+        int length = 0;
+        while (length < MAX_LENGTH) {
+            int c = (int) (code >>> (BITS * (MAX_LENGTH - 1 - length))) & ((1 << BITS) - 1);
+            if (c == 0) {
+                break;
+            }
+            plate[length++] = (char) (c <= 10 ? '0' + c - 1 : 'A' + c - 11);
+        }
+        return new String(plate, 0, length);
+    }
+
+    ///// HELPER METHODS /////
+
+    // Returns the 6 bit code of the character, 0 if it is dropped from plates
+    private static int charCode(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0' + 1;
+        } else if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 11;
+        } else if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 11;
+        }
+        return 0;
+    }
+
+    private static boolean isDigitOrUpper(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z');
+    }
+
+    // Throws exception if the formatted plate has the wrong length
+    private static void checkLength(int length) throws IllegalArgumentException {
+        if (length < MIN_LENGTH || length > MAX_LENGTH) {
+            throw new IllegalArgumentException("Plate is too long or short");
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package model;
+
+/*
+Maps packed plates (PlateCodec) to the slot of the spot they are parked in, with an open addressing
+hash table of primitives (linear probing). It replaces a HashMap<String, ParkingSpot> in
+CompactParkingLot: no String, boxed key or entry object per parked vehicle.
+
+The code 0 marks an empty entry; PlateCodec never gives it to a plate. Removal shifts the following
+entries of the run back, so no tombstones are left behind.
+*/
+class PlateIndex {
+
+    // Plate codes and slots of the entries, 0 = empty entry
+    private long[] plates;
+    private int[] slots;
+
+    // Number of plates in the index
+    private int size;
+
+    // Constructs an empty index
+    PlateIndex() {
+        this.plates = new long[64];
+        this.slots = new int[64];
+        this.size = 0;
+    }
+
+    // Returns the slot of the plate, -1 if the plate is not in the index
+    int get(long plate) {
+        int mask = plates.length - 1;
+        for (int i = hash(plate) & mask; plates[i] != 0; i = (i + 1) & mask) {
+            if (plates[i] == plate) {
+                return slots[i];
+            }
+        }
+        return -1;
+    }
+
+    // Adds the plate with the given slot. Returns false (and does nothing) if the plate is in the index
+    boolean put(long plate, int slot) {
+        int mask = plates.length - 1;
+        int i = hash(plate) & mask;
+        while (plates[i] != 0) {
+            if (plates[i] == plate) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        plates[i] = plate;
+        slots[i] = slot;
+        if (++size > plates.length / 2) {
+            resize(plates.length * 2);
+        }
+        return true;
+    }
+
+    // Removes the plate. Returns its slot, -1 if the plate was not in the index
+    int remove(long plate) {
+        int mask = plates.length - 1;
+        int i = hash(plate) & mask;
+        while (plates[i] != plate) {
+            if (plates[i] == 0) {
+                return -1;
+            }
+            i = (i + 1) & mask;
+        }
+        int slot = slots[i];
+        size--;
+
+        // Moves every later entry of the run that may not be behind the hole back into it
+        int hole = i;
+        for (int j = (i + 1) & mask; plates[j] != 0; j = (j + 1) & mask) {
+            int home = hash(plates[j]) & mask;
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                plates[hole] = plates[j];
+                slots[hole] = slots[j];
+                hole = j;
+            }
+        }
+        plates[hole] = 0;
+        return slot;
+    }
+
+    int size() { return size; }
+
+    ///// HELPER METHODS /////
+
+    // Moves all entries into new tables of the given length
+    private void resize(int length) {
+        long[] oldPlates = plates;
+        int[] oldSlots = slots;
+        plates = new long[length];
+        slots = new int[length];
+        int mask = length - 1;
+        for (int j = 0; j < oldPlates.length; j++) {
+            if (oldPlates[j] != 0) {
+                int i = hash(oldPlates[j]) & mask;
+                while (plates[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                plates[i] = oldPlates[j];
+                slots[i] = oldSlots[j];
+            }
+        }
+    }
+
+    // Mixes the bits of the code, since plates differ mostly in their low characters
+    private static int hash(long plate) {
+        long h = plate * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
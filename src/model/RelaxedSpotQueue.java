@@ -0,0 +1,114 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+A lock free, approximately ordered queue of vacant spots (a "multi-queue"). The spots are split
+over a number of shards, each one a lock free skip list sorted furthest spot first. Polling looks at
+the furthest spot of 2 randomly chosen shards and takes the further of the two. Gates polling at
+the same time therefore mostly work on different shards instead of all waiting on one heap.
+
+The price is that poll does not always return THE furthest spot. With k shards, the spot returned
+is on average within about the k furthest spots (rank error is O(k) in expectation). Every spot
+always goes into the same shard (chosen by its id), so a spot is never in the queue twice.
+
+Queue membership is only a hint for LockFreeParkingLot: a spot may still be in the queue while
+it is already claimed. Whoever polls it must claim it with a compare-and-set on the spot, and
+simply polls again if that fails.
+*/
+public class RelaxedSpotQueue<T extends ParkingSpot> {
+
+    // Furthest spot first, ties broken by id so every spot is a distinct key
+    private static final Comparator<ParkingSpot> FURTHEST_FIRST = (a, b) -> {
+        int byDistance = Double.compare(b.getDistance(), a.getDistance());
+        return byDistance != 0 ? byDistance : Integer.compare(a.getParkingSpotId(), b.getParkingSpotId());
+    };
+
+    // The shards. Skip list maps are used as sorted sets, since firstEntry() returns null if empty
+    private List<ConcurrentSkipListMap<T, Boolean>> shards;
+
+    // Constructs an empty queue with the given number of shards
+    // REQUIRES: shardCount > 0
+    public RelaxedSpotQueue(int shardCount) {
+        this.shards = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new ConcurrentSkipListMap<>(FURTHEST_FIRST));
+        }
+    }
+
+    // Adds the spot to its shard. Does nothing if it is already in the queue
+    public void add(T spot) {
+        shardOf(spot).putIfAbsent(spot, Boolean.TRUE);
+    }
+
+    // Removes the spot from the queue. Returns true if it was in the queue
+    public boolean remove(ParkingSpot spot) {
+        return shardOf(spot).remove(spot) != null;
+    }
+
+    /*
+     * Removes and returns an approximately furthest spot: the further of the first spots of 2
+     * random shards. If both of them are empty, all shards are checked before giving up.
+     * Returns null if the whole queue is empty
+     */
+    public T poll() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (true) {
+            T candidate = further(first(shards.get(random.nextInt(shards.size()))),
+                                  first(shards.get(random.nextInt(shards.size()))));
+            if (candidate == null) {
+                // Both chosen shards are empty, fall back to the furthest first spot of any shard
+                for (ConcurrentSkipListMap<T, Boolean> shard: shards) {
+                    candidate = further(candidate, first(shard));
+                }
+                if (candidate == null) {
+                    return null;
+                }
+            }
+            // Another gate may have taken the candidate since we looked at it, then try again
+            if (remove(candidate)) {
+                return candidate;
+            }
+        }
+    }
+
+    // Returns the number of spots in the queue. Not exact while other threads are using the queue
+    public int size() {
+        int size = 0;
+        for (ConcurrentSkipListMap<T, Boolean> shard: shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    public int getShardCount() { return shards.size(); }
+
+    ///// HELPER METHODS /////
+
+    // Returns the shard that the spot always goes into (spreads patterned ids over the shards)
+    private ConcurrentSkipListMap<T, Boolean> shardOf(ParkingSpot spot) {
+        int hash = spot.getParkingSpotId() * 0x9E3779B9;
+        return shards.get(Math.floorMod(hash ^ (hash >>> 16), shards.size()));
+    }
+
+    // Returns the furthest spot of the shard, null if shard is empty
+    private T first(ConcurrentSkipListMap<T, Boolean> shard) {
+        Map.Entry<T, Boolean> entry = shard.firstEntry();
+        return entry == null ? null : entry.getKey();
+    }
+
+    // Returns the further of the 2 spots, ignoring nulls
+    private T further(T a, T b) {
+        if (a == null) {
+            return b;
+        } else if (b == null) {
+            return a;
+        }
+        return FURTHEST_FIRST.compare(a, b) <= 0 ? a : b;
+    }
+}
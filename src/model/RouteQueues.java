@@ -0,0 +1,264 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/*
+Orders the vacant spots of ONE spot type by route distance from every entrance of the lot, so a
+vehicle can be given the nearest spot to its entrance in O(1) (peek) instead of a pass over all
+vacant spots. There is one RouteQueues per spot type; the car spots have 2 queues (vacant and half
+full), the other types have 1.
+
+The queues mirror the SpotHeaps of the parking lot: every SpotHeap is attached to one queue, and
+tells it about every spot that is added or removed. Each add or remove updates the heap of every
+entrance in O(log n), so nothing is rebuilt when spots are occupied or freed. The orders are only
+rebuilt (in O(n), from the new shortest path tree) after the lot's graph has changed.
+
+Spots get a dense number (slot) in the order they are first seen, so the heaps of every entrance
+are primitive arrays of slots; the slot of a spot is kept in an array by its number in the lot.
+Every spot is in at most one queue at a time (a car spot is either vacant or half full), so one
+position array per entrance serves all queues.
+*/
+public class RouteQueues<T extends ParkingSpot> {
+
+    // Spot of every slot, and the slot of every spot by its number in the lot (-1 if it has none)
+    private ArrayList<T> spots;
+    private int[] slots;
+
+    // The SpotHeap attached to every queue
+    private ArrayList<SpotHeap<T>> heaps;
+
+    // Order of the spots for every entrance, by entrance number
+    private ArrayList<EntranceOrder> orders;
+
+    // Constructs empty route queues with the given number of queues (SpotHeaps)
+    public RouteQueues(int queueCount) {
+        this.spots = new ArrayList<>();
+        this.slots = new int[0];
+        this.heaps = new ArrayList<>();
+        this.orders = new ArrayList<>();
+        for (int q = 0; q < queueCount; q++) {
+            heaps.add(null);
+        }
+    }
+
+    /*
+     * Attaches the SpotHeap to the given queue: spots added to or removed from the heap from now on
+     * are added to or removed from the queue of every entrance.
+     * REQUIRES: the heap is empty and not attached to another queue
+     */
+    public void attach(int queue, SpotHeap<T> heap) {
+        heaps.set(queue, heap);
+        heap.attachRoutes(this, queue);
+    }
+
+    /*
+     * Adds an entrance with the given shortest path tree (routes from the entrance), and orders
+     * all vacant spots by it. Entrances are numbered 0, 1, 2... in the order they are added.
+     */
+    public void addEntrance(ShortestPathTree routes) {
+        EntranceOrder order = new EntranceOrder(heaps.size(), spots.size());
+        orders.add(order);
+        build(order, routes);
+    }
+
+    /*
+     * Returns the spot of the queue with the shortest route from the entrance, null if the queue is
+     * empty. If routes is a newer tree than the entrance was ordered by (the graph has changed), the
+     * order of the entrance is rebuilt first.
+     * REQUIRES: routes is the current shortest path tree of the entrance
+     */
+    public T nearest(int queue, int entrance, ShortestPathTree routes) {
+        EntranceOrder order = orders.get(entrance);
+        if (order.routes != routes) {
+            build(order, routes);
+        }
+        return order.sizes[queue] == 0 ? null : spots.get(order.heaps[queue][0]);
+    }
+
+    // Adds the spot to the queue of every entrance. Called by the attached SpotHeap
+    void added(int queue, T spot) {
+        int slot = slotOf(spot);
+        if (slot < 0) {
+            slot = addSlot(spot);
+        }
+        for (EntranceOrder order: orders) {
+            order.insert(queue, slot);
+        }
+    }
+
+    /*
+     * Adds every spot of the heap that was just built in bulk (SpotHeap.heapify) to the queues: gives
+     * the spots their slots, then rebuilds the order of every entrance once, in O(n), instead of
+     * inserting the spots one at a time. Called by the attached SpotHeap
+     */
+    void addedAll(SpotHeap<T> heap) {
+        spots.ensureCapacity(spots.size() + heap.size());
+        for (int i = 0; i < heap.size(); i++) {
+            T spot = heap.get(i);
+            if (slotOf(spot) < 0) {
+                addSlot(spot);
+            }
+        }
+        for (EntranceOrder order: orders) {
+            build(order, order.routes);
+        }
+    }
+
+    // Removes the spot from the queue of every entrance. Called by the attached SpotHeap
+    void removed(int queue, T spot) {
+        int slot = slotOf(spot);
+        for (EntranceOrder order: orders) {
+            order.remove(queue, slot);
+        }
+    }
+
+    ///// HELPER METHODS /////
+
+    // Returns the slot of the spot, -1 if it has none yet
+    private int slotOf(T spot) {
+        return spot.number < slots.length ? slots[spot.number] : -1;
+    }
+
+    // Gives the spot the next slot, with its route distance from every entrance. Returns the slot
+    private int addSlot(T spot) {
+        if (slots.length <= spot.number) {
+            int length = slots.length;
+            slots = Arrays.copyOf(slots, Math.max(spot.number + 1, Math.max(16, length * 2)));
+            Arrays.fill(slots, length, slots.length, -1);
+        }
+        int slot = spots.size();
+        slots[spot.number] = slot;
+        spots.add(spot);
+        for (EntranceOrder order: orders) {
+            order.ensureCapacity(spots.size());
+            order.distances[slot] = order.routes.getDistance(spot);
+            order.positions[slot] = -1;
+        }
+        return slot;
+    }
+
+    /*
+     * Recomputes the route distance of every slot from the tree (one lookup per spot in the already
+     * computed tree), then puts the spots of every attached SpotHeap in the queues and heapifies
+     * them bottom up, in O(n) in total
+     */
+    private void build(EntranceOrder order, ShortestPathTree routes) {
+        order.routes = routes;
+        order.ensureCapacity(spots.size());
+        for (int slot = 0; slot < spots.size(); slot++) {
+            order.distances[slot] = routes.getDistance(spots.get(slot));
+            order.positions[slot] = -1;
+        }
+        for (int q = 0; q < heaps.size(); q++) {
+            SpotHeap<T> heap = heaps.get(q);
+            int size = heap == null ? 0 : heap.size();
+            if (order.heaps[q].length < size) {
+                order.heaps[q] = new int[size];
+            }
+            for (int i = 0; i < size; i++) {
+                order.place(q, slotOf(heap.get(i)), i);
+            }
+            order.sizes[q] = size;
+            for (int i = size / 2 - 1; i >= 0; i--) {
+                order.siftDown(q, order.heaps[q][i], i);
+            }
+        }
+    }
+
+    /*
+     * The queues of one entrance: binary MIN heaps of slots on the route distance from the entrance.
+     * Works like IndexMinHeap, with one heap array per queue and one shared position array.
+     */
+    private static class EntranceOrder {
+
+        // Shortest path tree the distances were taken from
+        private ShortestPathTree routes;
+
+        // Route distance from the entrance, and position in its queue's heap (-1 if none), by slot
+        private double[] distances;
+        private int[] positions;
+
+        // Slots in heap order, and the number of slots, of every queue
+        private int[][] heaps;
+        private int[] sizes;
+
+        private EntranceOrder(int queueCount, int capacity) {
+            this.distances = new double[Math.max(capacity, 16)];
+            this.positions = new int[distances.length];
+            this.heaps = new int[queueCount][16];
+            this.sizes = new int[queueCount];
+        }
+
+        // Grows the slot arrays to hold at least the given number of slots
+        private void ensureCapacity(int capacity) {
+            if (distances.length < capacity) {
+                int length = Math.max(capacity, distances.length * 2);
+                distances = Arrays.copyOf(distances, length);
+                positions = Arrays.copyOf(positions, length);
+            }
+        }
+
+        // Adds the slot to the heap of the queue
+        private void insert(int queue, int slot) {
+            if (sizes[queue] == heaps[queue].length) {
+                heaps[queue] = Arrays.copyOf(heaps[queue], sizes[queue] * 2);
+            }
+            siftUp(queue, slot, sizes[queue]++);
+        }
+
+        // Removes the slot from the heap of the queue, by moving the last slot into its place
+        private void remove(int queue, int slot) {
+            int i = positions[slot];
+            positions[slot] = -1;
+            int last = heaps[queue][--sizes[queue]];
+            if (i < sizes[queue]) {
+                siftUp(queue, last, i);
+                if (positions[last] == i) {
+                    siftDown(queue, last, i);
+                }
+            }
+        }
+
+        // Moves the slot up from index i until its parent is not further
+        private void siftUp(int queue, int slot, int i) {
+            int[] heap = heaps[queue];
+            double distance = distances[slot];
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (distances[heap[parent]] <= distance) {
+                    break;
+                }
+                place(queue, heap[parent], i);
+                i = parent;
+            }
+            place(queue, slot, i);
+        }
+
+        // Moves the slot down from index i until none of its children are nearer
+        private void siftDown(int queue, int slot, int i) {
+            int[] heap = heaps[queue];
+            int size = sizes[queue];
+            double distance = distances[slot];
+            int half = size / 2;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && distances[heap[child + 1]] < distances[heap[child]]) {
+                    child++;
+                }
+                if (distance <= distances[heap[child]]) {
+                    break;
+                }
+                place(queue, heap[child], i);
+                i = child;
+            }
+            place(queue, slot, i);
+        }
+
+        // Places the slot at index i of the heap of the queue, and records its position
+        private void place(int queue, int slot, int i) {
+            heaps[queue][i] = slot;
+            positions[slot] = i;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package model;
+
+import java.util.Arrays;
+
+/*
+Holds the per query state of a shortest path search on a CompactGraph: the distance, predecessor
+and settled flag of every vertex number, and the priority queue. Keeping this state here instead of
+on the Vertex objects means that any number of searches can run on the same graph at the same time
+(each with its own context), and the vertices are never changed by a search.
+
+A context is reused for many searches: reset() only clears the vertices the last search touched,
+so a short search on a big graph does not pay for resetting every vertex. CompactGraph keeps a
+pool of contexts; a context must only be used by one search (thread) at a time.
+*/
+public class SearchContext {
+
+    // Shortest distance found so far (infinity if none) and predecessor (-1 if none) by vertex number
+    double[] distances;
+    int[] predecessors;
+
+    // True once the shortest distance of the vertex is final
+    boolean[] settled;
+
+    // Vertices ordered by distance (or by estimated total distance, for A*)
+    IndexMinHeap heap;
+
+    // Vertices whose entries have been changed since the last reset
+    private int[] touched;
+    private int touchedCount;
+
+    // Number of vertices settled (expanded) since the last reset
+    int expansions;
+
+    // Constructs a clear context for a graph with the given number of vertices
+    public SearchContext(int vertexCount) {
+        this.distances = new double[vertexCount];
+        this.predecessors = new int[vertexCount];
+        this.settled = new boolean[vertexCount];
+        this.heap = new IndexMinHeap(vertexCount);
+        this.touched = new int[vertexCount];
+        this.touchedCount = 0;
+        this.expansions = 0;
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        Arrays.fill(predecessors, -1);
+    }
+
+    // Records a (shorter) distance and predecessor for the vertex
+    void setDistance(int vertex, double distance, int predecessor) {
+        if (distances[vertex] == Double.POSITIVE_INFINITY && !settled[vertex]) {
+            touched[touchedCount++] = vertex;
+        }
+        distances[vertex] = distance;
+        predecessors[vertex] = predecessor;
+    }
+
+    // Marks the vertex as settled
+    // REQUIRES: the vertex has a distance (was touched)
+    void settle(int vertex) {
+        settled[vertex] = true;
+        expansions++;
+    }
+
+    // Clears the entries of all touched vertices and the heap, so the context can be reused
+    public void reset() {
+        for (int i = 0; i < touchedCount; i++) {
+            int vertex = touched[i];
+            distances[vertex] = Double.POSITIVE_INFINITY;
+            predecessors[vertex] = -1;
+            settled[vertex] = false;
+        }
+        touchedCount = 0;
+        expansions = 0;
+        heap.clear();
+    }
+
+    ///// GETTER METHODS /////
+
+    public double getDistance(int vertex) { return distances[vertex]; }
+    public int getPredecessor(int vertex) { return predecessors[vertex]; }
+    public boolean isSettled(int vertex) { return settled[vertex]; }
+    public int getExpansions() { return expansions; }
+    public int getVertexCount() { return distances.length; }
+}
@@ -0,0 +1,67 @@
+package model;
+
+import exception.GraphDisconnectedException;
+
+/*
+Stores the result of ONE run of Dijkstra's algorithm from a source vertex (usually an entrance) to
+every vertex of the graph: the shortest distance to every vertex, and the predecessor of every
+vertex on its shortest path. Since the predecessors form a tree rooted at the source, the shortest
+path to any vertex can be read off in O(path length), without running Dijkstra again.
+
+Distances and predecessors are primitive arrays indexed by the vertex numbers of the CompactGraph
+snapshot the tree was computed on. The tree does not change when the graph changes. ParkingLotGraph
+keeps the trees it has computed, and throws them away when an edge is connected or disconnected.
+ */
+public class ShortestPathTree {
+
+    // The graph snapshot the tree was computed on
+    private CompactGraph graph;
+
+    // The vertex that all shortest paths start from
+    private Vertex source;
+
+    // Shortest distance (infinity if unreachable) and predecessor (-1 if none) by vertex number
+    private double[] distances;
+    private int[] predecessors;
+
+    // Constructs a tree from the distances and predecessors of every vertex number of the graph
+    public ShortestPathTree(CompactGraph graph, Vertex source, double[] distances, int[] predecessors) {
+        this.graph = graph;
+        this.source = source;
+        this.distances = distances;
+        this.predecessors = predecessors;
+    }
+
+    /*
+     * Returns the shortest path from the source to end, by following the predecessors back from end.
+     * Throws GraphDisconnectedException if end cannot be reached from the source
+     */
+    public ShortestPath getShortestPath(Vertex end) throws GraphDisconnectedException {
+        if (!isReachable(end)) {
+            throw new GraphDisconnectedException("Graph is disconnected");
+        }
+        int endNumber = graph.getVertexNumber(end);
+        return graph.buildPath(graph.getVertexNumber(source), endNumber, distances[endNumber], predecessors);
+    }
+
+    // Returns the shortest distance from the source to the vertex, infinity if it is unreachable
+    public double getDistance(Vertex vertex) {
+        int number = graph.getVertexNumber(vertex);
+        return number < 0 ? Double.POSITIVE_INFINITY : distances[number];
+    }
+
+    // Returns the shortest distance to the vertex with the given number in the graph snapshot
+    public double getDistance(int vertexNumber) {
+        return distances[vertexNumber];
+    }
+
+    // Returns true if the vertex can be reached from the source
+    public boolean isReachable(Vertex vertex) {
+        return getDistance(vertex) != Double.POSITIVE_INFINITY;
+    }
+
+    ///// GETTER METHODS /////
+
+    public Vertex getSource() { return source; }
+    public CompactGraph getGraph() { return graph; }
+}
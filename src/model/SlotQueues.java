@@ -0,0 +1,140 @@
+package model;
+
+import java.util.Arrays;
+
+/*
+The priority queues of CompactParkingLot: binary MAX heaps of slots of a SpotStore, on the distance
+from the entrance (furthest spot first), like SpotHeap.furthestFirst(). The heaps hold ints instead
+of ParkingSpot objects, and since a spot is in at most one queue at a time, one position array
+serves all queues (like RouteQueues). The sift steps are the same as in SpotHeap, so both give the
+same spot for the same sequence of operations.
+*/
+class SlotQueues {
+
+    // Store that holds the distances of the slots
+    private SpotStore store;
+
+    // Slots in heap order, and the number of slots, of every queue
+    private int[][] heaps;
+    private int[] sizes;
+
+    // Position of every slot in its queue's heap, -1 if it is in no queue
+    private int[] positions;
+
+    // Constructs empty queues over the slots of the store
+    SlotQueues(SpotStore store, int queueCount) {
+        this.store = store;
+        this.heaps = new int[queueCount][16];
+        this.sizes = new int[queueCount];
+        this.positions = new int[16];
+        Arrays.fill(positions, -1);
+    }
+
+    // Adds the slot to the queue
+    // REQUIRES: the slot is in no queue
+    void add(int queue, int slot) {
+        if (slot >= positions.length) {
+            int length = Math.max(slot + 1, positions.length * 2);
+            int old = positions.length;
+            positions = Arrays.copyOf(positions, length);
+            Arrays.fill(positions, old, length, -1);
+        }
+        if (sizes[queue] == heaps[queue].length) {
+            heaps[queue] = Arrays.copyOf(heaps[queue], sizes[queue] * 2);
+        }
+        int i = sizes[queue]++;
+        place(queue, slot, i);
+        siftUp(queue, i);
+    }
+
+    // Removes and returns the furthest slot of the queue, -1 if the queue is empty
+    int poll(int queue) {
+        if (sizes[queue] == 0) {
+            return -1;
+        }
+        int root = heaps[queue][0];
+        removeAt(queue, 0);
+        return root;
+    }
+
+    // Removes the slot from the queue. Returns false if it is not in the queue
+    boolean remove(int queue, int slot) {
+        if (!contains(queue, slot)) {
+            return false;
+        }
+        removeAt(queue, positions[slot]);
+        return true;
+    }
+
+    // Returns true if the slot is in the queue
+    boolean contains(int queue, int slot) {
+        int i = slot < positions.length ? positions[slot] : -1;
+        return i >= 0 && i < sizes[queue] && heaps[queue][i] == slot;
+    }
+
+    // Returns the furthest slot of the queue without removing it, -1 if the queue is empty
+    int peek(int queue) { return sizes[queue] == 0 ? -1 : heaps[queue][0]; }
+
+    int size(int queue) { return sizes[queue]; }
+
+    ///// HELPER METHODS /////
+
+    // Removes the slot at index i, by moving the last slot into its place
+    private void removeAt(int queue, int i) {
+        int[] heap = heaps[queue];
+        positions[heap[i]] = -1;
+        int last = heap[--sizes[queue]];
+        if (i < sizes[queue]) {
+            place(queue, last, i);
+            if (!siftUp(queue, i)) {
+                siftDown(queue, i);
+            }
+        }
+    }
+
+    // Moves the slot at index i up until its parent is not nearer. Returns true if it moved
+    private boolean siftUp(int queue, int i) {
+        int[] heap = heaps[queue];
+        int slot = heap[i];
+        double distance = store.getDistance(slot);
+        int start = i;
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (distance <= store.getDistance(heap[parent])) {
+                break;
+            }
+            place(queue, heap[parent], i);
+            i = parent;
+        }
+        place(queue, slot, i);
+        return i != start;
+    }
+
+    // Moves the slot at index i down until none of its children are further
+    private void siftDown(int queue, int i) {
+        int[] heap = heaps[queue];
+        int size = sizes[queue];
+        int slot = heap[i];
+        double distance = store.getDistance(slot);
+        int half = size / 2;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && store.getDistance(heap[right]) > store.getDistance(heap[child])) {
+                child = right;
+            }
+            if (distance >= store.getDistance(heap[child])) {
+                break;
+            }
+            place(queue, heap[child], i);
+            i = child;
+        }
+        place(queue, slot, i);
+    }
+
+    // Places the slot at index i of the heap of the queue, and records its position
+    private void place(int queue, int slot, int i) {
+        heaps[queue][i] = slot;
+        positions[slot] = i;
+    }
+}
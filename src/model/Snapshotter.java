@@ -0,0 +1,160 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+Takes a snapshot (LotSnapshot) of a logged parking lot in the background every intervalMillis, and
+deletes the event log segments the snapshot covers, so a restarted process only loads the last
+snapshot and replays the events after it (recover) instead of the whole day.
+
+The live lot is never read, so occupySpot is never blocked or slowed by a snapshot. Instead the
+snapshotter keeps its own copy of the lot (the shadow), and every snapshot first replays the new
+durable events of the log into the shadow: the shadow is then exactly the state after the last
+durable event (a consistent cut at that sequence), and is written out as the snapshot. The cost is
+a second copy of the spots in memory, and the replay work on the background thread.
+
+Snapshots are the files "snapshot-<sequence>.dat" in the directory of the log; older snapshots are
+deleted once a newer one is on the disk.
+*/
+public class Snapshotter implements Closeable {
+
+    private final EventLog log;
+    private final Path directory;
+    private final ParkingLot shadow;
+    private final ScheduledExecutorService executor;
+
+    // Sequence of the last snapshot (the last event applied to the shadow), and last background error
+    private long snapshotSequence;
+    private volatile IOException lastFailure;
+
+    /*
+     * Starts taking a snapshot of the lot that is logged to the log every intervalMillis (the first
+     * one after intervalMillis). The shadow starts from the last snapshot in the log's directory.
+     * Throws exception if the last snapshot cannot be read
+     * REQUIRES: intervalMillis > 0
+     */
+    public static Snapshotter start(EventLog log, long intervalMillis) throws IOException {
+        Snapshotter snapshotter = new Snapshotter(log);
+        snapshotter.executor.scheduleWithFixedDelay(snapshotter::snapshotInBackground, intervalMillis,
+                                                    intervalMillis, TimeUnit.MILLISECONDS);
+        return snapshotter;
+    }
+
+    private Snapshotter(EventLog log) throws IOException {
+        this.log = log;
+        this.directory = log.getDirectory();
+        this.shadow = new ParkingLot("Snapshot");
+        Path latest = latestSnapshot(directory);
+        this.snapshotSequence = 0;
+        if (latest != null) {
+            LotSnapshot snapshot = LotSnapshot.read(latest);
+            shadow.restoreFrom(snapshot);
+            this.snapshotSequence = snapshot.getSequence();
+        }
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lot-snapshotter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /*
+     * Rebuilds the (empty) lot from the last snapshot in the directory (if there is one) and the
+     * events of the log after it. Returns the sequence of the last event. The log can then be
+     * opened again and the lot logged to it (ParkingLot.logTo).
+     * Throws exception if the snapshot or the log cannot be read
+     * REQUIRES: no other thread uses the lot during the call
+     */
+    public static long recover(Path directory, ParkingLot lot) throws IOException {
+        Path latest = latestSnapshot(directory);
+        long sequence = 0;
+        if (latest != null) {
+            LotSnapshot snapshot = LotSnapshot.read(latest);
+            lot.restoreFrom(snapshot);
+            sequence = snapshot.getSequence();
+        }
+        return EventLog.replay(directory, lot, sequence);
+    }
+
+    /*
+     * Takes a snapshot now, of the state after the last durable event: replays the new events into
+     * the shadow, writes the snapshot, then deletes older snapshots and the log segments it covers.
+     * Returns the sequence of the snapshot. Throws exception if the snapshot cannot be written
+     */
+    public synchronized long snapshot() throws IOException {
+        long durable = log.getDurableSequence();
+        if (durable == snapshotSequence) {
+            return snapshotSequence;
+        }
+        long sequence = EventLog.replay(directory, shadow, snapshotSequence, durable);
+        // Only delete what the snapshot covers once its rename is on the disk (write forces it)
+        LotSnapshot.write(directory.resolve(snapshotName(sequence)), shadow, sequence);
+        snapshotSequence = sequence;
+        for (Path older: snapshots(directory)) {
+            if (!older.getFileName().toString().equals(snapshotName(sequence))) {
+                Files.delete(older);
+            }
+        }
+        log.truncateBefore(sequence);
+        return sequence;
+    }
+
+    // Stops taking snapshots (a snapshot in progress is finished first)
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    ///// HELPER METHODS /////
+
+    // Body of the periodic task; an error is kept and the next period tries again
+    private void snapshotInBackground() {
+        try {
+            snapshot();
+        } catch (IOException e) {
+            lastFailure = e;
+        }
+    }
+
+    // Returns the last snapshot in the directory, null if there is none
+    private static Path latestSnapshot(Path directory) throws IOException {
+        List<Path> snapshots = snapshots(directory);
+        return snapshots.isEmpty() ? null : snapshots.get(snapshots.size() - 1);
+    }
+
+    // Returns the snapshots in the directory, in order
+    private static List<Path> snapshots(Path directory) throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return snapshots;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "snapshot-*.dat")) {
+            stream.forEach(snapshots::add);
+        }
+        snapshots.sort(null); // Zero padded, so the names sort by sequence
+        return snapshots;
+    }
+
+    private static String snapshotName(long sequence) {
+        return String.format("snapshot-%020d.dat", sequence);
+    }
+
+    ///// GETTER METHODS /////
+
+    public synchronized long getSnapshotSequence() { return snapshotSequence; }
+    public IOException getLastFailure() { return lastFailure; }
+}
@@ -0,0 +1,46 @@
+package model;
+
+/*
+A change of the state of one spot, as pushed to the subscribers of a SpotChangePublisher. The
+states are the ones of OccupancySummary: vacant, half full (a car spot with one motorcycle) and
+occupied. A change that was coalesced for a slow subscriber goes from the state the subscriber last
+saw to the state the spot is in now.
+*/
+public class SpotChange {
+
+    // What a change did to the spot, by the state it ended in
+    public enum Kind {
+        OCCUPIED,  // The spot is now fully occupied
+        FREED,     // The spot is now vacant
+        HALF_FULL  // The car spot now has one motorcycle in it (from vacant or from full)
+    }
+
+    private final int spotId;
+    private final int flag;
+    private final int previousState;
+    private final int state;
+
+    // Constructs a change of the spot (type flag as in addParkingSpot) between OccupancyCounter states
+    SpotChange(int spotId, int flag, int previousState, int state) {
+        this.spotId = spotId;
+        this.flag = flag;
+        this.previousState = previousState;
+        this.state = state;
+    }
+
+    // Returns the kind of the change, by the state the spot is in after it
+    public Kind getKind() {
+        return state == OccupancyCounter.FULL ? Kind.OCCUPIED
+             : state == OccupancyCounter.VACANT ? Kind.FREED : Kind.HALF_FULL;
+    }
+
+    ///// GETTER METHODS /////
+
+    public int getSpotId() { return spotId; }
+    public int getFlag() { return flag; }
+    public boolean wasVacant() { return previousState == OccupancyCounter.VACANT; }
+    public boolean isVacant() { return state == OccupancyCounter.VACANT; }
+    public boolean isHalfFull() { return state == OccupancyCounter.HALF_FULL; }
+    int getPreviousState() { return previousState; }
+    int getState() { return state; }
+}
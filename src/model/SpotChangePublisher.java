@@ -0,0 +1,437 @@
+package model;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+Pushes the changes of the spots of a lot (see ParkingLot.publishTo) to any number of subscribers,
+e.g. signs and apps, so they do not have to poll the whole lot. A subscriber first reads the state it
+needs (getOccupancySummary, findParkingSpot) after subscribing, then keeps it up to date with the
+changes.
+
+Delivery follows the Flow rules: every subscriber gets at most as many changes as it requested, on
+the executor of the publisher, never on a gate thread. A subscriber that falls behind does not make
+the publisher buffer every change: its pending changes are kept by spot, and a newer change of the
+same spot replaces the pending one (occupied then freed again before it was delivered is no change
+at all). So a slow subscriber holds at most one pending change per spot, and skips straight to the
+current state of every spot once it requests more.
+
+Publishing a change never takes a lock and never allocates, whatever the number of subscribers:
+the gate takes the next sequence of a ring of changes shared by all subscribers (one atomic
+increment), packs the change into one long in its slot, and marks the slot as published. The
+publisher's own task (the pump, on the executor) moves the published changes from the ring into the
+pending changes of every subscription, one batch and one lock per subscription at a time. The pump
+is only handed to the executor when it is not already scheduled, so a busy lot wakes it once per
+batch instead of once per change. If the ring is full, the gate helps to empty it (or waits for the
+pump) before it publishes. With no subscribers, publishing costs nothing but a read of the
+subscriber array. New spots are not published.
+*/
+public class SpotChangePublisher implements Flow.Publisher<SpotChange>, AutoCloseable {
+
+    // Number of changes the ring holds (a power of 2)
+    private static final int RING_SIZE = 1 << 14;
+    private static final int RING_MASK = RING_SIZE - 1;
+
+    // Executor the changes are delivered on, and the one owned (shut down by close), null if given
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+
+    // Subscriptions that have not been cancelled, replaced as a whole when one is added or removed
+    private volatile ChangeSubscription[] subscriptions;
+
+    private volatile boolean closed;
+
+    /*
+     * Ring of published changes, packed (see pack), by sequence modulo RING_SIZE. A slot holds the
+     * change of sequence s once its published entry is s + 1.
+     */
+    private final long[] ring;
+    private final AtomicLongArray published;
+
+    // Sequence the next change gets, and the first sequence that is not drained from the ring yet
+    private final AtomicLong nextSequence;
+    private volatile long drained;
+
+    // Held by the thread that drains the ring, and set while the pump is scheduled or running
+    private final AtomicBoolean draining;
+    private final AtomicBoolean scheduled;
+
+    // Task that drains the ring on the executor, and the changes of the batch it is draining
+    private final Runnable pump;
+    private final long[] batch;
+
+    // Constructs a publisher that delivers on its own thread
+    public SpotChangePublisher() {
+        this(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "spot-change-publisher");
+            thread.setDaemon(true);
+            return thread;
+        }), true);
+    }
+
+    // Constructs a publisher that delivers on the given executor (which it does not shut down)
+    public SpotChangePublisher(Executor executor) {
+        this(executor, false);
+    }
+
+    private SpotChangePublisher(Executor executor, boolean owned) {
+        this.executor = executor;
+        this.ownedExecutor = owned ? (ExecutorService) executor : null;
+        this.subscriptions = new ChangeSubscription[0];
+        this.ring = new long[RING_SIZE];
+        this.published = new AtomicLongArray(RING_SIZE);
+        this.nextSequence = new AtomicLong();
+        this.draining = new AtomicBoolean();
+        this.scheduled = new AtomicBoolean();
+        this.pump = this::pump;
+        this.batch = new long[RING_SIZE];
+    }
+
+    /*
+     * Subscribes to the changes made from now on. onSubscribe is called before this returns.
+     * A publisher that is closed completes the subscriber right away
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super SpotChange> subscriber) {
+        ChangeSubscription subscription = new ChangeSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        lockRing(); // No batch is being drained, so the next one sees the subscription
+        try {
+            synchronized (this) {
+                if (!closed) {
+                    subscription.start = nextSequence.get();
+                    ChangeSubscription[] current = subscriptions;
+                    ChangeSubscription[] added = new ChangeSubscription[current.length + 1];
+                    System.arraycopy(current, 0, added, 0, current.length);
+                    added[current.length] = subscription;
+                    subscriptions = added;
+                    return;
+                }
+            }
+        } finally {
+            draining.set(false);
+        }
+        subscription.complete();
+    }
+
+    /*
+     * Stops publishing, and completes every subscriber once it has been given the pending changes
+     * it requested (changes it did not request are dropped). Waits (up to a minute) for the
+     * deliveries if the publisher owns its executor
+     */
+    @Override
+    public void close() {
+        ChangeSubscription[] current;
+        lockRing();
+        try {
+            while (isPublished(drained)) { // Changes made before close still reach the subscribers
+                drainLocked();
+            }
+            synchronized (this) {
+                closed = true;
+                current = subscriptions;
+                subscriptions = new ChangeSubscription[0];
+            }
+        } finally {
+            draining.set(false);
+        }
+        for (ChangeSubscription subscription: current) {
+            subscription.complete();
+        }
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+            try {
+                ownedExecutor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /*
+     * Publishes that the spot moved between the given OccupancyCounter states. Called by the lot
+     * while it holds the guard of the spot, so the changes of one spot are in order in the ring
+     */
+    void spotChanged(ParkingSpot spot, int from, int to) {
+        if (subscriptions.length == 0) {
+            return;
+        }
+        long sequence = nextSequence.getAndIncrement();
+        while (sequence - drained >= RING_SIZE) { // Full, help to empty it
+            if (!drain()) {
+                Thread.yield();
+            }
+        }
+        int slot = (int) sequence & RING_MASK;
+        ring[slot] = pack(spot.getParkingSpotId(), ParkingLot.flagOf(spot), from, to);
+        published.set(slot, sequence + 1);
+        if (!scheduled.get() && scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(pump);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false); // Closed while publishing, nobody to deliver to
+            }
+        }
+    }
+
+    ///// HELPER METHODS /////
+
+    /*
+     * Drains the ring until no more changes are published. The pump yields after every batch, so
+     * the gates of a busy lot publish the next batch meanwhile, instead of waking the pump up again
+     * for every few changes. A change published while the pump clears its flag is seen by the
+     * check that follows, or schedules the pump again itself
+     */
+    private void pump() {
+        do {
+            do {
+                if (!drain()) {
+                    Thread.yield(); // A gate is draining a full ring
+                }
+                Thread.yield();
+            } while (isPublished(drained));
+            scheduled.set(false);
+        } while (isPublished(drained) && scheduled.compareAndSet(false, true));
+    }
+
+    /*
+     * Moves the published changes (one ring at most) to the subscriptions, and signals the ones
+     * that now have changes to deliver. Returns false if another thread is draining the ring
+     */
+    private boolean drain() {
+        if (!draining.compareAndSet(false, true)) {
+            return false;
+        }
+        ChangeSubscription[] ready;
+        try {
+            ready = drainLocked();
+        } finally {
+            draining.set(false);
+        }
+        if (ready != null) {
+            for (ChangeSubscription subscription: ready) {
+                if (subscription != null) {
+                    subscription.signal();
+                }
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Moves the published changes (one ring at most) to the subscriptions. Returns the
+     * subscriptions to signal, null if none
+     * REQUIRES: the ring is locked
+     */
+    private ChangeSubscription[] drainLocked() {
+        long first = drained;
+        int count = 0;
+        while (count < RING_SIZE && isPublished(first + count)) {
+            batch[count] = ring[(int) (first + count) & RING_MASK];
+            count++;
+        }
+        drained = first + count; // The gates may use the slots again
+        ChangeSubscription[] current = subscriptions;
+        ChangeSubscription[] ready = null;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].offer(batch, first, count)) {
+                if (ready == null) {
+                    ready = new ChangeSubscription[current.length];
+                }
+                ready[i] = current[i];
+            }
+        }
+        return ready;
+    }
+
+    // Takes the ring, waiting for the thread that is draining it
+    private void lockRing() {
+        while (!draining.compareAndSet(false, true)) {
+            Thread.yield();
+        }
+    }
+
+    // Returns true if the change of the sequence is published in the ring
+    private boolean isPublished(long sequence) {
+        return published.get((int) sequence & RING_MASK) == sequence + 1;
+    }
+
+    // Packs a change into a long: spot id in the high half, then flag, from and to in 2 bits each
+    private static long pack(int spotId, int flag, int from, int to) {
+        return (long) spotId << 32 | flag << 4 | from << 2 | to;
+    }
+
+    // Removes the subscription from the subscribers
+    private synchronized void remove(ChangeSubscription subscription) {
+        ChangeSubscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == subscription) {
+                ChangeSubscription[] removed = new ChangeSubscription[current.length - 1];
+                System.arraycopy(current, 0, removed, 0, i);
+                System.arraycopy(current, i + 1, removed, i, current.length - i - 1);
+                subscriptions = removed;
+                return;
+            }
+        }
+    }
+
+    ///// GETTER METHODS /////
+
+    public int getSubscriberCount() { return subscriptions.length; }
+    public boolean isClosed() { return closed; }
+
+    /*
+     * The subscription of one subscriber: its pending changes by spot id (in the order the spots
+     * first changed), and how many more changes it requested. Only one thread at a time delivers
+     * to the subscriber: the one that takes the work count from 0 (see signal).
+     */
+    private class ChangeSubscription implements Flow.Subscription, Runnable {
+
+        private final Flow.Subscriber<? super SpotChange> subscriber;
+
+        // Guarded by this subscription
+        private final LinkedHashMap<Integer, SpotChange> pending;
+        private long demand;
+        private boolean completing;
+        private Throwable error;
+
+        // Set once the subscriber must not get any more signals
+        private volatile boolean cancelled;
+
+        // Sequence of the first change made after the subscription started, set before it is added
+        private long start;
+
+        // Number of signals since the delivery loop last checked, the loop runs while it is not 0
+        private final AtomicInteger work;
+
+        ChangeSubscription(Flow.Subscriber<? super SpotChange> subscriber) {
+            this.subscriber = subscriber;
+            this.pending = new LinkedHashMap<>();
+            this.work = new AtomicInteger();
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (n <= 0) {
+                    error = new IllegalArgumentException("Request must be positive");
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n; // Capped, not overflowed
+                }
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            remove(this);
+            synchronized (this) {
+                pending.clear();
+            }
+        }
+
+        /*
+         * Adds the changes of the batch (of sequences from first on) made since the subscription
+         * started to the pending changes, each coalesced with the pending change of the same spot.
+         * Returns true if the delivery loop must be signalled
+         */
+        boolean offer(long[] changes, long first, int count) {
+            if (cancelled) {
+                return false;
+            }
+            synchronized (this) {
+                // While other changes are pending (and requested), the delivery loop is already on
+                boolean idle = pending.isEmpty();
+                for (int i = (int) Math.min(count, Math.max(0, start - first)); i < count; i++) {
+                    long change = changes[i];
+                    int spotId = (int) (change >>> 32);
+                    int flag = (int) (change >>> 4) & 3;
+                    int to = (int) change & 3;
+                    SpotChange older = pending.get(spotId);
+                    if (older == null) {
+                        pending.put(spotId, new SpotChange(spotId, flag, (int) (change >>> 2) & 3, to));
+                    } else if (older.getPreviousState() == to) {
+                        pending.remove(spotId); // Back to what the subscriber last saw
+                    } else {
+                        pending.put(spotId, new SpotChange(spotId, flag, older.getPreviousState(), to));
+                    }
+                }
+                return idle && !pending.isEmpty() && demand > 0;
+            }
+        }
+
+        // Completes the subscriber after the pending changes it requested
+        void complete() {
+            synchronized (this) {
+                completing = true;
+            }
+            signal();
+        }
+
+        // Runs the delivery loop on the executor, unless it is already running (then it loops again)
+        private void signal() {
+            if (work.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    work.set(0); // Closed while signalling, nothing more to deliver
+                }
+            }
+        }
+
+        // Delivery loop: hands out pending changes while the subscriber has demand
+        @Override
+        public void run() {
+            int missed = 1;
+            while (true) {
+                while (!cancelled) {
+                    SpotChange next = null;
+                    Throwable failure;
+                    boolean done;
+                    synchronized (this) {
+                        failure = error;
+                        if (demand > 0 && !pending.isEmpty()) {
+                            Iterator<SpotChange> first = pending.values().iterator();
+                            next = first.next();
+                            first.remove();
+                            demand--;
+                        }
+                        done = completing && (pending.isEmpty() || demand == 0);
+                    }
+                    if (failure != null) {
+                        cancel();
+                        subscriber.onError(failure);
+                        return;
+                    }
+                    if (next == null) {
+                        if (done) {
+                            cancelled = true;
+                            subscriber.onComplete();
+                        }
+                        break;
+                    }
+                    try {
+                        subscriber.onNext(next);
+                    } catch (RuntimeException e) {
+                        cancel(); // A subscriber that throws is dropped
+                    }
+                }
+                missed = work.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/*
+An indexed binary heap of parking spots. Works like a PriorityQueue, except that the heap keeps the
+position of every spot it holds, by the spot's number in its lot (ParkingSpot.number). This means
+that removing an arbitrary spot, checking whether a spot is in the heap, and re-ordering a spot
+after its key has changed do not need a linear search:
+ - add, poll, remove, update: O(log n)
+ - peek, contains, size: O(1)
+
+The positions are kept in the heap, not in the spots, so a spot may be in several heaps at once.
+All spots of a heap must be from the same lot (their numbers are only unique within it).
+
+A heap can be attached to a queue of RouteQueues, which then keeps the same spots ordered by route
+distance from every entrance of the lot (see pollNearest).
+*/
+public class SpotHeap<T extends ParkingSpot> {
+
+    // Ordering of the heap, the root is the spot that compares smallest.
+    private Comparator<? super T> comparator;
+
+    // Array representation of the binary heap. Children of index i are at 2i + 1 and 2i + 2.
+    private T[] heap;
+    private int size;
+
+    // Position of every spot in the heap array by spot number, -1 if the spot is not in the heap
+    private int[] positions;
+
+    // Route queues that mirror this heap, null if none, and the number of the queue
+    private RouteQueues<T> routes;
+    private int routeQueue;
+
+    // Constructs an empty heap with the given ordering
+    @SuppressWarnings("unchecked")
+    public SpotHeap(Comparator<? super T> comparator) {
+        this.comparator = comparator;
+        this.heap = (T[]) new ParkingSpot[16];
+        this.positions = new int[16];
+        Arrays.fill(positions, -1);
+        this.routes = null;
+    }
+
+    // Constructs an empty MAX heap on the distance from the entrance (furthest spot first)
+    public static <T extends ParkingSpot> SpotHeap<T> furthestFirst() {
+        return new SpotHeap<>((a, b) -> Double.compare(b.getDistance(), a.getDistance()));
+    }
+
+    /*
+     * Adds the spot to the heap. Returns false (and does nothing) if the spot is already in it.
+     * Throws exception if the spot is in no lot (it has no number yet)
+     * REQUIRES: the spot is in the same lot as the other spots of the heap
+     */
+    public boolean add(T spot) throws IllegalArgumentException {
+        if (spot.number < 0) {
+            throw new IllegalArgumentException("Spot is not in a lot");
+        }
+        if (contains(spot)) {
+            return false;
+        }
+        ensureCapacity(size + 1, spot.number);
+        heap[size] = spot;
+        positions[spot.number] = size;
+        siftUp(size++);
+        if (routes != null) {
+            routes.added(routeQueue, spot);
+        }
+        return true;
+    }
+
+    /*
+     * Builds the heap from the first count spots of the array, bottom up (Floyd's method): O(n) in
+     * total instead of O(n log n) for adding them one at a time. The heap takes the array over as its
+     * own, so a lot that is restored or loaded fills it directly and nothing is copied.
+     * REQUIRES: the heap is empty, the spots are distinct and all in the lot of the heap, and the
+     *           caller does not use the array afterwards
+     */
+    public void heapify(T[] spots, int count) {
+        heap = spots;
+        size = count;
+        for (int i = 0; i < count; i++) {
+            int number = spots[i].number;
+            if (positions.length <= number) {
+                ensureCapacity(count, number);
+            }
+            positions[number] = i;
+        }
+        if (routes != null) {
+            routes.addedAll(this); // While the spots are still in the order of the array (and memory)
+        }
+        for (int i = count / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    // Removes and returns the root of the heap, null if the heap is empty
+    public T poll() {
+        if (size == 0) {
+            return null;
+        }
+        T root = heap[0];
+        removeAt(0);
+        return root;
+    }
+
+    /*
+     * Removes the first max spots of the heap (all of them if it has fewer) into the array, in the
+     * order poll would return them, for a batch that needs max spots at once. Returns the number
+     * removed. Every removal walks the hole at the root down to a leaf with one comparison per level
+     * and only then puts the last spot into it (bottom-up), where poll compares twice per level.
+     * REQUIRES: into has at least max elements
+     */
+    public int drain(ParkingSpot[] into, int max) {
+        int count = Math.min(max, size);
+        for (int n = 0; n < count; n++) {
+            T root = heap[0];
+            into[n] = root;
+            positions[root.number] = -1;
+            T last = heap[--size];
+            heap[size] = null;
+            if (size > 0) {
+                int hole = 0;
+                int child;
+                while ((child = 2 * hole + 1) < size) {
+                    if (child + 1 < size && comparator.compare(heap[child + 1], heap[child]) < 0) {
+                        child++;
+                    }
+                    set(hole, heap[child]);
+                    hole = child;
+                }
+                set(hole, last);
+                siftUp(hole);
+            }
+            if (routes != null) {
+                routes.removed(routeQueue, root);
+            }
+        }
+        return count;
+    }
+
+    // Returns the root of the heap without removing it, null if the heap is empty
+    public T peek() {
+        return size == 0 ? null : heap[0];
+    }
+
+    // Removes the given spot from the heap. Returns true if it was removed, false if not in heap
+    public boolean remove(ParkingSpot spot) {
+        if (!contains(spot)) {
+            return false;
+        }
+        removeAt(positions[spot.number]);
+        return true;
+    }
+
+    /*
+     * Removes and returns the spot with the shortest route in the given tree of the entrance (with
+     * the given entrance number), null if the heap is empty. Uses the attached route queues in
+     * O(log n), or one pass over the heap if none are attached.
+     * REQUIRES: routes is the current shortest path tree of the entrance
+     */
+    public T pollNearest(int entrance, ShortestPathTree routes) {
+        T nearest = this.routes != null ? this.routes.nearest(routeQueue, entrance, routes) : scanNearest(routes);
+        if (nearest != null) {
+            removeAt(positions[nearest.number]);
+        }
+        return nearest;
+    }
+
+    // Restores the heap order after the key of the spot has changed (both increase and decrease)
+    // Returns false if the spot is not in the heap
+    public boolean update(T spot) {
+        if (!contains(spot)) {
+            return false;
+        }
+        int i = positions[spot.number];
+        if (!siftUp(i)) {
+            siftDown(i);
+        }
+        return true;
+    }
+
+    // Returns true if the spot is in this heap
+    public boolean contains(ParkingSpot spot) {
+        int number = spot.number;
+        if (number < 0 || number >= positions.length) {
+            return false;
+        }
+        int i = positions[number];
+        return i >= 0 && heap[i] == spot;
+    }
+
+    // Returns the spot at index i of the heap array, for visiting every spot (in no particular order)
+    // REQUIRES: 0 <= i < size()
+    public T get(int i) { return heap[i]; }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    // Attaches the route queues that mirror this heap. Use RouteQueues.attach
+    void attachRoutes(RouteQueues<T> routes, int routeQueue) {
+        this.routes = routes;
+        this.routeQueue = routeQueue;
+    }
+
+    ///// HELPER METHODS /////
+
+    // Grows the heap array to hold the given number of spots, and the positions to hold the number
+    private void ensureCapacity(int capacity, int number) {
+        if (heap.length < capacity) {
+            heap = Arrays.copyOf(heap, Math.max(capacity, heap.length * 2));
+        }
+        if (positions.length <= number) {
+            int length = positions.length;
+            positions = Arrays.copyOf(positions, Math.max(number + 1, length * 2));
+            Arrays.fill(positions, length, positions.length, -1);
+        }
+    }
+
+    // Returns the spot with the shortest route in the tree by one pass over the heap, null if empty
+    private T scanNearest(ShortestPathTree routes) {
+        T nearest = null;
+        double nearestDistance = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            double distance = routes.getDistance(heap[i]);
+            if (nearest == null || distance < nearestDistance) {
+                nearest = heap[i];
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+
+    // Removes the element at index i, by moving the last element into its place
+    private void removeAt(int i) {
+        T removed = heap[i];
+        T last = heap[--size];
+        heap[size] = null;
+        positions[removed.number] = -1;
+        if (i < size) {
+            set(i, last);
+            if (!siftUp(i)) {
+                siftDown(i);
+            }
+        }
+        if (routes != null) {
+            routes.removed(routeQueue, removed);
+        }
+    }
+
+    // Moves the element at index i up until its parent is not larger. Returns true if it moved.
+    private boolean siftUp(int i) {
+        T spot = heap[i];
+        int start = i;
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            T parentSpot = heap[parent];
+            if (comparator.compare(spot, parentSpot) >= 0) {
+                break;
+            }
+            set(i, parentSpot);
+            i = parent;
+        }
+        set(i, spot);
+        return i != start;
+    }
+
+    // Moves the element at index i down until none of its children are smaller
+    private void siftDown(int i) {
+        T spot = heap[i];
+        int half = size / 2;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && comparator.compare(heap[right], heap[child]) < 0) {
+                child = right;
+            }
+            if (comparator.compare(spot, heap[child]) <= 0) {
+                break;
+            }
+            set(i, heap[child]);
+            i = child;
+        }
+        set(i, spot);
+    }
+
+    // Places the spot at index i and records its position
+    private void set(int i, T spot) {
+        heap[i] = spot;
+        positions[spot.number] = i;
+    }
+}
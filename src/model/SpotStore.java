@@ -0,0 +1,170 @@
+package model;
+
+import java.util.Arrays;
+
+/*
+Stores the state of all parking spots of a lot in primitive arrays (struct of arrays) instead of
+one ParkingSpot object per spot. Every spot gets a dense number (slot) in the order it is added,
+and its state is the entry of that slot in every array:
+ - ids:              id of the spot
+ - distances:        distance from the entrance
+ - types:            0 = car spot, 1 = motorcycle spot, 2 = commercial spot (same as the flags)
+ - motorcycleCounts: number of motorcycles parked in a car spot (0, 1 or 2)
+ - plates:           2 packed plates (PlateCodec) per slot, 0 if none. The second one is only used
+                     by a car spot with 2 motorcycles (same as CarSpot.licensePlate2)
+A spot is occupied iff it has a plate. The id -> slot mapping is an open addressing hash table of
+ints, so ids are never boxed.
+
+A spot takes about 50 bytes here, against several hundred for a ParkingSpot object (which is also
+a graph vertex, with its own adjacency map) plus its boxed entry in a HashMap. The store has no
+checks of its own; CompactParkingLot keeps it consistent.
+*/
+public class SpotStore {
+
+    // State of every slot (see above)
+    private int[] ids;
+    private double[] distances;
+    private byte[] types;
+    private byte[] motorcycleCounts;
+    private long[] plates;
+
+    // Number of slots in use
+    private int size;
+
+    // Open addressing table from id to slot + 1 (0 = empty entry), with linear probing
+    private int[] idKeys;
+    private int[] idSlots;
+
+    // Constructs an empty store with room for the given number of spots (it grows when needed)
+    public SpotStore(int capacity) {
+        capacity = Math.max(capacity, 16);
+        this.ids = new int[capacity];
+        this.distances = new double[capacity];
+        this.types = new byte[capacity];
+        this.motorcycleCounts = new byte[capacity];
+        this.plates = new long[2 * capacity];
+        this.size = 0;
+        this.idKeys = new int[tableSize(capacity)];
+        this.idSlots = new int[idKeys.length];
+    }
+
+    /*
+     * Adds a vacant spot with the given id, distance and type. Returns its slot, or -1 (and does
+     * nothing) if a spot with the id already exists
+     * REQUIRES: the integer flag must be 0, 1 or 2
+     */
+    public int add(int id, double distance, int flag) {
+        if (slotOf(id) >= 0) {
+            return -1;
+        }
+        if (size == ids.length) {
+            grow();
+        }
+        int slot = size++;
+        ids[slot] = id;
+        distances[slot] = distance;
+        types[slot] = (byte) flag;
+        insertId(id, slot);
+        return slot;
+    }
+
+    // Returns the slot of the spot with the given id, -1 if there is none
+    public int slotOf(int id) {
+        int mask = idKeys.length - 1;
+        for (int i = hash(id) & mask; idSlots[i] != 0; i = (i + 1) & mask) {
+            if (idKeys[i] == id) {
+                return idSlots[i] - 1;
+            }
+        }
+        return -1;
+    }
+
+    // Occupies the spot of the slot with the vehicle (same as ParkingSpot.occupy)
+    // REQUIRES: the spot is vacant
+    public void occupy(int slot, long plate) {
+        plates[2 * slot] = plate;
+    }
+
+    /*
+     * Occupies the car spot of the slot with a motorcycle (same as CarSpot.occupyWithMotorcycle):
+     * the plate goes into the free half
+     * REQUIRES: the spot is a car spot with 0 or 1 motorcycles
+     */
+    public void occupyWithMotorcycle(int slot, long plate) {
+        if (plates[2 * slot] == 0) {
+            plates[2 * slot] = plate;
+        } else {
+            plates[2 * slot + 1] = plate;
+        }
+        motorcycleCounts[slot]++;
+    }
+
+    // Unoccupies the spot of the slot (same as ParkingSpot.unoccupy)
+    public void unoccupy(int slot) {
+        plates[2 * slot] = 0;
+        plates[2 * slot + 1] = 0;
+        motorcycleCounts[slot] = 0;
+    }
+
+    // Removes the motorcycle from the car spot of the slot (same as CarSpot.unoccupyMotorcycle)
+    // REQUIRES: the motorcycle with the plate is parked in the spot
+    public void unoccupyMotorcycle(int slot, long plate) {
+        if (plates[2 * slot] == plate) {
+            plates[2 * slot] = 0;
+        } else {
+            plates[2 * slot + 1] = 0;
+        }
+        motorcycleCounts[slot]--;
+    }
+
+    ///// HELPER METHODS /////
+
+    // Grows the slot arrays to twice their size, and rebuilds the id table for the new size
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        distances = Arrays.copyOf(distances, capacity);
+        types = Arrays.copyOf(types, capacity);
+        motorcycleCounts = Arrays.copyOf(motorcycleCounts, capacity);
+        plates = Arrays.copyOf(plates, 2 * capacity);
+        idKeys = new int[tableSize(capacity)];
+        idSlots = new int[idKeys.length];
+        for (int slot = 0; slot < size; slot++) {
+            insertId(ids[slot], slot);
+        }
+    }
+
+    // Adds the id to the id table
+    // REQUIRES: the id is not in the table, and the table has an empty entry
+    private void insertId(int id, int slot) {
+        int mask = idKeys.length - 1;
+        int i = hash(id) & mask;
+        while (idSlots[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        idKeys[i] = id;
+        idSlots[i] = slot + 1;
+    }
+
+    // Size of an id table for the given number of spots: a power of 2, at most half full
+    private static int tableSize(int capacity) {
+        return Integer.highestOneBit(capacity - 1) << 2;
+    }
+
+    // Spreads the bits of the id, so ids that are close do not fill one run of the table
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    ///// GETTER METHODS /////
+
+    public int size() { return size; }
+    public int getId(int slot) { return ids[slot]; }
+    public double getDistance(int slot) { return distances[slot]; }
+    public int getType(int slot) { return types[slot]; }
+    public int getMotorcycleCount(int slot) { return motorcycleCounts[slot]; }
+    public boolean isOccupied(int slot) { return plates[2 * slot] != 0 || plates[2 * slot + 1] != 0; }
+    public long getPlate(int slot) { return plates[2 * slot]; }
+    public long getPlate2(int slot) { return plates[2 * slot + 1]; }
+}
@@ -0,0 +1,22 @@
+package model;
+
+/*
+A table of saved spots, one record per spot (see MappedSpotFile and LotSnapshot), that a lot can be
+rebuilt from with ParkingLot.restoreFrom. The type is the same as the flags, the plates are packed
+with PlateCodec (0 if there is none).
+*/
+interface SpotTable {
+
+    // Number of records, and the fields of the record of the given slot (0 to size() - 1)
+    int size();
+
+    // False if the slot holds no complete record (nothing was appended to it, or a crash cut it off)
+    boolean isCommitted(int slot);
+
+    int getId(int slot);
+    int getType(int slot);
+    int getMotorcycleCount(int slot);
+    double getDistance(int slot);
+    long getPlate(int slot);
+    long getPlate2(int slot);
+}
@@ -0,0 +1,47 @@
+package model;
+
+/*
+A lightweight, read only view of one spot of a SpotStore: just the store and the slot. It has the
+same getters as ParkingSpot and CarSpot, and always shows the current state of the spot, so views
+can be created (and thrown away) freely by CompactParkingLot instead of keeping an object per spot.
+*/
+public final class SpotView {
+
+    private final SpotStore store;
+    private final int slot;
+
+    // Constructs a view of the spot of the slot
+    // REQUIRES: the slot is in use in the store
+    public SpotView(SpotStore store, int slot) {
+        this.store = store;
+        this.slot = slot;
+    }
+
+    // Two views are equal if they show the same spot of the same store
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof SpotView view && view.store == store && view.slot == slot;
+    }
+
+    @Override
+    public int hashCode() { return slot; }
+
+    ///// GETTER METHODS /////
+
+    public int getSlot() { return slot; }
+    public int getParkingSpotId() { return store.getId(slot); }
+    public double getDistance() { return store.getDistance(slot); }
+    public int getType() { return store.getType(slot); }
+    public boolean getOccupiedStatus() { return store.isOccupied(slot); }
+    public int getMotorcycleCount() { return store.getMotorcycleCount(slot); }
+
+    // License plates are "" if there is none, as in ParkingSpot and CarSpot
+    public String getLicensePlate() { return plate(store.getPlate(slot)); }
+    public String getLicensePlate2() { return plate(store.getPlate2(slot)); }
+
+    ///// HELPER METHODS /////
+
+    private static String plate(long code) {
+        return code == 0 ? "" : PlateCodec.decode(code);
+    }
+}
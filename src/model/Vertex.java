@@ -6,51 +6,79 @@ import java.util.HashMap;
 
 This class represents a vertex, in our adjacency list version of graph. It stores an id, as well as 
 a list of adjacent vertices with distance 
+
+A vertex can also have a position: (x, y) on its level (deck) of the parking lot, in the same unit as
+the edge distances. Positions are optional; they let ParkingLotGraph route with A* instead of
+dijkstra's algorithm.
  */
 public abstract class Vertex {
 
     // Unique identifier for the vertex. "I_id" for intersection, "P_id" for parking spot
     private String id;
 
-    /* 
-     * Distance from entrance and visited marker (initlialized to inf and false respectively for
-     * dijkstra's shortest path algorithm)
-    */
-    private double distance;
-    private boolean visited;
-
-    // Predecessor vertex used to track shortest path
-    private Vertex predecessor;
-
     /*
      * Uses a Hashmap to store adjacent vertices for better runtime for insert and removal, and search
      * The double value stores the distance between vertices, and the Vertex key is the adj vertex.
-     * Hashmap also ensures there are no double edges
+     * Hashmap also ensures there are no double edges. Only made once the vertex is asked for its
+     * edges, so a vertex that never gets one (e.g. a spot of a lot without a graph) has no map
      */
     private HashMap<Vertex, Double> adjacentVertices;
 
-    // Creates a new vertex with given id, distance set to inf, no predecessor, and empty adj list.
+    // Position of the vertex on its level, only meaningful if hasCoordinates is true
+    private double x;
+    private double y;
+    private int level;
+    private boolean hasCoordinates;
+
+    /*
+     * Creates a new vertex with given id and empty adj list. The distance, predecessor and visited
+     * marker of shortest path queries are kept in a SearchContext, not in the vertex, so queries
+     * can run in parallel.
+     */
     public Vertex(String id) {
         this.id = id;
-        this.distance = Double.POSITIVE_INFINITY;
-        this.visited = false;
-        this.predecessor = null;
-        this.adjacentVertices = new HashMap<>();
+        this.hasCoordinates = false;
+    }
+
+    /*
+     * Sets the position of the vertex. Use ParkingLotGraph.setCoordinates for a vertex that is already
+     * in a graph, so the graph picks up the change.
+     * REQUIRES: every edge of the vertex is at least as long as the straight line (x, y) distance to
+     * the other end, plus the ramp cost of the graph for every level between them
+     */
+    public void setCoordinates(double x, double y, int level) {
+        this.x = x;
+        this.y = y;
+        this.level = level;
+        this.hasCoordinates = true;
+    }
+
+    /*
+     * Sizes the (empty) adjacency map for the given number of edges, so adding them does not grow
+     * it again and again. Does nothing if the vertex already has edges
+     */
+    void reserveEdges(int edges) {
+        if (adjacentVertices == null || adjacentVertices.isEmpty()) {
+            adjacentVertices = new HashMap<>((int) (edges / 0.75f) + 1);
+        }
     }
 
     ///// SETTER METHODS /////
     
     public void setId(String id) { this.id = id; }
-    public void setDistance(double distance) { this.distance = distance; }
-    public void setPredecessor(Vertex predecessor) { this.predecessor = predecessor; }
-    public void setVisited(boolean visited) { this.visited = visited; }
 
     ///// GETTER METHODS /////
     
     public String getId() { return id; };
-    public HashMap<Vertex, Double> getAdjacentVertices() { return adjacentVertices; }
-    public Double getDistance() { return distance; }
-    public Vertex getPredecessor() { return predecessor; }
-    public boolean getVisited() { return visited; }
+    public HashMap<Vertex, Double> getAdjacentVertices() {
+        if (adjacentVertices == null) {
+            adjacentVertices = new HashMap<>();
+        }
+        return adjacentVertices;
+    }
+    public double getX() { return x; }
+    public double getY() { return y; }
+    public int getLevel() { return level; }
+    public boolean hasCoordinates() { return hasCoordinates; }
 
 }
@@ -0,0 +1,103 @@
+package simulation;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+Results of one run of the CapacitySimulator: arrivals and rejections by vehicle type, the average
+drive and walk distances of the vehicles that parked (in the units of the lot's graph), and the
+occupancy curve: the spots of every type in use, sampled every CapacitySimulator.SAMPLE_MINUTES of
+simulated time from the start of the run.
+*/
+public class CapacityReport {
+
+    private static final String[] TYPE_NAMES = {"car", "motorcycle", "commercial"};
+
+    private final long[] arrivals;
+    private final long[] rejected;
+    private final double driveTotal;
+    private final long driveCount;
+    private final double walkTotal;
+    private final long walkCount;
+    private final int[][] inUse;
+    private final long wallNanos;
+
+    // Constructs the report of a finished run (counts and curves by type: car, motorcycle, commercial)
+    CapacityReport(long[] arrivals, long[] rejected, double driveTotal, long driveCount,
+                   double walkTotal, long walkCount, int[][] inUse, long wallNanos) {
+        this.arrivals = arrivals;
+        this.rejected = rejected;
+        this.driveTotal = driveTotal;
+        this.driveCount = driveCount;
+        this.walkTotal = walkTotal;
+        this.walkCount = walkCount;
+        this.inUse = inUse;
+        this.wallNanos = wallNanos;
+    }
+
+    // Returns the share (0 to 1) of the arriving vehicles of all types that were turned away
+    public double getRejectionRate() {
+        long arrived = arrivals[0] + arrivals[1] + arrivals[2];
+        return arrived == 0 ? 0 : (double) (rejected[0] + rejected[1] + rejected[2]) / arrived;
+    }
+
+    // Returns the share of the arriving vehicles of the type (flag same as occupySpot) turned away
+    public double getRejectionRate(int flag) {
+        return arrivals[flag] == 0 ? 0 : (double) rejected[flag] / arrivals[flag];
+    }
+
+    // Returns the average drive distance from the entrance to the spot, 0 if no vehicle parked
+    public double getAverageDrive() {
+        return driveCount == 0 ? 0 : driveTotal / driveCount;
+    }
+
+    // Returns the average walk distance from the spot to the exit, 0 if walks were not measured
+    public double getAverageWalk() {
+        return walkCount == 0 ? 0 : walkTotal / walkCount;
+    }
+
+    // Returns the most spots of all types in use at once, among the samples
+    public int getPeakInUse() {
+        int peak = 0;
+        for (int sample = 0; sample < inUse[0].length; sample++) {
+            peak = Math.max(peak, inUse[0][sample] + inUse[1][sample] + inUse[2][sample]);
+        }
+        return peak;
+    }
+
+    /*
+     * Returns the report by name, e.g. car.arrived, motorcycle.rejectionRate, rejectionRate,
+     * drive.average, walk.average, peakInUse, wall.millis. The curves are left out (see getInUse)
+     */
+    public Map<String, Double> snapshot() {
+        Map<String, Double> report = new TreeMap<>();
+        for (int flag = 0; flag < TYPE_NAMES.length; flag++) {
+            report.put(TYPE_NAMES[flag] + ".arrived", (double) arrivals[flag]);
+            report.put(TYPE_NAMES[flag] + ".rejected", (double) rejected[flag]);
+            report.put(TYPE_NAMES[flag] + ".rejectionRate", getRejectionRate(flag));
+        }
+        report.put("rejectionRate", getRejectionRate());
+        report.put("drive.average", getAverageDrive());
+        report.put("walk.average", getAverageWalk());
+        report.put("peakInUse", (double) getPeakInUse());
+        report.put("wall.millis", wallNanos / 1e6);
+        return report;
+    }
+
+    // Returns the report as text, one "name value" line per entry
+    public String export() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Double> entry: snapshot().entrySet()) {
+            text.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        }
+        return text.toString();
+    }
+
+    ///// GETTER METHODS /////
+
+    public long getArrivals(int flag) { return arrivals[flag]; }
+    public long getRejected(int flag) { return rejected[flag]; }
+    public int[] getInUse(int flag) { return inUse[flag].clone(); }
+    public int getSampleCount() { return inUse[0].length; }
+    public long getWallNanos() { return wallNanos; }
+}
@@ -0,0 +1,252 @@
+package simulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import model.OccupancySummary;
+import model.ParkingLot;
+import model.ParkingSpot;
+import model.ShortestPathTree;
+import model.Vertex;
+
+/*
+Discrete event simulator of a lot for capacity planning: plays the traffic of a LoadProfile through
+the lot in simulated time, on one thread and without waiting, and reports the occupancy over time,
+how many vehicles were turned away, and how far they drove and walked (see CapacityReport). A month
+of a 10,000 spot garage takes seconds, so layouts (lots, graphs, entrances) and allocation policies
+can be compared offline with the same traffic.
+
+The events are the arrivals, which are drawn one at a time as the clock gets to them, and the
+departures of the parked vehicles, which wait in a binary heap of primitive times. A vehicle keeps
+a slot (an index into the plates) while it is parked, and slots are reused once it leaves, so the
+simulator itself allocates nothing per event, and only ever holds the vehicles that are parked.
+
+ - Drive distance: the route distance from the entrance the vehicle came in (picked at random among
+   the lot's entrances) to its spot, or the spot's own distance if the lot has no entrances
+ - Walk distance: the route distance from the spot to the pedestrian exit (see walkTo), if any
+*/
+public class CapacitySimulator {
+
+    // How a spot is chosen for an arriving vehicle
+    public enum Allocation {
+        FURTHEST,       // occupySpot(plate, flag): the furthest spot, the lot's default
+        SHORTEST_ROUTE  // occupySpot(plate, flag, entrance): the spot with the shortest route from the entrance
+    }
+
+    // Simulated minutes between 2 samples of the occupancy curve
+    public static final double SAMPLE_MINUTES = 15;
+
+    private final ParkingLot lot;
+    private final LoadProfile profile;
+    private final Allocation allocation;
+    private final long seed;
+
+    // Vertex of the lot's graph that drivers walk to from their spot, null if walking is not measured
+    private Vertex exit;
+
+    /*
+     * Constructs a simulator of the profile's traffic on the lot
+     * REQUIRES: the lot is empty, and has entrances for SHORTEST_ROUTE
+     */
+    public CapacitySimulator(ParkingLot lot, LoadProfile profile, Allocation allocation, long seed) {
+        this.lot = lot;
+        this.profile = profile;
+        this.allocation = allocation;
+        this.seed = seed;
+    }
+
+    // Measures the walk from every spot to the given vertex of the lot's graph (e.g. the lobby)
+    public void walkTo(Vertex exit) {
+        this.exit = exit;
+    }
+
+    /*
+     * Runs the traffic of the given number of simulated days and returns the report. The vehicles
+     * still parked at the end are unoccupied, so the lot is empty again for the next run
+     */
+    public CapacityReport run(double days) {
+        Run run = new Run(days * 24 * 3600);
+        Random random = new Random(seed);
+        // The graph does not change during the run, so the routes are looked up once
+        List<Vertex> entrances = new ArrayList<>(lot.getEntrances().values());
+        ShortestPathTree[] routes = new ShortestPathTree[entrances.size()];
+        for (int i = 0; i < routes.length; i++) {
+            routes[i] = lot.getGraph().getShortestPathTree(entrances.get(i));
+        }
+        ShortestPathTree walks = exit == null ? null : lot.getGraph().getShortestPathTree(exit);
+        long startNanos = System.nanoTime();
+
+        double nextArrival = profile.nextArrivalGap(random, 1);
+        while (true) {
+            boolean arriving = run.departureCount == 0 || nextArrival <= run.departureTimes[0];
+            double time = arriving ? nextArrival : run.departureTimes[0];
+            if (time >= run.seconds) {
+                break;
+            }
+            run.sampleUntil(lot, time);
+            if (arriving) {
+                int flag = profile.nextFlag(random);
+                double stay = profile.nextStay(random);
+                int entrance = entrances.isEmpty() ? -1 : random.nextInt(entrances.size());
+                nextArrival += profile.nextArrivalGap(random, 1);
+                arrive(run, time, flag, stay, entrance < 0 ? null : entrances.get(entrance),
+                    entrance < 0 ? null : routes[entrance], walks);
+            } else {
+                lot.unoccupySpot(run.plates[run.pollDeparture()]);
+            }
+        }
+        run.sampleUntil(lot, run.seconds);
+        while (run.departureCount > 0) {
+            lot.unoccupySpot(run.plates[run.pollDeparture()]);
+        }
+        return new CapacityReport(run.arrivals, run.rejected, run.driveTotal, run.driveCount,
+            run.walkTotal, run.walkCount, run.curve(), System.nanoTime() - startNanos);
+    }
+
+    ///// HELPER METHODS /////
+
+    /*
+     * Parks the arriving vehicle with the allocation policy, and schedules its departure. The
+     * entrance and its routes are null if the lot has no entrances
+     */
+    private void arrive(Run run, double time, int flag, double stay, Vertex entrance,
+                        ShortestPathTree routes, ShortestPathTree walks) {
+        run.arrivals[flag]++;
+        int slot = run.takeSlot();
+        ParkingSpot spot = allocation == Allocation.SHORTEST_ROUTE
+            ? lot.occupySpot(run.plates[slot], flag, entrance)
+            : lot.occupySpot(run.plates[slot], flag);
+        if (spot == null) {
+            run.rejected[flag]++;
+            run.freeSlots[run.freeCount++] = slot;
+            return;
+        }
+        // Unreachable spots (infinite distance) count as their own distance, or no walk
+        double drive = routes == null ? Double.POSITIVE_INFINITY : routes.getDistance(spot);
+        run.driveTotal += Double.isInfinite(drive) ? spot.getDistance() : drive;
+        run.driveCount++;
+        double walk = walks == null ? Double.POSITIVE_INFINITY : walks.getDistance(spot);
+        if (!Double.isInfinite(walk)) {
+            run.walkTotal += walk;
+            run.walkCount++;
+        }
+        run.addDeparture(time + stay, slot);
+    }
+
+    // Returns the plate of the slot: S and the slot in base 36 (6 digits)
+    private static String plateOf(int slot) {
+        String digits = Integer.toString(slot, 36).toUpperCase();
+        return "S" + "000000".substring(Math.min(6, digits.length())) + digits;
+    }
+
+    /*
+     * State of one run: the departure heap (times and slots, ordered by time), the plates of the
+     * slots and the free slots, the totals so far and the occupancy curve
+     */
+    private static class Run {
+        private final double seconds;
+
+        private double[] departureTimes = new double[1024];
+        private int[] departureSlots = new int[1024];
+        private int departureCount;
+
+        private String[] plates = new String[0];
+        private int[] freeSlots = new int[0];
+        private int freeCount;
+
+        private final long[] arrivals = new long[3];
+        private final long[] rejected = new long[3];
+        private double driveTotal;
+        private long driveCount;
+        private double walkTotal;
+        private long walkCount;
+
+        // Spots of every type (car, motorcycle, commercial) in use at every sample
+        private final int[][] inUse;
+        private int samples;
+
+        Run(double seconds) {
+            this.seconds = seconds;
+            this.inUse = new int[3][(int) Math.ceil(seconds / (SAMPLE_MINUTES * 60)) + 1];
+        }
+
+        // Takes a free slot, adding slots (and their plates) if there is none
+        int takeSlot() {
+            if (freeCount == 0) {
+                int added = Math.max(1024, plates.length);
+                String[] grown = new String[plates.length + added];
+                System.arraycopy(plates, 0, grown, 0, plates.length);
+                freeSlots = new int[grown.length];
+                for (int slot = grown.length - 1; slot >= plates.length; slot--) {
+                    grown[slot] = plateOf(slot);
+                    freeSlots[freeCount++] = slot;
+                }
+                plates = grown;
+            }
+            return freeSlots[--freeCount];
+        }
+
+        // Adds the departure of the slot's vehicle at the time to the heap
+        void addDeparture(double time, int slot) {
+            if (departureCount == departureTimes.length) {
+                departureTimes = Arrays.copyOf(departureTimes, departureCount * 2);
+                departureSlots = Arrays.copyOf(departureSlots, departureCount * 2);
+            }
+            int index = departureCount++;
+            while (index > 0 && departureTimes[(index - 1) / 2] > time) { // Sift up
+                int parent = (index - 1) / 2;
+                departureTimes[index] = departureTimes[parent];
+                departureSlots[index] = departureSlots[parent];
+                index = parent;
+            }
+            departureTimes[index] = time;
+            departureSlots[index] = slot;
+        }
+
+        // Removes the earliest departure from the heap, frees its slot and returns the slot
+        int pollDeparture() {
+            int slot = departureSlots[0];
+            double lastTime = departureTimes[--departureCount];
+            int lastSlot = departureSlots[departureCount];
+            int index = 0;
+            while (2 * index + 1 < departureCount) { // Sift the last departure down from the root
+                int child = 2 * index + 1;
+                if (child + 1 < departureCount && departureTimes[child + 1] < departureTimes[child]) {
+                    child++;
+                }
+                if (departureTimes[child] >= lastTime) {
+                    break;
+                }
+                departureTimes[index] = departureTimes[child];
+                departureSlots[index] = departureSlots[child];
+                index = child;
+            }
+            departureTimes[index] = lastTime;
+            departureSlots[index] = lastSlot;
+            freeSlots[freeCount++] = slot;
+            return slot;
+        }
+
+        // Takes the samples of the occupancy curve that are due up to the time (inclusive)
+        void sampleUntil(ParkingLot lot, double time) {
+            while (samples < inUse[0].length && samples * SAMPLE_MINUTES * 60 <= time) {
+                OccupancySummary summary = lot.getOccupancySummary();
+                for (int flag = 0; flag < 3; flag++) {
+                    inUse[flag][samples] = summary.getTotal(flag) - summary.getVacant(flag);
+                }
+                samples++;
+            }
+        }
+
+        // Returns the samples taken
+        int[][] curve() {
+            int[][] taken = new int[3][];
+            for (int flag = 0; flag < 3; flag++) {
+                taken[flag] = Arrays.copyOf(inUse[flag], samples);
+            }
+            return taken;
+        }
+    }
+}
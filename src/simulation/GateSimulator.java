@@ -0,0 +1,209 @@
+package simulation;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import model.ConcurrentParkingLot;
+import model.LatencyHistogram;
+import model.ParkingLot;
+
+/*
+Load generator for a lot: drives occupySpot and unoccupySpot from many gate clients at once, with
+the traffic of a LoadProfile played back in wall clock time, and reports throughput, latency
+percentiles and lock contention (see SimulationReport).
+
+Every client runs on a platform thread of its own (thousands of them, with small stacks), and
+serves its share of the arrivals (a Poisson process at arrivalsPerHour / clients) and the departures
+of the vehicles it parked, in time order. So the lot sees as many callers at once as there are
+clients, not a pool's worth. The simulated clock runs speedup times faster than the wall clock
+(e.g. 3600: an hour per second); a client that falls behind does not wait until it has caught up,
+and the time it was late shows in the response latencies.
+
+The traffic of every client only depends on the seed and the number of clients, so a run can be
+repeated with the same vehicles at the same (simulated) times. Which spot a vehicle gets, and
+whether it is turned away on a nearly full lot, also depends on how the clients interleave.
+*/
+public class GateSimulator {
+
+    // Stack size of a client thread: a client only calls the lot, so a small stack is enough
+    private static final long CLIENT_STACK_SIZE = 256 * 1024;
+
+    private final ParkingLot lot;
+    private final LoadProfile profile;
+    private final int clients;
+    private final double speedup;
+    private final long seed;
+
+    /*
+     * Constructs a simulator of the profile's traffic on the lot, from the given number of clients.
+     * A speedup of 0 plays the traffic back as fast as the clients can go
+     * REQUIRES: clients > 0, speedup >= 0, the lot is thread safe if clients > 1
+     */
+    public GateSimulator(ParkingLot lot, LoadProfile profile, int clients, double speedup, long seed) {
+        this.lot = lot;
+        this.profile = profile;
+        this.clients = clients;
+        this.speedup = speedup;
+        this.seed = seed;
+    }
+
+    /*
+     * Runs the traffic of the given number of simulated hours and returns the report. Vehicles
+     * still parked at the end of the run are left in the lot
+     */
+    public SimulationReport run(double hours) throws InterruptedException {
+        Run run = new Run(hours * 3600);
+        long contentionsBefore = lockContentions();
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[clients];
+        for (int client = 0; client < clients; client++) {
+            int number = client;
+            threads[client] = new Thread(null, () -> {
+                try {
+                    started.await(); // All clients start at once, after the threads were created
+                    runClient(run, number);
+                } catch (InterruptedException e) {
+                    // Another client failed, or the run was interrupted
+                } catch (RuntimeException | Error e) {
+                    failure.compareAndSet(null, e);
+                    interruptAll(threads);
+                }
+            }, "client-" + client, CLIENT_STACK_SIZE);
+            threads[client].setDaemon(true);
+            threads[client].start();
+        }
+        run.start = System.nanoTime();
+        started.countDown();
+        try {
+            for (Thread thread: threads) {
+                thread.join();
+            }
+        } finally {
+            interruptAll(threads); // Only stops clients if this thread was interrupted while waiting
+        }
+        if (failure.get() != null) {
+            throw new IllegalStateException("Client failed", failure.get());
+        }
+        long wallNanos = System.nanoTime() - run.start;
+        long contentions = contentionsBefore < 0 ? -1 : lockContentions() - contentionsBefore;
+        return new SimulationReport(run.arrivals.sum(), run.parked.sum(), run.departures.sum(), wallNanos,
+            contentions, run.occupyLatency.snapshot(), run.unoccupyLatency.snapshot(),
+            run.responseLatency.snapshot());
+    }
+
+    ///// HELPER METHODS /////
+
+    // Plays back the arrivals of the client and the departures of the vehicles it parked, in time order
+    private void runClient(Run run, int client) {
+        Random random = new Random(seed * 1_000_003 + client);
+        PriorityQueue<Departure> departures = new PriorityQueue<>();
+        double share = 1.0 / clients;
+        double nextArrival = profile.nextArrivalGap(random, share);
+        long vehicles = 0;
+
+        while (true) {
+            Departure departure = departures.peek();
+            boolean arriving = departure == null || nextArrival <= departure.time;
+            double time = arriving ? nextArrival : departure.time;
+            if (time >= run.seconds || Thread.currentThread().isInterrupted()) {
+                return; // End of the run, or another client failed
+            }
+            long due = waitUntil(run.start, time);
+            if (arriving) {
+                String plate = plateOf(vehicles++ * clients + client);
+                int flag = profile.nextFlag(random);
+                double stay = profile.nextStay(random);
+                nextArrival += profile.nextArrivalGap(random, share);
+
+                long begin = System.nanoTime();
+                boolean parked = lot.occupySpot(plate, flag) != null;
+                long end = System.nanoTime();
+                run.occupyLatency.record(end - begin);
+                run.responseLatency.record(end - due);
+                run.arrivals.increment();
+                if (parked) {
+                    run.parked.increment();
+                    departures.add(new Departure(time + stay, plate));
+                }
+            } else {
+                departures.poll();
+                long begin = System.nanoTime();
+                lot.unoccupySpot(departure.plate);
+                long end = System.nanoTime();
+                run.unoccupyLatency.record(end - begin);
+                run.responseLatency.record(end - due);
+                run.departures.increment();
+            }
+        }
+    }
+
+    // Waits until the wall clock time of the simulated time, returns that time (System.nanoTime)
+    private long waitUntil(long start, double time) {
+        if (speedup == 0) {
+            return System.nanoTime(); // Never late, never waits
+        }
+        long due = start + (long) (time / speedup * 1e9);
+        long remaining;
+        while ((remaining = due - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(remaining);
+        }
+        return due;
+    }
+
+    // Interrupts the threads of every client that was started
+    private static void interruptAll(Thread[] threads) {
+        for (Thread thread: threads) {
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    // Returns the lock contentions of the lot so far, -1 if the lot does not count them
+    private long lockContentions() {
+        return lot instanceof ConcurrentParkingLot concurrentLot ? concurrentLot.getLockContentions() : -1;
+    }
+
+    // Returns the plate of the vehicle with the given number: V and the number in base 36 (6 digits)
+    private static String plateOf(long number) {
+        String digits = Long.toString(number, 36).toUpperCase();
+        return "V" + "000000".substring(Math.min(6, digits.length())) + digits;
+    }
+
+    // Counts and latencies of one run, shared by its clients
+    private static class Run {
+        private final double seconds;
+        private final LongAdder arrivals = new LongAdder();
+        private final LongAdder parked = new LongAdder();
+        private final LongAdder departures = new LongAdder();
+        private final LatencyHistogram occupyLatency = new LatencyHistogram();
+        private final LatencyHistogram unoccupyLatency = new LatencyHistogram();
+        private final LatencyHistogram responseLatency = new LatencyHistogram();
+        private volatile long start;
+
+        Run(double seconds) {
+            this.seconds = seconds;
+        }
+    }
+
+    // A vehicle that leaves at the given simulated time
+    private static class Departure implements Comparable<Departure> {
+        private final double time;
+        private final String plate;
+
+        Departure(double time, String plate) {
+            this.time = time;
+            this.plate = plate;
+        }
+
+        @Override
+        public int compareTo(Departure other) {
+            return Double.compare(time, other.time);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package simulation;
+
+import java.util.Random;
+
+/*
+The traffic of a lot, in simulated time: vehicles arrive as a Poisson process (exponential gaps
+between arrivals), stay for a log-normal time (most stays are close to the median, a few are very
+long), and are cars, motorcycles or commercial vehicles in fixed shares. Every draw takes its
+randomness from the given Random, so the same seed always gives the same traffic.
+
+On average arrivalsPerHour * meanStayMinutes / 60 vehicles are parked at once (Little's law), which
+is the number of spots the lot needs to turn no one away.
+*/
+public class LoadProfile {
+
+    private final double arrivalsPerHour;
+    private final double meanStayMinutes;
+    private final double staySpread;
+    private final double motorcycleShare;
+    private final double commercialShare;
+
+    // Mean of the logarithm of a stay in seconds, so the mean stay is meanStayMinutes
+    private final double logStayMean;
+
+    /*
+     * Constructs the profile. The spread is the standard deviation of the logarithm of a stay
+     * (0 = every stay is the mean, around 1 = stays of a few minutes to many hours)
+     * REQUIRES: arrivalsPerHour > 0, meanStayMinutes > 0, staySpread >= 0, and the shares are
+     * between 0 and 1 with motorcycleShare + commercialShare <= 1 (the rest are cars)
+     */
+    public LoadProfile(double arrivalsPerHour, double meanStayMinutes, double staySpread,
+                       double motorcycleShare, double commercialShare) {
+        this.arrivalsPerHour = arrivalsPerHour;
+        this.meanStayMinutes = meanStayMinutes;
+        this.staySpread = staySpread;
+        this.motorcycleShare = motorcycleShare;
+        this.commercialShare = commercialShare;
+        this.logStayMean = Math.log(meanStayMinutes * 60) - staySpread * staySpread / 2;
+    }
+
+    // Returns the simulated seconds until the next arrival, for arrivals at the given share of the rate
+    public double nextArrivalGap(Random random, double share) {
+        return -Math.log(1 - random.nextDouble()) * 3600 / (arrivalsPerHour * share);
+    }
+
+    // Returns the simulated seconds the next vehicle stays
+    public double nextStay(Random random) {
+        return Math.exp(logStayMean + staySpread * random.nextGaussian());
+    }
+
+    // Returns the type of the next vehicle (0 = car, 1 = motorcycle, 2 = commercial)
+    public int nextFlag(Random random) {
+        double draw = random.nextDouble();
+        return draw < motorcycleShare ? 1 : draw < motorcycleShare + commercialShare ? 2 : 0;
+    }
+
+    // Returns the number of vehicles parked at once on average (see class comment)
+    public double getMeanParked() {
+        return arrivalsPerHour * meanStayMinutes / 60;
+    }
+
+    ///// GETTER METHODS /////
+
+    public double getArrivalsPerHour() { return arrivalsPerHour; }
+    public double getMeanStayMinutes() { return meanStayMinutes; }
+    public double getStaySpread() { return staySpread; }
+    public double getMotorcycleShare() { return motorcycleShare; }
+    public double getCommercialShare() { return commercialShare; }
+}
@@ -0,0 +1,97 @@
+package simulation;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import model.LatencyHistogram;
+
+/*
+Results of one load run of the GateSimulator: how many vehicles came, parked, were turned away and
+left, how fast the lot kept up (operations per second of wall clock time), and how long the calls
+took. Latencies are in nanoseconds:
+ - occupy / unoccupy: the time spent in occupySpot / unoccupySpot
+ - response: from the time the vehicle was due at the gate to the end of its call, so it also
+   counts the time it waited for a gate that was busy or late (queueing)
+*/
+public class SimulationReport {
+
+    private final long arrivals;
+    private final long parked;
+    private final long rejected;
+    private final long departures;
+    private final long wallNanos;
+    private final long lockContentions;
+    private final LatencyHistogram.Snapshot occupyLatency;
+    private final LatencyHistogram.Snapshot unoccupyLatency;
+    private final LatencyHistogram.Snapshot responseLatency;
+
+    // Constructs the report of a finished run. Lock contentions are -1 if the lot does not count them
+    SimulationReport(long arrivals, long parked, long departures, long wallNanos, long lockContentions,
+                     LatencyHistogram.Snapshot occupyLatency, LatencyHistogram.Snapshot unoccupyLatency,
+                     LatencyHistogram.Snapshot responseLatency) {
+        this.arrivals = arrivals;
+        this.parked = parked;
+        this.rejected = arrivals - parked;
+        this.departures = departures;
+        this.wallNanos = wallNanos;
+        this.lockContentions = lockContentions;
+        this.occupyLatency = occupyLatency;
+        this.unoccupyLatency = unoccupyLatency;
+        this.responseLatency = responseLatency;
+    }
+
+    // Returns the occupySpot and unoccupySpot calls made per second of wall clock time
+    public double getThroughput() {
+        return wallNanos == 0 ? 0 : (arrivals + departures) * 1e9 / wallNanos;
+    }
+
+    /*
+     * Returns the report by name, e.g. vehicles.rejected, throughput, occupy.p99, response.max.
+     * Latencies (.p50 / .p99 / .p999 / .max) are in nanoseconds
+     */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> report = new TreeMap<>();
+        report.put("vehicles.arrived", arrivals);
+        report.put("vehicles.parked", parked);
+        report.put("vehicles.rejected", rejected);
+        report.put("vehicles.departed", departures);
+        report.put("wall.millis", wallNanos / 1_000_000);
+        report.put("throughput", Math.round(getThroughput()));
+        report.put("lock.contended", lockContentions);
+        putLatency(report, "occupy", occupyLatency);
+        putLatency(report, "unoccupy", unoccupyLatency);
+        putLatency(report, "response", responseLatency);
+        return report;
+    }
+
+    // Returns the report as text, one "name value" line per entry
+    public String export() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Long> entry: snapshot().entrySet()) {
+            text.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        }
+        return text.toString();
+    }
+
+    ///// HELPER METHODS /////
+
+    // Puts the percentiles and maximum of the latencies under the prefix
+    private static void putLatency(Map<String, Long> report, String prefix, LatencyHistogram.Snapshot latency) {
+        report.put(prefix + ".p50", latency.getValueAtPercentile(50));
+        report.put(prefix + ".p99", latency.getValueAtPercentile(99));
+        report.put(prefix + ".p999", latency.getValueAtPercentile(99.9));
+        report.put(prefix + ".max", latency.getMax());
+    }
+
+    ///// GETTER METHODS /////
+
+    public long getArrivals() { return arrivals; }
+    public long getParked() { return parked; }
+    public long getRejected() { return rejected; }
+    public long getDepartures() { return departures; }
+    public long getWallNanos() { return wallNanos; }
+    public long getLockContentions() { return lockContentions; }
+    public LatencyHistogram.Snapshot getOccupyLatency() { return occupyLatency; }
+    public LatencyHistogram.Snapshot getUnoccupyLatency() { return unoccupyLatency; }
+    public LatencyHistogram.Snapshot getResponseLatency() { return responseLatency; }
+}
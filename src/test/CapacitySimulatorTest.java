@@ -0,0 +1,103 @@
+package test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import model.Intersection;
+import model.ParkingLot;
+import simulation.CapacityReport;
+import simulation.CapacitySimulator;
+import simulation.LoadProfile;
+
+/*
+Tests the capacity simulator on a small lot with a graph: the same seed gives the same report, the
+lot is empty after a run, a lot too small turns vehicles away, and the shortest route policy drives
+less than the furthest spot policy.
+*/
+public class CapacitySimulatorTest {
+
+    // 60 vehicles an hour staying 2 hours on average: 120 parked at once
+    private static final LoadProfile PROFILE = new LoadProfile(60, 120, 0.5, 0.1, 0.1);
+
+    public ParkingLot parkingLot;
+    public Intersection[] aisles;
+
+    /*
+     * A lot of 200 spots (80% car, 10% motorcycle, 10% commercial) in 10 aisles of 20, the aisles
+     * chained, with an entrance at the first aisle and the lobby at the last one
+     */
+    @Before
+    public void constructParkingLot() {
+        parkingLot = new ParkingLot("Lot 1");
+        aisles = new Intersection[10];
+        for (int aisle = 0; aisle < aisles.length; aisle++) {
+            aisles[aisle] = new Intersection(aisle, "Aisle " + aisle);
+            if (aisle > 0) {
+                parkingLot.getGraph().connectVertices(aisles[aisle - 1], aisles[aisle], 10);
+            }
+        }
+        for (int id = 0; id < 200; id++) {
+            parkingLot.addParkingSpot(id, id, id % 10 < 8 ? 0 : id % 10 < 9 ? 1 : 2);
+            parkingLot.connectSpot(id, aisles[id / 20], 1 + id % 20);
+        }
+        parkingLot.addEntrance(0, aisles[0]);
+    }
+
+    // Same traffic, same report; the occupancy curve has a sample every 15 minutes
+    @Test
+    public void reproducibleTest() {
+        CapacitySimulator simulator = new CapacitySimulator(parkingLot, PROFILE, CapacitySimulator.Allocation.FURTHEST, 5);
+        CapacityReport first = simulator.run(7);
+        assertEquals(0, parkingLot.getLicensePlates().size());
+        assertEquals(200, parkingLot.getOccupancySummary().getVacantCarSpots()
+            + parkingLot.getOccupancySummary().getVacantMotorcycleSpots()
+            + parkingLot.getOccupancySummary().getVacantCommercialSpots());
+
+        CapacityReport second = simulator.run(7);
+        assertEquals(7 * 24 * 4 + 1, first.getSampleCount());
+        for (int flag = 0; flag < 3; flag++) {
+            assertEquals(first.getArrivals(flag), second.getArrivals(flag));
+            assertEquals(first.getRejected(flag), second.getRejected(flag));
+            assertArrayEquals(first.getInUse(flag), second.getInUse(flag));
+        }
+        assertEquals(first.getAverageDrive(), second.getAverageDrive(), 0);
+        long arrived = first.getArrivals(0) + first.getArrivals(1) + first.getArrivals(2);
+        assertEquals(7 * 24 * 60, arrived, 7 * 24 * 60 / 10);
+        assertEquals(0, first.getInUse(0)[0]); // Empty at the start
+        assertTrue(first.getPeakInUse() > 100 && first.getPeakInUse() <= 200);
+    }
+
+    // More traffic than spots: vehicles are turned away, and the curve never goes over the lot
+    @Test
+    public void fullLotTest() {
+        LoadProfile busy = new LoadProfile(200, 120, 0.5, 0.1, 0.1);
+        CapacityReport report = new CapacitySimulator(parkingLot, busy, CapacitySimulator.Allocation.FURTHEST, 1).run(2);
+        assertTrue(report.getRejectionRate() > 0.2);
+        assertTrue(report.getRejectionRate(2) > 0);
+        assertEquals(report.getRejectionRate(), report.snapshot().get("rejectionRate"), 0);
+        for (int value: report.getInUse(0)) {
+            assertTrue(value <= 160);
+        }
+        assertEquals(0, parkingLot.getLicensePlates().size());
+    }
+
+    // Taking the spot with the shortest route drives less, and walks more to a lobby at the far end
+    @Test
+    public void allocationTest() {
+        CapacitySimulator furthest = new CapacitySimulator(parkingLot, PROFILE, CapacitySimulator.Allocation.FURTHEST, 3);
+        CapacitySimulator shortest = new CapacitySimulator(parkingLot, PROFILE, CapacitySimulator.Allocation.SHORTEST_ROUTE, 3);
+        furthest.walkTo(aisles[9]);
+        shortest.walkTo(aisles[9]);
+        CapacityReport furthestReport = furthest.run(3);
+        CapacityReport shortestReport = shortest.run(3);
+
+        assertEquals(furthestReport.getArrivals(0), shortestReport.getArrivals(0));
+        assertTrue(shortestReport.getAverageDrive() < furthestReport.getAverageDrive());
+        assertTrue(shortestReport.getAverageWalk() > furthestReport.getAverageWalk());
+        assertTrue(furthestReport.getAverageDrive() > 0);
+    }
+}
@@ -0,0 +1,214 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import model.CarSpot;
+import model.CompactParkingLot;
+import model.ParkingLot;
+import model.ParkingSpot;
+import model.SpotView;
+
+/*
+Tests the struct of arrays parking lot on the same sample lot as ParkingLotTest, and against
+ParkingLot on a random sequence of operations
+*/
+public class CompactParkingLotTest {
+
+    public CompactParkingLot parkingLot;
+
+    // Construct the sample lot of ParkingLotTest: 6 car spots, 5 motorcycle spots, 4 commercial spots
+    @Before
+    public void constructParkingLotAndSpots() {
+        parkingLot = new CompactParkingLot("Lot 1");
+        int[] carSpotIds = {11, 12, 13, 14, 15, 16};
+        int[] carSpotDists = {100, 101, 108, 106, 109, 104};
+        for (int i = 0; i < 6; i++) {
+            parkingLot.addParkingSpot(carSpotIds[i], carSpotDists[i], 0);
+        }
+        int [] motorcycleSpotIds = {20, 21, 22, 23, 24};
+        int [] motorcycleSpotDists = {51, 57, 53, 59, 50};
+        for (int i = 0; i < 5; i++) {
+            parkingLot.addParkingSpot(motorcycleSpotIds[i], motorcycleSpotDists[i], 1);
+        }
+        int [] commercialSpotIds = {31, 32, 33, 34};
+        int [] commercialSpotDists = {201, 202, 203, 204};
+        for (int i = 0; i < 4; i++) {
+            parkingLot.addParkingSpot(commercialSpotIds[i], commercialSpotDists[i], 2);
+        }
+    }
+
+    // Adds spots, including a duplicate id, and checks the views of the new spots
+    @Test
+    public void addSpotsTest() {
+        checkCounts(15, 6, 0, 5, 4);
+        assertNull(parkingLot.addParkingSpot(12, 199, 2));
+        SpotView spot = parkingLot.addParkingSpot(19, 199, 2);
+        assertEquals(19, spot.getParkingSpotId());
+        assertEquals(199, spot.getDistance(), 0.001);
+        assertEquals(2, spot.getType());
+        checkSpot(spot, false, "", "", 0);
+        checkCounts(16, 6, 0, 5, 5);
+        assertEquals(spot, parkingLot.findParkingSpot(19));
+        assertNull(parkingLot.findParkingSpot(99));
+    }
+
+    // Parks every vehicle type until the lot is full, then lets them leave again
+    @Test
+    public void occupyAndUnoccupyTest() {
+        assertEquals(15, parkingLot.occupySpot("car 001", 0).getParkingSpotId());
+        assertEquals(23, parkingLot.occupySpot("MOTO01", 1).getParkingSpotId());
+        assertEquals(34, parkingLot.occupySpot("TRUCK1", 2).getParkingSpotId());
+        checkSpot(parkingLot.findParkingSpot(15), true, "CAR001", "", 0);
+        checkPlateRejected("CAR-001", "Plate already exists");
+        checkPlateRejected("CAR", "Plate is too long or short");
+
+        // Motorcycles fill the motorcycle spots, then share the furthest car spots
+        for (int i = 2; i <= 7; i++) {
+            parkingLot.occupySpot("MOTO0" + i, 1);
+        }
+        checkCounts(15, 4, 0, 0, 3);
+        checkSpot(parkingLot.findParkingSpot(13), true, "MOTO06", "MOTO07", 2);
+        assertEquals(14, parkingLot.occupySpot("MOTO08", 1).getParkingSpotId());
+        checkCounts(15, 3, 1, 0, 3);
+
+        // Motorcycle leaves a full car spot (half full again), then the other one (vacant again)
+        assertEquals(13, parkingLot.unoccupySpot("MOTO06").getParkingSpotId());
+        checkSpot(parkingLot.findParkingSpot(13), true, "", "MOTO07", 1);
+        checkCounts(15, 3, 2, 0, 3);
+        assertEquals(13, parkingLot.occupySpot("MOTO09", 1).getParkingSpotId());
+        checkSpot(parkingLot.findParkingSpot(13), true, "MOTO09", "MOTO07", 2);
+        parkingLot.unoccupySpot("MOTO09");
+        parkingLot.unoccupySpot("MOTO07");
+        checkSpot(parkingLot.findParkingSpot(13), false, "", "", 0);
+        checkCounts(15, 4, 1, 0, 3);
+
+        assertNull(parkingLot.unoccupySpot("NOPE01"));
+        assertEquals(15, parkingLot.unoccupySpot("CAR001").getParkingSpotId());
+        assertEquals(7, parkingLot.getParkedCount());
+    }
+
+    // Manually occupies spots with cars and motorcycles, including the cases that do not fit
+    @Test
+    public void manuallyOccupyTest() {
+        assertNull(parkingLot.manuallyOccupy(99, "ABC123", false));
+        assertEquals(11, parkingLot.manuallyOccupy(11, "ABC123", true).getParkingSpotId());
+        checkCounts(15, 5, 1, 5, 4);
+        assertNull(parkingLot.manuallyOccupy(11, "CAR001", false));
+        checkSpot(parkingLot.manuallyOccupy(11, "XYZ789", true), true, "ABC123", "XYZ789", 2);
+        checkCounts(15, 5, 0, 5, 4);
+        assertNull(parkingLot.manuallyOccupy(11, "MOTO01", true));
+        assertEquals(20, parkingLot.manuallyOccupy(20, "CAR002", false).getParkingSpotId());
+        checkCounts(15, 5, 0, 4, 4);
+        try {
+            parkingLot.manuallyOccupy(31, "ABC 123", false);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Plate already exists", e.getMessage());
+        }
+    }
+
+    /*
+     * Runs the same random operations on a CompactParkingLot and a ParkingLot with the same spots,
+     * and checks that both give the same spot (or none) every time
+     */
+    @Test
+    public void sameAsParkingLotRandomTest() {
+        Random random = new Random(15);
+        ParkingLot lot = new ParkingLot("Reference lot");
+        CompactParkingLot compactLot = new CompactParkingLot("Compact lot", 4);
+        List<Integer> distances = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            distances.add(i);
+        }
+        Collections.shuffle(distances, random);
+        for (int id = 0; id < 300; id++) {
+            int flag = id % 10 < 7 ? 0 : id % 10 < 9 ? 1 : 2;
+            lot.addParkingSpot(id * 7, distances.get(id), flag);
+            compactLot.addParkingSpot(id * 7, distances.get(id), flag);
+        }
+
+        List<String> parked = new ArrayList<>();
+        for (int round = 0; round < 20000; round++) {
+            int action = random.nextInt(10);
+            if (action < 4 && !parked.isEmpty()) {
+                String plate = parked.remove(random.nextInt(parked.size()));
+                ParkingSpot spot = lot.unoccupySpot(plate);
+                checkSameSpot(spot, compactLot.unoccupySpot(plate));
+                continue;
+            }
+            String plate = String.format("R%05d", round);
+            int flag = random.nextInt(3);
+            ParkingSpot spot;
+            SpotView view;
+            if (action == 9) {
+                int id = random.nextInt(300) * 7;
+                spot = lot.manuallyOccupy(id, plate, flag == 1);
+                view = compactLot.manuallyOccupy(id, plate, flag == 1);
+            } else {
+                spot = lot.occupySpot(plate, flag);
+                view = compactLot.occupySpot(plate, flag);
+            }
+            checkSameSpot(spot, view);
+            if (spot != null) {
+                parked.add(plate);
+            }
+        }
+        assertEquals(lot.getPlateToSpot().size(), compactLot.getParkedCount());
+        assertEquals(lot.getVacantCarSpots().size(), compactLot.getVacantCarSpotCount());
+        assertEquals(lot.getHalfFullCarSpots().size(), compactLot.getHalfFullCarSpotCount());
+        assertEquals(lot.getVacantMotorcycleSpots().size(), compactLot.getVacantMotorcycleSpotCount());
+        assertEquals(lot.getVacantCommericalSpots().size(), compactLot.getVacantCommercialSpotCount());
+    }
+
+    ///// HELPER METHODS /////
+
+    // Checks that the view shows the same spot, in the same state, as the ParkingSpot (or both null)
+    public void checkSameSpot(ParkingSpot spot, SpotView view) {
+        if (spot == null) {
+            assertNull(view);
+            return;
+        }
+        assertEquals(spot.getParkingSpotId(), view.getParkingSpotId());
+        assertEquals(spot.getOccupiedStatus(), view.getOccupiedStatus());
+        if (spot instanceof CarSpot carSpot) {
+            assertEquals(carSpot.getMotorcycleCount(), view.getMotorcycleCount());
+        }
+    }
+
+    // Checks the state of the spot
+    public void checkSpot(SpotView spot, boolean occupied, String plate, String plate2, int motorcycles) {
+        assertEquals(occupied, spot.getOccupiedStatus());
+        assertEquals(plate, spot.getLicensePlate());
+        assertEquals(plate2, spot.getLicensePlate2());
+        assertEquals(motorcycles, spot.getMotorcycleCount());
+    }
+
+    // Checks the number of spots, and of vacant car, half full car, vacant motorcycle and commercial spots
+    public void checkCounts(int spots, int car, int halfFull, int motorcycle, int commercial) {
+        assertEquals(spots, parkingLot.getSpotCount());
+        assertEquals(car, parkingLot.getVacantCarSpotCount());
+        assertEquals(halfFull, parkingLot.getHalfFullCarSpotCount());
+        assertEquals(motorcycle, parkingLot.getVacantMotorcycleSpotCount());
+        assertEquals(commercial, parkingLot.getVacantCommercialSpotCount());
+    }
+
+    // Checks that occupySpot rejects the plate with the given message
+    public void checkPlateRejected(String plate, String message) {
+        try {
+            parkingLot.occupySpot(plate, 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import model.Arrival;
+import model.BatchResult;
+import model.CarSpot;
+import model.ConcurrentParkingLot;
+import model.Intersection;
+import model.OccupancySummary;
+import model.ParkingSpot;
+import model.ShortestPathTree;
+
+/*
+Stress tests the thread safe parking lot by driving it from many threads (gates) at once. Checks
+that no spot is ever handed to more vehicles than it fits, that the same plate is never parked
+twice, and that the lot is consistent again once every vehicle has left.
+*/
+public class ConcurrentParkingLotTest {
+
+    private static final int THREADS = 16;
+    private static final int ROUNDS = 2000;
+
+    public ConcurrentParkingLot parkingLot;
+
+    // Constructs a lot with 40 car spots, 10 motorcycle spots and 5 commercial spots
+    @Before
+    public void constructParkingLotAndSpots() {
+        parkingLot = createLot("Concurrent lot");
+        int id = 0;
+        for (int i = 0; i < 40; i++) {
+            parkingLot.addParkingSpot(id++, 100 + i, 0);
+        }
+        for (int i = 0; i < 10; i++) {
+            parkingLot.addParkingSpot(id++, 50 + i, 1);
+        }
+        for (int i = 0; i < 5; i++) {
+            parkingLot.addParkingSpot(id++, 200 + i, 2);
+        }
+    }
+
+    /*
+     * Every thread repeatedly parks one of its own vehicles (random type, automatic or manual) and
+     * lets it leave again. The load of every spot is tracked in "halves": a car, a commercial
+     * vehicle or a motorcycle in a motorcycle spot takes both halves, a motorcycle in a car spot
+     * takes one. The load of a spot must never go above 2.
+     */
+    @Test
+    public void occupyAndUnoccupyStressTest() throws InterruptedException {
+        ConcurrentHashMap<Integer, AtomicInteger> load = new ConcurrentHashMap<>();
+        AtomicInteger overbooked = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+
+        runOnThreads(thread -> {
+            Random random = new Random(thread);
+            for (int round = 0; round < ROUNDS; round++) {
+                String plate = String.format("T%02d%04d", thread, round % 100);
+                int flag = random.nextInt(3);
+                ParkingSpot spot = random.nextInt(4) == 0
+                    ? parkingLot.manuallyOccupy(random.nextInt(55), plate, flag == 1)
+                    : parkingLot.occupySpot(plate, flag);
+                if (spot == null) {
+                    continue; // Lot full, or manual spot not available
+                }
+                int halves = spot instanceof CarSpot carSpot && carSpot.getMotorcycleCount() > 0 ? 1 : 2;
+                AtomicInteger spotLoad = load.computeIfAbsent(spot.getParkingSpotId(),
+                    k -> new AtomicInteger());
+                if (spotLoad.addAndGet(halves) > 2) {
+                    overbooked.incrementAndGet();
+                }
+                Thread.yield();
+                spotLoad.addAndGet(-halves);
+                if (parkingLot.unoccupySpot(plate) != spot) {
+                    errors.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(0, overbooked.get());
+        assertEquals(0, errors.get());
+        checkLotIsEmpty();
+    }
+
+    // Many threads try to park the same plate at the same time, only one of them may succeed
+    @Test
+    public void duplicatePlateStressTest() throws InterruptedException {
+        for (int attempt = 0; attempt < 50; attempt++) {
+            AtomicInteger successes = new AtomicInteger();
+            AtomicInteger duplicates = new AtomicInteger();
+            runOnThreads(thread -> {
+                try {
+                    if (parkingLot.occupySpot("DUP001", thread % 3) != null) {
+                        successes.incrementAndGet();
+                    }
+                } catch (IllegalArgumentException e) {
+                    assertEquals("Plate already exists", e.getMessage());
+                    duplicates.incrementAndGet();
+                }
+            });
+            assertEquals(1, successes.get());
+            assertEquals(THREADS - 1, duplicates.get());
+            assertNotNull(parkingLot.unoccupySpot("DUP001"));
+            assertNull(parkingLot.unoccupySpot("DUP001"));
+        }
+        checkLotIsEmpty();
+    }
+
+    /*
+     * A sign polls the occupancy summary while the gates park and leave. Every summary it reads must
+     * add up to the number of spots of every type, and the lot is back to all vacant at the end.
+     */
+    @Test
+    public void occupancySummaryStressTest() throws InterruptedException {
+        AtomicInteger wrongTotals = new AtomicInteger();
+        AtomicInteger polls = new AtomicInteger();
+        Thread sign = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                OccupancySummary summary = parkingLot.getOccupancySummary();
+                if (summary.getTotal(0) != 40 || summary.getTotal(1) != 10 || summary.getTotal(2) != 5) {
+                    wrongTotals.incrementAndGet();
+                }
+                polls.incrementAndGet();
+            }
+        });
+        sign.start();
+        runOnThreads(thread -> {
+            Random random = new Random(thread);
+            for (int round = 0; round < ROUNDS; round++) {
+                String plate = String.format("S%02d%04d", thread, round % 100);
+                if (parkingLot.occupySpot(plate, random.nextInt(3)) != null) {
+                    parkingLot.unoccupySpot(plate);
+                }
+            }
+        });
+        sign.interrupt();
+        sign.join();
+        assertEquals(0, wrongTotals.get());
+        assertTrue(polls.get() > 0);
+        checkLotIsEmpty();
+    }
+
+    // Fills the whole lot from many threads, every spot must be handed out exactly once
+    @Test
+    public void fillLotStressTest() throws InterruptedException {
+        ConcurrentHashMap<Integer, String> holders = new ConcurrentHashMap<>();
+        AtomicInteger doubleHanded = new AtomicInteger();
+        runOnThreads(thread -> {
+            for (int i = 0; i < 10; i++) {
+                String plate = String.format("F%02d%03d", thread, i);
+                ParkingSpot spot = parkingLot.occupySpot(plate, 0);
+                if (spot != null && holders.putIfAbsent(spot.getParkingSpotId(), plate) != null) {
+                    doubleHanded.incrementAndGet();
+                }
+            }
+        });
+        assertEquals(0, doubleHanded.get());
+        assertEquals(40, holders.size());
+        assertEquals(40, parkingLot.getPlateToSpot().size());
+        checkVacantCounts(0, 10, 5, 0);
+    }
+
+    // Fills the car spots from 2 entrances at both ends of the lot, every spot handed out exactly once
+    @Test
+    public void fillLotFromEntrancesStressTest() throws InterruptedException {
+        Intersection[] entrances = {new Intersection(0, "North gate"), new Intersection(1, "South gate")};
+        for (int id = 0; id < 40; id++) {
+            parkingLot.connectSpot(id, entrances[0], 1 + id);
+            parkingLot.connectSpot(id, entrances[1], 40 - id);
+        }
+        ConcurrentHashMap<Integer, String> holders = new ConcurrentHashMap<>();
+        AtomicInteger doubleHanded = new AtomicInteger();
+        runOnThreads(thread -> {
+            for (int i = 0; i < 10; i++) {
+                String plate = String.format("E%02d%03d", thread, i);
+                ParkingSpot spot = parkingLot.occupySpot(plate, 0, entrances[thread % 2]);
+                if (spot != null && holders.putIfAbsent(spot.getParkingSpotId(), plate) != null) {
+                    doubleHanded.incrementAndGet();
+                }
+            }
+        });
+        assertEquals(0, doubleHanded.get());
+        assertEquals(40, holders.size());
+        checkVacantCounts(0, 10, 5, 0);
+    }
+
+    /*
+     * Every thread parks a batch of 10 cars and one commercial vehicle with a plate shared by all
+     * threads, then lets its batch leave again. Every car spot is handed out exactly once, the
+     * shared plate is parked by exactly one thread, and the lot is empty again at the end.
+     */
+    @Test
+    public void batchStressTest() throws InterruptedException {
+        ConcurrentHashMap<Integer, String> holders = new ConcurrentHashMap<>();
+        AtomicInteger doubleHanded = new AtomicInteger();
+        AtomicInteger sharedParked = new AtomicInteger();
+        CountDownLatch allParked = new CountDownLatch(THREADS);
+        runOnThreads(thread -> {
+            List<Arrival> arrivals = new ArrayList<>();
+            List<String> plates = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                plates.add(String.format("B%02d%03d", thread, i));
+                arrivals.add(new Arrival(plates.get(i), 0));
+            }
+            arrivals.add(new Arrival("SHARED1", 2));
+            for (BatchResult result: parkingLot.occupySpots(arrivals)) {
+                if (result.getPlate().equals("SHARED1")) {
+                    if (result.isSuccess()) {
+                        sharedParked.incrementAndGet();
+                        plates.add("SHARED1");
+                    }
+                } else if (result.isSuccess()
+                           && holders.putIfAbsent(result.getSpot().getParkingSpotId(), result.getPlate()) != null) {
+                    doubleHanded.incrementAndGet();
+                }
+            }
+            allParked.countDown();
+            try {
+                allParked.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            parkingLot.unoccupySpots(plates);
+        });
+        assertEquals(0, doubleHanded.get());
+        assertEquals(40, holders.size());
+        assertEquals(1, sharedParked.get());
+        checkLotIsEmpty();
+    }
+
+    /*
+     * A plate that is being parked is reserved, so a second gate cannot park it, but it is not in
+     * the plate index (or the plates) until it is parked
+     */
+    @Test
+    public void reservedPlateTest() {
+        List<String> failures = new ArrayList<>();
+        ConcurrentParkingLot lot = new ConcurrentParkingLot("Reserving lot") {
+            @Override
+            protected ParkingSpot allocateSpot(String plate, int flag, ShortestPathTree routes) {
+                if (getPlateToSpot().containsKey(plate) || getLicensePlates().contains(plate)) {
+                    failures.add("Reserved plate is in the plate index");
+                }
+                try {
+                    occupySpot(plate, flag); // The same plate at another gate
+                    failures.add("Reserved plate was parked twice");
+                } catch (IllegalArgumentException e) {
+                    // Expected
+                }
+                return super.allocateSpot(plate, flag, routes);
+            }
+        };
+        lot.addParkingSpot(0, 10, 0);
+        assertNotNull(lot.occupySpot("CAR001", 0));
+        assertNull(lot.occupySpot("CAR002", 0)); // Full, the reservation is dropped
+        assertEquals(0, failures.size());
+        assertEquals(1, lot.getPlateToSpot().size());
+        assertNotNull(lot.unoccupySpot("CAR001"));
+        assertNotNull(lot.occupySpot("CAR002", 0));
+    }
+
+    ///// HELPER METHODS /////
+
+    // Creates the lot under test (overridden to run the same stress tests on other lots)
+    protected ConcurrentParkingLot createLot(String name) {
+        return new ConcurrentParkingLot(name);
+    }
+
+    // Checks the number of vacant car, motorcycle, commercial and half full car spots
+    protected void checkVacantCounts(int car, int motorcycle, int commercial, int halfFull) {
+        assertEquals(car, parkingLot.getVacantCarSpots().size());
+        assertEquals(motorcycle, parkingLot.getVacantMotorcycleSpots().size());
+        assertEquals(commercial, parkingLot.getVacantCommericalSpots().size());
+        assertEquals(halfFull, parkingLot.getHalfFullCarSpots().size());
+        checkOccupancySummary(car, motorcycle, commercial, halfFull);
+    }
+
+    // Checks that the occupancy summary of the lot has the same counts as checkVacantCounts
+    protected void checkOccupancySummary(int car, int motorcycle, int commercial, int halfFull) {
+        OccupancySummary summary = parkingLot.getOccupancySummary();
+        assertEquals(car, summary.getVacantCarSpots());
+        assertEquals(motorcycle, summary.getVacantMotorcycleSpots());
+        assertEquals(commercial, summary.getVacantCommercialSpots());
+        assertEquals(halfFull, summary.getHalfFullCarSpots());
+        assertEquals(40 - car - halfFull, summary.getOccupied(0));
+    }
+
+    // Body of a thread, given the number of the thread
+    private interface ThreadBody {
+        void run(int thread);
+    }
+
+    // Runs the body on THREADS threads that all start at the same time, and waits for them
+    private void runOnThreads(ThreadBody body) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                body.run(thread);
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread: threads) {
+            thread.join();
+        }
+    }
+
+    // Checks that all spots are back in their priority queues, and no plates are left
+    private void checkLotIsEmpty() {
+        assertTrue(parkingLot.getPlateToSpot().isEmpty());
+        checkVacantCounts(40, 10, 5, 0);
+        for (ParkingSpot spot: parkingLot.getParkingSpots().values()) {
+            assertEquals(false, spot.getOccupiedStatus());
+        }
+    }
+}
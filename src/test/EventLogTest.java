@@ -0,0 +1,287 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import model.CarSpot;
+import model.ConcurrentParkingLot;
+import model.EventLog;
+import model.ParkingLot;
+import model.ParkingSpot;
+
+/*
+Tests the event log of a parking lot: the changes of a logged lot are replayed into a new lot (as
+a process recovering from a crash would), which must have the same spots, occupancy and plates.
+Also tests the group commit, a partly written last event, and the segments.
+*/
+public class EventLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    public Path directory;
+
+    @Before
+    public void createDirectory() {
+        directory = folder.getRoot().toPath().resolve("log");
+    }
+
+    // Logs a lot that already has spots, replays it, then keeps logging the recovered lot
+    @Test
+    public void logAndReplayTest() throws IOException {
+        ParkingLot lot = new ParkingLot("Lot 1");
+        for (int id = 0; id < 10; id++) {
+            lot.addParkingSpot(id, 100 + id, id < 6 ? 0 : id < 8 ? 1 : 2);
+        }
+        lot.occupySpot("CAR001", 0);
+        lot.manuallyOccupy(1, "HALF01", true);
+        EventLog log = EventLog.open(directory, 16, 5);
+        lot.logTo(log);
+        for (int id = 10; id < 20; id++) {
+            lot.addParkingSpot(id, id, 0);
+        }
+        lot.occupySpot("TRUCK1", 2);
+        for (int i = 1; i <= 5; i++) {
+            lot.occupySpot("MOTO0" + i, 1);
+        }
+        lot.unoccupySpot("MOTO04");
+        lot.unoccupySpot("CAR001");
+        lot.occupySpot("CAR002", 0);
+        log.close();
+
+        ParkingLot recovered = new ParkingLot("Lot 1");
+        long last = EventLog.replay(directory, recovered);
+        checkSameLot(lot, recovered);
+
+        // The recovered lot continues the same log
+        EventLog reopened = EventLog.open(directory, 16, 5);
+        assertEquals(last, reopened.getLastSequence());
+        recovered.logTo(reopened);
+        recovered.unoccupySpot("HALF01");
+        recovered.occupySpot("CAR003", 0);
+        reopened.close();
+        ParkingLot recoveredAgain = new ParkingLot("Lot 1");
+        assertEquals(last + 2, EventLog.replay(directory, recoveredAgain));
+        checkSameLot(recovered, recoveredAgain);
+    }
+
+    // Events wait in memory until the batch is full (or sync), then are written in one group
+    @Test
+    public void groupCommitTest() throws IOException, InterruptedException {
+        EventLog log = EventLog.open(directory, 4, 60_000);
+        ParkingLot lot = new ParkingLot("Lot 1");
+        lot.logTo(log);
+        lot.addParkingSpot(1, 10, 0);
+        lot.addParkingSpot(2, 20, 0);
+        lot.addParkingSpot(3, 30, 0);
+        assertEquals(3, log.getLastSequence());
+        assertEquals(0, log.getDurableSequence());
+        lot.occupySpot("CAR001", 0);
+        log.awaitDurable(4);
+        lot.occupySpot("CAR002", 0);
+        assertEquals(4, log.getDurableSequence());
+        assertEquals(5, log.sync());
+        assertEquals(5, log.getDurableSequence());
+        log.close();
+    }
+
+    // Events of a batch that does not fill up are written once the oldest waited maxDelayMillis
+    @Test(timeout = 10_000)
+    public void maxDelayTest() throws IOException, InterruptedException {
+        EventLog log = EventLog.open(directory, 1000, 5);
+        ParkingLot lot = new ParkingLot("Lot 1");
+        lot.logTo(log);
+        lot.addParkingSpot(1, 10, 0);
+        lot.occupySpot("CAR001", 0);
+        log.awaitDurable(2);
+        assertEquals(2, log.getDurableSequence());
+        log.close();
+    }
+
+    // A partly written last event is cut off, by replay and when the log is opened again
+    @Test
+    public void tornEventTest() throws IOException {
+        EventLog log = EventLog.open(directory, 1, 0);
+        ParkingLot lot = new ParkingLot("Lot 1");
+        lot.logTo(log);
+        lot.addParkingSpot(1, 10, 0);
+        lot.occupySpot("CAR001", 0);
+        lot.unoccupySpot("CAR001");
+        log.close();
+        Path segment = onlySegment();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5); // The VACATE event lost its end
+        }
+
+        ParkingLot recovered = new ParkingLot("Lot 1");
+        assertEquals(2, EventLog.replay(directory, recovered));
+        assertEquals(1, recovered.getPlateToSpot().get("CAR001").getParkingSpotId());
+        EventLog reopened = EventLog.open(directory, 1, 0);
+        assertEquals(2, reopened.getLastSequence());
+        recovered.logTo(reopened);
+        recovered.unoccupySpot("CAR001");
+        reopened.close();
+        assertEquals(3, EventLog.replay(directory, new ParkingLot("Lot 2")));
+        assertEquals(18 + 18 + 17, Files.size(segment)); // The torn event was written over
+    }
+
+    // New segments are started once a segment is full, and old ones can be deleted
+    @Test
+    public void segmentTest() throws IOException {
+        EventLog log = EventLog.open(directory, 1, 0, 100);
+        ParkingLot lot = new ParkingLot("Lot 1");
+        lot.logTo(log);
+        for (int id = 0; id < 20; id++) {
+            lot.addParkingSpot(id, id, 0);
+            log.sync();
+        }
+        assertEquals(4, countSegments()); // 6 events of 18 bytes per segment
+        assertEquals(0, log.truncateBefore(5));
+        assertEquals(2, log.truncateBefore(13));
+        assertEquals(2, countSegments());
+        log.close();
+
+        // The remaining events are replayed after the sequence they were truncated before
+        ParkingLot recovered = new ParkingLot("Lot 1");
+        assertEquals(20, EventLog.replay(directory, recovered, 12));
+        assertEquals(8, recovered.getParkingSpots().size());
+        assertNull(recovered.getParkingSpots().get(11));
+    }
+
+    // Changes after the log is closed are dropped, but the lot itself keeps working
+    @Test
+    public void closedLogTest() throws IOException {
+        closedLogTest(new ParkingLot("Lot 1"));
+        directory = directory.resolveSibling("log2");
+        closedLogTest(new ConcurrentParkingLot("Lot 2"));
+    }
+
+    // Many gates park and leave at once; the log must still rebuild the same lot
+    @Test
+    public void concurrentReplayTest() throws IOException, InterruptedException {
+        ConcurrentParkingLot lot = new ConcurrentParkingLot("Lot 1");
+        EventLog log = EventLog.open(directory, 64, 2);
+        lot.logTo(log);
+        for (int id = 0; id < 200; id++) {
+            lot.addParkingSpot(id, id, id % 10 < 7 ? 0 : id % 10 < 9 ? 1 : 2);
+        }
+        List<Thread> gates = new ArrayList<>();
+        for (int gate = 0; gate < 4; gate++) {
+            int seed = gate;
+            gates.add(new Thread(() -> {
+                Random random = new Random(seed);
+                List<String> parked = new ArrayList<>();
+                for (int i = 0; i < 5000; i++) {
+                    if (random.nextInt(2) == 0 && !parked.isEmpty()) {
+                        lot.unoccupySpot(parked.remove(random.nextInt(parked.size())));
+                    } else {
+                        // A few plates per gate, so vehicles often leave and park again at once
+                        String plate = "G" + seed + "P" + (100 + random.nextInt(30));
+                        if (!parked.contains(plate) && lot.occupySpot(plate, random.nextInt(3)) != null) {
+                            parked.add(plate);
+                        }
+                    }
+                }
+            }));
+        }
+        for (Thread gate: gates) {
+            gate.start();
+        }
+        for (Thread gate: gates) {
+            gate.join();
+        }
+        log.close();
+
+        ParkingLot recovered = new ParkingLot("Lot 1");
+        EventLog.replay(directory, recovered);
+        checkSameLot(lot, recovered);
+    }
+
+    ///// HELPER METHODS /////
+
+    // Logs a lot of 2 car spots, closes the log, then parks and frees vehicles in the lot
+    public void closedLogTest(ParkingLot lot) throws IOException {
+        EventLog log = EventLog.open(directory, 1, 0);
+        lot.logTo(log);
+        lot.addParkingSpot(0, 10, 0);
+        lot.addParkingSpot(1, 20, 0);
+        lot.occupySpot("CAR001", 0);
+        log.close();
+
+        ParkingSpot parked = lot.occupySpot("CAR002", 0);
+        assertEquals(parked, lot.getPlateToSpot().get("CAR002"));
+        ParkingSpot freed = lot.unoccupySpot("CAR001");
+        assertFalse(freed.getOccupiedStatus());
+        assertNull(lot.getPlateToSpot().get("CAR001"));
+        assertEquals(1, lot.getOccupancySummary().getVacantCarSpots());
+        assertEquals(freed, lot.occupySpot("CAR003", 0)); // The freed spot is back in its queue
+        assertEquals(3, log.getDroppedEvents());
+        try {
+            log.sync();
+            fail("The dropped events must be reported");
+        } catch (IOException e) {
+            assertEquals("Event log is closed", e.getMessage());
+        }
+
+        ParkingLot recovered = new ParkingLot("Lot 1");
+        assertEquals(3, EventLog.replay(directory, recovered)); // Only the events before close
+        assertEquals(1, recovered.getPlateToSpot().get("CAR001").getParkingSpotId()); // The furthest spot
+    }
+
+    // Checks that both lots have the same spots, in the same state, with the same plates
+    public void checkSameLot(ParkingLot expected, ParkingLot actual) {
+        assertEquals(expected.getParkingSpots().size(), actual.getParkingSpots().size());
+        for (ParkingSpot spot: expected.getParkingSpots().values()) {
+            ParkingSpot other = actual.getParkingSpots().get(spot.getParkingSpotId());
+            assertEquals(spot.getClass(), other.getClass());
+            assertEquals(spot.getDistance(), other.getDistance(), 0.0);
+            assertEquals(spot.getOccupiedStatus(), other.getOccupiedStatus());
+            if (spot instanceof CarSpot carSpot) {
+                assertEquals(carSpot.getMotorcycleCount(), ((CarSpot) other).getMotorcycleCount());
+            }
+        }
+        assertEquals(expected.getPlateToSpot().size(), actual.getPlateToSpot().size());
+        for (String plate: expected.getLicensePlates()) {
+            assertEquals(expected.getPlateToSpot().get(plate).getParkingSpotId(),
+                         actual.getPlateToSpot().get(plate).getParkingSpotId());
+        }
+        assertEquals(expected.getVacantCarSpots().size(), actual.getVacantCarSpots().size());
+        assertEquals(expected.getHalfFullCarSpots().size(), actual.getHalfFullCarSpots().size());
+        assertEquals(expected.getVacantMotorcycleSpots().size(), actual.getVacantMotorcycleSpots().size());
+        assertEquals(expected.getVacantCommericalSpots().size(), actual.getVacantCommericalSpots().size());
+    }
+
+    // Returns the only segment of the log
+    public Path onlySegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = files.toList();
+            assertEquals(1, segments.size());
+            assertTrue(segments.get(0).getFileName().toString().startsWith("events-"));
+            return segments.get(0);
+        }
+    }
+
+    public long countSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
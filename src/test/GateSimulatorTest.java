@@ -0,0 +1,94 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import model.ConcurrentParkingLot;
+import model.ParkingLot;
+import simulation.GateSimulator;
+import simulation.LoadProfile;
+import simulation.SimulationReport;
+
+/*
+Tests the load generator: the traffic has the arrival rate, stays and vehicle mix of its profile,
+the same seed gives the same run, and the report matches what is left in the lot, also with many
+gates at once.
+*/
+public class GateSimulatorTest {
+
+    // 600 vehicles an hour staying 30 minutes on average: 300 parked at once
+    private static final LoadProfile PROFILE = new LoadProfile(600, 30, 0.8, 0.2, 0.1);
+
+    // The draws of the profile have the rates, mean and shares it was constructed with
+    @Test
+    public void profileTest() {
+        Random random = new Random(7);
+        double gaps = 0;
+        double stays = 0;
+        int[] flags = new int[3];
+        int draws = 100_000;
+        for (int i = 0; i < draws; i++) {
+            gaps += PROFILE.nextArrivalGap(random, 1);
+            stays += PROFILE.nextStay(random);
+            flags[PROFILE.nextFlag(random)]++;
+        }
+        assertEquals(6, gaps / draws, 0.1); // Seconds between arrivals
+        assertEquals(30 * 60, stays / draws, 30);
+        assertEquals(0.7, (double) flags[0] / draws, 0.01);
+        assertEquals(0.2, (double) flags[1] / draws, 0.01);
+        assertEquals(0.1, (double) flags[2] / draws, 0.01);
+        assertEquals(300, PROFILE.getMeanParked(), 0);
+    }
+
+    // Running the same traffic twice on the same lot gives the same report
+    @Test
+    public void reproducibleTest() throws InterruptedException {
+        SimulationReport first = new GateSimulator(buildLot(new ParkingLot("Lot 1"), 400), PROFILE, 1, 0, 42).run(10);
+        SimulationReport second = new GateSimulator(buildLot(new ParkingLot("Lot 2"), 400), PROFILE, 1, 0, 42).run(10);
+        assertEquals(first.getArrivals(), second.getArrivals());
+        assertEquals(first.getParked(), second.getParked());
+        assertEquals(first.getDepartures(), second.getDepartures());
+        assertEquals(6000, first.getArrivals(), 300);
+        assertEquals(first.getArrivals(), first.getOccupyLatency().getCount());
+        assertEquals(first.getDepartures(), first.getUnoccupyLatency().getCount());
+        assertEquals(-1, first.getLockContentions()); // A single threaded lot has no locks
+    }
+
+    // A lot too small for the traffic turns vehicles away; the vehicles that did not leave are still parked
+    @Test
+    public void fullLotTest() throws InterruptedException {
+        ParkingLot lot = buildLot(new ParkingLot("Lot 1"), 100);
+        SimulationReport report = new GateSimulator(lot, PROFILE, 1, 0, 1).run(5);
+        assertTrue(report.getRejected() > 0);
+        assertEquals(report.getArrivals(), report.getParked() + report.getRejected());
+        assertEquals(report.getParked() - report.getDepartures(), lot.getLicensePlates().size());
+        assertEquals(report.getRejected(), (long) report.snapshot().get("vehicles.rejected"));
+    }
+
+    // A thousand clients on a thread safe lot, played back in (sped up) wall clock time
+    @Test
+    public void clientsTest() throws InterruptedException {
+        ConcurrentParkingLot lot = new ConcurrentParkingLot("Lot 1");
+        buildLot(lot, 300);
+        SimulationReport report = new GateSimulator(lot, PROFILE, 1000, 36_000, 3).run(3); // 0.3 seconds
+        assertEquals(report.getParked() - report.getDepartures(), lot.getLicensePlates().size());
+        assertTrue(report.getLockContentions() >= 0);
+        assertTrue(report.getWallNanos() >= 300_000_000L);
+        assertTrue(report.getThroughput() > 0);
+        assertTrue(report.getResponseLatency().getValueAtPercentile(50) > 0);
+    }
+
+    ///// HELPER METHODS /////
+
+    // Adds the spots to the lot: 70% car spots, 20% motorcycle spots, 10% commercial spots
+    public ParkingLot buildLot(ParkingLot lot, int spots) {
+        for (int id = 0; id < spots; id++) {
+            lot.addParkingSpot(id, id, id % 10 < 7 ? 0 : id % 10 < 9 ? 1 : 2);
+        }
+        return lot;
+    }
+}
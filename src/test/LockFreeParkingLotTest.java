@@ -0,0 +1,122 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import model.CarSpot;
+import model.ConcurrentParkingLot;
+import model.LockFreeParkingLot;
+import model.ParkingSpot;
+import model.RelaxedSpotQueue;
+
+/*
+Tests the lock free parking lot. Runs all the stress tests of ConcurrentParkingLotTest on it, and
+also measures how far the relaxed queues are from the exact "furthest first" order.
+*/
+public class LockFreeParkingLotTest extends ConcurrentParkingLotTest {
+
+    // Tests the single gate cases: motorcycles overflow into half full, then empty car spots
+    @Test
+    public void motorcycleOverflowTest() {
+        LockFreeParkingLot lot = new LockFreeParkingLot("Lot no motorcycles", 4);
+        lot.addParkingSpot(111, 100, 0);
+        lot.addParkingSpot(112, 104, 0);
+        assertNull(lot.addParkingSpot(112, 105, 1));
+
+        CarSpot carSpot1 = (CarSpot) lot.occupySpot("Y12345", 1);
+        assertEquals(1, carSpot1.getMotorcycleCount());
+        assertEquals(1, lot.getClaimedHalves(carSpot1));
+        CarSpot carSpot2 = (CarSpot) lot.occupySpot("Y23456", 1);
+        assertEquals(carSpot1, carSpot2);
+        assertEquals(2, lot.getClaimedHalves(carSpot2));
+        ParkingSpot carSpot3 = lot.occupySpot("ABC123", 0);
+        assertTrue(carSpot3 != carSpot1);
+        assertNull(lot.occupySpot("ABC124", 0));
+        assertNull(lot.occupySpot("Y34567", 1));
+
+        // Manual occupy of a full spot fails, of a half full spot succeeds
+        assertEquals(carSpot1, lot.unoccupySpot("Y12345"));
+        assertEquals(1, lot.getClaimedHalves(carSpot1));
+        assertNull(lot.manuallyOccupy(carSpot1.getParkingSpotId(), "CAR999", false));
+        assertEquals(carSpot1, lot.manuallyOccupy(carSpot1.getParkingSpotId(), "Y99999", true));
+        assertEquals("Y99999", carSpot1.getLicensePlate());
+        assertEquals("Y23456", carSpot1.getLicensePlate2());
+
+        // The stale half full entry is skipped once the spot is vacant again
+        lot.unoccupySpot("Y99999");
+        lot.unoccupySpot("Y23456");
+        assertEquals(0, lot.getClaimedHalves(carSpot1));
+        assertEquals(carSpot1, lot.occupySpot("Y12345", 1));
+        assertEquals(1, lot.getClaimedHalves(carSpot1));
+    }
+
+    /*
+     * Measures the rank error of the relaxed queue: for every polled spot, how many vacant spots
+     * were further away than it. With k shards, the mean rank error should stay around k.
+     */
+    @Test
+    public void rankErrorTest() {
+        int shards = 8;
+        RelaxedSpotQueue<CarSpot> queue = new RelaxedSpotQueue<>(shards);
+        TreeSet<Double> remaining = new TreeSet<>();
+        List<CarSpot> spots = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 4000; i++) {
+            CarSpot spot = new CarSpot(i, random.nextDouble());
+            spots.add(spot);
+            queue.add(spot);
+            remaining.add(spot.getDistance());
+        }
+
+        long totalRankError = 0;
+        int maxRankError = 0;
+        CarSpot spot = queue.poll();
+        while (spot != null) {
+            int rankError = remaining.tailSet(spot.getDistance(), false).size();
+            totalRankError += rankError;
+            maxRankError = Math.max(maxRankError, rankError);
+            remaining.remove(spot.getDistance());
+            spot = queue.poll();
+        }
+        assertTrue(remaining.isEmpty());
+        double meanRankError = (double) totalRankError / spots.size();
+        assertTrue("mean rank error " + meanRankError, meanRankError <= shards);
+        assertTrue("max rank error " + maxRankError, maxRankError <= 25 * shards);
+    }
+
+    ///// HELPER METHODS /////
+
+    @Override
+    protected ConcurrentParkingLot createLot(String name) {
+        return new LockFreeParkingLot(name, 4);
+    }
+
+    /*
+     * The half full queue may still hold spots that were filled manually, so the half full count is
+     * checked on the claim words of the spots instead.
+     */
+    @Override
+    protected void checkVacantCounts(int car, int motorcycle, int commercial, int halfFull) {
+        LockFreeParkingLot lot = (LockFreeParkingLot) parkingLot;
+        assertEquals(car, lot.getVacantCarSpotQueue().size());
+        assertEquals(motorcycle, lot.getVacantMotorcycleSpotQueue().size());
+        assertEquals(commercial, lot.getVacantCommericalSpotQueue().size());
+        int halfFullSpots = 0;
+        for (ParkingSpot spot: lot.getParkingSpots().values()) {
+            if (lot.getClaimedHalves(spot) == 1) {
+                halfFullSpots++;
+            }
+        }
+        assertEquals(halfFull, halfFullSpots);
+        assertTrue(lot.getHalfFullCarSpotQueue().size() >= halfFull);
+        checkOccupancySummary(car, motorcycle, commercial, halfFull);
+    }
+}
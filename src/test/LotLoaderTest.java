@@ -0,0 +1,207 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import model.Intersection;
+import model.LockFreeParkingLot;
+import model.LotLoader;
+import model.ParkingLot;
+import model.ParkingSpot;
+import model.Vertex;
+
+/*
+Tests the bulk loading of lots: a lot with a graph and entrances is written to CSV and binary files
+and loaded back, and must then hand out the same spots; malformed files are rejected.
+*/
+public class LotLoaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    public ParkingLot parkingLot;
+
+    // A lot of 40 spots of every type along an aisle of 4 intersections, with a gate at each end
+    @Before
+    public void constructParkingLot() {
+        parkingLot = new ParkingLot("Lot 1");
+        Intersection[] aisle = new Intersection[4];
+        for (int i = 0; i < 4; i++) {
+            aisle[i] = new Intersection(i, "Aisle " + i, i * 10, 0, 0);
+            if (i > 0) {
+                parkingLot.getGraph().connectVertices(aisle[i - 1], aisle[i], 10);
+            }
+        }
+        for (int id = 0; id < 40; id++) {
+            parkingLot.addParkingSpot(id, 100 - id * 0.5, id % 10 < 7 ? 0 : id % 10 < 9 ? 1 : 2);
+            parkingLot.connectSpot(id, aisle[id % 4], 1 + id * 0.01); // No 2 routes of the same length
+        }
+        parkingLot.addEntrance(1, aisle[0]);
+        parkingLot.addEntrance(2, aisle[3]);
+    }
+
+    // Writes the lot to a CSV file and loads it into a new lot
+    @Test
+    public void csvTest() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("lot.csv");
+        LotLoader.writeCsv(path, parkingLot);
+        ParkingLot loaded = new ParkingLot("Lot 1");
+        LotLoader.loadCsv(path, loaded);
+        checkSameLot(parkingLot, loaded);
+    }
+
+    // Writes the lot to a binary file and loads it into a new lot
+    @Test
+    public void binaryTest() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("lot.bin");
+        LotLoader.writeBinary(path, parkingLot);
+        ParkingLot loaded = new ParkingLot("Lot 1");
+        LotLoader.loadBinary(path, loaded);
+        checkSameLot(parkingLot, loaded);
+    }
+
+    // A lock free lot gets the loaded spots in its own queues, and hands out every one of them
+    @Test
+    public void lockFreeTest() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("lot.bin");
+        LotLoader.writeBinary(path, parkingLot);
+        ParkingLot loaded = new LockFreeParkingLot("Lot 1");
+        LotLoader.loadBinary(path, loaded);
+        assertEquals(40, loaded.getParkingSpots().size());
+        for (int i = 0; i < 4; i++) {
+            assertNotNull(loaded.occupySpot("TRUCK" + i, 2));
+        }
+        assertNull(loaded.occupySpot("TRUCK9", 2));
+        assertEquals(28, loaded.getOccupancySummary().getVacantCarSpots());
+    }
+
+    // A hand written file with comments, blank lines, Windows line ends and any order of items
+    @Test
+    public void handWrittenCsvTest() throws IOException {
+        ParkingLot loaded = load("# Small lot\r\n"
+                                 + "G,7,I_1\r\n"
+                                 + "E,I_1,P_5,2.5\r\n"
+                                 + "\r\n"
+                                 + "E,P_6,I_1,1e1\r\n"
+                                 + "S,5,-12.25,0\r\n"
+                                 + "S,6,1.5E2,1\r\n"
+                                 + "S,5,99,2\r\n" // Duplicate id, skipped
+                                 + "I,1,North gate,0.5,1,2");
+        assertEquals(2, loaded.getParkingSpots().size());
+        assertEquals(-12.25, loaded.findParkingSpot(5).getDistance(), 0.0);
+        assertEquals(150, loaded.findParkingSpot(6).getDistance(), 0.0);
+        Vertex gate = loaded.getEntrances().get(7);
+        assertEquals("North gate", ((Intersection) gate).getName());
+        assertEquals(2, gate.getLevel());
+        assertEquals(2.5, gate.getAdjacentVertices().get(loaded.findParkingSpot(5)), 0.0);
+        assertEquals(10, gate.getAdjacentVertices().get(loaded.findParkingSpot(6)), 0.0);
+        assertEquals(5, loaded.occupySpot("CAR001", 0, 7).getParkingSpotId());
+    }
+
+    // An edge given twice keeps its last distance, as connectVertices would; sparse ids are found too
+    @Test
+    public void repeatedEdgeTest() throws IOException {
+        ParkingLot loaded = load("S,5,10,0\n"
+                                 + "S,9000000,20,0\n"
+                                 + "I,1,Gate\n"
+                                 + "E,I_1,P_5,1\n"
+                                 + "E,I_1,P_9000000,4\n"
+                                 + "E,P_5,I_1,8\n" // Same edge, now longer than the other
+                                 + "G,1,I_1\n");
+        Vertex gate = loaded.getEntrances().get(1);
+        assertEquals(8, gate.getAdjacentVertices().get(loaded.findParkingSpot(5)), 0.0);
+        assertEquals(8, loaded.getGraph().getShortestPathTree(gate).getDistance(loaded.findParkingSpot(5)), 0.0);
+        assertEquals(9000000, loaded.occupySpot("CAR001", 0, 1).getParkingSpotId());
+    }
+
+    // Malformed lines, missing vertices and non empty lots are rejected
+    @Test
+    public void rejectTest() throws IOException {
+        checkRejected("S,1,10,0\nS,2,10\n", "Lot file is malformed at line 2");
+        checkRejected("S,1,10,0,5\n", "Lot file is malformed at line 1");
+        checkRejected("S,1,1x0,0\n", "Lot file is malformed at line 1");
+        checkRejected("# Comment\nX,1\n", "Lot file is malformed at line 2");
+        checkRejected("S,1,10,3\n", "Lot file has a spot of unknown type");
+        checkRejected("S,1,10,0\nE,P_1,I_2,5\n", "Lot file refers to a vertex that does not exist");
+
+        Path path = folder.getRoot().toPath().resolve("lot.bin");
+        Files.write(path, new byte[30]);
+        try {
+            LotLoader.loadBinary(path, new ParkingLot("Lot 2"));
+            fail();
+        } catch (IOException e) {
+            assertEquals("Not a lot file", e.getMessage());
+        }
+        LotLoader.writeBinary(path, parkingLot);
+        try {
+            LotLoader.loadBinary(path, parkingLot);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Lot is not empty", e.getMessage());
+        }
+    }
+
+    ///// HELPER METHODS /////
+
+    // Loads the CSV text into a new lot
+    public ParkingLot load(String csv) throws IOException {
+        Path path = folder.getRoot().toPath().resolve("test.csv");
+        Files.write(path, csv.getBytes(StandardCharsets.UTF_8));
+        ParkingLot loaded = new ParkingLot("Lot 2");
+        LotLoader.loadCsv(path, loaded);
+        return loaded;
+    }
+
+    // Checks that loading the CSV text fails with the message
+    public void checkRejected(String csv, String message) {
+        try {
+            load(csv);
+            fail();
+        } catch (IOException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+
+    /*
+     * Checks that both lots have the same spots, graph size and entrances, and give the same spots
+     * to vehicles coming in through either gate
+     */
+    public void checkSameLot(ParkingLot expected, ParkingLot actual) {
+        assertEquals(expected.getParkingSpots().size(), actual.getParkingSpots().size());
+        for (ParkingSpot spot: expected.getParkingSpots().values()) {
+            ParkingSpot other = actual.findParkingSpot(spot.getParkingSpotId());
+            assertEquals(spot.getClass(), other.getClass());
+            assertEquals(spot.getDistance(), other.getDistance(), 0.0);
+            assertEquals(spot.getAdjacentVertices().size(), other.getAdjacentVertices().size());
+        }
+        assertEquals(expected.getGraph().getAllVertices().size(), actual.getGraph().getAllVertices().size());
+        assertEquals(expected.getEntrances().keySet(), actual.getEntrances().keySet());
+        assertTrue(actual.getEntrances().get(1).hasCoordinates());
+        for (int i = 0; i < 30; i++) {
+            String plate = "CAR" + (100 + i);
+            int flag = i % 3;
+            int entrance = 1 + i % 2;
+            assertEquals(idOf(expected.occupySpot(plate, flag, entrance)),
+                         idOf(actual.occupySpot(plate, flag, entrance)));
+        }
+        assertEquals(expected.getVacantCarSpots().size(), actual.getVacantCarSpots().size());
+    }
+
+    // Returns the id of the spot, -1 for no spot
+    public int idOf(ParkingSpot spot) {
+        return spot == null ? -1 : spot.getParkingSpotId();
+    }
+}
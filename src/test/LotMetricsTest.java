@@ -0,0 +1,168 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import model.Arrival;
+import model.ConcurrentParkingLot;
+import model.Intersection;
+import model.LatencyHistogram;
+import model.LotMetrics;
+import model.ParkingLot;
+
+/*
+Tests the metrics of a parking lot: the calls, full results, motorcycle overflows, queue sizes and
+graph searches of a small lot must all show up in the snapshot, and the histograms must report
+values within their precision.
+*/
+public class LotMetricsTest {
+
+    public ParkingLot parkingLot;
+    public LotMetrics metrics;
+
+    // A lot of 3 car spots, 1 motorcycle spot and 1 commercial spot, all along one aisle
+    @Before
+    public void constructParkingLot() {
+        parkingLot = new ParkingLot("Lot 1");
+        metrics = new LotMetrics();
+        parkingLot.reportTo(metrics);
+        Intersection aisle = new Intersection(0, "Aisle 0");
+        for (int id = 0; id < 5; id++) {
+            parkingLot.addParkingSpot(id, 10 + id, id < 3 ? 0 : id - 2);
+            parkingLot.connectSpot(id, aisle, 1 + id);
+        }
+        parkingLot.addEntrance(1, aisle);
+    }
+
+    // Every call of the lot is counted under its vehicle type, with full results and overflows
+    @Test
+    public void lotCallsTest() {
+        parkingLot.occupySpot("MOTO01", 1);
+        parkingLot.occupySpot("MOTO02", 1); // Overflows into a car spot
+        parkingLot.occupySpot("MOTO03", 1, 1); // Overflows into the same car spot
+        parkingLot.occupySpot("TRUCK1", 2);
+        parkingLot.occupySpot("TRUCK2", 2); // Full
+        parkingLot.manuallyOccupy(0, "CAR001", false);
+        parkingLot.unoccupySpot("MOTO03");
+        parkingLot.unoccupySpot("CAR001");
+        parkingLot.unoccupySpot("NOTHERE"); // Not parked, not recorded
+
+        Map<String, Long> snapshot = metrics.snapshot();
+        assertEquals(3, (long) snapshot.get("occupySpot.motorcycle.count"));
+        assertEquals(2, (long) snapshot.get("occupySpot.commercial.count"));
+        assertEquals(0, (long) snapshot.get("occupySpot.car.count"));
+        assertEquals(1, (long) snapshot.get("occupySpot.commercial.full"));
+        assertEquals(0, (long) snapshot.get("occupySpot.motorcycle.full"));
+        assertEquals(2, (long) snapshot.get("occupySpot.motorcycle.overflow"));
+        assertEquals(1, (long) snapshot.get("manuallyOccupy.car.count"));
+        assertEquals(1, (long) snapshot.get("unoccupySpot.motorcycle.count"));
+        assertEquals(1, (long) snapshot.get("unoccupySpot.car.count"));
+        assertTrue(snapshot.get("occupySpot.motorcycle.max") >= snapshot.get("occupySpot.motorcycle.p50"));
+
+        // 2 car spots left vacant, one car spot half full, nothing else vacant
+        assertEquals(2, (long) snapshot.get("queue.vacantCar"));
+        assertEquals(1, (long) snapshot.get("queue.halfFullCar"));
+        assertEquals(0, (long) snapshot.get("queue.vacantMotorcycle"));
+        assertEquals(0, (long) snapshot.get("queue.vacantCommercial"));
+        assertEquals(3, (long) snapshot.get("parked"));
+
+        // The entrance needed one search of the whole graph (6 vertices)
+        assertEquals(1, (long) snapshot.get("graph.searches"));
+        assertEquals(6, (long) snapshot.get("graph.expansions"));
+        assertTrue(metrics.export().contains("occupySpot.commercial.full 1\n"));
+    }
+
+    // Batch calls count every vehicle as one call of its type, without timing it
+    @Test
+    public void batchCallsTest() {
+        parkingLot.occupySpots(Arrays.asList(
+            new Arrival("CAR001", 0), new Arrival("MOTO01", 1), new Arrival("MOTO02", 1), // Overflows
+            new Arrival("TRUCK1", 2), new Arrival("TRUCK2", 2), new Arrival("bad", 0))); // Full, rejected
+        parkingLot.unoccupySpots(Arrays.asList("MOTO02", "TRUCK1", "NOTHERE"));
+
+        Map<String, Long> snapshot = metrics.snapshot();
+        assertEquals(1, (long) snapshot.get("occupySpot.car.count"));
+        assertEquals(2, (long) snapshot.get("occupySpot.motorcycle.count"));
+        assertEquals(1, (long) snapshot.get("occupySpot.motorcycle.overflow"));
+        assertEquals(2, (long) snapshot.get("occupySpot.commercial.count"));
+        assertEquals(1, (long) snapshot.get("occupySpot.commercial.full"));
+        assertEquals(1, (long) snapshot.get("unoccupySpot.motorcycle.count"));
+        assertEquals(1, (long) snapshot.get("unoccupySpot.commercial.count"));
+        assertEquals(0, (long) snapshot.get("unoccupySpot.car.count"));
+        assertEquals(0, (long) snapshot.get("occupySpot.car.max")); // Not timed
+    }
+
+    // A concurrent lot records the same way, and turning the metrics off stops the recording
+    @Test
+    public void concurrentLotTest() {
+        ConcurrentParkingLot lot = new ConcurrentParkingLot("Lot 2");
+        LotMetrics lotMetrics = new LotMetrics();
+        lot.reportTo(lotMetrics);
+        lot.addParkingSpot(0, 10, 0);
+        lot.occupySpot("CAR001", 0);
+        lot.occupySpot("CAR002", 0); // Full
+        lot.manuallyOccupy(0, "MOTO01", true); // Spot is taken, still recorded
+        lot.reportTo(null);
+        lot.unoccupySpot("CAR001");
+
+        Map<String, Long> snapshot = lotMetrics.snapshot();
+        assertEquals(2, (long) snapshot.get("occupySpot.car.count"));
+        assertEquals(1, (long) snapshot.get("occupySpot.car.full"));
+        assertEquals(1, (long) snapshot.get("manuallyOccupy.motorcycle.count"));
+        assertEquals(0, (long) snapshot.get("unoccupySpot.car.count"));
+    }
+
+    // With a sample interval, every call is counted but only some are timed
+    @Test
+    public void sampledTest() {
+        ParkingLot lot = new ParkingLot("Lot 3");
+        LotMetrics sampled = new LotMetrics(100);
+        lot.reportTo(sampled);
+        lot.addParkingSpot(0, 10, 2);
+        for (int i = 0; i < 1000; i++) {
+            lot.occupySpot("TRUCK1", 2);
+            lot.unoccupySpot("TRUCK1");
+        }
+        assertEquals(1000, (long) sampled.snapshot().get("occupySpot.commercial.count"));
+        assertEquals(1000, (long) sampled.snapshot().get("unoccupySpot.commercial.count"));
+        assertTrue(sampled.snapshot().get("occupySpot.commercial.max") > 0); // Some call was timed
+    }
+
+    // The histogram reports every value at most 1/32 over it, and small values exactly
+    @Test
+    public void histogramTest() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 100; value++) {
+            histogram.record(value * 1000L);
+        }
+        histogram.record(-5); // Counts as 0
+        histogram.record(Long.MAX_VALUE); // Counts as MAX_VALUE
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(102, snapshot.getCount());
+        assertEquals(0, snapshot.getValueAtPercentile(0));
+        checkClose(50_000, snapshot.getValueAtPercentile(50));
+        checkClose(99_000, snapshot.getValueAtPercentile(98));
+        assertEquals(LatencyHistogram.MAX_VALUE, snapshot.getMax());
+
+        LatencyHistogram small = new LatencyHistogram();
+        small.record(7);
+        small.record(63);
+        assertEquals(7, small.snapshot().getValueAtPercentile(50));
+        assertEquals(63, small.snapshot().getMax());
+        assertEquals(0, new LatencyHistogram().snapshot().getValueAtPercentile(99));
+    }
+
+    ///// HELPER METHODS /////
+
+    // Checks that the reported value is at least the expected value, and at most 1/32 over it
+    public void checkClose(long expected, long actual) {
+        assertTrue(actual >= expected);
+        assertTrue(actual <= expected + expected / 32);
+    }
+}
@@ -0,0 +1,228 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import model.CarSpot;
+import model.ConcurrentParkingLot;
+import model.LockFreeParkingLot;
+import model.MappedSpotFile;
+import model.ParkingLot;
+import model.ParkingSpot;
+
+/*
+Tests the memory mapped persistence of a parking lot: a lot is persisted, changed, closed, and
+restored into a new lot (as a restarted process would), which must have the same spots, occupancy,
+plates and priority queues.
+*/
+public class MappedSpotFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    public File file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = new File(folder.getRoot(), "lot.dat");
+    }
+
+    // Persists a lot, parks every vehicle type, restores it into a new lot and keeps using both
+    @Test
+    public void persistAndRestoreTest() throws IOException {
+        ParkingLot lot = new ParkingLot("Lot 1");
+        for (int id = 0; id < 10; id++) {
+            lot.addParkingSpot(id, 100 + id, id < 6 ? 0 : id < 8 ? 1 : 2);
+        }
+        MappedSpotFile spotFile = MappedSpotFile.open(file.toPath());
+        lot.persistTo(spotFile);
+        for (int id = 10; id < 40; id++) { // Spots added later (and enough to grow the file)
+            lot.addParkingSpot(id, id, 0);
+        }
+        lot.occupySpot("CAR001", 0);
+        lot.occupySpot("TRUCK1", 2);
+        for (int i = 1; i <= 5; i++) {
+            lot.occupySpot("MOTO0" + i, 1);
+        }
+        lot.manuallyOccupy(0, "HALF01", true);
+        lot.unoccupySpot("MOTO04");
+        lot.unoccupySpot("CAR001");
+        lot.occupySpot("CAR002", 0);
+        spotFile.close();
+
+        MappedSpotFile reopened = MappedSpotFile.open(file.toPath());
+        assertEquals(40, reopened.size());
+        ParkingLot restored = new ParkingLot("Lot 1");
+        restored.restoreFrom(reopened);
+        checkSameLot(lot, restored);
+
+        // Both lots give the same spots from now on, and the restored one is still persistent
+        for (int i = 0; i < 20; i++) {
+            assertEquals(lot.occupySpot("NEW" + (100 + i), i % 2).getParkingSpotId(),
+                         restored.occupySpot("NEW" + (100 + i), i % 2).getParkingSpotId());
+        }
+        restored.unoccupySpot("MOTO01");
+        reopened.close();
+        ParkingLot restoredAgain = new ConcurrentParkingLot("Lot 1");
+        MappedSpotFile reopenedAgain = MappedSpotFile.open(file.toPath());
+        restoredAgain.restoreFrom(reopenedAgain);
+        lot.unoccupySpot("MOTO01");
+        checkSameLot(lot, restoredAgain);
+        reopenedAgain.close();
+    }
+
+    // Restores a lot into a LockFreeParkingLot, which must claim the occupied spots again
+    @Test
+    public void restoreLockFreeTest() throws IOException {
+        ParkingLot lot = new ParkingLot("Lot 1");
+        MappedSpotFile spotFile = MappedSpotFile.open(file.toPath());
+        lot.persistTo(spotFile);
+        for (int id = 0; id < 10; id++) {
+            lot.addParkingSpot(id, id, 0);
+        }
+        for (int i = 0; i < 5; i++) {
+            lot.occupySpot("CAR00" + i, 0);
+        }
+        lot.manuallyOccupy(0, "MOTO01", true);
+        spotFile.close();
+
+        LockFreeParkingLot restored = new LockFreeParkingLot("Lot 1", 2);
+        MappedSpotFile reopened = MappedSpotFile.open(file.toPath());
+        restored.restoreFrom(reopened);
+        assertEquals(4, restored.getVacantCarSpotQueue().size());
+        assertEquals(1, restored.getHalfFullCarSpotQueue().size());
+        assertEquals(1, restored.getClaimedHalves(restored.getParkingSpots().get(0)));
+        assertEquals(2, restored.getClaimedHalves(restored.getParkingSpots().get(9)));
+
+        // The 4 vacant spots and the half full spot are the only ones handed out again
+        for (int i = 0; i < 4; i++) {
+            assertFalse(restored.occupySpot("NEW00" + i, 0) == null);
+        }
+        assertNull(restored.occupySpot("NEW004", 0));
+        assertEquals(0, restored.occupySpot("MOTO02", 1).getParkingSpotId());
+        assertNull(restored.occupySpot("MOTO03", 1));
+        reopened.close();
+    }
+
+    /*
+     * A crash in the middle of a change leaves the old occupancy of the spot, and a record whose
+     * append was cut off is skipped (the bytes are written at the offsets of MappedSpotFile's layout)
+     */
+    @Test
+    public void tornRecordTest() throws IOException {
+        ParkingLot lot = new ParkingLot("Lot 1");
+        MappedSpotFile spotFile = MappedSpotFile.open(file.toPath());
+        lot.persistTo(spotFile);
+        for (int id = 0; id < 3; id++) {
+            lot.addParkingSpot(id, 10 + id, 0);
+        }
+        lot.manuallyOccupy(0, "CAR001", false);
+        lot.manuallyOccupy(1, "CAR002", false);
+        spotFile.close();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            // Half of a later change of spot 0: a plate in the copy that is not current, not committed
+            channel.write(ByteBuffer.wrap(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}), 64 + 16);
+            // The append of spot 2 never got to its commit
+            channel.write(ByteBuffer.wrap(new byte[] {0}), 64 + 2 * 64 + 5);
+        }
+
+        ParkingLot restored = new ParkingLot("Lot 1");
+        MappedSpotFile reopened = MappedSpotFile.open(file.toPath());
+        restored.restoreFrom(reopened);
+        assertEquals(2, restored.getParkingSpots().size());
+        assertEquals("CAR001", restored.findParkingSpot(0).getLicensePlate());
+        assertEquals("CAR002", restored.findParkingSpot(1).getLicensePlate());
+        assertNull(restored.findParkingSpot(2));
+
+        // The spot can be added again, and is persisted like any other
+        restored.addParkingSpot(2, 12, 0);
+        assertEquals(2, restored.occupySpot("CAR003", 0).getParkingSpotId());
+        reopened.close();
+        ParkingLot restoredAgain = new ParkingLot("Lot 1");
+        reopened = MappedSpotFile.open(file.toPath());
+        restoredAgain.restoreFrom(reopened);
+        checkSameLot(restored, restoredAgain);
+        reopened.close();
+    }
+
+    // Files that are not parking lot files, and lots or files that are not empty, are rejected
+    @Test
+    public void rejectTest() throws IOException {
+        Files.write(file.toPath(), new byte[100]);
+        try {
+            MappedSpotFile.open(file.toPath());
+            fail();
+        } catch (IOException e) {
+            assertEquals("Not a parking lot file", e.getMessage());
+        }
+        file.delete();
+
+        ParkingLot lot = new ParkingLot("Lot 1");
+        lot.addParkingSpot(1, 10, 0);
+        MappedSpotFile spotFile = MappedSpotFile.open(file.toPath());
+        try {
+            lot.restoreFrom(spotFile);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Lot is not empty", e.getMessage());
+        }
+        lot.persistTo(spotFile);
+        try {
+            new ParkingLot("Lot 2").persistTo(spotFile);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("File is not empty", e.getMessage());
+        }
+        spotFile.close();
+    }
+
+    ///// HELPER METHODS /////
+
+    // Checks that both lots have the same spots in the same state, plates and queue sizes
+    public void checkSameLot(ParkingLot expected, ParkingLot actual) {
+        assertEquals(expected.getParkingSpots().size(), actual.getParkingSpots().size());
+        for (ParkingSpot spot: expected.getParkingSpots().values()) {
+            ParkingSpot other = actual.getParkingSpots().get(spot.getParkingSpotId());
+            assertEquals(spot.getClass(), other.getClass());
+            assertEquals(spot.getDistance(), other.getDistance(), 0.0);
+            assertEquals(spot.getOccupiedStatus(), other.getOccupiedStatus());
+            if (spot instanceof CarSpot carSpot && carSpot.getMotorcycleCount() == 1) {
+                // Which half the motorcycle is in is not kept
+                CarSpot otherCarSpot = (CarSpot) other;
+                assertEquals(1, otherCarSpot.getMotorcycleCount());
+                assertEquals(carSpot.getLicensePlate() + carSpot.getLicensePlate2(),
+                             otherCarSpot.getLicensePlate() + otherCarSpot.getLicensePlate2());
+            } else {
+                assertEquals(spot.getLicensePlate(), other.getLicensePlate());
+                if (spot instanceof CarSpot carSpot) {
+                    assertEquals(carSpot.getMotorcycleCount(), ((CarSpot) other).getMotorcycleCount());
+                    assertEquals(carSpot.getLicensePlate2(), ((CarSpot) other).getLicensePlate2());
+                }
+            }
+        }
+        assertEquals(expected.getPlateToSpot().size(), actual.getPlateToSpot().size());
+        for (String plate: expected.getLicensePlates()) {
+            assertEquals(expected.getPlateToSpot().get(plate).getParkingSpotId(),
+                         actual.getPlateToSpot().get(plate).getParkingSpotId());
+        }
+        assertNull(actual.getPlateToSpot().get("NOPE01"));
+        assertEquals(expected.getVacantCarSpots().size(), actual.getVacantCarSpots().size());
+        assertEquals(expected.getHalfFullCarSpots().size(), actual.getHalfFullCarSpots().size());
+        assertEquals(expected.getVacantMotorcycleSpots().size(), actual.getVacantMotorcycleSpots().size());
+        assertEquals(expected.getVacantCommericalSpots().size(), actual.getVacantCommericalSpots().size());
+    }
+}
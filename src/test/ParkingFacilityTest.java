@@ -0,0 +1,271 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import model.CarSpot;
+import model.ConcurrentParkingLot;
+import model.OccupancySummary;
+import model.ParkingFacility;
+import model.ParkingLot;
+import model.ParkingSpot;
+
+/*
+Tests parking across the levels of a facility: vehicles go to the level with the most room or to
+their own level, overflow to the nearest level with room, and a plate is never parked on 2 levels,
+also with many gates parking and leaving at once.
+*/
+public class ParkingFacilityTest {
+
+    public ParkingFacility facility;
+
+    // A facility of 4 levels, each with 3 car spots, 1 motorcycle spot and 1 commercial spot
+    @Before
+    public void constructFacility() {
+        facility = new ParkingFacility("Garage");
+        for (int level = 0; level < 4; level++) {
+            ConcurrentParkingLot lot = new ConcurrentParkingLot("Level " + level);
+            for (int id = 0; id < 5; id++) {
+                lot.addParkingSpot(id, 10 + id, id < 3 ? 0 : id - 2);
+            }
+            assertEquals(level, facility.addLevel(lot));
+        }
+    }
+
+    // Without a preferred level, vehicles spread over the levels with the most room
+    @Test
+    public void mostRoomTest() {
+        for (int i = 0; i < 8; i++) {
+            assertNotNull(facility.occupySpot("CAR" + (100 + i), 0));
+        }
+        for (int level = 0; level < 4; level++) {
+            assertEquals(1, facility.getCachedSummary(level).getVacantCarSpots());
+        }
+        assertEquals(0, facility.getLevelOf("CAR100"));
+        assertEquals(1, facility.getLevelOf("CAR101"));
+        assertEquals(-1, facility.getLevelOf("CAR999"));
+    }
+
+    // A full level overflows to the nearest level with room, the lower one first
+    @Test
+    public void overflowTest() {
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(facility.occupySpot("CAR" + (100 + i), 0, 2));
+            assertEquals(2, facility.getLevelOf("CAR" + (100 + i)));
+        }
+        assertNotNull(facility.occupySpot("CAR200", 0, 2));
+        assertEquals(1, facility.getLevelOf("CAR200"));
+
+        // Commercial vehicles from level 1: levels 1, 0, 2, then 3
+        int[] expectedLevels = {1, 0, 2, 3};
+        for (int i = 0; i < 4; i++) {
+            assertNotNull(facility.occupySpot("TRUCK" + i, 2, 1));
+            assertEquals(expectedLevels[i], facility.getLevelOf("TRUCK" + i));
+        }
+        assertNull(facility.occupySpot("TRUCK9", 2, 1));
+        assertEquals(-1, facility.getLevelOf("TRUCK9"));
+
+        // A motorcycle overflows into a car spot of its own level before going to another level
+        assertNotNull(facility.occupySpot("MOTO01", 1, 3));
+        ParkingSpot spot = facility.occupySpot("MOTO02", 1, 3);
+        assertTrue(spot instanceof CarSpot);
+        assertEquals(3, facility.getLevelOf("MOTO02"));
+    }
+
+    // A plate can only be parked once in the whole facility, and leaves from the level it is on
+    @Test
+    public void platesTest() {
+        assertNotNull(facility.occupySpot("ABC123", 0, 3));
+        try {
+            facility.occupySpot("abc 123", 0, 0);
+            throw new AssertionError("Plate parked twice");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Plate already exists", e.getMessage());
+        }
+        try {
+            facility.occupySpot("XYZ789", 0, 4);
+            throw new AssertionError("Level does not exist");
+        } catch (IllegalArgumentException e) {
+            assertEquals(-1, facility.getLevelOf("XYZ789"));
+        }
+
+        ParkingSpot spot = facility.unoccupySpot("ABC123");
+        assertNotNull(spot);
+        assertTrue(!spot.getOccupiedStatus());
+        assertEquals(3, facility.getCachedSummary(3).getVacantCarSpots());
+        assertNull(facility.unoccupySpot("ABC123"));
+
+        // A level that already has vehicles brings them into the facility
+        ParkingLot lot = new ParkingLot("Roof");
+        lot.addParkingSpot(0, 1, 0);
+        lot.occupySpot("ROOF01", 0);
+        assertEquals(4, facility.addLevel(lot));
+        assertEquals(4, facility.getLevelOf("ROOF01"));
+        assertNotNull(facility.unoccupySpot("ROOF01"));
+        assertEquals(1, facility.getCachedSummary(4).getVacantCarSpots());
+    }
+
+    /*
+     * Any flag other than 0 or 1 parks a commercial vehicle, as in ParkingLot. The counts of a
+     * level are only read again when it changed, and a facility takes at most 64 levels
+     */
+    @Test
+    public void flagsAndLevelsTest() {
+        assertNotNull(facility.occupySpot("TRUCK1", 7, 0));
+        assertNotNull(facility.occupySpot("TRUCK2", -3, 0));
+        assertEquals(1, facility.getLevelOf("TRUCK2"));
+        assertEquals(0, facility.getCachedSummary(1).getVacantCommercialSpots());
+
+        OccupancySummary summary = facility.getCachedSummary(2);
+        assertNull(facility.unoccupySpot("TRUCK9"));
+        assertNotNull(facility.occupySpot("CAR100", 0, 1)); // Another level
+        assertTrue(summary == facility.getCachedSummary(2));
+        assertNotNull(facility.occupySpot("CAR101", 0, 2));
+        assertEquals(2, facility.getCachedSummary(2).getVacantCarSpots());
+
+        while (facility.getLevelCount() < 64) {
+            facility.addLevel(new ParkingLot("Level " + facility.getLevelCount()));
+        }
+        try {
+            facility.addLevel(new ParkingLot("Level 64"));
+            throw new AssertionError("Level 64 added");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Facility has too many levels", e.getMessage());
+        }
+        assertNotNull(facility.occupySpot("CAR102", 0, 63)); // Overflows down to level 3
+        assertEquals(3, facility.getLevelOf("CAR102"));
+    }
+
+    // Many gates park and leave on all levels at once; no spot is lost and no plate parked twice
+    @Test
+    public void concurrentGatesTest() throws Exception {
+        AtomicInteger parked = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Void>> gates = new ArrayList<>();
+            for (int gate = 0; gate < 8; gate++) {
+                int seed = gate;
+                gates.add(pool.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 5000; i++) {
+                        // Every gate has its own plates, so no occupySpot may be rejected
+                        String plate = "G" + seed + "P" + (100 + random.nextInt(10));
+                        if (facility.unoccupySpot(plate) != null) {
+                            parked.decrementAndGet();
+                        } else if (facility.occupySpot(plate, random.nextInt(3), random.nextInt(5) - 1) != null) {
+                            parked.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> gate: gates) {
+                gate.get(); // Fails the test if the gate threw
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertTrue(parked.get() > 0);
+
+        int inUse = 0;
+        for (int level = 0; level < facility.getLevelCount(); level++) {
+            ParkingLot lot = facility.getLevel(level);
+            OccupancySummary summary = lot.getOccupancySummary();
+            inUse += lot.getLicensePlates().size();
+            for (String plate: lot.getLicensePlates()) {
+                assertEquals(level, facility.getLevelOf(plate));
+            }
+            assertEquals(summary.getTotalInUse(), lot.getLicensePlates().size() - sharedCarSpots(lot));
+        }
+        assertEquals(parked.get(), inUse);
+    }
+
+    /*
+     * 2 gates park and free the same plates at once. A gate may be told a plate is still parked
+     * (by the facility), but a level must never be asked to park a plate it still holds
+     */
+    @Test
+    public void sharedPlatesTest() throws Exception {
+        ParkingFacility shared = new ParkingFacility("Shared");
+        CheckedLot lot = new CheckedLot("Level 0");
+        for (int id = 0; id < 10; id++) {
+            lot.addParkingSpot(id, id, 0);
+        }
+        shared.addLevel(lot);
+        AtomicInteger parked = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Void>> gates = new ArrayList<>();
+            for (int gate = 0; gate < 2; gate++) {
+                int seed = gate;
+                gates.add(pool.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 20000; i++) {
+                        String plate = "PL" + (100 + random.nextInt(3));
+                        if (shared.unoccupySpot(plate) != null) {
+                            continue;
+                        }
+                        try {
+                            if (shared.occupySpot(plate, 0) != null) {
+                                parked.incrementAndGet();
+                            }
+                        } catch (IllegalArgumentException e) {
+                            assertEquals("Plate already exists", e.getMessage()); // Parked by the other gate
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> gate: gates) {
+                gate.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertTrue(parked.get() > 0);
+        assertEquals(0, lot.heldPlateRequests.get());
+    }
+
+    ///// HELPER METHODS /////
+
+    // Returns the number of car spots of the lot with 2 motorcycles in them
+    public int sharedCarSpots(ParkingLot lot) {
+        int shared = 0;
+        for (ParkingSpot spot: lot.getParkingSpots().values()) {
+            if (spot instanceof CarSpot carSpot && carSpot.getMotorcycleCount() == 2) {
+                shared++;
+            }
+        }
+        return shared;
+    }
+
+    // Level that counts the requests to park a plate it still holds (which the facility must not make)
+    public static class CheckedLot extends ConcurrentParkingLot {
+        public final AtomicInteger heldPlateRequests = new AtomicInteger();
+
+        public CheckedLot(String name) {
+            super(name);
+        }
+
+        @Override
+        public ParkingSpot occupySpot(String plate, int flag) {
+            if (getPlateToSpot().containsKey(plate)) {
+                heldPlateRequests.incrementAndGet();
+            }
+            return super.occupySpot(plate, flag);
+        }
+    }
+}
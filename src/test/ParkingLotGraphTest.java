@@ -0,0 +1,436 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import exception.GraphDisconnectedException;
+import model.CompactGraph;
+import model.Intersection;
+import model.ParkingLotGraph;
+import model.SearchContext;
+import model.ShortestPath;
+import model.ShortestPathTree;
+import model.Vertex;
+
+/*
+Tests the parking lot graph on a small sample lot with an entrance and 6 intersections:
+
+    I_0 --1-- I_1 --2-- I_2
+     |         |         |
+     4         1         5
+     |         |         |
+    I_3 --1-- I_4 --1-- I_5        I_6 (not connected)
+*/
+public class ParkingLotGraphTest {
+
+    public ParkingLotGraph graph;
+    public Intersection[] intersections;
+
+    // Constructs the sample graph above
+    @Before
+    public void constructGraph() {
+        graph = new ParkingLotGraph("Lot 1");
+        intersections = new Intersection[7];
+        for (int i = 0; i < 7; i++) {
+            intersections[i] = new Intersection(i, "Intersection " + i);
+            graph.addVertex(intersections[i]);
+        }
+        graph.connectVertices(intersections[0], intersections[1], 1);
+        graph.connectVertices(intersections[1], intersections[2], 2);
+        graph.connectVertices(intersections[0], intersections[3], 4);
+        graph.connectVertices(intersections[1], intersections[4], 1);
+        graph.connectVertices(intersections[2], intersections[5], 5);
+        graph.connectVertices(intersections[3], intersections[4], 1);
+        graph.connectVertices(intersections[4], intersections[5], 1);
+    }
+
+    // Tests the shortest path found by running dijkstra's algorithm for a single path
+    @Test
+    public void findShortestPathTest() throws GraphDisconnectedException {
+        ShortestPath path = graph.findShortestPath(intersections[0], intersections[5]);
+        checkPath(path, 3, 0, 1, 4, 5);
+        ShortestPath path2 = graph.findShortestPath(intersections[0], intersections[3]);
+        checkPath(path2, 3, 0, 1, 4, 3);
+        ShortestPath path3 = graph.findShortestPath(intersections[2], intersections[2]);
+        checkPath(path3, 0, 2);
+    }
+
+    // Tests the cached shortest path tree gives the same paths as running dijkstra's algorithm
+    @Test
+    public void shortestPathTreeTest() throws GraphDisconnectedException {
+        ShortestPathTree tree = graph.getShortestPathTree(intersections[0]);
+        assertSame(intersections[0], tree.getSource());
+        for (int i = 0; i < 6; i++) {
+            ShortestPath expected = graph.findShortestPath(intersections[0], intersections[i]);
+            ShortestPath actual = tree.getShortestPath(intersections[i]);
+            assertEquals(expected.getDistance(), actual.getDistance(), 0.0);
+            assertEquals(expected.getPath(), actual.getPath());
+            assertEquals(expected.getDistance(), tree.getDistance(intersections[i]), 0.0);
+        }
+        checkPath(graph.findCachedShortestPath(intersections[0], intersections[2]), 3, 0, 1, 2);
+
+        // The tree is reused as long as the graph does not change
+        assertSame(tree, graph.getShortestPathTree(intersections[0]));
+        graph.connectVertices(intersections[0], intersections[1], 1); // Same distance, no change
+        assertSame(tree, graph.getShortestPathTree(intersections[0]));
+    }
+
+    // Tests that the cached trees are recomputed after the graph changes
+    @Test
+    public void shortestPathTreeInvalidationTest() throws GraphDisconnectedException {
+        ShortestPathTree tree = graph.getShortestPathTree(intersections[0]);
+
+        // A shorter edge from I_0 to I_5
+        graph.connectVertices(intersections[0], intersections[5], 2);
+        ShortestPathTree tree2 = graph.getShortestPathTree(intersections[0]);
+        assertNotSame(tree, tree2);
+        checkPath(graph.findCachedShortestPath(intersections[0], intersections[5]), 2, 0, 5);
+        assertEquals(3, tree.getDistance(intersections[5]), 0.0); // Old tree unchanged
+
+        // Disconnecting the new edge goes back to the old path
+        graph.disconnectVertices(intersections[0], intersections[5]);
+        assertNotSame(tree2, graph.getShortestPathTree(intersections[0]));
+        checkPath(graph.findCachedShortestPath(intersections[0], intersections[5]), 3, 0, 1, 4, 5);
+
+        // Disconnecting edges that do not exist does not recompute the tree
+        ShortestPathTree tree3 = graph.getShortestPathTree(intersections[0]);
+        graph.disconnectVertices(intersections[0], intersections[6]);
+        assertSame(tree3, graph.getShortestPathTree(intersections[0]));
+    }
+
+    // Tests that unreachable vertices throw GraphDisconnectedException
+    @Test
+    public void disconnectedTest() {
+        ShortestPathTree tree = graph.getShortestPathTree(intersections[0]);
+        assertFalse(tree.isReachable(intersections[6]));
+        assertTrue(tree.isReachable(intersections[5]));
+        assertEquals(Double.POSITIVE_INFINITY, tree.getDistance(intersections[6]), 0.0);
+        try {
+            tree.getShortestPath(intersections[6]);
+            fail();
+        } catch (GraphDisconnectedException e) {
+            // Pass
+        }
+        try {
+            graph.findShortestPath(intersections[0], intersections[6]);
+            fail();
+        } catch (GraphDisconnectedException e) {
+            // Pass
+        }
+    }
+
+    // Tests the compact snapshot has every edge once in each direction, and is rebuilt on changes
+    @Test
+    public void compactGraphTest() throws GraphDisconnectedException {
+        CompactGraph compact = graph.getCompactGraph();
+        assertEquals(7, compact.getVertexCount());
+        assertEquals(14, compact.getEdgeCount());
+        int number = compact.getVertexNumber(intersections[4]);
+        assertSame(intersections[4], compact.getVertex(number));
+        assertEquals(3, compact.getOffsets()[number + 1] - compact.getOffsets()[number]);
+        checkPath(compact.findShortestPath(intersections[0], intersections[5]), 3, 0, 1, 4, 5);
+
+        assertSame(compact, graph.getCompactGraph());
+        graph.addVertex(intersections[6]); // Already added, no change
+        assertSame(compact, graph.getCompactGraph());
+        graph.connectVertices(intersections[5], intersections[6], 2);
+        CompactGraph compact2 = graph.getCompactGraph();
+        assertNotSame(compact, compact2);
+        assertEquals(16, compact2.getEdgeCount());
+        checkPath(compact2.findShortestPath(intersections[0], intersections[6]), 5, 0, 1, 4, 5, 6);
+        assertEquals(-1, compact2.getVertexNumber(new Intersection(99, "Not in graph")));
+    }
+
+    // Tests that the compact graph finds the same distances as Floyd-Warshall on a random graph
+    @Test
+    public void compactGraphRandomTest() throws GraphDisconnectedException {
+        Intersection[] vertices = new Intersection[200];
+        ParkingLotGraph randomGraph = buildRandomGraph(vertices, new Random(3));
+        double[][] expected = allPairsDistances(vertices);
+        CompactGraph compact = randomGraph.getCompactGraph();
+        Random random = new Random(4);
+        for (int i = 0; i < 20; i++) {
+            Intersection start = vertices[random.nextInt(200)];
+            Intersection end = vertices[random.nextInt(200)];
+            ShortestPath actual = compact.findShortestPath(start, end);
+            assertEquals(expected[start.getIntersectionId()][end.getIntersectionId()], actual.getDistance(), 1e-9);
+            assertSame(start, actual.getPath().getFirst());
+            assertSame(end, actual.getPath().getLast());
+        }
+    }
+
+    // Tests that the bidirectional search finds the same distances as Floyd-Warshall on a random graph
+    @Test
+    public void bidirectionalRandomTest() throws GraphDisconnectedException {
+        Intersection[] vertices = new Intersection[200];
+        ParkingLotGraph randomGraph = buildRandomGraph(vertices, new Random(6));
+        double[][] expected = allPairsDistances(vertices);
+        Random random = new Random(7);
+        for (int i = 0; i < 100; i++) {
+            Intersection start = vertices[random.nextInt(200)];
+            Intersection end = vertices[random.nextInt(200)];
+            ShortestPath actual = randomGraph.findShortestPathBidirectional(start, end);
+            assertEquals(expected[start.getIntersectionId()][end.getIntersectionId()], actual.getDistance(), 1e-9);
+            checkEdges(actual);
+            assertSame(start, actual.getPath().getFirst());
+            assertSame(end, actual.getPath().getLast());
+        }
+        checkPath(graph.findShortestPathBidirectional(intersections[0], intersections[5]), 3, 0, 1, 4, 5);
+        checkPath(graph.findShortestPathBidirectional(intersections[0], intersections[1]), 1, 0, 1);
+        checkPath(graph.findShortestPathBidirectional(intersections[2], intersections[2]), 0, 2);
+        try {
+            graph.findShortestPathBidirectional(intersections[0], intersections[6]);
+            fail();
+        } catch (GraphDisconnectedException e) {
+            // Pass
+        }
+    }
+
+    // Tests that point to point searches stop early, and the bidirectional search explores less
+    @Test
+    public void earlyTerminationTest() throws GraphDisconnectedException {
+        int side = 40;
+        Intersection[] vertices = new Intersection[side * side];
+        ParkingLotGraph grid = new ParkingLotGraph("Grid lot");
+        for (int i = 0; i < vertices.length; i++) {
+            vertices[i] = new Intersection(i, "Intersection " + i);
+            grid.addVertex(vertices[i]);
+            if (i % side > 0) {
+                grid.connectVertices(vertices[i], vertices[i - 1], 1);
+            }
+            if (i >= side) {
+                grid.connectVertices(vertices[i], vertices[i - side], 1);
+            }
+        }
+        CompactGraph compact = grid.getCompactGraph();
+        SearchContext forward = compact.acquireContext();
+        SearchContext backward = compact.acquireContext();
+
+        // A close target only settles the vertices closer than it
+        assertEquals(2, compact.findShortestPath(vertices[0], vertices[side + 1], forward).getDistance(), 0.0);
+        assertTrue(forward.getExpansions() <= 10);
+        compact.releaseContext(forward);
+
+        // Corner to centre: one side settles about half of the grid, both sides together much less
+        Intersection centre = vertices[side / 2 * side + side / 2];
+        double distance = compact.findShortestPath(vertices[0], centre, forward).getDistance();
+        int oneSided = forward.getExpansions();
+        assertTrue(oneSided < vertices.length * 3 / 4);
+        compact.releaseContext(forward);
+        ShortestPath path = compact.findShortestPathBidirectional(vertices[0], centre, forward, backward);
+        assertEquals(distance, path.getDistance(), 0.0);
+        assertEquals(side + 1, path.getPath().size());
+        checkEdges(path);
+        assertTrue(forward.getExpansions() + backward.getExpansions() < oneSided);
+        compact.releaseContext(forward);
+        compact.releaseContext(backward);
+    }
+
+    // Tests that A* finds the same distances as Floyd-Warshall on a random lot with 3 levels
+    @Test
+    public void aStarRandomTest() throws GraphDisconnectedException {
+        Intersection[] vertices = new Intersection[150];
+        Random random = new Random(8);
+        ParkingLotGraph deckGraph = new ParkingLotGraph("Deck lot");
+        deckGraph.setRampCost(10);
+        for (int i = 0; i < vertices.length; i++) {
+            vertices[i] = new Intersection(i, "Intersection " + i, random.nextInt(100), random.nextInt(100),
+                random.nextInt(3));
+            deckGraph.addVertex(vertices[i]);
+        }
+        for (int i = 1; i < vertices.length; i++) {
+            connectAboveStraightLine(deckGraph, vertices[i], vertices[random.nextInt(i)], random.nextInt(5));
+        }
+        for (int i = 0; i < 2 * vertices.length; i++) {
+            connectAboveStraightLine(deckGraph, vertices[random.nextInt(vertices.length)],
+                vertices[random.nextInt(vertices.length)], random.nextInt(5));
+        }
+        assertTrue(deckGraph.getCompactGraph().hasAllCoordinates());
+        double[][] expected = allPairsDistances(vertices);
+        for (int i = 0; i < 100; i++) {
+            Intersection start = vertices[random.nextInt(vertices.length)];
+            Intersection end = vertices[random.nextInt(vertices.length)];
+            ShortestPath actual = deckGraph.findShortestPathAStar(start, end);
+            assertEquals(expected[start.getIntersectionId()][end.getIntersectionId()], actual.getDistance(), 1e-9);
+            checkEdges(actual);
+        }
+
+        // Without coordinates A* is dijkstra's algorithm
+        assertFalse(graph.getCompactGraph().hasAllCoordinates());
+        checkPath(graph.findShortestPathAStar(intersections[0], intersections[5]), 3, 0, 1, 4, 5);
+    }
+
+    // Tests that A* expands far fewer vertices than dijkstra's algorithm on an open surface lot
+    @Test
+    public void aStarExpansionTest() throws GraphDisconnectedException {
+        int side = 40;
+        Intersection[] vertices = new Intersection[side * side];
+        ParkingLotGraph grid = new ParkingLotGraph("Grid lot");
+        for (int i = 0; i < vertices.length; i++) {
+            vertices[i] = new Intersection(i, "Intersection " + i);
+            grid.addVertex(vertices[i]);
+            grid.setCoordinates(vertices[i], i % side, i / side, 0);
+            if (i % side > 0) {
+                grid.connectVertices(vertices[i], vertices[i - 1], 1);
+            }
+            if (i >= side) {
+                grid.connectVertices(vertices[i], vertices[i - side], 1);
+            }
+        }
+        CompactGraph compact = grid.getCompactGraph();
+        SearchContext context = compact.acquireContext();
+        Intersection start = vertices[side / 2 * side];
+        Intersection end = vertices[side / 2 * side + side - 1];
+        compact.findShortestPath(start, end, context);
+        int dijkstraExpansions = context.getExpansions();
+        compact.releaseContext(context);
+        ShortestPath path = compact.findShortestPathAStar(start, end, 0, context);
+        assertEquals(side - 1, path.getDistance(), 0.0);
+        assertTrue(context.getExpansions() * 4 < dijkstraExpansions);
+        compact.releaseContext(context);
+    }
+
+    // Tests that a reused search context gives the same results as a new one
+    @Test
+    public void searchContextReuseTest() throws GraphDisconnectedException {
+        CompactGraph compact = graph.getCompactGraph();
+        SearchContext context = compact.acquireContext();
+        compact.releaseContext(context);
+        for (int i = 0; i < 6; i++) {
+            checkPath(graph.findShortestPath(intersections[5], intersections[0]), 3, 5, 4, 1, 0);
+            checkPath(graph.findShortestPath(intersections[3], intersections[2]), 4, 3, 4, 1, 2);
+        }
+
+        // Queries use the pooled context, and leave it clear
+        assertSame(context, compact.acquireContext());
+        for (int v = 0; v < context.getVertexCount(); v++) {
+            assertEquals(Double.POSITIVE_INFINITY, context.getDistance(v), 0.0);
+            assertEquals(-1, context.getPredecessor(v));
+            assertFalse(context.isSettled(v));
+        }
+        assertEquals(0, context.getExpansions());
+        compact.releaseContext(context);
+    }
+
+    // Tests that many threads routing on the same graph at once all get the correct distances
+    @Test
+    public void concurrentQueryTest() throws InterruptedException {
+        Intersection[] vertices = new Intersection[200];
+        ParkingLotGraph randomGraph = buildRandomGraph(vertices, new Random(5));
+        double[][] expected = allPairsDistances(vertices);
+        AtomicInteger wrong = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            Random random = new Random(t);
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 300; i++) {
+                    Intersection start = vertices[random.nextInt(200)];
+                    Intersection end = vertices[random.nextInt(200)];
+                    try {
+                        ShortestPath path = i % 2 == 0 ? randomGraph.findShortestPath(start, end)
+                            : randomGraph.findCachedShortestPath(start, end);
+                        if (path.getDistance() != expected[start.getIntersectionId()][end.getIntersectionId()]) {
+                            wrong.incrementAndGet();
+                        }
+                    } catch (GraphDisconnectedException e) {
+                        wrong.incrementAndGet();
+                    }
+                }
+            });
+        }
+        for (Thread thread: threads) {
+            thread.start();
+        }
+        for (Thread thread: threads) {
+            thread.join();
+        }
+        assertEquals(0, wrong.get());
+    }
+
+    ///// HELPER METHODS /////
+
+    // Checks the distance of the path, and the ids of the intersections along it
+    public void checkPath(ShortestPath path, double distance, int... ids) {
+        assertEquals(distance, path.getDistance(), 0.0);
+        List<Vertex> vertices = path.getPath();
+        assertEquals(ids.length, vertices.size());
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(ids[i], ((Intersection) vertices.get(i)).getIntersectionId());
+        }
+    }
+
+    // Checks that consecutive vertices of the path are connected, and the edges add up to its distance
+    public void checkEdges(ShortestPath path) {
+        double total = 0;
+        Vertex prev = null;
+        for (Vertex vertex: path.getPath()) {
+            if (prev != null) {
+                assertTrue(prev.getAdjacentVertices().containsKey(vertex));
+                total += prev.getAdjacentVertices().get(vertex);
+            }
+            prev = vertex;
+        }
+        assertEquals(path.getDistance(), total, 1e-9);
+    }
+
+    // Connects the intersections with the straight line distance, plus the ramps, plus extra
+    public void connectAboveStraightLine(ParkingLotGraph deckGraph, Intersection v1, Intersection v2, double extra) {
+        double straight = Math.hypot(v1.getX() - v2.getX(), v1.getY() - v2.getY());
+        double ramps = deckGraph.getRampCost() * Math.abs(v1.getLevel() - v2.getLevel());
+        deckGraph.connectVertices(v1, v2, Math.ceil(straight) + ramps + extra);
+    }
+
+    // Builds a connected random graph on the given array of intersections (ids 0 to length - 1)
+    public ParkingLotGraph buildRandomGraph(Intersection[] vertices, Random random) {
+        ParkingLotGraph randomGraph = new ParkingLotGraph("Random lot");
+        for (int i = 0; i < vertices.length; i++) {
+            vertices[i] = new Intersection(i, "Intersection " + i);
+            randomGraph.addVertex(vertices[i]);
+            if (i > 0) {
+                randomGraph.connectVertices(vertices[i], vertices[random.nextInt(i)], 1 + random.nextInt(20));
+            }
+        }
+        for (int i = 0; i < 2 * vertices.length; i++) {
+            randomGraph.connectVertices(vertices[random.nextInt(vertices.length)],
+                vertices[random.nextInt(vertices.length)], 1 + random.nextInt(20));
+        }
+        return randomGraph;
+    }
+
+    // Returns the shortest distance between every pair of intersections, by Floyd-Warshall
+    public double[][] allPairsDistances(Intersection[] vertices) {
+        int n = vertices.length;
+        double[][] distances = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            Arrays.fill(distances[i], Double.POSITIVE_INFINITY);
+            distances[i][i] = 0;
+            for (Map.Entry<Vertex, Double> entry: vertices[i].getAdjacentVertices().entrySet()) {
+                int j = ((Intersection) entry.getKey()).getIntersectionId();
+                distances[i][j] = Math.min(distances[i][j], entry.getValue());
+            }
+        }
+        for (int k = 0; k < n; k++) {
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    if (distances[i][k] + distances[k][j] < distances[i][j]) {
+                        distances[i][j] = distances[i][k] + distances[k][j];
+                    }
+                }
+            }
+        }
+        return distances;
+    }
+}
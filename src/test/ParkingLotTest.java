@@ -6,16 +6,25 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
-import java.util.PriorityQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import model.Arrival;
+import model.BatchResult;
 import model.CarSpot;
 import model.CommericalSpot;
+import model.Intersection;
 import model.MotorcycleSpot;
+import model.OccupancySummary;
 import model.ParkingLot;
 import model.ParkingSpot;
+import model.ShortestPathTree;
+import model.SpotHeap;
 
 /*
  * @ Mu Ye Liu, Jan 2025
@@ -86,19 +95,19 @@ public class ParkingLotTest {
         checkVacantSpotCounts(parkingLot, 16, 6, 5, 5, 0);
 
         // Check the id's to make sure the priority queues are initialized correctly
-        PriorityQueue<CarSpot> vacantCarSpots = parkingLot.getVacantCarSpots();
+        SpotHeap<CarSpot> vacantCarSpots = parkingLot.getVacantCarSpots();
         int[] idsInOrderCar = {15, 13, 14, 16, 12, 11};
         for (int i: idsInOrderCar) {
             CarSpot spot = vacantCarSpots.poll();
             assertEquals(i, spot.getParkingSpotId());
         }
-        PriorityQueue<MotorcycleSpot> vacantMotorcycleSpots = parkingLot.getVacantMotorcycleSpots();
+        SpotHeap<MotorcycleSpot> vacantMotorcycleSpots = parkingLot.getVacantMotorcycleSpots();
         int [] idsInOrderMotorcycle = {23, 21, 22, 20, 24};
         for (int i: idsInOrderMotorcycle) {
             MotorcycleSpot spot = vacantMotorcycleSpots.poll();
             assertEquals(i, spot.getParkingSpotId());
         }
-        PriorityQueue<CommericalSpot> vacantCommericalSpots = parkingLot.getVacantCommericalSpots();
+        SpotHeap<CommericalSpot> vacantCommericalSpots = parkingLot.getVacantCommericalSpots();
         int [] idsInOrderCommercial = {34, 33, 32, 31};
         for (int i: idsInOrderCommercial) {
             CommericalSpot spot = vacantCommericalSpots.poll();
@@ -372,6 +381,32 @@ public class ParkingLotTest {
         checkVacantSpotCounts(lotWithoutMotorcycleSpot, 3, 3, 0, 0, 0);
     }
 
+    // Tests that the plate index always points each parked plate to the spot it is parked in
+    @Test
+    public void plateToSpotIndexTest() {
+        ParkingSpot carSpot1 = parkingLot.occupySpot("EJ323N", 0);
+        ParkingSpot motorcycleSpot1 = parkingLot.manuallyOccupy(20, "y12355", false);
+        assertEquals(carSpot1, parkingLot.getPlateToSpot().get("EJ323N"));
+        assertEquals(motorcycleSpot1, parkingLot.getPlateToSpot().get("Y12355"));
+        assertEquals(2, parkingLot.getPlateToSpot().size());
+
+        // Manually occupying with a plate that is already parked throws, and leaves index unchanged
+        try {
+            parkingLot.manuallyOccupy(11, "EJ323N", false);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Plate already exists", e.getMessage());
+        }
+        assertEquals(carSpot1, parkingLot.getPlateToSpot().get("EJ323N"));
+        checkVacantSpotCounts(parkingLot, 15, 5, 4, 4, 0);
+
+        // Unoccupying removes the plate from the index
+        assertEquals(carSpot1, parkingLot.unoccupySpot("EJ323N"));
+        assertNull(parkingLot.getPlateToSpot().get("EJ323N"));
+        assertNull(parkingLot.unoccupySpot("EJ323N"));
+        assertEquals(1, parkingLot.getPlateToSpot().size());
+    }
+
     // Tests changing the parking lot name
     @Test
     public void changeLotNameTest() {
@@ -387,7 +422,268 @@ public class ParkingLotTest {
         checkParkingSpotParameters(spotFound, true, "EJ323N");
     }
 
+    /*
+     * Tests that vehicles get the vacant spot with the shortest route from the entrance they used.
+     * The lot is one aisle I_0 --10-- I_1 --10-- I_2 --10-- I_3, with entrances at I_0 and I_3.
+     * Car spots 11, 12 are at I_0 (1 and 2 away), 13 at I_1, 14 at I_2, 15, 16 at I_3 (1 and 2 away).
+     * Motorcycle spots 20 at I_0, 22 at I_1, 23 at I_2 (1 away), 21 at I_3 (3 away), 24 not connected.
+     */
+    @Test
+    public void entranceRoutingTest() {
+        Intersection[] aisle = new Intersection[4];
+        for (int i = 0; i < 4; i++) {
+            aisle[i] = new Intersection(i, "Aisle " + i);
+            parkingLot.getGraph().addVertex(aisle[i]);
+            if (i > 0) {
+                parkingLot.getGraph().connectVertices(aisle[i - 1], aisle[i], 10);
+            }
+        }
+        parkingLot.connectSpot(11, aisle[0], 1);
+        parkingLot.connectSpot(12, aisle[0], 2);
+        parkingLot.connectSpot(13, aisle[1], 1);
+        parkingLot.connectSpot(14, aisle[2], 1);
+        parkingLot.connectSpot(15, aisle[3], 1);
+        parkingLot.connectSpot(16, aisle[3], 2);
+        parkingLot.connectSpot(20, aisle[0], 1);
+        parkingLot.connectSpot(22, aisle[1], 1);
+        parkingLot.connectSpot(23, aisle[2], 1);
+        parkingLot.connectSpot(21, aisle[3], 3);
+        assertNull(parkingLot.connectSpot(99, aisle[0], 1));
+        assertEquals("P_11", parkingLot.findParkingSpot(11).getId());
+
+        // Cars go to the nearest spot of their own entrance
+        assertEquals(11, parkingLot.occupySpot("CAR01", 0, aisle[0]).getParkingSpotId());
+        assertEquals(15, parkingLot.occupySpot("CAR02", 0, aisle[3]).getParkingSpotId());
+        assertEquals(12, parkingLot.occupySpot("CAR03", 0, aisle[0]).getParkingSpotId());
+
+        // Motorcycles from I_3, the spot that is not connected comes last
+        int[] expected = {21, 23, 22, 20, 24};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], parkingLot.occupySpot("MOTO0" + i, 1, aisle[3]).getParkingSpotId());
+        }
+
+        // Then the nearest car spot, which is then the only half full spot
+        CarSpot overflow = (CarSpot) parkingLot.occupySpot("MOTO05", 1, aisle[3]);
+        assertEquals(16, overflow.getParkingSpotId());
+        assertEquals(16, parkingLot.occupySpot("MOTO06", 1, aisle[0]).getParkingSpotId());
+        checkCarSpotParameters(overflow, true, "MOTO05", "MOTO06", 2);
+
+        // Without an entrance, still the furthest spot (13 at 108, 14 at 106)
+        assertEquals(13, parkingLot.occupySpot("CAR04", 0).getParkingSpotId());
+        checkVacantSpotCounts(parkingLot, 15, 1, 0, 4, 0);
+
+        // A freed spot is found again
+        parkingLot.unoccupySpot("CAR01");
+        assertEquals(11, parkingLot.occupySpot("CAR05", 0, aisle[0]).getParkingSpotId());
+        try {
+            parkingLot.occupySpot("CAR05", 0, aisle[3]);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Pass
+        }
+    }
+
+    // Tests entrances added by id, and that their orders follow changes of the graph
+    @Test
+    public void entranceIdTest() {
+        Intersection north = new Intersection(0, "North gate");
+        Intersection south = new Intersection(1, "South gate");
+        int[] carSpotIds = {11, 12, 13, 14, 15, 16};
+        for (int i = 0; i < 6; i++) {
+            parkingLot.connectSpot(carSpotIds[i], north, 1 + i);
+            parkingLot.connectSpot(carSpotIds[i], south, 6 - i);
+        }
+        assertTrue(parkingLot.addEntrance(1, north));
+        assertTrue(parkingLot.addEntrance(2, south));
+        assertFalse(parkingLot.addEntrance(2, north));
+        assertEquals(2, parkingLot.getEntrances().size());
+
+        assertEquals(11, parkingLot.occupySpot("CAR01", 0, 1).getParkingSpotId());
+        assertEquals(16, parkingLot.occupySpot("CAR02", 0, 2).getParkingSpotId());
+        try {
+            parkingLot.occupySpot("CAR03", 0, 3);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Entrance does not exist", e.getMessage());
+        }
+
+        // A new short cut from the north gate to spot 14 makes it the nearest
+        parkingLot.connectSpot(14, north, 0.5);
+        assertEquals(14, parkingLot.occupySpot("CAR03", 0, 1).getParkingSpotId());
+        assertEquals(15, parkingLot.occupySpot("CAR04", 0, 2).getParkingSpotId());
+        parkingLot.unoccupySpot("CAR03");
+        assertEquals(14, parkingLot.occupySpot("CAR05", 0, 1).getParkingSpotId());
+    }
+
+    /*
+     * Parks and unparks random vehicles through 3 entrances of a random lot (and manually), and
+     * checks every spot given through an entrance against the nearest vacant spot found by brute force
+     */
+    @Test
+    public void entranceIndexRandomTest() {
+        ParkingLot lot = new ParkingLot("Random lot");
+        Random random = new Random(9);
+        Intersection[] aisle = new Intersection[20];
+        for (int i = 0; i < aisle.length; i++) {
+            aisle[i] = new Intersection(i, "Aisle " + i);
+            if (i > 0) {
+                lot.getGraph().connectVertices(aisle[i], aisle[random.nextInt(i)], 1 + random.nextInt(10));
+            }
+        }
+        for (int id = 0; id < 150; id++) {
+            lot.addParkingSpot(id, random.nextInt(100), id % 3);
+            lot.connectSpot(id, aisle[random.nextInt(aisle.length)], 1 + random.nextInt(5));
+        }
+        for (int e = 0; e < 3; e++) {
+            lot.addEntrance(e, aisle[e * 7]);
+        }
+
+        List<String> parked = new ArrayList<>();
+        for (int round = 0; round < 2000; round++) {
+            if (!parked.isEmpty() && random.nextInt(3) == 0) {
+                lot.unoccupySpot(parked.remove(random.nextInt(parked.size())));
+                continue;
+            }
+            String plate = String.format("R%05d", round);
+            int flag = random.nextInt(3);
+            if (random.nextInt(5) == 0) {
+                if (lot.manuallyOccupy(random.nextInt(150), plate, flag == 1) != null) {
+                    parked.add(plate);
+                }
+                continue;
+            }
+            int entrance = random.nextInt(3);
+            ShortestPathTree routes = lot.getGraph().getShortestPathTree(lot.getEntrances().get(entrance));
+            double expected = nearestVacantDistance(lot, flag, routes);
+            ParkingSpot spot = lot.occupySpot(plate, flag, entrance);
+            if (spot == null) {
+                assertEquals(Double.NaN, expected, 0.0);
+            } else {
+                assertEquals(expected, routes.getDistance(spot), 0.0);
+                parked.add(plate);
+            }
+        }
+    }
+
+    /*
+     * Parks a batch with an invalid plate, a duplicate plate and every vehicle type, and checks the
+     * result of every arrival. Then fills the car spots with a batch that is too big, and lets a
+     * batch (with a bad and an unknown plate) leave again
+     */
+    @Test
+    public void batchOccupyAndUnoccupyTest() {
+        List<BatchResult> results = parkingLot.occupySpots(Arrays.asList(
+            new Arrival("ABC123", 0), new Arrival("bad", 0), new Arrival("XYZ789", 1),
+            new Arrival("abc-123", 2), new Arrival("CCC111", 2), new Arrival("DDD222", 0)));
+        assertEquals(6, results.size());
+        checkBatchResult(results.get(0), "ABC123", 15, null);
+        checkBatchResult(results.get(1), "bad", -1, "Plate is too long or short");
+        checkBatchResult(results.get(2), "XYZ789", 23, null);
+        checkBatchResult(results.get(3), "ABC123", -1, "Plate already exists");
+        checkBatchResult(results.get(4), "CCC111", 34, null);
+        checkBatchResult(results.get(5), "DDD222", 13, null);
+        assertEquals(4, parkingLot.getPlateToSpot().size());
+        checkVacantSpotCounts(parkingLot, 15, 4, 4, 3, 0);
+
+        // Plates that are already parked are rejected, and the cars beyond the 4 spots left get none
+        List<Arrival> arrivals = new ArrayList<>();
+        arrivals.add(new Arrival("DDD222", 0));
+        for (int i = 0; i < 6; i++) {
+            arrivals.add(new Arrival("CAR00" + i, 0));
+        }
+        results = parkingLot.occupySpots(arrivals);
+        checkBatchResult(results.get(0), "DDD222", -1, "Plate already exists");
+        int[] expectedIds = {14, 16, 12, 11, -1, -1};
+        for (int i = 0; i < 6; i++) {
+            checkBatchResult(results.get(i + 1), "CAR00" + i, expectedIds[i], null);
+        }
+        checkVacantSpotCounts(parkingLot, 15, 0, 4, 3, 0);
+        assertNull(parkingLot.getPlateToSpot().get("CAR005"));
+
+        results = parkingLot.unoccupySpots(Arrays.asList("abc 123", "XYZ789", "bad", "NOPE12", "CAR000"));
+        checkBatchResult(results.get(0), "ABC123", 15, null);
+        checkBatchResult(results.get(1), "XYZ789", 23, null);
+        checkBatchResult(results.get(2), "bad", -1, "Plate is too long or short");
+        checkBatchResult(results.get(3), "NOPE12", -1, null);
+        checkBatchResult(results.get(4), "CAR000", 14, null);
+        checkVacantSpotCounts(parkingLot, 15, 2, 5, 3, 0);
+        checkParkingSpotParameters(parkingLot.getParkingSpots().get(15), false, "");
+        assertEquals(5, parkingLot.getPlateToSpot().size());
+        assertEquals(15, parkingLot.getVacantCarSpots().peek().getParkingSpotId());
+    }
+
+    /*
+     * Motorcycles of a batch only overflow into the car spots that the cars of the batch left, even
+     * when they arrive before the cars
+     */
+    @Test
+    public void batchMotorcycleOverflowTest() {
+        List<Arrival> arrivals = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            arrivals.add(new Arrival("MOTO0" + i, 1));
+        }
+        for (int i = 0; i < 5; i++) {
+            arrivals.add(new Arrival("CAR00" + i, 0));
+        }
+        List<BatchResult> results = parkingLot.occupySpots(arrivals);
+        for (BatchResult result: results) {
+            assertTrue(result.isSuccess());
+        }
+        // 5 motorcycles fill the motorcycle spots, the other 2 share the car spot left by the cars
+        assertEquals(11, results.get(5).getSpot().getParkingSpotId());
+        assertEquals(11, results.get(6).getSpot().getParkingSpotId());
+        checkCarSpotParameters((CarSpot) parkingLot.getParkingSpots().get(11), true, "MOTO05", "MOTO06", 2);
+        checkVacantSpotCounts(parkingLot, 15, 0, 0, 4, 0);
+    }
+
+    // A flag other than 0, 1 or 2 parks as a commercial vehicle, in a batch as in occupySpot
+    @Test
+    public void batchUnknownFlagTest() {
+        List<BatchResult> results = parkingLot.occupySpots(Arrays.asList(
+            new Arrival("TRUCK1", 5), new Arrival("TRUCK2", -1)));
+        checkBatchResult(results.get(0), "TRUCK1", 34, null);
+        checkBatchResult(results.get(1), "TRUCK2", 33, null);
+        assertEquals(32, parkingLot.occupySpot("TRUCK3", 9).getParkingSpotId());
+        checkVacantSpotCounts(parkingLot, 15, 6, 5, 1, 0);
+    }
+
     ///// HELPER METHODs /////
+
+    // Checks the plate, the id of the spot (-1 if none) and the error of a batch result
+    public void checkBatchResult(BatchResult result, String plate, int spotId, String error) {
+        assertEquals(plate, result.getPlate());
+        assertEquals(spotId, result.getSpot() == null ? -1 : result.getSpot().getParkingSpotId());
+        assertEquals(error, result.getError());
+        assertEquals(spotId >= 0, result.isSuccess());
+    }
+
+
+    /*
+     * Returns the route distance of the nearest spot that occupySpot(plate, flag, entrance) should
+     * take, by checking every vacant spot of the lot. NaN if there is none
+     */
+    public double nearestVacantDistance(ParkingLot lot, int flag, ShortestPathTree routes) {
+        List<SpotHeap<? extends ParkingSpot>> queues = new ArrayList<>();
+        if (flag == 0) {
+            queues.add(lot.getVacantCarSpots());
+        } else if (flag == 1) {
+            queues.add(lot.getVacantMotorcycleSpots());
+            queues.add(lot.getHalfFullCarSpots());
+            queues.add(lot.getVacantCarSpots());
+        } else {
+            queues.add(lot.getVacantCommericalSpots());
+        }
+        for (SpotHeap<? extends ParkingSpot> queue: queues) {
+            if (!queue.isEmpty()) {
+                double nearest = Double.POSITIVE_INFINITY;
+                for (int i = 0; i < queue.size(); i++) {
+                    nearest = Math.min(nearest, routes.getDistance(queue.get(i)));
+                }
+                return nearest;
+            }
+        }
+        return Double.NaN;
+    }
     
     // Helper that checks the size of the dynamic fields that store parking spots
     public void checkVacantSpotCounts(ParkingLot lot, int a, int b, int c, int d, int e) {
@@ -396,6 +692,15 @@ public class ParkingLotTest {
         assertEquals(c, lot.getVacantMotorcycleSpots().size());
         assertEquals(d, lot.getVacantCommericalSpots().size());
         assertEquals(e, lot.getHalfFullCarSpots().size());
+
+        // The occupancy summary must count the same spots without the queues
+        OccupancySummary summary = lot.getOccupancySummary();
+        assertEquals(a, summary.getTotal(0) + summary.getTotal(1) + summary.getTotal(2));
+        assertEquals(b, summary.getVacantCarSpots());
+        assertEquals(c, summary.getVacantMotorcycleSpots());
+        assertEquals(d, summary.getVacantCommercialSpots());
+        assertEquals(e, summary.getHalfFullCarSpots());
+        assertEquals(a - b - c - d, summary.getTotalInUse());
     }
 
     /*
@@ -0,0 +1,95 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import model.PlateCodec;
+
+/*
+Tests the plate formatting and the packed plate codes of PlateCodec against the regular expression
+the lot used to format plates with
+*/
+public class PlateCodecTest {
+
+    // Formats plates with spaces, symbols, lowercase letters and different lengths
+    @Test
+    public void normalizeTest() {
+        assertEquals("ABC123", PlateCodec.normalize("abc 123"));
+        assertEquals("ABC123", PlateCodec.normalize("  A-b-C_1.2.3 "));
+        assertEquals("Z9Z9Z", PlateCodec.normalize("z9z9z"));
+        assertEquals("ABCDEFG", PlateCodec.normalize("ABC DEFG"));
+        String formatted = "XYZ7890";
+        assertSame(formatted, PlateCodec.normalize(formatted)); // Already formatted, not copied
+        checkRejected("ABCD");
+        checkRejected("ABCDEFGH");
+        checkRejected("!!!!!!!");
+        checkRejected("");
+        checkRejected("éèêëàâ1");
+    }
+
+    // Encodes and decodes plates, and checks that the codes are unique
+    @Test
+    public void encodeTest() {
+        assertEquals(PlateCodec.encode("ABC123"), PlateCodec.encode("abc-123"));
+        assertEquals("ABC123", PlateCodec.decode(PlateCodec.encode("abc-123")));
+        assertEquals("0000000", PlateCodec.decode(PlateCodec.encode("0000000")));
+        assertEquals("ZZZZZZZ", PlateCodec.decode(PlateCodec.encode("zzzzzzz")));
+        assertNotEquals(PlateCodec.encode("ABC12"), PlateCodec.encode("ABC120"));
+        try {
+            PlateCodec.encode("ABCDEFGH");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Plate is too long or short", e.getMessage());
+        }
+
+        // Random plates: same formatting as the regular expression, and one code per plate
+        Random random = new Random(14);
+        String symbols = "abcXYZ0189 -._#";
+        Map<Long, String> codes = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder input = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int j = 0; j < length; j++) {
+                input.append(symbols.charAt(random.nextInt(symbols.length())));
+            }
+            String expected = input.toString().replaceAll("[^a-zA-Z0-9]", "").toUpperCase();
+            if (expected.length() < 5 || expected.length() > 7) {
+                checkRejected(input.toString());
+                continue;
+            }
+            assertEquals(expected, PlateCodec.normalize(input.toString()));
+            long code = PlateCodec.encode(input.toString());
+            assertEquals(expected, PlateCodec.decode(code));
+            String previous = codes.put(code, expected);
+            if (previous != null) {
+                assertEquals(expected, previous);
+            }
+        }
+    }
+
+    ///// HELPER METHODS /////
+
+    // Checks that the plate is rejected by both normalize and encode
+    public void checkRejected(String input) {
+        try {
+            PlateCodec.normalize(input);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Plate is too long or short", e.getMessage());
+        }
+        try {
+            PlateCodec.encode(input);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Plate is too long or short", e.getMessage());
+        }
+    }
+}
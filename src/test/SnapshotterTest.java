@@ -0,0 +1,165 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import model.CarSpot;
+import model.ConcurrentParkingLot;
+import model.EventLog;
+import model.LotSnapshot;
+import model.ParkingLot;
+import model.ParkingSpot;
+import model.Snapshotter;
+
+/*
+Tests the snapshots of a logged parking lot: a lot recovered from the last snapshot and the rest of
+the log must be the same as the lot that was logged, and the segments a snapshot covers are deleted.
+*/
+public class SnapshotterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    public Path directory;
+
+    @Before
+    public void createDirectory() {
+        directory = folder.getRoot().toPath().resolve("log");
+    }
+
+    // Takes snapshots between changes, then recovers from the last snapshot and the tail of the log
+    @Test
+    public void snapshotAndRecoverTest() throws IOException {
+        EventLog log = EventLog.open(directory, 1, 0, 200);
+        ParkingLot lot = new ParkingLot("Lot 1");
+        lot.logTo(log);
+        Snapshotter snapshotter = Snapshotter.start(log, 60_000);
+        for (int id = 0; id < 30; id++) {
+            lot.addParkingSpot(id, 100 + id, id < 20 ? 0 : id < 25 ? 1 : 2);
+        }
+        for (int i = 0; i < 10; i++) {
+            lot.occupySpot("CAR00" + i, 0);
+            lot.occupySpot("MOTO0" + i, 1);
+        }
+        lot.manuallyOccupy(0, "HALF01", true);
+        log.sync();
+        long first = snapshotter.snapshot();
+        assertEquals(log.getLastSequence(), first);
+        assertEquals(1, countFiles("events-")); // Only the current segment is left
+
+        // Later changes, a second snapshot (older segments and the first snapshot are deleted), more changes
+        for (int i = 0; i < 10; i += 2) {
+            lot.unoccupySpot("CAR00" + i);
+            lot.unoccupySpot("MOTO0" + i);
+        }
+        lot.occupySpot("TRUCK1", 2);
+        log.sync();
+        long second = snapshotter.snapshot();
+        assertTrue(second > first);
+        assertEquals(1, countFiles("events-"));
+        assertEquals(1, countFiles("snapshot-"));
+        LotSnapshot snapshot = LotSnapshot.read(directory.resolve(String.format("snapshot-%020d.dat", second)));
+        assertEquals(30, snapshot.size());
+        assertEquals(second, snapshot.getSequence());
+        lot.unoccupySpot("HALF01");
+        lot.occupySpot("CAR100", 0);
+        snapshotter.close();
+        log.close();
+
+        ParkingLot recovered = new ParkingLot("Lot 1");
+        assertEquals(second + 2, Snapshotter.recover(directory, recovered));
+        checkSameLot(lot, recovered);
+    }
+
+    // Snapshots in the background while gates park and leave; recovery still gives the same lot
+    @Test
+    public void backgroundSnapshotTest() throws IOException, InterruptedException {
+        EventLog log = EventLog.open(directory, 32, 1, 4096);
+        ConcurrentParkingLot lot = new ConcurrentParkingLot("Lot 1");
+        lot.logTo(log);
+        for (int id = 0; id < 200; id++) {
+            lot.addParkingSpot(id, id, id % 10 < 7 ? 0 : id % 10 < 9 ? 1 : 2);
+        }
+        Snapshotter snapshotter = Snapshotter.start(log, 5);
+        List<Thread> gates = new ArrayList<>();
+        for (int gate = 0; gate < 3; gate++) {
+            int seed = gate;
+            gates.add(new Thread(() -> {
+                Random random = new Random(seed);
+                List<String> parked = new ArrayList<>();
+                for (int i = 0; i < 20000; i++) {
+                    if (random.nextInt(2) == 0 && !parked.isEmpty()) {
+                        lot.unoccupySpot(parked.remove(random.nextInt(parked.size())));
+                    } else {
+                        String plate = "G" + seed + "P" + (100 + random.nextInt(60));
+                        if (!parked.contains(plate) && lot.occupySpot(plate, random.nextInt(3)) != null) {
+                            parked.add(plate);
+                        }
+                    }
+                }
+            }));
+        }
+        for (Thread gate: gates) {
+            gate.start();
+        }
+        for (Thread gate: gates) {
+            gate.join();
+        }
+        snapshotter.close();
+        assertNull(snapshotter.getLastFailure());
+        assertTrue(snapshotter.getSnapshotSequence() > 0);
+        log.close();
+
+        ParkingLot recovered = new ParkingLot("Lot 1");
+        Snapshotter.recover(directory, recovered);
+        checkSameLot(lot, recovered);
+    }
+
+    ///// HELPER METHODS /////
+
+    // Checks that both lots have the same spots, in the same state, with the same plates
+    public void checkSameLot(ParkingLot expected, ParkingLot actual) {
+        assertEquals(expected.getParkingSpots().size(), actual.getParkingSpots().size());
+        for (ParkingSpot spot: expected.getParkingSpots().values()) {
+            ParkingSpot other = actual.getParkingSpots().get(spot.getParkingSpotId());
+            assertEquals(spot.getClass(), other.getClass());
+            assertEquals(spot.getOccupiedStatus(), other.getOccupiedStatus());
+            if (spot instanceof CarSpot carSpot) {
+                assertEquals(carSpot.getMotorcycleCount(), ((CarSpot) other).getMotorcycleCount());
+            }
+        }
+        assertEquals(expected.getPlateToSpot().size(), actual.getPlateToSpot().size());
+        for (String plate: expected.getLicensePlates()) {
+            assertEquals(expected.getPlateToSpot().get(plate).getParkingSpotId(),
+                         actual.getPlateToSpot().get(plate).getParkingSpotId());
+        }
+        assertEquals(expected.getVacantCarSpots().size(), actual.getVacantCarSpots().size());
+        assertEquals(expected.getHalfFullCarSpots().size(), actual.getHalfFullCarSpots().size());
+        assertEquals(expected.getVacantMotorcycleSpots().size(), actual.getVacantMotorcycleSpots().size());
+        assertEquals(expected.getVacantCommericalSpots().size(), actual.getVacantCommericalSpots().size());
+        assertEquals(expected.getOccupancySummary().getTotalInUse(), actual.getOccupancySummary().getTotalInUse());
+        assertEquals(expected.getOccupancySummary().getHalfFullCarSpots(),
+                     actual.getOccupancySummary().getHalfFullCarSpots());
+    }
+
+    // Returns the number of files in the log directory whose name starts with the prefix
+    public long countFiles(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(prefix)).count();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import model.ConcurrentParkingLot;
+import model.ParkingLot;
+import model.ParkingSpot;
+import model.SpotChange;
+import model.SpotChangePublisher;
+
+/*
+Tests the stream of spot changes of a lot: subscribers get the changes they requested, a slow
+subscriber gets the pending changes coalesced by spot, and a subscriber that applies every change it
+gets ends up with the same vacant spots as the lot.
+*/
+public class SpotChangePublisherTest {
+
+    public ParkingLot parkingLot;
+
+    // A lot of 4 car spots, 2 motorcycle spots and 1 commercial spot
+    @Before
+    public void constructParkingLot() {
+        parkingLot = new ParkingLot("Lot 1");
+        for (int id = 0; id < 7; id++) {
+            parkingLot.addParkingSpot(id, 10 + id, id < 4 ? 0 : id < 6 ? 1 : 2);
+        }
+    }
+
+    // Every kind of change is delivered in order, on request
+    @Test
+    public void changeKindsTest() {
+        SpotChangePublisher publisher = new SpotChangePublisher(Runnable::run);
+        parkingLot.publishTo(publisher);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        parkingLot.occupySpot("TRUCK1", 2);
+        parkingLot.manuallyOccupy(0, "MOTO01", true);
+        parkingLot.manuallyOccupy(0, "MOTO02", true);
+        parkingLot.unoccupySpot("MOTO01");
+        assertEquals(0, subscriber.changes.size()); // Nothing requested yet
+
+        subscriber.subscription.request(10);
+        assertEquals(2, subscriber.changes.size()); // Spot 0 coalesced from vacant to half full
+        checkChange(subscriber.changes.get(0), 6, SpotChange.Kind.OCCUPIED, true);
+        checkChange(subscriber.changes.get(1), 0, SpotChange.Kind.HALF_FULL, true);
+
+        // Requested changes are delivered right away
+        parkingLot.unoccupySpot("TRUCK1");
+        parkingLot.occupySpot("CAR001", 0);
+        assertEquals(4, subscriber.changes.size());
+        checkChange(subscriber.changes.get(2), 6, SpotChange.Kind.FREED, false);
+        checkChange(subscriber.changes.get(3), 3, SpotChange.Kind.OCCUPIED, true);
+
+        publisher.close();
+        assertTrue(subscriber.completed);
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    // A slow subscriber gets one change per spot, and none for a spot that went back to its state
+    @Test
+    public void coalesceTest() {
+        SpotChangePublisher publisher = new SpotChangePublisher(Runnable::run);
+        parkingLot.publishTo(publisher);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        for (int i = 0; i < 100; i++) {
+            parkingLot.occupySpot("CAR" + (100 + i % 4), 0);
+            if (i % 4 == 3) {
+                for (int j = 0; j < 4; j++) {
+                    parkingLot.unoccupySpot("CAR" + (100 + j));
+                }
+            }
+        }
+        parkingLot.occupySpot("CAR999", 0);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals(1, subscriber.changes.size());
+        checkChange(subscriber.changes.get(0), 3, SpotChange.Kind.OCCUPIED, true);
+
+        // A cancelled subscriber gets nothing more
+        subscriber.subscription.cancel();
+        parkingLot.unoccupySpot("CAR999");
+        assertEquals(1, subscriber.changes.size());
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    // Gates park and leave on many threads while a slow sign keeps its own copy of the vacant spots
+    @Test
+    public void concurrentGatesTest() throws InterruptedException {
+        ConcurrentParkingLot lot = new ConcurrentParkingLot("Lot 2");
+        Map<Integer, Boolean> vacant = new HashMap<>();
+        for (int id = 0; id < 30; id++) {
+            lot.addParkingSpot(id, id, id % 3);
+            vacant.put(id, true);
+        }
+        SpotChangePublisher publisher = new SpotChangePublisher();
+        lot.publishTo(publisher);
+        CountDownLatch done = new CountDownLatch(1);
+        publisher.subscribe(new Flow.Subscriber<SpotChange>() {
+            Flow.Subscription subscription;
+
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            public void onNext(SpotChange change) {
+                vacant.put(change.getSpotId(), change.isVacant());
+                Thread.yield(); // A slow sign
+                subscription.request(1);
+            }
+
+            public void onError(Throwable error) {}
+
+            public void onComplete() {
+                done.countDown();
+            }
+        });
+
+        List<Thread> gates = new ArrayList<>();
+        for (int gate = 0; gate < 4; gate++) {
+            int seed = gate;
+            gates.add(new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 5000; i++) {
+                    String plate = "G" + seed + "P" + (100 + random.nextInt(10));
+                    if (lot.unoccupySpot(plate) == null) {
+                        lot.occupySpot(plate, random.nextInt(3));
+                    }
+                }
+            }));
+        }
+        for (Thread gate: gates) {
+            gate.start();
+        }
+        for (Thread gate: gates) {
+            gate.join();
+        }
+        publisher.close();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (ParkingSpot spot: lot.getParkingSpots().values()) {
+            boolean spotVacant = !spot.getOccupiedStatus();
+            assertEquals(spotVacant, vacant.get(spot.getParkingSpotId()));
+        }
+    }
+
+    ///// HELPER METHODS /////
+
+    // Checks the spot, kind and previous state of a change
+    public void checkChange(SpotChange change, int spotId, SpotChange.Kind kind, boolean wasVacant) {
+        assertEquals(spotId, change.getSpotId());
+        assertEquals(kind, change.getKind());
+        assertEquals(wasVacant, change.wasVacant());
+    }
+
+    // Subscriber that keeps every change it gets, and only requests when the test asks it to
+    public static class RecordingSubscriber implements Flow.Subscriber<SpotChange> {
+        public Flow.Subscription subscription;
+        public List<SpotChange> changes = new ArrayList<>();
+        public boolean completed;
+
+        public void onSubscribe(Flow.Subscription subscription) { this.subscription = subscription; }
+        public void onNext(SpotChange change) { changes.add(change); }
+        public void onError(Throwable error) {}
+        public void onComplete() { completed = true; }
+    }
+}
@@ -0,0 +1,165 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import model.CarSpot;
+import model.ParkingLot;
+import model.SpotHeap;
+
+/*
+Tests the indexed spot heap: ordering, removal of arbitrary spots, and membership checks.
+*/
+public class SpotHeapTest {
+
+    public ParkingLot lot;
+    public SpotHeap<CarSpot> heap;
+    public List<CarSpot> spots;
+
+    // Creates a max heap with 6 car spots with different distances
+    @Before
+    public void createHeap() {
+        lot = new ParkingLot("Lot 1");
+        heap = SpotHeap.furthestFirst();
+        spots = new ArrayList<>();
+        int[] ids = {11, 12, 13, 14, 15, 16};
+        int[] dists = {100, 101, 108, 106, 109, 104};
+        for (int i = 0; i < 6; i++) {
+            CarSpot spot = newSpot(ids[i], dists[i]);
+            spots.add(spot);
+            assertTrue(heap.add(spot));
+        }
+    }
+
+    // Tests that the spots are polled furthest first, and the heap is empty afterwards
+    @Test
+    public void pollOrderTest() {
+        assertEquals(6, heap.size());
+        assertEquals(15, heap.peek().getParkingSpotId());
+        int[] idsInOrder = {15, 13, 14, 16, 12, 11};
+        for (int id: idsInOrder) {
+            CarSpot spot = heap.poll();
+            assertEquals(id, spot.getParkingSpotId());
+            assertFalse(heap.contains(spot));
+        }
+        assertTrue(heap.isEmpty());
+        assertNull(heap.poll());
+        assertNull(heap.peek());
+    }
+
+    // Tests draining several spots at once, in poll order, and draining more than the heap holds
+    @Test
+    public void drainTest() {
+        CarSpot[] drained = new CarSpot[10];
+        assertEquals(4, heap.drain(drained, 4));
+        int[] idsInOrder = {15, 13, 14, 16};
+        for (int i = 0; i < 4; i++) {
+            assertEquals(idsInOrder[i], drained[i].getParkingSpotId());
+            assertFalse(heap.contains(drained[i]));
+        }
+        assertEquals(12, heap.peek().getParkingSpotId());
+        assertTrue(heap.add(drained[1])); // id 13 goes back to the root
+        assertEquals(3, heap.drain(drained, 10));
+        assertEquals(13, drained[0].getParkingSpotId());
+        assertEquals(11, drained[2].getParkingSpotId());
+        assertTrue(heap.isEmpty());
+        assertEquals(0, heap.drain(drained, 10));
+    }
+
+    // Tests adding the same spot twice, and sharing spots between 2 heaps
+    @Test
+    public void containsAndDuplicateAddTest() {
+        CarSpot spot = spots.get(2);
+        assertTrue(heap.contains(spot));
+        assertFalse(heap.add(spot));
+        assertEquals(6, heap.size());
+
+        // Moving the spot to another heap
+        SpotHeap<CarSpot> otherHeap = SpotHeap.furthestFirst();
+        assertFalse(otherHeap.contains(spot));
+        assertTrue(heap.remove(spot));
+        assertTrue(otherHeap.add(spot));
+        assertFalse(heap.contains(spot));
+        assertTrue(otherHeap.contains(spot));
+        assertFalse(heap.remove(spot));
+    }
+
+    // Tests removing spots from the middle of the heap
+    @Test
+    public void removeTest() {
+        assertTrue(heap.remove(spots.get(3))); // id 14
+        assertTrue(heap.remove(spots.get(4))); // id 15, the root
+        assertEquals(4, heap.size());
+        int[] idsInOrder = {13, 16, 12, 11};
+        for (int id: idsInOrder) {
+            assertEquals(id, heap.poll().getParkingSpotId());
+        }
+    }
+
+    // Tests re-ordering a spot after its key changed, using a comparator on an external key
+    @Test
+    public void updateTest() {
+        lot = new ParkingLot("Lot 2"); // Ids 0 to 19, some already in the first lot
+        double[] key = new double[20];
+        SpotHeap<CarSpot> keyedHeap = new SpotHeap<>((a, b) ->
+            Double.compare(key[a.getParkingSpotId()], key[b.getParkingSpotId()]));
+        List<CarSpot> keyedSpots = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            key[i] = i;
+            CarSpot spot = newSpot(i, i);
+            keyedSpots.add(spot);
+            keyedHeap.add(spot);
+        }
+        // Decrease key of last spot, increase key of first spot
+        key[19] = -1;
+        assertTrue(keyedHeap.update(keyedSpots.get(19)));
+        key[0] = 100;
+        assertTrue(keyedHeap.update(keyedSpots.get(0)));
+        assertEquals(19, keyedHeap.poll().getParkingSpotId());
+        for (int i = 1; i < 19; i++) {
+            assertEquals(i, keyedHeap.poll().getParkingSpotId());
+        }
+        assertEquals(0, keyedHeap.poll().getParkingSpotId());
+        assertFalse(keyedHeap.update(keyedSpots.get(0)));
+    }
+
+    // Tests many random removals against the expected order
+    @Test
+    public void randomRemoveTest() {
+        SpotHeap<CarSpot> bigHeap = SpotHeap.furthestFirst();
+        List<CarSpot> remaining = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            CarSpot spot = newSpot(100 + i, random.nextInt(1000));
+            remaining.add(spot);
+            bigHeap.add(spot);
+        }
+        for (int i = 0; i < 250; i++) {
+            assertTrue(bigHeap.remove(remaining.remove(random.nextInt(remaining.size()))));
+        }
+        remaining.sort((a, b) -> Double.compare(b.getDistance(), a.getDistance()));
+        CarSpot[] drained = new CarSpot[100];
+        assertEquals(100, bigHeap.drain(drained, 100)); // The first 100 at once, then one at a time
+        for (int i = 0; i < remaining.size(); i++) {
+            CarSpot next = i < 100 ? drained[i] : bigHeap.poll();
+            assertEquals(remaining.get(i).getDistance(), next.getDistance(), 0.0);
+        }
+        assertTrue(bigHeap.isEmpty());
+    }
+
+    ///// HELPER METHODS /////
+
+    // Adds a car spot to the lot, since a heap only holds spots numbered by their lot
+    public CarSpot newSpot(int id, double distance) {
+        return (CarSpot) lot.addParkingSpot(id, distance, 0);
+    }
+}